@@ -0,0 +1,114 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.compress;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.compress.CompressionDictionary;
+import org.hammerc.compress.Compressor;
+import org.hammerc.compress.DeflateCodec;
+import org.hammerc.compress.DictionaryCodec;
+import org.hammerc.compress.ICompressionCodec;
+import org.hammerc.compress.LZ4Codec;
+import org.hammerc.compress.ZLibCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 对比各压缩算法通过 Compressor 编码及解码数据帧的性能.
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark
+{
+	/**
+	 * 压缩算法的名称.
+	 */
+	@Param({"zlib", "deflate", "lz4", "dictionary"})
+	public String codec;
+	
+	/**
+	 * 待压缩数据的大小.
+	 */
+	@Param({"256", "4096", "65536"})
+	public int size;
+	
+	//编码及解码使用的对象
+	private Compressor _compressor;
+	//待压缩的数据
+	private byte[] _data;
+	//编码后的数据帧
+	private byte[] _frame;
+	
+	@Setup
+	public void setup()
+	{
+		ICompressionCodec instance;
+		if("dictionary".equals(codec))
+		{
+			//使用不同随机种子生成的样本训练字典, 避免字典中直接包含待压缩的数据
+			ArrayList<byte[]> samples = new ArrayList<byte[]>();
+			for(int i = 0; i < 200; i++)
+			{
+				samples.add(generate(new Random(i + 1000), Math.min(size, 1024)));
+			}
+			DictionaryCodec dictionaryCodec = new DictionaryCodec();
+			dictionaryCodec.addDictionary(CompressionDictionary.train(1, 1, samples, CompressionDictionary.DEFAULT_SIZE));
+			instance = dictionaryCodec;
+		}
+		else
+		{
+			instance = "lz4".equals(codec) ? new LZ4Codec() : "deflate".equals(codec) ? new DeflateCodec() : new ZLibCodec();
+		}
+		_compressor = new Compressor(instance);
+		_data = generate(new Random(42), size);
+		_frame = _compressor.encode(_data);
+	}
+	
+	private static byte[] generate(Random random, int size)
+	{
+		//生成有一定重复度的数据, 接近实际的协议消息
+		String[] words = {"player", "item", "gold", "level", "guild", "0", "1", "2", "3", "4"};
+		StringBuilder builder = new StringBuilder(size);
+		while(builder.length() < size)
+		{
+			builder.append(words[random.nextInt(words.length)]);
+		}
+		return builder.substring(0, size).getBytes();
+	}
+	
+	@Benchmark
+	public byte[] encode()
+	{
+		return _compressor.encode(_data);
+	}
+	
+	@Benchmark
+	public byte[] decode() throws Exception
+	{
+		return _compressor.decode(_frame);
+	}
+}
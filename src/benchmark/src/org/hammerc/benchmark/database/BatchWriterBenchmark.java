@@ -0,0 +1,91 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.database;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.database.BatchWriter;
+import org.hammerc.database.ConnectionPool;
+import org.hammerc.database.DatabaseUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 对比逐条执行插入语句与使用 BatchWriter 批量插入的性能, 结果为每行数据的平均耗时.
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchWriterBenchmark
+{
+	//每次测试插入的行数
+	private static final int ROWS = 1000;
+	//插入数据的语句
+	private static final String SQL = "INSERT INTO event (id, name) VALUES (?, ?)";
+	
+	//测试使用的连接池
+	private ConnectionPool _pool;
+	//测试使用的批量写入对象
+	private BatchWriter _writer;
+	//下一行数据的主键
+	private int _id;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		_pool = new ConnectionPool(new H2ConnectionConfig("batch_benchmark"), 1);
+		DatabaseUtils.executeSQL(_pool, "DROP TABLE IF EXISTS event");
+		DatabaseUtils.executeSQL(_pool, "CREATE TABLE event (id INT PRIMARY KEY, name VARCHAR(32))");
+		_writer = new BatchWriter(_pool, SQL, ROWS, 0, true);
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		_pool.cleanup();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void singleInsert() throws Exception
+	{
+		for(int i = 0; i < ROWS; i++)
+		{
+			int id = _id++;
+			DatabaseUtils.executeSQL(_pool, SQL, id, "event" + id);
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void batchInsert() throws Exception
+	{
+		for(int i = 0; i < ROWS; i++)
+		{
+			int id = _id++;
+			_writer.add(id, "event" + id);
+		}
+		_writer.flush();
+	}
+}
@@ -0,0 +1,71 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.database;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.database.ConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 测试多个线程竞争 ConnectionPool 中的连接时获取及归还连接的性能.
+ * @author wizardc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ConnectionPoolBenchmark
+{
+	/**
+	 * 连接池的大小.
+	 */
+	@Param({"2", "8"})
+	public int poolSize;
+	
+	//测试使用的连接池
+	private ConnectionPool _pool;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		_pool = new ConnectionPool(new H2ConnectionConfig("pool_benchmark"), poolSize);
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		_pool.cleanup();
+	}
+	
+	@Benchmark
+	public Connection getAndJoin() throws Exception
+	{
+		Connection connection = _pool.getConnection();
+		_pool.joinConnection(connection);
+		return connection;
+	}
+}
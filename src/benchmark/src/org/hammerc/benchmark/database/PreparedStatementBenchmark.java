@@ -0,0 +1,85 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.database;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.database.ConnectionPool;
+import org.hammerc.database.DatabaseUtils;
+import org.hammerc.database.QueryResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 对比每次拼接 SQL 语句执行与使用连接池缓存的预编译语句执行相同查询的性能.
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreparedStatementBenchmark
+{
+	/**
+	 * 每个连接缓存的预编译语句数量, 为 0 时每次都会重新创建预编译语句.
+	 */
+	@Param({"0", "32"})
+	public int statementCacheSize;
+	
+	//测试使用的连接池
+	private ConnectionPool _pool;
+	//下一次查询的主键
+	private int _id;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		_pool = new ConnectionPool(new H2ConnectionConfig("statement_benchmark"), 1);
+		_pool.setStatementCacheSize(statementCacheSize);
+		DatabaseUtils.executeSQL(_pool, "DROP TABLE IF EXISTS account");
+		DatabaseUtils.executeSQL(_pool, "CREATE TABLE account (id INT PRIMARY KEY, name VARCHAR(32), balance BIGINT)");
+		for(int i = 0; i < 1000; i++)
+		{
+			DatabaseUtils.executeSQL(_pool, "INSERT INTO account VALUES (?, ?, ?)", i, "account" + i, i * 100L);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		_pool.cleanup();
+	}
+	
+	@Benchmark
+	public QueryResult rawSql() throws Exception
+	{
+		_id = (_id + 1) % 1000;
+		return DatabaseUtils.executeQuery(_pool, "SELECT name, balance FROM account WHERE id = " + _id);
+	}
+	
+	@Benchmark
+	public QueryResult prepared() throws Exception
+	{
+		_id = (_id + 1) % 1000;
+		return DatabaseUtils.executeQuery(_pool, "SELECT name, balance FROM account WHERE id = ?", _id);
+	}
+}
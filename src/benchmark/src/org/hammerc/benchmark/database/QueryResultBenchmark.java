@@ -0,0 +1,160 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.database.ColumnarQueryResult;
+import org.hammerc.database.QueryResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 对比 QueryResult 与 ColumnarQueryResult 读取查询结果及按字段扫描的性能, 使用 -prof gc 可以对比每行数据分配的内存.
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryResultBenchmark
+{
+	//查询所有测试数据的语句
+	private static final String SQL = "SELECT id, amount, price, flag, name FROM report";
+	
+	/**
+	 * 测试数据的行数.
+	 */
+	@Param({"10000"})
+	public int rows;
+	
+	//测试使用的连接
+	private Connection _connection;
+	//测试使用的语句对象
+	private Statement _statement;
+	//用于扫描测试的行式查询结果
+	private QueryResult _rowResult;
+	//用于扫描测试的列式查询结果
+	private ColumnarQueryResult _columnarResult;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		H2ConnectionConfig config = new H2ConnectionConfig("query_result_benchmark");
+		Class.forName(config.getDriverClass());
+		_connection = DriverManager.getConnection(config.getConnectionString());
+		_statement = _connection.createStatement();
+		_statement.executeUpdate("DROP TABLE IF EXISTS report");
+		_statement.executeUpdate("CREATE TABLE report (id INT, amount BIGINT, price DOUBLE, flag BOOLEAN, name VARCHAR(32))");
+		PreparedStatement insert = _connection.prepareStatement("INSERT INTO report VALUES (?, ?, ?, ?, ?)");
+		for(int i = 0; i < rows; i++)
+		{
+			insert.setInt(1, i);
+			insert.setLong(2, i * 1000L);
+			insert.setDouble(3, i * 0.5);
+			insert.setBoolean(4, (i & 1) == 0);
+			insert.setString(5, "name" + (i % 100));
+			insert.addBatch();
+		}
+		insert.executeBatch();
+		insert.close();
+		_rowResult = rowResult();
+		_columnarResult = columnarResult();
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		_statement.close();
+		_connection.close();
+	}
+	
+	@Benchmark
+	public QueryResult rowResult() throws Exception
+	{
+		ResultSet resultSet = _statement.executeQuery(SQL);
+		try
+		{
+			return new QueryResult(resultSet);
+		}
+		finally
+		{
+			resultSet.close();
+		}
+	}
+	
+	@Benchmark
+	public ColumnarQueryResult columnarResult() throws Exception
+	{
+		ResultSet resultSet = _statement.executeQuery(SQL);
+		try
+		{
+			return new ColumnarQueryResult(resultSet);
+		}
+		finally
+		{
+			resultSet.close();
+		}
+	}
+	
+	@Benchmark
+	public ColumnarQueryResult columnarDirectResult() throws Exception
+	{
+		ResultSet resultSet = _statement.executeQuery(SQL);
+		try
+		{
+			return new ColumnarQueryResult(resultSet, true);
+		}
+		finally
+		{
+			resultSet.close();
+		}
+	}
+	
+	@Benchmark
+	public long rowScan()
+	{
+		long sum = 0;
+		for(int i = 0; i < _rowResult.size(); i++)
+		{
+			sum += _rowResult.getLong(i, "amount");
+		}
+		return sum;
+	}
+	
+	@Benchmark
+	public long columnarScan()
+	{
+		long sum = 0;
+		int column = _columnarResult.getColumnIndex("amount");
+		for(int i = 0; i < _columnarResult.size(); i++)
+		{
+			sum += _columnarResult.getLong(i, column);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,218 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.database.QueryResult;
+import org.hammerc.database.RowMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 对比 RowMapper 与手写的 ResultSet 读取代码及通过 QueryResult 按名称读取的方式将查询结果转换为对象的性能.
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark
+{
+	//查询所有测试数据的语句
+	private static final String SQL = "SELECT id, amount, price, flag, name FROM report";
+	
+	/**
+	 * 测试数据的行数.
+	 */
+	@Param({"10000"})
+	public int rows;
+	
+	//测试使用的连接
+	private Connection _connection;
+	//测试使用的语句对象
+	private Statement _statement;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		H2ConnectionConfig config = new H2ConnectionConfig("row_mapper_benchmark");
+		Class.forName(config.getDriverClass());
+		_connection = DriverManager.getConnection(config.getConnectionString());
+		_statement = _connection.createStatement();
+		_statement.executeUpdate("DROP TABLE IF EXISTS report");
+		_statement.executeUpdate("CREATE TABLE report (id INT, amount BIGINT, price DOUBLE, flag BOOLEAN, name VARCHAR(32))");
+		PreparedStatement insert = _connection.prepareStatement("INSERT INTO report VALUES (?, ?, ?, ?, ?)");
+		for(int i = 0; i < rows; i++)
+		{
+			insert.setInt(1, i);
+			insert.setLong(2, i * 1000L);
+			insert.setDouble(3, i * 0.5);
+			insert.setBoolean(4, (i & 1) == 0);
+			insert.setString(5, "name" + (i % 100));
+			insert.addBatch();
+		}
+		insert.executeBatch();
+		insert.close();
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		_statement.close();
+		_connection.close();
+	}
+	
+	@Benchmark
+	public ArrayList<Report> handWritten() throws Exception
+	{
+		ResultSet resultSet = _statement.executeQuery(SQL);
+		try
+		{
+			ArrayList<Report> result = new ArrayList<Report>();
+			while(resultSet.next())
+			{
+				Report report = new Report();
+				report.setId(resultSet.getInt(1));
+				report.setAmount(resultSet.getLong(2));
+				report.setPrice(resultSet.getDouble(3));
+				report.setFlag(resultSet.getBoolean(4));
+				report.setName(resultSet.getString(5));
+				result.add(report);
+			}
+			return result;
+		}
+		finally
+		{
+			resultSet.close();
+		}
+	}
+	
+	@Benchmark
+	public ArrayList<Report> rowMapper() throws Exception
+	{
+		ResultSet resultSet = _statement.executeQuery(SQL);
+		try
+		{
+			return RowMapper.forClass(Report.class).mapAll(resultSet);
+		}
+		finally
+		{
+			resultSet.close();
+		}
+	}
+	
+	@Benchmark
+	public ArrayList<Report> queryResult() throws Exception
+	{
+		ResultSet resultSet = _statement.executeQuery(SQL);
+		try
+		{
+			QueryResult queryResult = new QueryResult(resultSet);
+			ArrayList<Report> result = new ArrayList<Report>();
+			for(int i = 0; i < queryResult.size(); i++)
+			{
+				Report report = new Report();
+				report.setId(queryResult.getInteger(i, "id"));
+				report.setAmount(queryResult.getLong(i, "amount"));
+				report.setPrice(queryResult.getDouble(i, "price"));
+				report.setFlag(queryResult.getBoolean(i, "flag"));
+				report.setName(queryResult.getString(i, "name"));
+				result.add(report);
+			}
+			return result;
+		}
+		finally
+		{
+			resultSet.close();
+		}
+	}
+	
+	/**
+	 * 测试使用的目标类型.
+	 * @author wizardc
+	 */
+	public static class Report
+	{
+		private int _id;
+		private long _amount;
+		private double _price;
+		private boolean _flag;
+		private String _name;
+		
+		public void setId(int id)
+		{
+			_id = id;
+		}
+		
+		public int getId()
+		{
+			return _id;
+		}
+		
+		public void setAmount(long amount)
+		{
+			_amount = amount;
+		}
+		
+		public long getAmount()
+		{
+			return _amount;
+		}
+		
+		public void setPrice(double price)
+		{
+			_price = price;
+		}
+		
+		public double getPrice()
+		{
+			return _price;
+		}
+		
+		public void setFlag(boolean flag)
+		{
+			_flag = flag;
+		}
+		
+		public boolean getFlag()
+		{
+			return _flag;
+		}
+		
+		public void setName(String name)
+		{
+			_name = name;
+		}
+		
+		public String getName()
+		{
+			return _name;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.io;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.io.ByteBufferOutput;
+import org.hammerc.io.ByteArrayInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 测试使用 ByteArrayInput 解码一条约 200 个字段的消息的性能.
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataInputBenchmark
+{
+	//编码后的消息
+	private byte[] _data;
+	
+	@Setup
+	public void setup()
+	{
+		ByteBufferOutput output = new ByteBufferOutput();
+		DataOutputBenchmark.writeMessage(output);
+		_data = output.bytes();
+	}
+	
+	@Benchmark
+	public void byteArrayInput(Blackhole blackhole) throws Exception
+	{
+		ByteArrayInput input = new ByteArrayInput(_data);
+		while(input.bytesAvailable() > 8)
+		{
+			blackhole.consume(input.readBoolean());
+			blackhole.consume(input.readByte());
+			blackhole.consume(input.readUnsignedByte());
+			blackhole.consume(input.readShort());
+			blackhole.consume(input.readUnsignedShort());
+			blackhole.consume(input.readInt());
+			blackhole.consume(input.readUnsignedInt());
+			blackhole.consume(input.readLong());
+			blackhole.consume(input.readDouble());
+			blackhole.consume(input.readUTF());
+		}
+		blackhole.consume(input.readUnsignedLong());
+	}
+}
@@ -0,0 +1,91 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.io;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.io.ByteArrayOutput;
+import org.hammerc.io.ByteBufferOutput;
+import org.hammerc.io.IDataOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 测试编码一条约 200 个字段的消息并取出字节数组的性能.
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataOutputBenchmark
+{
+	//重复写入的字段组数量, 每组包含 10 个字段
+	private static final int GROUPS = 20;
+	
+	//无符号长整型数据
+	private static final BigInteger ULONG = new BigInteger("18446744073709551000");
+	
+	@Benchmark
+	public byte[] byteArrayOutput() throws Exception
+	{
+		ByteArrayOutput output = new ByteArrayOutput();
+		writeMessage(output);
+		return output.bytes();
+	}
+	
+	@Benchmark
+	public byte[] byteBufferOutput()
+	{
+		ByteBufferOutput output = new ByteBufferOutput(4096);
+		writeMessage(output);
+		return output.bytes();
+	}
+	
+	@Benchmark
+	public byte[] byteBufferOutputGrowing()
+	{
+		ByteBufferOutput output = new ByteBufferOutput(64);
+		writeMessage(output);
+		return output.bytes();
+	}
+	
+	/**
+	 * 写入测试用的消息.
+	 * @param output 数据输出对象.
+	 */
+	static void writeMessage(IDataOutput output)
+	{
+		for(int i = 0; i < GROUPS; i++)
+		{
+			output.writeBoolean((i & 1) == 0);
+			output.writeByte((byte) i);
+			output.writeUnsignedByte((short) 200);
+			output.writeShort((short) -i);
+			output.writeUnsignedShort(60000);
+			output.writeInt(i * 31);
+			output.writeUnsignedInt(4000000000L);
+			output.writeLong(i * 1000003L);
+			output.writeDouble(i * 0.5);
+			output.writeUTF("field-" + (i & 7));
+		}
+		output.writeUnsignedLong(ULONG);
+	}
+}
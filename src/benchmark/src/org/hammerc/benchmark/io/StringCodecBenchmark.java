@@ -0,0 +1,147 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.io.ByteArrayInput;
+import org.hammerc.io.ByteBufferOutput;
+import org.hammerc.utils.UTF8StringCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 对比 writeUTF 及 readUTF 的当前实现与原先基于 String.getBytes 及临时字节数组的实现.
+ * <p>测试数据为键值对形式的字符串, 键名从少量固定的短字符串中选取, 用于测试字符串缓存的效果.</p>
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringCodecBenchmark
+{
+	//每次测试编码的键值对数量
+	private static final int COUNT = 256;
+	
+	//重复出现的键名
+	private static final String[] KEYS = {"id", "name", "level", "guild", "server", "status", "position", "timestamp"};
+	
+	/**
+	 * 字符串内容, ascii 为纯 ASCII 字符, mixed 为包含中文的字符串.
+	 */
+	@Param({"ascii", "mixed"})
+	public String text;
+	
+	/**
+	 * 读取时是否使用直接内存.
+	 */
+	@Param({"false", "true"})
+	public boolean direct;
+	
+	//待编码的字符串
+	private String[] _strings;
+	//编码后的数据
+	private ByteBuffer _data;
+	//复用的输出对象
+	private ByteBufferOutput _output;
+	//字符串缓存
+	private UTF8StringCache _stringCache;
+	
+	@Setup
+	public void setup()
+	{
+		_strings = new String[COUNT * 2];
+		for(int i = 0; i < COUNT; i++)
+		{
+			_strings[i * 2] = KEYS[i % KEYS.length];
+			_strings[i * 2 + 1] = "ascii".equals(text) ? "player_value_" + i : "玩家_" + i + "_公会成员";
+		}
+		_output = new ByteBufferOutput(COUNT * 64);
+		writeCurrent();
+		byte[] bytes = _output.bytes();
+		_data = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+		_data.put(bytes);
+		_data.flip();
+		_stringCache = new UTF8StringCache();
+	}
+	
+	@Benchmark
+	public ByteBufferOutput writeCurrent()
+	{
+		ByteBufferOutput output = _output;
+		output.clear();
+		for(String value : _strings)
+		{
+			output.writeUTF(value);
+		}
+		return output;
+	}
+	
+	@Benchmark
+	public ByteBufferOutput writeLegacy() throws Exception
+	{
+		ByteBufferOutput output = _output;
+		output.clear();
+		for(String value : _strings)
+		{
+			byte[] bytes = value.getBytes("UTF-8");
+			output.writeUnsignedShort(bytes.length);
+			output.writeBytes(bytes);
+		}
+		return output;
+	}
+	
+	@Benchmark
+	public void readCurrent(Blackhole blackhole) throws Exception
+	{
+		ByteArrayInput input = new ByteArrayInput(_data.duplicate());
+		for(int i = 0; i < _strings.length; i++)
+		{
+			blackhole.consume(input.readUTF());
+		}
+	}
+	
+	@Benchmark
+	public void readCached(Blackhole blackhole) throws Exception
+	{
+		ByteArrayInput input = new ByteArrayInput(_data.duplicate());
+		input.stringCache(_stringCache);
+		for(int i = 0; i < _strings.length; i++)
+		{
+			blackhole.consume(input.readUTF());
+		}
+	}
+	
+	@Benchmark
+	public void readLegacy(Blackhole blackhole) throws Exception
+	{
+		ByteBuffer byteBuffer = _data.duplicate();
+		for(int i = 0; i < _strings.length; i++)
+		{
+			byte[] bytes = new byte[byteBuffer.getShort() & 0xffff];
+			byteBuffer.get(bytes, 0, bytes.length);
+			blackhole.consume(new String(bytes, "UTF-8"));
+		}
+	}
+}
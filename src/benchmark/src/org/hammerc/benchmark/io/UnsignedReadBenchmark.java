@@ -0,0 +1,139 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.io;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.io.ByteArrayInput;
+import org.hammerc.utils.ByteUtil;
+import org.hammerc.utils.UnsignedUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 对比 ByteArrayInput 无符号数读取的当前实现与原先基于临时字节数组的实现.
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnsignedReadBenchmark
+{
+	//每次测试读取的记录数量, 每条记录包含 short, int 及 long 各一个
+	private static final int COUNT = 1024;
+	
+	/**
+	 * 读取时使用的字节顺序.
+	 */
+	@Param({"BIG_ENDIAN", "LITTLE_ENDIAN"})
+	public String endian;
+	
+	//待读取的随机数据
+	private byte[] _data;
+	//字节顺序对象
+	private ByteOrder _order;
+	
+	@Setup
+	public void setup()
+	{
+		_data = new byte[COUNT * 14];
+		new Random(42).nextBytes(_data);
+		_order = "LITTLE_ENDIAN".equals(endian) ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+	}
+	
+	@Benchmark
+	public void current(Blackhole blackhole)
+	{
+		ByteArrayInput input = new ByteArrayInput(_data);
+		input.endian(_order);
+		for(int i = 0; i < COUNT; i++)
+		{
+			blackhole.consume(input.readUnsignedShort());
+			blackhole.consume(input.readUnsignedInt());
+			blackhole.consume(input.readUnsignedLong());
+		}
+	}
+	
+	@Benchmark
+	public void currentPrimitiveLong(Blackhole blackhole)
+	{
+		ByteArrayInput input = new ByteArrayInput(_data);
+		input.endian(_order);
+		for(int i = 0; i < COUNT; i++)
+		{
+			blackhole.consume(input.readUnsignedShort());
+			blackhole.consume(input.readUnsignedInt());
+			blackhole.consume(input.readUnsignedLongValue());
+		}
+	}
+	
+	@Benchmark
+	public void legacy(Blackhole blackhole)
+	{
+		ByteBuffer byteBuffer = ByteBuffer.wrap(_data);
+		byteBuffer.order(_order);
+		for(int i = 0; i < COUNT; i++)
+		{
+			blackhole.consume(legacyReadUnsignedShort(byteBuffer));
+			blackhole.consume(legacyReadUnsignedInt(byteBuffer));
+			blackhole.consume(legacyReadUnsignedLong(byteBuffer));
+		}
+	}
+	
+	private static int legacyReadUnsignedShort(ByteBuffer byteBuffer)
+	{
+		byte[] bytes = new byte[2];
+		byteBuffer.get(bytes, 0, 2);
+		if(byteBuffer.order().equals(ByteOrder.LITTLE_ENDIAN))
+		{
+			bytes = ByteUtil.reverse(bytes);
+		}
+		return UnsignedUtil.readUnsignedShort(bytes);
+	}
+	
+	private static long legacyReadUnsignedInt(ByteBuffer byteBuffer)
+	{
+		byte[] bytes = new byte[4];
+		byteBuffer.get(bytes, 0, 4);
+		if(byteBuffer.order().equals(ByteOrder.LITTLE_ENDIAN))
+		{
+			bytes = ByteUtil.reverse(bytes);
+		}
+		return UnsignedUtil.readUnsignedInt(bytes);
+	}
+	
+	private static BigInteger legacyReadUnsignedLong(ByteBuffer byteBuffer)
+	{
+		byte[] bytes = new byte[8];
+		byteBuffer.get(bytes, 0, 8);
+		if(byteBuffer.order().equals(ByteOrder.LITTLE_ENDIAN))
+		{
+			bytes = ByteUtil.reverse(bytes);
+		}
+		return UnsignedUtil.readUnsignedLong(bytes);
+	}
+}
@@ -0,0 +1,144 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.scheduled;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hammerc.scheduled.AbstractIntervalTask;
+import org.hammerc.scheduled.IntervalTaskManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 测试 IntervalTaskManager 在大量周期任务下添加, 移除及运行任务的性能.
+ * @author wizardc
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalTaskManagerBenchmark
+{
+	/**
+	 * 多个线程共享的任务管理对象, 已预先添加了大量周期任务.
+	 */
+	@State(Scope.Benchmark)
+	public static class SharedManager
+	{
+		/**
+		 * 预先添加的任务数量.
+		 */
+		@Param({"10000"})
+		public int pending;
+		
+		IntervalTaskManager manager;
+		AtomicInteger nextId;
+		long now;
+		
+		@Setup
+		public void setup()
+		{
+			manager = new IntervalTaskManager();
+			manager.initialize(50);
+			now = System.currentTimeMillis();
+			for(int i = 0; i < pending; i++)
+			{
+				manager.addIntervalTask(i, new NoopIntervalTask(now + 60000, 1000));
+			}
+			nextId = new AtomicInteger(pending);
+		}
+		
+		@TearDown
+		public void tearDown()
+		{
+			manager.clear();
+		}
+	}
+	
+	/**
+	 * 每次调用前重新填充的任务管理对象, 所有任务都在下一次运行时到期.
+	 */
+	@State(Scope.Thread)
+	public static class DueManager
+	{
+		/**
+		 * 每次运行时到期的任务数量.
+		 */
+		@Param({"10000"})
+		public int due;
+		
+		IntervalTaskManager manager;
+		
+		@Setup(Level.Invocation)
+		public void setup() throws InterruptedException
+		{
+			manager = new IntervalTaskManager();
+			manager.initialize(1);
+			long now = System.currentTimeMillis();
+			for(int i = 0; i < due; i++)
+			{
+				manager.addIntervalTask(i, new NoopIntervalTask(now, 1000));
+			}
+			//保证运行时至少经过了一个时间索引
+			Thread.sleep(2);
+		}
+	}
+	
+	@Benchmark
+	@Threads(4)
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void addRemove(SharedManager state)
+	{
+		int id = state.nextId.getAndIncrement();
+		state.manager.addIntervalTask(id, new NoopIntervalTask(state.now + 30000, 1000));
+		state.manager.removeIntervalTask(id);
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Measurement(iterations = 50)
+	@Warmup(iterations = 20)
+	public void runDue(DueManager state, Blackhole blackhole)
+	{
+		state.manager.run();
+		blackhole.consume(state.manager);
+	}
+	
+	/**
+	 * 不执行任何操作的间隔任务.
+	 */
+	static class NoopIntervalTask extends AbstractIntervalTask
+	{
+		NoopIntervalTask(long delayTime, long intervalTime)
+		{
+			super(delayTime, intervalTime);
+		}
+		
+		@Override
+		public void run()
+		{
+		}
+	}
+}
@@ -0,0 +1,248 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.scheduled;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.scheduled.AbstractTimeoutTask;
+import org.hammerc.scheduled.ITimeoutHandle;
+import org.hammerc.scheduled.TimeoutTaskManager;
+import org.hammerc.scheduled.TimingWheelTaskManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 测试 TimeoutTaskManager 与 TimingWheelTaskManager 在大量任务下添加, 移除及运行任务的性能.
+ * <p>添加及移除测试中 3 个线程不断添加和移除任务, 同时 1 个线程模拟计时器线程不断运行.</p>
+ * @author wizardc
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeoutTaskManagerBenchmark
+{
+	/**
+	 * 同一组线程共享的任务管理对象, 已预先添加了大量待运行的任务.
+	 */
+	@State(Scope.Group)
+	public static class SharedManager
+	{
+		/**
+		 * 预先添加的任务数量.
+		 */
+		@Param({"100000"})
+		public int pending;
+		
+		TimeoutTaskManager manager;
+		long now;
+		
+		@Setup
+		public void setup()
+		{
+			manager = new TimeoutTaskManager();
+			manager.initialize(50);
+			now = System.currentTimeMillis();
+			for(int i = 0; i < pending; i++)
+			{
+				manager.addTimeoutTask(new NoopTimeoutTask(now + 60000 + i % 60000));
+			}
+		}
+		
+		@TearDown
+		public void tearDown()
+		{
+			manager.clear();
+		}
+	}
+	
+	/**
+	 * 每次调用前重新填充的任务管理对象, 所有任务都在下一次运行时到期.
+	 */
+	@State(Scope.Thread)
+	public static class DueManager
+	{
+		/**
+		 * 每次运行时到期的任务数量.
+		 */
+		@Param({"10000"})
+		public int due;
+		
+		TimeoutTaskManager manager;
+		
+		@Setup(Level.Invocation)
+		public void setup()
+		{
+			manager = new TimeoutTaskManager();
+			manager.initialize(1);
+			long now = System.currentTimeMillis();
+			for(int i = 0; i < due; i++)
+			{
+				manager.addTimeoutTask(new NoopTimeoutTask(now));
+			}
+		}
+	}
+	
+	/**
+	 * 同一组线程共享的时间轮任务管理对象, 已预先添加了大量待运行的任务.
+	 */
+	@State(Scope.Group)
+	public static class SharedWheel
+	{
+		/**
+		 * 预先添加的任务数量.
+		 */
+		@Param({"100000"})
+		public int pending;
+		
+		TimingWheelTaskManager manager;
+		long now;
+		
+		@Setup
+		public void setup()
+		{
+			manager = new TimingWheelTaskManager();
+			manager.initialize(50);
+			now = System.currentTimeMillis();
+			for(int i = 0; i < pending; i++)
+			{
+				manager.addTimeoutTask(new NoopTimeoutTask(now + 60000 + i % 60000));
+			}
+			manager.run();
+		}
+		
+		@TearDown
+		public void tearDown()
+		{
+			manager.clear();
+		}
+	}
+	
+	/**
+	 * 每次调用前重新填充的时间轮任务管理对象, 所有任务都在下一次运行时到期.
+	 */
+	@State(Scope.Thread)
+	public static class DueWheel
+	{
+		/**
+		 * 每次运行时到期的任务数量.
+		 */
+		@Param({"10000"})
+		public int due;
+		
+		TimingWheelTaskManager manager;
+		
+		@Setup(Level.Invocation)
+		public void setup()
+		{
+			manager = new TimingWheelTaskManager();
+			manager.initialize(1);
+			long now = System.currentTimeMillis();
+			for(int i = 0; i < due; i++)
+			{
+				manager.addTimeoutTask(new NoopTimeoutTask(now));
+			}
+		}
+	}
+	
+	@Benchmark
+	@Group("legacy")
+	@GroupThreads(3)
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void addRemove(SharedManager state)
+	{
+		NoopTimeoutTask task = new NoopTimeoutTask(state.now + 30000);
+		state.manager.addTimeoutTask(task);
+		state.manager.removeTimeoutTask(task);
+	}
+	
+	@Benchmark
+	@Group("legacy")
+	@GroupThreads(1)
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void tick(SharedManager state)
+	{
+		state.manager.run();
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Measurement(iterations = 50)
+	@Warmup(iterations = 20)
+	public void runDue(DueManager state, Blackhole blackhole)
+	{
+		state.manager.run();
+		blackhole.consume(state.manager);
+	}
+	
+	@Benchmark
+	@Group("wheel")
+	@GroupThreads(3)
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean addCancel(SharedWheel state)
+	{
+		ITimeoutHandle handle = state.manager.addTimeoutTask(new NoopTimeoutTask(state.now + 30000));
+		return handle.cancel();
+	}
+	
+	@Benchmark
+	@Group("wheel")
+	@GroupThreads(1)
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void wheelTick(SharedWheel state)
+	{
+		state.manager.run();
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Measurement(iterations = 50)
+	@Warmup(iterations = 20)
+	public void wheelRunDue(DueWheel state, Blackhole blackhole)
+	{
+		state.manager.run();
+		blackhole.consume(state.manager);
+	}
+	
+	/**
+	 * 不执行任何操作的超时任务.
+	 */
+	static class NoopTimeoutTask extends AbstractTimeoutTask
+	{
+		NoopTimeoutTask(long excutionTime)
+		{
+			super(excutionTime);
+		}
+		
+		@Override
+		public void run()
+		{
+		}
+	}
+}
@@ -0,0 +1,46 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.struct;
+
+import org.hammerc.io.IDataInput;
+import org.hammerc.io.IDataOutput;
+import org.hammerc.struct.AbstractStruct;
+import org.hammerc.struct.BytesReader;
+import org.hammerc.struct.BytesWriter;
+import org.hammerc.struct.Struct;
+
+/**
+ * 测试用的嵌套自定义数据.
+ * <p>同时保留手写的编码实现及生成的序列化类, 两者的编码格式相同, 用于对比性能.</p>
+ * @author wizardc
+ */
+@Struct(view = true)
+public class SampleItem extends AbstractStruct
+{
+	public int itemId;
+	public short count;
+	public String name;
+	
+	@Override
+	protected void writeToBytes(IDataOutput output) throws Exception
+	{
+		BytesWriter.writeInt(output, itemId);
+		BytesWriter.writeShort(output, count);
+		BytesWriter.writeString(output, name);
+	}
+	
+	@Override
+	protected void readFromBytes(IDataInput input) throws Exception
+	{
+		itemId = BytesReader.readInt(input);
+		count = BytesReader.readShort(input);
+		name = BytesReader.readString(input);
+	}
+}
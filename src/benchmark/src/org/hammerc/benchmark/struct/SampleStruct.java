@@ -0,0 +1,108 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.struct;
+
+import org.hammerc.io.IDataInput;
+import org.hammerc.io.IDataOutput;
+import org.hammerc.struct.AbstractStruct;
+import org.hammerc.struct.BytesReader;
+import org.hammerc.struct.BytesWriter;
+import org.hammerc.struct.Struct;
+
+/**
+ * 测试用的自定义数据, 模拟一条常见的游戏协议消息.
+ * <p>同时保留手写的编码实现及生成的序列化类, 两者的编码格式相同, 用于对比性能.</p>
+ * @author wizardc
+ */
+@Struct(view = true)
+public class SampleStruct extends AbstractStruct
+{
+	public short messageId;
+	public long playerId;
+	public boolean online;
+	public int level;
+	public long experience;
+	public float x;
+	public float y;
+	public double gold;
+	public String nickname;
+	public byte[] avatar;
+	public SampleItem[] items;
+	
+	/**
+	 * 创建一个填充了测试数据的对象.
+	 * @param itemCount 嵌套数据的数量.
+	 * @return 测试数据.
+	 */
+	public static SampleStruct create(int itemCount)
+	{
+		SampleStruct struct = new SampleStruct();
+		struct.messageId = 1001;
+		struct.playerId = 10000000123L;
+		struct.online = true;
+		struct.level = 58;
+		struct.experience = 123456789L;
+		struct.x = 100.5f;
+		struct.y = 200.25f;
+		struct.gold = 99999.99;
+		struct.nickname = "player_0123";
+		struct.avatar = new byte[32];
+		struct.items = new SampleItem[itemCount];
+		for(int i = 0; i < itemCount; i++)
+		{
+			SampleItem item = new SampleItem();
+			item.itemId = 20000 + i;
+			item.count = (short) (i % 99 + 1);
+			item.name = "item_" + (i % 16);
+			struct.items[i] = item;
+		}
+		return struct;
+	}
+	
+	@Override
+	protected void writeToBytes(IDataOutput output) throws Exception
+	{
+		BytesWriter.writeShort(output, messageId);
+		BytesWriter.writeLong(output, playerId);
+		BytesWriter.writeBoolean(output, online);
+		BytesWriter.writeInt(output, level);
+		BytesWriter.writeLong(output, experience);
+		BytesWriter.writeFloat(output, x);
+		BytesWriter.writeFloat(output, y);
+		BytesWriter.writeDouble(output, gold);
+		BytesWriter.writeString(output, nickname);
+		BytesWriter.writeBytes(output, avatar);
+		BytesWriter.writeUShort(output, items.length);
+		for(SampleItem item : items)
+		{
+			BytesWriter.writeStruct(output, item);
+		}
+	}
+	
+	@Override
+	protected void readFromBytes(IDataInput input) throws Exception
+	{
+		messageId = BytesReader.readShort(input);
+		playerId = BytesReader.readLong(input);
+		online = BytesReader.readBoolean(input);
+		level = BytesReader.readInt(input);
+		experience = BytesReader.readLong(input);
+		x = BytesReader.readFloat(input);
+		y = BytesReader.readFloat(input);
+		gold = BytesReader.readDouble(input);
+		nickname = BytesReader.readString(input);
+		avatar = BytesReader.readBytes(input);
+		items = new SampleItem[BytesReader.readUShort(input)];
+		for(int i = 0; i < items.length; i++)
+		{
+			items[i] = (SampleItem) BytesReader.readStruct(input, SampleItem.class);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.struct;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.hammerc.io.ByteArrayInput;
+import org.hammerc.io.ByteArrayOutput;
+import org.hammerc.io.ByteBufferOutput;
+import org.hammerc.struct.BytesReader;
+import org.hammerc.struct.StructReader;
+import org.hammerc.struct.StructSerializers;
+import org.hammerc.struct.StructWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 测试 AbstractStruct 编码及解码的性能, 对比手写实现与 StructProcessor 生成的序列化类.
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StructBenchmark
+{
+	/**
+	 * 嵌套数据的数量.
+	 */
+	@Param({"1", "32"})
+	public int itemCount;
+	
+	//待编码的数据
+	private SampleStruct _struct;
+	//编码后的数据
+	private byte[] _data;
+	//复用的视图对象
+	private SampleStructView _view;
+	//整数及长度前缀使用变长编码的数据
+	private VarSampleStruct _varStruct;
+	//变长编码后的数据
+	private byte[] _varData;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		_struct = SampleStruct.create(itemCount);
+		ByteArrayOutput output = new ByteArrayOutput();
+		_struct.writeExternal(output);
+		_data = output.bytes();
+		_view = new SampleStructView();
+		//生成的序列化类与手写实现的编码格式相同
+		if(!Arrays.equals(_data, encodeGenerated()))
+		{
+			throw new IllegalStateException("The generated serializer produced different bytes!");
+		}
+		_varStruct = VarSampleStruct.create(itemCount);
+		_varData = StructSerializers.encode(_varStruct);
+	}
+	
+	@Benchmark
+	public byte[] encodeByteArrayOutput() throws Exception
+	{
+		ByteArrayOutput output = new ByteArrayOutput();
+		_struct.writeExternal(output);
+		return output.bytes();
+	}
+	
+	@Benchmark
+	public byte[] encodeByteBufferOutput() throws Exception
+	{
+		ByteBufferOutput output = new ByteBufferOutput();
+		_struct.writeExternal(output);
+		return output.bytes();
+	}
+	
+	@Benchmark
+	public SampleStruct decode() throws Exception
+	{
+		return (SampleStruct) BytesReader.readStruct(new ByteArrayInput(_data), SampleStruct.class);
+	}
+	
+	@Benchmark
+	public SampleStruct roundTrip() throws Exception
+	{
+		ByteArrayOutput output = new ByteArrayOutput();
+		_struct.writeExternal(output);
+		return (SampleStruct) BytesReader.readStruct(new ByteArrayInput(output.bytes()), SampleStruct.class);
+	}
+	
+	@Benchmark
+	public byte[] encodeGenerated() throws Exception
+	{
+		StructWriter writer = new StructWriter();
+		SampleStructSerializer.INSTANCE.write(_struct, writer);
+		return writer.bytes();
+	}
+	
+	@Benchmark
+	public byte[] encodePresized() throws Exception
+	{
+		StructWriter writer = new StructWriter(SampleStructSerializer.INSTANCE.encodedSize(_struct));
+		SampleStructSerializer.INSTANCE.write(_struct, writer);
+		return writer.bytes();
+	}
+	
+	@Benchmark
+	public byte[] encodeSerializers() throws Exception
+	{
+		return StructSerializers.encode(_struct);
+	}
+	
+	@Benchmark
+	public SampleStruct decodeGenerated() throws Exception
+	{
+		SampleStruct struct = new SampleStruct();
+		SampleStructSerializer.INSTANCE.read(struct, new StructReader(_data));
+		return struct;
+	}
+	
+	@Benchmark
+	public byte[] encodeVarLength() throws Exception
+	{
+		return StructSerializers.encode(_varStruct);
+	}
+	
+	@Benchmark
+	public VarSampleStruct decodeVarLength() throws Exception
+	{
+		VarSampleStruct struct = new VarSampleStruct();
+		VarSampleStructSerializer.INSTANCE.read(struct, new StructReader(_varData));
+		return struct;
+	}
+	
+	@Benchmark
+	public SampleStruct roundTripGenerated() throws Exception
+	{
+		StructWriter writer = new StructWriter();
+		SampleStructSerializer.INSTANCE.write(_struct, writer);
+		SampleStruct struct = new SampleStruct();
+		SampleStructSerializer.INSTANCE.read(struct, new StructReader(writer.array(), 0, writer.length(), writer.endian()));
+		return struct;
+	}
+	
+	@Benchmark
+	public long routeDecode() throws Exception
+	{
+		//完整解码后只读取消息头中的两个字段
+		SampleStruct struct = (SampleStruct) BytesReader.readStruct(new ByteArrayInput(_data), SampleStruct.class);
+		return struct.messageId + struct.playerId;
+	}
+	
+	@Benchmark
+	public long routeView()
+	{
+		_view.wrap(ByteBuffer.wrap(_data));
+		return _view.getMessageId() + _view.getPlayerId();
+	}
+	
+	@Benchmark
+	public ByteBuffer forwardView()
+	{
+		//读取消息头后转发整条消息, 需要跳过所有变长字段计算长度
+		ByteArrayInput input = new ByteArrayInput(_data);
+		_view.wrap(input);
+		return _view.getMessageId() > 0 ? _view.slice() : null;
+	}
+}
@@ -0,0 +1,29 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.struct;
+
+import org.hammerc.struct.AbstractSerializedStruct;
+import org.hammerc.struct.FieldType;
+import org.hammerc.struct.Struct;
+import org.hammerc.struct.StructField;
+
+/**
+ * 与 SampleItem 字段相同的嵌套自定义数据, 整数及长度前缀使用变长编码.
+ * @author wizardc
+ */
+@Struct(view = true, varLength = true)
+public class VarSampleItem extends AbstractSerializedStruct
+{
+	@StructField(type = FieldType.VARINT)
+	public int itemId;
+	@StructField(type = FieldType.VARINT)
+	public int count;
+	public String name;
+}
@@ -0,0 +1,70 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.struct;
+
+import org.hammerc.struct.AbstractSerializedStruct;
+import org.hammerc.struct.FieldType;
+import org.hammerc.struct.Struct;
+import org.hammerc.struct.StructField;
+
+/**
+ * 与 SampleStruct 字段相同的自定义数据, 整数及长度前缀使用变长编码, 用于对比编码后的长度及性能.
+ * @author wizardc
+ */
+@Struct(view = true, varLength = true)
+public class VarSampleStruct extends AbstractSerializedStruct
+{
+	@StructField(type = FieldType.VARINT)
+	public int messageId;
+	@StructField(type = FieldType.UVARLONG)
+	public long playerId;
+	public boolean online;
+	@StructField(type = FieldType.VARINT)
+	public int level;
+	@StructField(type = FieldType.UVARLONG)
+	public long experience;
+	public float x;
+	public float y;
+	public double gold;
+	public String nickname;
+	public byte[] avatar;
+	public VarSampleItem[] items;
+	
+	/**
+	 * 创建一个与 SampleStruct.create 数据相同的对象.
+	 * @param itemCount 嵌套数据的数量.
+	 * @return 测试数据.
+	 */
+	public static VarSampleStruct create(int itemCount)
+	{
+		SampleStruct sample = SampleStruct.create(itemCount);
+		VarSampleStruct struct = new VarSampleStruct();
+		struct.messageId = sample.messageId;
+		struct.playerId = sample.playerId;
+		struct.online = sample.online;
+		struct.level = sample.level;
+		struct.experience = sample.experience;
+		struct.x = sample.x;
+		struct.y = sample.y;
+		struct.gold = sample.gold;
+		struct.nickname = sample.nickname;
+		struct.avatar = sample.avatar;
+		struct.items = new VarSampleItem[itemCount];
+		for(int i = 0; i < itemCount; i++)
+		{
+			VarSampleItem item = new VarSampleItem();
+			item.itemId = sample.items[i].itemId;
+			item.count = sample.items[i].count;
+			item.name = sample.items[i].name;
+			struct.items[i] = item;
+		}
+		return struct;
+	}
+}
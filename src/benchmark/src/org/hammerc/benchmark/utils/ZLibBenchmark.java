@@ -0,0 +1,128 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.benchmark.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.hammerc.utils.ZLibUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 测试 ZLibUtil 压缩及解压的性能, 并与原先每次创建 Deflater 及 Inflater 的实现进行对比.
+ * @author wizardc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZLibBenchmark
+{
+	/**
+	 * 待压缩数据的大小.
+	 */
+	@Param({"64", "1024", "65536"})
+	public int size;
+	
+	//待压缩的数据
+	private byte[] _data;
+	//压缩后的数据
+	private byte[] _compressed;
+	//直接内存中的待压缩数据
+	private ByteBuffer _directData;
+	//直接内存中的压缩结果
+	private ByteBuffer _directOutput;
+	
+	@Setup
+	public void setup()
+	{
+		//生成有一定重复度的数据, 接近实际的协议消息
+		Random random = new Random(42);
+		String[] words = {"player", "item", "gold", "level", "guild", "0", "1", "2", "3", "4"};
+		StringBuilder builder = new StringBuilder(size);
+		while(builder.length() < size)
+		{
+			builder.append(words[random.nextInt(words.length)]);
+		}
+		_data = builder.substring(0, size).getBytes();
+		_compressed = ZLibUtil.compress(_data);
+		_directData = ByteBuffer.allocateDirect(size);
+		_directData.put(_data);
+		_directData.flip();
+		_directOutput = ByteBuffer.allocateDirect(ZLibUtil.compressBound(size));
+	}
+	
+	@Benchmark
+	public byte[] compress()
+	{
+		return ZLibUtil.compress(_data);
+	}
+	
+	@Benchmark
+	public byte[] decompress() throws Exception
+	{
+		return ZLibUtil.decompress(_compressed);
+	}
+	
+	@Benchmark
+	public int compressDirect()
+	{
+		_directData.rewind();
+		_directOutput.clear();
+		return ZLibUtil.compress(_directData, _directOutput, Deflater.DEFAULT_COMPRESSION);
+	}
+	
+	@Benchmark
+	public byte[] legacyCompress() throws Exception
+	{
+		Deflater deflater = new Deflater();
+		deflater.setInput(_data);
+		deflater.finish();
+		ByteArrayOutputStream output = new ByteArrayOutputStream(_data.length);
+		byte[] buffer = new byte[1024];
+		while(!deflater.finished())
+		{
+			output.write(buffer, 0, deflater.deflate(buffer));
+		}
+		deflater.end();
+		return output.toByteArray();
+	}
+	
+	@Benchmark
+	public byte[] legacyDecompress() throws Exception
+	{
+		Inflater inflater = new Inflater();
+		inflater.setInput(_compressed);
+		ByteArrayOutputStream output = new ByteArrayOutputStream(_compressed.length);
+		byte[] buffer = new byte[1024];
+		while(!inflater.finished())
+		{
+			output.write(buffer, 0, inflater.inflate(buffer));
+		}
+		inflater.end();
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,428 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BatchWriter 类将多条写入操作累积后使用 JDBC 批处理一次提交, 减少与数据库之间的往返次数.
+ * <p>创建时指定了 SQL 语句时通过 add 方法累积需要绑定的参数, 否则通过 addSQL 方法累积完整的 SQL 语句. 累积的数量达到批次大小或最早的数据等待时间超过刷新间隔时会自动写入, 如果需要在没有新数据时也按时写入需要定时调用 flushIfDue 方法.</p>
+ * <p>MySQL 驱动需要在连接参数中开启 rewriteBatchedStatements 才会将同一批插入语句合并为多行插入语句发送.</p>
+ * <p>该类线程安全, 写入时不会阻塞其它线程继续累积数据, 多批数据会按累积的顺序依次写入.</p>
+ * @author wizardc
+ */
+public class BatchWriter
+{
+	//执行写入的连接池
+	private ConnectionPool _pool;
+	//绑定参数使用的 SQL 语句, 为 null 时累积完整的 SQL 语句
+	private String _sql;
+	//每批数据的最大条数
+	private int _batchSize;
+	//最早的数据等待的最长时间, 单位毫秒
+	private long _flushInterval;
+	//是否在一个事务中写入每批数据
+	private boolean _transactional;
+	//累积的参数或 SQL 语句
+	private ArrayList<Object> _items;
+	//最早累积的数据的时间戳
+	private long _firstItemTime;
+	//保证多批数据按顺序写入的锁
+	private Object _flushLock;
+	//接收写入结果的回调
+	private volatile IBatchListener _listener;
+	//已经写入的批次数量
+	private AtomicLong _batchCount;
+	//已经写入的数据条数
+	private AtomicLong _rowCount;
+	//写入失败的批次数量
+	private AtomicLong _failedCount;
+	//所有批次写入花费的时间总和, 单位微秒
+	private AtomicLong _totalLatency;
+	//写入一批数据花费的最长时间, 单位微秒
+	private AtomicLong _maxLatency;
+	//最近一批数据写入花费的时间, 单位微秒
+	private volatile long _lastLatency;
+	
+	/**
+	 * 创建一个累积完整 SQL 语句的 BatchWriter 对象.
+	 * @param pool 执行写入的连接池.
+	 * @param batchSize 每批数据的最大条数, 小于 1 时按 100 进行设置.
+	 * @param flushInterval 最早的数据等待的最长时间, 单位毫秒, 小于 1 时只按条数写入.
+	 * @param transactional 是否在一个事务中写入每批数据.
+	 */
+	public BatchWriter(ConnectionPool pool, int batchSize, long flushInterval, boolean transactional)
+	{
+		this(pool, null, batchSize, flushInterval, transactional);
+	}
+	
+	/**
+	 * 创建一个 BatchWriter 对象.
+	 * @param pool 执行写入的连接池.
+	 * @param sql 使用 ? 作为参数占位符的 SQL 语句, 为 null 时累积完整的 SQL 语句.
+	 * @param batchSize 每批数据的最大条数, 小于 1 时按 100 进行设置.
+	 * @param flushInterval 最早的数据等待的最长时间, 单位毫秒, 小于 1 时只按条数写入.
+	 * @param transactional 是否在一个事务中写入每批数据.
+	 */
+	public BatchWriter(ConnectionPool pool, String sql, int batchSize, long flushInterval, boolean transactional)
+	{
+		_pool = pool;
+		_sql = sql;
+		_batchSize = batchSize < 1 ? 100 : batchSize;
+		_flushInterval = flushInterval;
+		_transactional = transactional;
+		_items = new ArrayList<Object>(_batchSize);
+		_flushLock = new Object();
+		_batchCount = new AtomicLong();
+		_rowCount = new AtomicLong();
+		_failedCount = new AtomicLong();
+		_totalLatency = new AtomicLong();
+		_maxLatency = new AtomicLong();
+	}
+	
+	/**
+	 * 设置接收写入结果的回调.
+	 * @param listener 接收写入结果的回调, 为 null 时不进行回调.
+	 */
+	public void setListener(IBatchListener listener)
+	{
+		_listener = listener;
+	}
+	
+	/**
+	 * 累积一组需要绑定的参数, 达到写入条件时会在当前线程上写入.
+	 * @param params 按顺序绑定的参数.
+	 * @throws IllegalStateException 创建时没有指定 SQL 语句时抛出该异常.
+	 * @throws SQLException 写入数据库失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public void add(Object... params) throws InterruptedException, SQLException
+	{
+		if(_sql == null)
+		{
+			throw new IllegalStateException("This writer accumulates SQL statements, use addSQL instead!");
+		}
+		addItem(params);
+	}
+	
+	/**
+	 * 累积一条完整的 SQL 语句, 达到写入条件时会在当前线程上写入.
+	 * @param sql 需要执行的 SQL 语句.
+	 * @throws IllegalStateException 创建时指定了 SQL 语句时抛出该异常.
+	 * @throws SQLException 写入数据库失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public void addSQL(String sql) throws InterruptedException, SQLException
+	{
+		if(_sql != null)
+		{
+			throw new IllegalStateException("This writer accumulates parameters, use add instead!");
+		}
+		addItem(sql);
+	}
+	
+	private void addItem(Object item) throws InterruptedException, SQLException
+	{
+		boolean flush;
+		synchronized(this)
+		{
+			if(_items.isEmpty())
+			{
+				_firstItemTime = System.currentTimeMillis();
+			}
+			_items.add(item);
+			flush = _items.size() >= _batchSize || isDue();
+		}
+		if(flush)
+		{
+			flush();
+		}
+	}
+	
+	private boolean isDue()
+	{
+		return _flushInterval > 0 && !_items.isEmpty() && System.currentTimeMillis() - _firstItemTime >= _flushInterval;
+	}
+	
+	/**
+	 * 获取还未写入的数据条数.
+	 * @return 还未写入的数据条数.
+	 */
+	public synchronized int getPendingCount()
+	{
+		return _items.size();
+	}
+	
+	/**
+	 * 当最早的数据等待时间超过刷新间隔时写入所有累积的数据, 可以由计时器定时调用.
+	 * @throws SQLException 写入数据库失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public void flushIfDue() throws InterruptedException, SQLException
+	{
+		boolean flush;
+		synchronized(this)
+		{
+			flush = isDue();
+		}
+		if(flush)
+		{
+			flush();
+		}
+	}
+	
+	/**
+	 * 立即写入所有累积的数据, 超过批次大小的数据会分为多批写入.
+	 * @throws SQLException 写入数据库失败时抛出该异常, 写入失败的批次会被丢弃.
+	 * @throws InterruptedException 如果在等待连接时被中断时抛出该异常, 还未写入的数据会被放回等待下次写入, 同时保留线程的中断状态.
+	 */
+	public void flush() throws InterruptedException, SQLException
+	{
+		synchronized(_flushLock)
+		{
+			ArrayList<Object> items;
+			long firstItemTime;
+			synchronized(this)
+			{
+				if(_items.isEmpty())
+				{
+					return;
+				}
+				items = _items;
+				firstItemTime = _firstItemTime;
+				_items = new ArrayList<Object>(_batchSize);
+			}
+			SQLException error = null;
+			for(int start = 0; start < items.size(); start += _batchSize)
+			{
+				int end = Math.min(start + _batchSize, items.size());
+				try
+				{
+					executeBatch(items, start, end);
+				}
+				catch(SQLException exception)
+				{
+					if(error == null)
+					{
+						error = exception;
+					}
+				}
+				catch(InterruptedException exception)
+				{
+					requeue(items, start, firstItemTime);
+					if(error != null)
+					{
+						exception.addSuppressed(error);
+					}
+					Thread.currentThread().interrupt();
+					throw exception;
+				}
+			}
+			if(error != null)
+			{
+				throw error;
+			}
+		}
+	}
+	
+	/**
+	 * 将还未写入的数据放回到新累积的数据之前, 保持写入的顺序.
+	 * @param items 正在写入的数据.
+	 * @param start 第一条还未写入的数据的索引.
+	 * @param firstItemTime 正在写入的数据中最早的数据的时间戳.
+	 */
+	private synchronized void requeue(ArrayList<Object> items, int start, long firstItemTime)
+	{
+		ArrayList<Object> pending = new ArrayList<Object>(Math.max(_batchSize, items.size() - start + _items.size()));
+		pending.addAll(items.subList(start, items.size()));
+		pending.addAll(_items);
+		_items = pending;
+		_firstItemTime = firstItemTime;
+	}
+	
+	private void executeBatch(ArrayList<Object> items, int start, int end) throws InterruptedException, SQLException
+	{
+		int rows = end - start;
+		long startTime = System.nanoTime();
+		Connection connection = _pool.getConnection();
+		boolean autoCommit = true;
+		try
+		{
+			if(_transactional)
+			{
+				autoCommit = connection.getAutoCommit();
+				connection.setAutoCommit(false);
+			}
+			try
+			{
+				if(_sql != null)
+				{
+					PreparedStatement statement = _pool.prepareStatement(connection, _sql);
+					try
+					{
+						for(int i = start; i < end; i++)
+						{
+							DatabaseUtils.bindParams(statement, (Object[]) items.get(i));
+							statement.addBatch();
+						}
+						statement.executeBatch();
+					}
+					finally
+					{
+						//失败时缓存的预编译语句中可能还留有部分数据, 需要清除后再归还
+						try
+						{
+							statement.clearBatch();
+						}
+						finally
+						{
+							_pool.releaseStatement(connection, _sql, statement);
+						}
+					}
+				}
+				else
+				{
+					Statement statement = connection.createStatement();
+					try
+					{
+						for(int i = start; i < end; i++)
+						{
+							statement.addBatch((String) items.get(i));
+						}
+						statement.executeBatch();
+					}
+					finally
+					{
+						statement.close();
+					}
+				}
+				if(_transactional)
+				{
+					connection.commit();
+				}
+			}
+			catch(SQLException exception)
+			{
+				if(_transactional)
+				{
+					try
+					{
+						connection.rollback();
+					}
+					catch(SQLException rollbackException)
+					{
+					}
+				}
+				throw exception;
+			}
+			finally
+			{
+				if(_transactional)
+				{
+					connection.setAutoCommit(autoCommit);
+				}
+			}
+		}
+		catch(SQLException exception)
+		{
+			_failedCount.incrementAndGet();
+			IBatchListener listener = _listener;
+			if(listener != null)
+			{
+				listener.batchFailed(this, rows, exception);
+			}
+			throw exception;
+		}
+		finally
+		{
+			_pool.joinConnection(connection);
+		}
+		long latency = (System.nanoTime() - startTime) / 1000;
+		recordLatency(rows, latency);
+		IBatchListener listener = _listener;
+		if(listener != null)
+		{
+			listener.batchExecuted(this, rows, latency);
+		}
+	}
+	
+	private void recordLatency(int rows, long latency)
+	{
+		_batchCount.incrementAndGet();
+		_rowCount.addAndGet(rows);
+		_totalLatency.addAndGet(latency);
+		_lastLatency = latency;
+		long max = _maxLatency.get();
+		while(latency > max && !_maxLatency.compareAndSet(max, latency))
+		{
+			max = _maxLatency.get();
+		}
+	}
+	
+	/**
+	 * 获取已经成功写入的批次数量.
+	 * @return 已经成功写入的批次数量.
+	 */
+	public long getBatchCount()
+	{
+		return _batchCount.get();
+	}
+	
+	/**
+	 * 获取已经成功写入的数据条数.
+	 * @return 已经成功写入的数据条数.
+	 */
+	public long getRowCount()
+	{
+		return _rowCount.get();
+	}
+	
+	/**
+	 * 获取写入失败的批次数量.
+	 * @return 写入失败的批次数量.
+	 */
+	public long getFailedCount()
+	{
+		return _failedCount.get();
+	}
+	
+	/**
+	 * 获取最近一批数据写入花费的时间.
+	 * @return 最近一批数据写入花费的时间, 单位微秒.
+	 */
+	public long getLastLatency()
+	{
+		return _lastLatency;
+	}
+	
+	/**
+	 * 获取写入一批数据花费的最长时间.
+	 * @return 写入一批数据花费的最长时间, 单位微秒.
+	 */
+	public long getMaxLatency()
+	{
+		return _maxLatency.get();
+	}
+	
+	/**
+	 * 获取写入一批数据花费的平均时间.
+	 * @return 写入一批数据花费的平均时间, 单位微秒.
+	 */
+	public double getAverageLatency()
+	{
+		long count = _batchCount.get();
+		return count == 0 ? 0 : (double) _totalLatency.get() / count;
+	}
+}
@@ -0,0 +1,181 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BoundedExecutor 类限制同时交给底层执行器运行的任务数量, 超出的任务按提交顺序排队等待.
+ * <p>配合为每个任务创建一个虚拟线程的执行器使用时, 可以保证同时运行的数据库操作不会超过连接池的大小, 多余的操作只会排队而不会占用线程.</p>
+ * <p>底层执行器拒绝执行任务时会在提交任务的线程上直接运行被拒绝的任务, 没有其它正在运行的工作者时会继续运行队列中的任务, 保证任务不会丢失.</p>
+ * @author wizardc
+ */
+public class BoundedExecutor implements Executor
+{
+	//实际运行任务的执行器
+	private Executor _executor;
+	//同时运行的最大任务数量
+	private int _limit;
+	//等待运行的任务
+	private ConcurrentLinkedQueue<Runnable> _queue;
+	//正在运行的工作者数量
+	private AtomicInteger _running;
+	
+	/**
+	 * 创建一个 BoundedExecutor 对象.
+	 * @param executor 实际运行任务的执行器.
+	 * @param limit 同时运行的最大任务数量, 小于 1 时按 1 进行设置.
+	 */
+	public BoundedExecutor(Executor executor, int limit)
+	{
+		_executor = executor;
+		_limit = limit < 1 ? 1 : limit;
+		_queue = new ConcurrentLinkedQueue<Runnable>();
+		_running = new AtomicInteger();
+	}
+	
+	@Override
+	public void execute(Runnable task)
+	{
+		_queue.offer(task);
+		tryStartWorker();
+	}
+	
+	private void tryStartWorker()
+	{
+		while(!_queue.isEmpty())
+		{
+			int running = _running.get();
+			if(running >= _limit)
+			{
+				return;
+			}
+			if(!_running.compareAndSet(running, running + 1))
+			{
+				continue;
+			}
+			Runnable task = _queue.poll();
+			if(task == null)
+			{
+				_running.decrementAndGet();
+				continue;
+			}
+			try
+			{
+				_executor.execute(new Worker(task));
+			}
+			catch(RejectedExecutionException exception)
+			{
+				//只在当前线程运行被拒绝的任务, 队列中的其它任务交给正在运行的工作者
+				try
+				{
+					runTask(task);
+				}
+				finally
+				{
+					running = _running.decrementAndGet();
+				}
+				if(running > 0)
+				{
+					return;
+				}
+			}
+		}
+	}
+	
+	private static void runTask(Runnable task)
+	{
+		try
+		{
+			task.run();
+		}
+		catch(RuntimeException exception)
+		{
+		}
+	}
+	
+	/**
+	 * 获取同时运行的最大任务数量.
+	 * @return 同时运行的最大任务数量.
+	 */
+	public int getLimit()
+	{
+		return _limit;
+	}
+	
+	/**
+	 * 获取正在运行的工作者数量.
+	 * @return 正在运行的工作者数量.
+	 */
+	public int getRunningCount()
+	{
+		return _running.get();
+	}
+	
+	/**
+	 * 获取排队等待运行的任务数量.
+	 * @return 排队等待运行的任务数量.
+	 */
+	public int getQueuedCount()
+	{
+		return _queue.size();
+	}
+	
+	/**
+	 * 关闭底层的执行器, 之后提交的任务会在提交任务的线程上运行.
+	 */
+	public void shutdown()
+	{
+		if(_executor instanceof ExecutorService)
+		{
+			((ExecutorService) _executor).shutdown();
+		}
+	}
+	
+	/**
+	 * 依次运行队列中的任务, 队列为空时结束.
+	 * @author wizardc
+	 */
+	class Worker implements Runnable
+	{
+		private Runnable _firstTask;
+		
+		Worker(Runnable firstTask)
+		{
+			_firstTask = firstTask;
+		}
+		
+		@Override
+		public void run()
+		{
+			Runnable task = _firstTask;
+			_firstTask = null;
+			try
+			{
+				while(task != null)
+				{
+					runTask(task);
+					task = _queue.poll();
+				}
+			}
+			finally
+			{
+				//任务抛出 Error 时也需要释放占用的名额
+				_running.decrementAndGet();
+				//结束前提交的任务可能没有启动新的工作者
+				tryStartWorker();
+			}
+		}
+	}
+}
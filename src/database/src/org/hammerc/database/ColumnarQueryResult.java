@@ -0,0 +1,584 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashMap;
+
+/**
+ * ColumnarQueryResult 类按列记录数据库查询后返回的数据.
+ * <p>与 QueryResult 不同, 布尔及数值类型的字段会按列写入连续的字节缓冲中而不会为每个值创建包装对象, 空值使用位图记录, 其它类型的字段按列记录在对象数组中. 对于非常大的查询结果可以使用直接内存记录数值类型的字段以减少堆内存的占用.</p>
+ * <p>无符号的 INTEGER 字段按 long 记录, 无符号的 BIGINT 字段按对象记录以保留完整的取值范围.</p>
+ * <p>所有的访问方法均使用从 0 开始的行及字段索引, 字段索引可以通过 getColumnIndex 方法获取一次后重复使用. 数值类型的字段为空值时数值访问方法返回 0, 可以使用 isNull 方法进行判断.</p>
+ * @author wizardc
+ */
+public class ColumnarQueryResult
+{
+	//初始的行容量
+	private static final int INITIAL_CAPACITY = 64;
+	
+	//字段的存储类型
+	private static final int KIND_OBJECT = 0;
+	private static final int KIND_BOOLEAN = 1;
+	private static final int KIND_INT = 2;
+	private static final int KIND_LONG = 3;
+	private static final int KIND_FLOAT = 4;
+	private static final int KIND_DOUBLE = 5;
+	
+	//是否使用直接内存记录数值类型的字段
+	private boolean _direct;
+	//记录所有字段的名称
+	private String[] _columnNames;
+	//记录所有字段的 SQL 类型
+	private int[] _columnTypes;
+	//记录小写的字段名称对应的字段索引
+	private HashMap<String, Integer> _columnIndices;
+	//记录所有字段的数据
+	private Column[] _columns;
+	//查询结果的数据总数
+	private int _size;
+	
+	/**
+	 * 创建一个使用堆内存的查询结果.
+	 * @param resultSet 需要处理的原生查询结果数据.
+	 * @throws SQLException 获取查询记录的信息失败时会抛出该异常.
+	 */
+	public ColumnarQueryResult(ResultSet resultSet) throws SQLException
+	{
+		this(resultSet, false);
+	}
+	
+	/**
+	 * 创建一个查询结果.
+	 * @param resultSet 需要处理的原生查询结果数据.
+	 * @param direct 是否使用直接内存记录数值类型的字段.
+	 * @throws SQLException 获取查询记录的信息失败时会抛出该异常.
+	 */
+	public ColumnarQueryResult(ResultSet resultSet, boolean direct) throws SQLException
+	{
+		_direct = direct;
+		ResultSetMetaData metaData = resultSet.getMetaData();
+		int columnSize = metaData.getColumnCount();
+		_columnNames = new String[columnSize];
+		_columnTypes = new int[columnSize];
+		_columnIndices = new HashMap<String, Integer>();
+		_columns = new Column[columnSize];
+		for(int i = 0; i < columnSize; i++)
+		{
+			_columnNames[i] = metaData.getColumnLabel(i + 1);
+			_columnTypes[i] = metaData.getColumnType(i + 1);
+			_columnIndices.put(_columnNames[i].toLowerCase(), i);
+			_columns[i] = new Column(getKind(_columnTypes[i], metaData.isSigned(i + 1)));
+		}
+		int capacity = 0;
+		while(resultSet.next())
+		{
+			if(_size == capacity)
+			{
+				capacity = capacity == 0 ? INITIAL_CAPACITY : capacity << 1;
+				if(capacity < 0)
+				{
+					throw new OutOfMemoryError("Too many rows!");
+				}
+				for(Column column : _columns)
+				{
+					column.ensureCapacity(capacity, _direct);
+				}
+			}
+			for(int i = 0; i < columnSize; i++)
+			{
+				_columns[i].read(resultSet, i + 1, _size);
+			}
+			_size++;
+		}
+	}
+	
+	private static int getKind(int type, boolean signed)
+	{
+		switch(type)
+		{
+			case Types.BIT:
+			case Types.BOOLEAN:
+				return KIND_BOOLEAN;
+			case Types.TINYINT:
+			case Types.SMALLINT:
+				return KIND_INT;
+			case Types.INTEGER:
+				//无符号整型会超出 int 的范围, 使用 long 记录
+				return signed ? KIND_INT : KIND_LONG;
+			case Types.BIGINT:
+				//无符号长整型会超出 long 的范围, 按对象记录
+				return signed ? KIND_LONG : KIND_OBJECT;
+			case Types.REAL:
+				return KIND_FLOAT;
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return KIND_DOUBLE;
+			default:
+				return KIND_OBJECT;
+		}
+	}
+	
+	/**
+	 * 获取查询结果的数据总数.
+	 * @return 查询结果的数据总数.
+	 */
+	public int size()
+	{
+		return _size;
+	}
+	
+	/**
+	 * 获取字段的数量.
+	 * @return 字段的数量.
+	 */
+	public int columnCount()
+	{
+		return _columns.length;
+	}
+	
+	/**
+	 * 判断一个字段的名称是否存在.
+	 * @param columnName 需要查找的字段的名称.
+	 * @return 该字段名称是否存在.
+	 */
+	public boolean hasColumnName(String columnName)
+	{
+		return _columnIndices.containsKey(columnName.toLowerCase());
+	}
+	
+	/**
+	 * 获取指定字段名称对应的字段索引, 字段名称不区分大小写.
+	 * @param columnName 字段的名称.
+	 * @return 从 0 开始的字段索引, 不存在时返回 -1.
+	 */
+	public int getColumnIndex(String columnName)
+	{
+		Integer index = _columnIndices.get(columnName.toLowerCase());
+		return index == null ? -1 : index;
+	}
+	
+	/**
+	 * 获取指定字段的名称.
+	 * @param column 字段索引.
+	 * @return 字段的名称.
+	 */
+	public String getColumnName(int column)
+	{
+		return _columnNames[column];
+	}
+	
+	/**
+	 * 获取指定字段的 SQL 类型.
+	 * @param column 字段索引.
+	 * @return java.sql.Types 中定义的 SQL 类型.
+	 */
+	public int getColumnType(int column)
+	{
+		return _columnTypes[column];
+	}
+	
+	/**
+	 * 判断一个指定的查询结果是否为空值.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 是否为空值.
+	 */
+	public boolean isNull(int row, int column)
+	{
+		checkRow(row);
+		return _columns[column].isNull(row);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果, 对象类型的字段会按值转换: 数字非零为 true, 字符串为 "true" 或 "1" 时为 true.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public boolean getBoolean(int row, int column)
+	{
+		checkRow(row);
+		Column data = _columns[column];
+		switch(data.kind)
+		{
+			case KIND_BOOLEAN:
+				return data.buffer.get(row) != 0;
+			case KIND_OBJECT:
+				return toBoolean(data.objects[row]);
+			default:
+				return data.getLong(row) != 0;
+		}
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public short getShort(int row, int column)
+	{
+		return (short) getInteger(row, column);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public int getInteger(int row, int column)
+	{
+		checkRow(row);
+		Column data = _columns[column];
+		if(data.kind == KIND_INT)
+		{
+			return data.buffer.getInt(row << 2);
+		}
+		return (int) data.getLong(row);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public long getLong(int row, int column)
+	{
+		checkRow(row);
+		return _columns[column].getLong(row);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public float getFloat(int row, int column)
+	{
+		checkRow(row);
+		Column data = _columns[column];
+		if(data.kind == KIND_FLOAT)
+		{
+			return data.buffer.getFloat(row << 2);
+		}
+		return (float) data.getDouble(row);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public double getDouble(int row, int column)
+	{
+		checkRow(row);
+		return _columns[column].getDouble(row);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public BigDecimal getBigDecimal(int row, int column)
+	{
+		return (BigDecimal) getObject(row, column);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果, 非字符串类型的字段会转换为字符串.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public String getString(int row, int column)
+	{
+		Object value = getObject(row, column);
+		return value == null ? null : value.toString();
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public Date getDate(int row, int column)
+	{
+		return (Date) getObject(row, column);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public Time getTime(int row, int column)
+	{
+		return (Time) getObject(row, column);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public Timestamp getTimestamp(int row, int column)
+	{
+		return (Timestamp) getObject(row, column);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果.
+	 */
+	public byte[] getBytes(int row, int column)
+	{
+		return (byte[]) getObject(row, column);
+	}
+	
+	/**
+	 * 获取一个指定的查询结果, 数值类型的字段会创建对应的包装对象.
+	 * @param row 该结果的行数.
+	 * @param column 该结果位于的字段索引.
+	 * @return 指定的查询结果, 空值时返回 null.
+	 */
+	public Object getObject(int row, int column)
+	{
+		checkRow(row);
+		Column data = _columns[column];
+		if(data.kind == KIND_OBJECT)
+		{
+			return data.objects[row];
+		}
+		if(data.isNull(row))
+		{
+			return null;
+		}
+		switch(data.kind)
+		{
+			case KIND_BOOLEAN:
+				return data.buffer.get(row) != 0;
+			case KIND_INT:
+				return data.buffer.getInt(row << 2);
+			case KIND_LONG:
+				return data.buffer.getLong(row << 3);
+			case KIND_FLOAT:
+				return data.buffer.getFloat(row << 2);
+			default:
+				return data.buffer.getDouble(row << 3);
+		}
+	}
+	
+	/**
+	 * 获取一个指定的查询结果.
+	 * @param row 该结果的行数.
+	 * @param columnName 该结果位于的字段名称.
+	 * @return 指定的查询结果, 空值时返回 null.
+	 * @throws IllegalArgumentException 指定的字段不存在时会抛出该异常.
+	 */
+	public Object getObject(int row, String columnName)
+	{
+		int column = getColumnIndex(columnName);
+		if(column < 0)
+		{
+			throw new IllegalArgumentException("The column \"" + columnName + "\" does not exist!");
+		}
+		return getObject(row, column);
+	}
+	
+	//将对象类型的值转换为布尔值
+	private static boolean toBoolean(Object value)
+	{
+		if(value == null)
+		{
+			return false;
+		}
+		if(value instanceof Boolean)
+		{
+			return (Boolean) value;
+		}
+		if(value instanceof Number)
+		{
+			return ((Number) value).longValue() != 0;
+		}
+		String text = value.toString().trim();
+		return text.equalsIgnoreCase("true") || text.equals("1");
+	}
+	
+	private void checkRow(int row)
+	{
+		if(row < 0 || row >= _size)
+		{
+			throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + _size);
+		}
+	}
+	
+	/**
+	 * 记录一个字段的所有数据.
+	 * @author wizardc
+	 */
+	static class Column
+	{
+		final int kind;
+		//每个值占用的字节数, 对象类型为 0
+		final int width;
+		//数值类型的数据
+		ByteBuffer buffer;
+		//对象类型的数据
+		Object[] objects;
+		//空值位图
+		long[] nulls;
+		
+		Column(int kind)
+		{
+			this.kind = kind;
+			switch(kind)
+			{
+				case KIND_BOOLEAN:
+					width = 1;
+					break;
+				case KIND_INT:
+				case KIND_FLOAT:
+					width = 4;
+					break;
+				case KIND_LONG:
+				case KIND_DOUBLE:
+					width = 8;
+					break;
+				default:
+					width = 0;
+					break;
+			}
+		}
+		
+		void ensureCapacity(int capacity, boolean direct)
+		{
+			if(kind == KIND_OBJECT)
+			{
+				Object[] objects = new Object[capacity];
+				if(this.objects != null)
+				{
+					System.arraycopy(this.objects, 0, objects, 0, this.objects.length);
+				}
+				this.objects = objects;
+				return;
+			}
+			long bytes = (long) capacity * width;
+			if(bytes > Integer.MAX_VALUE)
+			{
+				throw new OutOfMemoryError("Column is too large!");
+			}
+			ByteBuffer buffer = direct ? ByteBuffer.allocateDirect((int) bytes) : ByteBuffer.allocate((int) bytes);
+			buffer.order(ByteOrder.nativeOrder());
+			long[] nulls = new long[(capacity + 63) >>> 6];
+			if(this.buffer != null)
+			{
+				this.buffer.clear();
+				buffer.put(this.buffer);
+				buffer.clear();
+				System.arraycopy(this.nulls, 0, nulls, 0, this.nulls.length);
+			}
+			this.buffer = buffer;
+			this.nulls = nulls;
+		}
+		
+		void read(ResultSet resultSet, int columnIndex, int row) throws SQLException
+		{
+			switch(kind)
+			{
+				case KIND_BOOLEAN:
+					buffer.put(row, resultSet.getBoolean(columnIndex) ? (byte) 1 : (byte) 0);
+					break;
+				case KIND_INT:
+					buffer.putInt(row << 2, resultSet.getInt(columnIndex));
+					break;
+				case KIND_LONG:
+					buffer.putLong(row << 3, resultSet.getLong(columnIndex));
+					break;
+				case KIND_FLOAT:
+					buffer.putFloat(row << 2, resultSet.getFloat(columnIndex));
+					break;
+				case KIND_DOUBLE:
+					buffer.putDouble(row << 3, resultSet.getDouble(columnIndex));
+					break;
+				default:
+					objects[row] = resultSet.getObject(columnIndex);
+					return;
+			}
+			if(resultSet.wasNull())
+			{
+				nulls[row >>> 6] |= 1L << row;
+			}
+		}
+		
+		boolean isNull(int row)
+		{
+			if(kind == KIND_OBJECT)
+			{
+				return objects[row] == null;
+			}
+			return (nulls[row >>> 6] & (1L << row)) != 0;
+		}
+		
+		long getLong(int row)
+		{
+			switch(kind)
+			{
+				case KIND_BOOLEAN:
+					return buffer.get(row);
+				case KIND_INT:
+					return buffer.getInt(row << 2);
+				case KIND_LONG:
+					return buffer.getLong(row << 3);
+				case KIND_FLOAT:
+					return (long) buffer.getFloat(row << 2);
+				case KIND_DOUBLE:
+					return (long) buffer.getDouble(row << 3);
+				default:
+					return objects[row] == null ? 0 : ((Number) objects[row]).longValue();
+			}
+		}
+		
+		double getDouble(int row)
+		{
+			switch(kind)
+			{
+				case KIND_FLOAT:
+					return buffer.getFloat(row << 2);
+				case KIND_DOUBLE:
+					return buffer.getDouble(row << 3);
+				case KIND_OBJECT:
+					return objects[row] == null ? 0 : ((Number) objects[row]).doubleValue();
+				default:
+					return getLong(row);
+			}
+		}
+	}
+}
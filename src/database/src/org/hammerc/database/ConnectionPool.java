@@ -9,58 +9,445 @@
 
 package org.hammerc.database;
 
+import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
 
 /**
  * ConnectionPool 类定义了一个数据库连接池, 该连接池中的连接数不会超过指定的数量且可重复使用.
+ * <p>连接在需要时才会创建, 直到达到最多同时存在的连接数量, 之后获取连接的线程会等待其它线程归还连接. 后台维护线程会关闭空闲时间过长的连接并补足最少保持的空闲连接. 空闲连接按后进先出的顺序取出, 使多余的连接能够空闲超时被关闭.</p>
+ * <p>只有空闲时间超过阈值的连接在取出时才会验证, 其余情况下取出连接只需要从空闲队列中取出一个对象. 后台维护线程会定期验证长时间空闲的连接, 失效的连接默认在后台线程上关闭并替换.</p>
+ * <p>连接池会为每个连接缓存最近使用的预编译语句对象, 相同的 SQL 语句在同一个连接上重复执行时不需要数据库再次解析.</p>
+ * <p>连接池的统计数据记录在 getMetrics 方法返回的对象中, 也可以通过 setListener 方法设置回调接收所有事件.</p>
  * @author wizardc
  */
 public class ConnectionPool
 {
+	/**
+	 * 每个连接默认缓存的预编译语句数量.
+	 */
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+	
+	//为所有维护线程编号
+	private static final AtomicInteger MAINTENANCE_COUNT = new AtomicInteger();
+	//为所有异步操作线程编号
+	private static final AtomicInteger ASYNC_COUNT = new AtomicInteger();
+	//创建替换连接失败后重试的间隔, 单位毫秒
+	private static final long REPLENISH_RETRY_DELAY = 1000;
+	
 	//记录当前的数据库连接配置
 	private IConnectionConfig _config;
-	//记录当前的连接池
-	private BlockingQueue<Connection> _pool;
+	//最少保持的空闲连接数量
+	private int _minIdle;
+	//最多同时存在的连接数量
+	private int _maxTotal;
+	//空闲连接被关闭前的最长空闲时间, 单位毫秒
+	private long _idleTimeout;
+	//获取连接时等待的最长时间, 单位毫秒
+	private long _acquireTimeout;
+	//取出连接时需要验证的最短空闲时间, 单位毫秒
+	private long _validationIdleThreshold;
+	//验证连接时等待的最长时间, 单位秒
+	private int _validationTimeout;
+	//后台验证空闲连接的间隔, 单位毫秒
+	private long _backgroundValidationInterval;
+	//是否在后台线程上关闭失效的连接并创建新的连接
+	private boolean _asyncReplacement;
+	//连接被取出多久后视为泄漏, 单位毫秒
+	private long _leakDetectionThreshold;
+	//记录当前的空闲连接, 头部为最近归还的连接
+	private LinkedBlockingDeque<PooledConnection> _idleConnections;
+	//记录所有已经创建的连接
+	private ConcurrentHashMap<Connection, PooledConnection> _connections;
+	//已经创建及正在创建的连接数量
+	private AtomicInteger _totalCount;
+	//正在等待连接的线程数量
+	private AtomicInteger _waitingCount;
+	//后台维护线程, 在第一次需要时创建
+	private ScheduledExecutorService _maintenanceExecutor;
+	//补充连接的任务
+	private Runnable _replenishTask;
+	//运行异步数据库操作的执行器, 在第一次需要时创建
+	private BoundedExecutor _asyncExecutor;
+	//是否已经关闭
+	private volatile boolean _closed = false;
+	//连接池的统计数据
+	private ConnectionPoolMetrics _metrics;
+	//接收连接池事件的回调
+	private volatile IConnectionPoolListener _listener;
+	//每个连接缓存的预编译语句数量
+	private volatile int _statementCacheSize;
+	//预编译语句缓存的命中次数
+	private AtomicLong _statementCacheHits;
+	//预编译语句缓存的未命中次数
+	private AtomicLong _statementCacheMisses;
+	//查询结果缓存, 为 null 时不缓存
+	private volatile QueryCache _queryCache;
 	
 	/**
 	 * 创建连接池, 该连接池会始终保证连接数量小于等于参数 size 设置的数.
+	 * <p>所有连接会立即创建且不会因空闲而关闭, 获取连接时会一直等待, 每次取出连接时都会进行验证.</p>
 	 * @param config 当前连接池的数据库配置对象.
 	 * @param size 该连接池的大小, 小于 1 时按 5 进行设置. 如果操作正确该大小为该连接池的最大大小.
 	 * @throws ClassNotFoundException 当加载的驱动程序类不存在时抛出该异常.
 	 * @throws SQLException 当初始化连接池失败时抛出该异常.
 	 */
 	public ConnectionPool(IConnectionConfig config, int size) throws ClassNotFoundException, SQLException
+	{
+		this(config, createFixedConfig(size < 1 ? 5 : size));
+	}
+	
+	/**
+	 * 使用指定的配置创建连接池.
+	 * @param config 当前连接池的数据库配置对象.
+	 * @param poolConfig 连接池的配置对象.
+	 * @throws ClassNotFoundException 当加载的驱动程序类不存在时抛出该异常.
+	 * @throws SQLException 当创建最少保持的空闲连接失败时抛出该异常.
+	 */
+	public ConnectionPool(IConnectionConfig config, ConnectionPoolConfig poolConfig) throws ClassNotFoundException, SQLException
 	{
 		Class.forName(config.getDriverClass());
 		_config = config;
-		_pool = new LinkedBlockingQueue<Connection>();
-		size = size < 1 ? 5 : size;
-		for(int i = 0; i < size; i++)
+		_maxTotal = poolConfig.getMaxTotal() < 1 ? 10 : poolConfig.getMaxTotal();
+		_minIdle = Math.max(0, Math.min(poolConfig.getMinIdle(), _maxTotal));
+		_idleTimeout = Math.max(0, poolConfig.getIdleTimeout());
+		_acquireTimeout = Math.max(0, poolConfig.getAcquireTimeout());
+		_statementCacheSize = Math.max(0, poolConfig.getStatementCacheSize());
+		_validationIdleThreshold = poolConfig.getValidationIdleThreshold();
+		_validationTimeout = Math.max(0, poolConfig.getValidationTimeout());
+		_backgroundValidationInterval = Math.max(0, poolConfig.getBackgroundValidationInterval());
+		_asyncReplacement = poolConfig.isAsyncReplacement();
+		_leakDetectionThreshold = Math.max(0, poolConfig.getLeakDetectionThreshold());
+		if(poolConfig.getQueryCacheSize() > 0)
+		{
+			_queryCache = new QueryCache(poolConfig.getQueryCacheSize(), poolConfig.getQueryCacheTimeToLive());
+		}
+		_metrics = new ConnectionPoolMetrics(this);
+		_replenishTask = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				replenish();
+			}
+		};
+		_idleConnections = new LinkedBlockingDeque<PooledConnection>();
+		_connections = new ConcurrentHashMap<Connection, PooledConnection>();
+		_totalCount = new AtomicInteger();
+		_waitingCount = new AtomicInteger();
+		_statementCacheHits = new AtomicLong();
+		_statementCacheMisses = new AtomicLong();
+		try
+		{
+			for(int i = 0; i < _minIdle; i++)
+			{
+				_idleConnections.offerLast(tryCreateConnection());
+			}
+		}
+		catch(SQLException exception)
+		{
+			cleanup();
+			throw exception;
+		}
+		if(poolConfig.getHousekeepingInterval() > 0 && (_idleTimeout > 0 || _minIdle > 0 || _backgroundValidationInterval > 0 || _leakDetectionThreshold > 0 || _queryCache != null))
+		{
+			long interval = poolConfig.getHousekeepingInterval();
+			getMaintenanceExecutor().scheduleWithFixedDelay(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					housekeep();
+				}
+			}, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	private static ConnectionPoolConfig createFixedConfig(int size)
+	{
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+		poolConfig.setMinIdle(size);
+		poolConfig.setMaxTotal(size);
+		poolConfig.setIdleTimeout(0);
+		poolConfig.setAcquireTimeout(0);
+		poolConfig.setHousekeepingInterval(0);
+		poolConfig.setValidationIdleThreshold(0);
+		return poolConfig;
+	}
+	
+	private synchronized ScheduledExecutorService getMaintenanceExecutor()
+	{
+		if(_maintenanceExecutor == null)
+		{
+			_maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "hammerc-pool-maintenance-" + MAINTENANCE_COUNT.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return _maintenanceExecutor;
+	}
+	
+	/**
+	 * 在后台维护线程上运行任务, 不使用后台线程替换连接或连接池已经关闭时在当前线程上运行.
+	 * @param task 要运行的任务.
+	 */
+	private void runMaintenance(Runnable task)
+	{
+		if(_asyncReplacement && !_closed)
 		{
-			_pool.add(createNewConnection());
+			try
+			{
+				getMaintenanceExecutor().execute(task);
+				return;
+			}
+			catch(RejectedExecutionException exception)
+			{
+			}
 		}
+		task.run();
 	}
 	
 	/**
-	 * 获取一个可用的数据库连接, 如果该连接池已经空了时则等待有新的连接添加之前会一直阻塞, 取出的连接在使用后需要重新添加到该对象池中. 注意该方法线程安全但会导致线程阻塞.
+	 * 获取运行异步数据库操作的执行器, 同时运行的操作数量不会超过最多同时存在的连接数量, 多余的操作会排队等待.
+	 * <p>没有通过 setAsyncExecutor 方法设置时, 运行环境支持虚拟线程则为每个操作使用一个虚拟线程, 否则使用固定大小的线程池.</p>
+	 * @return 运行异步数据库操作的执行器.
+	 */
+	public synchronized BoundedExecutor getAsyncExecutor()
+	{
+		if(_asyncExecutor == null)
+		{
+			_asyncExecutor = new BoundedExecutor(createDefaultAsyncExecutor(), _maxTotal);
+		}
+		return _asyncExecutor;
+	}
+	
+	/**
+	 * 设置运行异步数据库操作的底层执行器, 同时运行的操作数量仍然会被限制为最多同时存在的连接数量.
+	 * @param executor 底层执行器, 关闭连接池时如果是 ExecutorService 会被一起关闭.
+	 */
+	public synchronized void setAsyncExecutor(Executor executor)
+	{
+		if(_asyncExecutor != null)
+		{
+			_asyncExecutor.shutdown();
+		}
+		_asyncExecutor = new BoundedExecutor(executor, _maxTotal);
+	}
+	
+	private ExecutorService createDefaultAsyncExecutor()
+	{
+		try
+		{
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		}
+		catch(Exception exception)
+		{
+			return Executors.newFixedThreadPool(_maxTotal, new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "hammerc-pool-async-" + ASYNC_COUNT.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+	
+	/**
+	 * 获取一个可用的数据库连接, 没有空闲连接且连接数量已经达到上限时会等待其它线程归还连接, 取出的连接在使用后需要重新添加到该对象池中. 注意该方法线程安全但会导致线程阻塞.
 	 * @return 返回一个可以使用的数据库连接.
 	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
-	 * @throws SQLException 创建新的连接失败时抛出该异常.
+	 * @throws SQLTimeoutException 等待超过获取连接的最长时间时抛出该异常.
+	 * @throws SQLException 创建新的连接失败或连接池已经关闭时抛出该异常.
 	 */
 	public Connection getConnection() throws InterruptedException, SQLException
 	{
-		Connection connection = _pool.take();
-		while(!connection.isValid(5))
+		return getConnection(_acquireTimeout);
+	}
+	
+	/**
+	 * 获取一个可用的数据库连接, 使用指定的最长等待时间代替连接池配置的获取连接的最长时间.
+	 * @param timeout 等待其它线程归还连接的最长时间, 单位毫秒, 小于等于 0 时会一直等待.
+	 * @return 返回一个可以使用的数据库连接.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 * @throws SQLTimeoutException 等待超过指定的最长时间时抛出该异常.
+	 * @throws SQLException 创建新的连接失败或连接池已经关闭时抛出该异常.
+	 */
+	public Connection getConnection(long timeout) throws InterruptedException, SQLException
+	{
+		long startTime = System.nanoTime();
+		long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+		while(true)
+		{
+			if(_closed)
+			{
+				throw new SQLException("The connection pool is closed!");
+			}
+			PooledConnection pooled = _idleConnections.pollFirst();
+			if(pooled == null)
+			{
+				pooled = tryCreateConnection();
+			}
+			if(pooled == null)
+			{
+				pooled = waitIdleConnection(timeout, deadline, startTime);
+			}
+			if(!needsValidation(pooled) || validate(pooled))
+			{
+				pooled.borrowed.set(true);
+				pooled.borrowTime = System.nanoTime();
+				if(_leakDetectionThreshold > 0)
+				{
+					pooled.leakReported = false;
+					pooled.borrowTrace = new Throwable("Connection borrowed by thread \"" + Thread.currentThread().getName() + "\"");
+				}
+				long waitTime = (pooled.borrowTime - startTime) / 1000;
+				_metrics.connectionAcquired(this, waitTime);
+				IConnectionPoolListener listener = _listener;
+				if(listener != null)
+				{
+					listener.connectionAcquired(this, waitTime);
+				}
+				return pooled.connection;
+			}
+			replaceConnection(pooled);
+		}
+	}
+	
+	private boolean needsValidation(PooledConnection pooled)
+	{
+		if(_validationIdleThreshold < 0)
 		{
-			connection.close();
-			_pool.put(createNewConnection());
-			connection = _pool.take();
+			return false;
+		}
+		return System.currentTimeMillis() - Math.max(pooled.lastUsedTime, pooled.lastValidatedTime) >= _validationIdleThreshold;
+	}
+	
+	private boolean validate(PooledConnection pooled)
+	{
+		boolean valid;
+		try
+		{
+			valid = pooled.connection.isValid(_validationTimeout);
+		}
+		catch(SQLException exception)
+		{
+			valid = false;
+		}
+		if(valid)
+		{
+			pooled.lastValidatedTime = System.currentTimeMillis();
+		}
+		_metrics.connectionValidated(this, valid);
+		IConnectionPoolListener listener = _listener;
+		if(listener != null)
+		{
+			listener.connectionValidated(this, valid);
+		}
+		return valid;
+	}
+	
+	private PooledConnection waitIdleConnection(long timeout, long deadline, long startTime) throws InterruptedException, SQLException
+	{
+		_waitingCount.incrementAndGet();
+		try
+		{
+			//登记等待后再尝试一次, 避免错过等待前被关闭的连接空出的名额
+			PooledConnection pooled = tryCreateConnection();
+			if(pooled != null)
+			{
+				return pooled;
+			}
+			if(deadline == 0)
+			{
+				return _idleConnections.takeFirst();
+			}
+			long remaining = deadline - System.currentTimeMillis();
+			pooled = remaining > 0 ? _idleConnections.pollFirst(remaining, TimeUnit.MILLISECONDS) : null;
+			if(pooled == null)
+			{
+				long waitTime = (System.nanoTime() - startTime) / 1000;
+				_metrics.acquireTimedOut(this, waitTime);
+				IConnectionPoolListener listener = _listener;
+				if(listener != null)
+				{
+					listener.acquireTimedOut(this, waitTime);
+				}
+				throw new SQLTimeoutException("Timed out after " + timeout + "ms waiting for a connection!");
+			}
+			return pooled;
+		}
+		finally
+		{
+			_waitingCount.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * 连接数量没有达到上限时创建一个新的连接.
+	 * @return 新的连接, 连接数量已经达到上限时返回 null.
+	 * @throws SQLException 连接创建失败时抛出该异常.
+	 */
+	private PooledConnection tryCreateConnection() throws SQLException
+	{
+		int total;
+		do
+		{
+			total = _totalCount.get();
+			if(total >= _maxTotal)
+			{
+				return null;
+			}
+		}
+		while(!_totalCount.compareAndSet(total, total + 1));
+		try
+		{
+			long startTime = System.nanoTime();
+			PooledConnection pooled = new PooledConnection(createNewConnection());
+			_connections.put(pooled.connection, pooled);
+			long createTime = (System.nanoTime() - startTime) / 1000;
+			_metrics.connectionCreated(this, createTime);
+			IConnectionPoolListener listener = _listener;
+			if(listener != null)
+			{
+				listener.connectionCreated(this, createTime);
+			}
+			return pooled;
+		}
+		catch(SQLException exception)
+		{
+			_totalCount.decrementAndGet();
+			throw exception;
 		}
-		return connection;
 	}
 	
 	/**
@@ -74,16 +461,362 @@ public class ConnectionPool
 	}
 	
 	/**
-	 * 将使用过的连接重新放回该连接池.
+	 * 关闭一个不在空闲队列中的连接, 有线程在等待连接时会创建一个新的连接补充到空闲队列中.
+	 * @param pooled 要关闭的连接.
+	 */
+	private void destroyConnection(PooledConnection pooled)
+	{
+		_connections.remove(pooled.connection);
+		closeConnection(pooled);
+		_totalCount.decrementAndGet();
+		if(_waitingCount.get() > 0 && !_closed)
+		{
+			runMaintenance(_replenishTask);
+		}
+	}
+	
+	/**
+	 * 关闭一个失效的连接并创建一个新的连接替换它, 默认在后台线程上进行, 关闭完成前该连接仍然占用一个名额.
+	 * @param pooled 失效的连接.
+	 */
+	private void replaceConnection(final PooledConnection pooled)
+	{
+		_connections.remove(pooled.connection);
+		runMaintenance(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				closeConnection(pooled);
+				_totalCount.decrementAndGet();
+				replenish();
+			}
+		});
+	}
+	
+	private void closeConnection(PooledConnection pooled)
+	{
+		pooled.close();
+		_metrics.connectionClosed(this);
+		IConnectionPoolListener listener = _listener;
+		if(listener != null)
+		{
+			listener.connectionClosed(this);
+		}
+	}
+	
+	/**
+	 * 连接数量没有达到上限时创建一个新的连接放入空闲队列, 创建失败且有线程在等待连接时会稍后重试.
+	 */
+	private void replenish()
+	{
+		if(_closed)
+		{
+			return;
+		}
+		try
+		{
+			PooledConnection pooled = tryCreateConnection();
+			if(pooled != null)
+			{
+				_idleConnections.offerFirst(pooled);
+				//放入时连接池刚好关闭的连接需要在这里关闭
+				if(_closed && _idleConnections.removeFirstOccurrence(pooled))
+				{
+					destroyConnection(pooled);
+				}
+			}
+		}
+		catch(SQLException exception)
+		{
+			if(_waitingCount.get() > 0 && _asyncReplacement && !_closed)
+			{
+				try
+				{
+					getMaintenanceExecutor().schedule(_replenishTask, REPLENISH_RETRY_DELAY, TimeUnit.MILLISECONDS);
+				}
+				catch(RejectedExecutionException rejectedException)
+				{
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 关闭空闲时间过长的连接, 验证长时间没有使用的空闲连接并补足最少保持的空闲连接.
+	 */
+	private void housekeep()
+	{
+		if(_closed)
+		{
+			return;
+		}
+		QueryCache queryCache = _queryCache;
+		if(queryCache != null)
+		{
+			queryCache.evictExpired();
+		}
+		if(_idleTimeout > 0)
+		{
+			long now = System.currentTimeMillis();
+			//尾部为最早归还的连接
+			Iterator<PooledConnection> iterator = _idleConnections.descendingIterator();
+			while(iterator.hasNext() && _idleConnections.size() > _minIdle)
+			{
+				PooledConnection pooled = iterator.next();
+				if(now - pooled.lastUsedTime < _idleTimeout)
+				{
+					break;
+				}
+				if(_idleConnections.removeLastOccurrence(pooled))
+				{
+					destroyConnection(pooled);
+				}
+			}
+		}
+		if(_backgroundValidationInterval > 0)
+		{
+			long now = System.currentTimeMillis();
+			for(PooledConnection pooled : _idleConnections)
+			{
+				if(now - Math.max(pooled.lastUsedTime, pooled.lastValidatedTime) < _backgroundValidationInterval)
+				{
+					continue;
+				}
+				//从空闲队列中取出后再验证, 避免验证期间被其它线程取出
+				if(_idleConnections.removeFirstOccurrence(pooled))
+				{
+					if(validate(pooled) && !_closed)
+					{
+						_idleConnections.offerLast(pooled);
+					}
+					else
+					{
+						destroyConnection(pooled);
+					}
+				}
+			}
+		}
+		if(_leakDetectionThreshold > 0)
+		{
+			detectLeaks();
+		}
+		while(_idleConnections.size() < _minIdle && !_closed)
+		{
+			try
+			{
+				PooledConnection pooled = tryCreateConnection();
+				if(pooled == null)
+				{
+					break;
+				}
+				_idleConnections.offerLast(pooled);
+			}
+			catch(SQLException exception)
+			{
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * 通知取出时间超过泄漏检测阈值的连接, 每次取出只会通知一次.
+	 */
+	private void detectLeaks()
+	{
+		long now = System.nanoTime();
+		long threshold = _leakDetectionThreshold * 1000000;
+		for(PooledConnection pooled : _connections.values())
+		{
+			Throwable borrowTrace = pooled.borrowTrace;
+			if(!pooled.borrowed.get() || pooled.leakReported || borrowTrace == null || now - pooled.borrowTime < threshold)
+			{
+				continue;
+			}
+			pooled.leakReported = true;
+			long holdTime = (now - pooled.borrowTime) / 1000;
+			_metrics.leakDetected(this, holdTime, borrowTrace);
+			IConnectionPoolListener listener = _listener;
+			if(listener != null)
+			{
+				listener.leakDetected(this, holdTime, borrowTrace);
+			}
+		}
+	}
+	
+	/**
+	 * 获取连接池的统计数据.
+	 * @return 连接池的统计数据.
+	 */
+	public ConnectionPoolMetrics getMetrics()
+	{
+		return _metrics;
+	}
+	
+	/**
+	 * 设置接收连接池事件的回调, 统计数据始终会记录在 getMetrics 方法返回的对象中.
+	 * @param listener 接收连接池事件的回调, 为 null 时不进行回调.
+	 */
+	public void setListener(IConnectionPoolListener listener)
+	{
+		_listener = listener;
+	}
+	
+	/**
+	 * 设置查询结果缓存, 多个连接池可以共享同一个缓存对象.
+	 * @param queryCache 查询结果缓存, 为 null 时不缓存.
+	 */
+	public void setQueryCache(QueryCache queryCache)
+	{
+		_queryCache = queryCache;
+	}
+	
+	/**
+	 * 获取查询结果缓存.
+	 * @return 查询结果缓存, 没有设置时返回 null.
+	 */
+	public QueryCache getQueryCache()
+	{
+		return _queryCache;
+	}
+	
+	/**
+	 * 设置每个连接缓存的预编译语句数量, 只对之后创建的缓存有效.
+	 * @param size 每个连接缓存的预编译语句数量, 为 0 时不进行缓存.
+	 */
+	public void setStatementCacheSize(int size)
+	{
+		_statementCacheSize = size < 0 ? 0 : size;
+	}
+	
+	/**
+	 * 获取每个连接缓存的预编译语句数量.
+	 * @return 每个连接缓存的预编译语句数量.
+	 */
+	public int getStatementCacheSize()
+	{
+		return _statementCacheSize;
+	}
+	
+	/**
+	 * 获取指定连接上对应 SQL 语句的预编译语句对象, 优先使用缓存中的对象.
+	 * <p>使用完毕后需要调用 releaseStatement 方法, 不应直接关闭该对象. 同一个连接同时使用的预编译语句数量不应超过缓存的数量, 否则可能被缓存淘汰关闭.</p>
+	 * @param connection 从该连接池取出的连接.
+	 * @param sql 需要预编译的 SQL 语句.
+	 * @return 预编译语句对象.
+	 * @throws SQLException 创建预编译语句失败时抛出该异常.
+	 */
+	public PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException
+	{
+		int cacheSize = _statementCacheSize;
+		PooledConnection pooled = _connections.get(connection);
+		if(cacheSize == 0 || pooled == null)
+		{
+			_statementCacheMisses.incrementAndGet();
+			return connection.prepareStatement(sql);
+		}
+		if(pooled.statements == null)
+		{
+			pooled.statements = new StatementCache(cacheSize);
+		}
+		PreparedStatement statement = pooled.statements.get(sql);
+		if(statement != null && !statement.isClosed())
+		{
+			_statementCacheHits.incrementAndGet();
+			return statement;
+		}
+		_statementCacheMisses.incrementAndGet();
+		statement = connection.prepareStatement(sql);
+		pooled.statements.put(sql, statement);
+		return statement;
+	}
+	
+	/**
+	 * 归还使用完毕的预编译语句对象, 已缓存的对象会清除参数及未执行的批处理后保留, 未缓存的对象会被关闭.
+	 * @param connection 预编译语句对象所属的连接.
+	 * @param sql 获取预编译语句对象时使用的 SQL 语句.
+	 * @param statement 预编译语句对象.
+	 * @throws SQLException 清除参数或关闭失败时抛出该异常.
+	 */
+	public void releaseStatement(Connection connection, String sql, PreparedStatement statement) throws SQLException
+	{
+		if(statement == null)
+		{
+			return;
+		}
+		PooledConnection pooled = _connections.get(connection);
+		if(pooled != null && pooled.statements != null && pooled.statements.get(sql) == statement)
+		{
+			statement.clearParameters();
+			statement.clearBatch();
+		}
+		else
+		{
+			statement.close();
+		}
+	}
+	
+	/**
+	 * 获取预编译语句缓存的命中次数.
+	 * @return 预编译语句缓存的命中次数.
+	 */
+	public long getStatementCacheHitCount()
+	{
+		return _statementCacheHits.get();
+	}
+	
+	/**
+	 * 获取预编译语句缓存的未命中次数.
+	 * @return 预编译语句缓存的未命中次数.
+	 */
+	public long getStatementCacheMissCount()
+	{
+		return _statementCacheMisses.get();
+	}
+	
+	/**
+	 * 将使用过的连接重新放回该连接池, 不是由该连接池创建的连接会被直接关闭, 重复放回同一个连接不会进行任何操作.
 	 * @param connection 要放回连接池的连接对象.
 	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
 	 */
 	public void joinConnection(Connection connection) throws InterruptedException
 	{
-		if(connection != null)
+		if(connection == null)
+		{
+			return;
+		}
+		PooledConnection pooled = _connections.get(connection);
+		if(pooled == null)
+		{
+			try
+			{
+				connection.close();
+			}
+			catch(SQLException exception)
+			{
+			}
+			return;
+		}
+		//并发重复归还同一个连接时只有一个线程能够放回
+		if(!pooled.borrowed.compareAndSet(true, false))
+		{
+			return;
+		}
+		pooled.borrowTrace = null;
+		pooled.lastUsedTime = System.currentTimeMillis();
+		long holdTime = (System.nanoTime() - pooled.borrowTime) / 1000;
+		_metrics.connectionReleased(this, holdTime);
+		IConnectionPoolListener listener = _listener;
+		if(listener != null)
 		{
-			_pool.put(connection);
+			listener.connectionReleased(this, holdTime);
 		}
+		if(_closed)
+		{
+			destroyConnection(pooled);
+			return;
+		}
+		_idleConnections.offerFirst(pooled);
 	}
 	
 	/**
@@ -92,20 +825,167 @@ public class ConnectionPool
 	 */
 	public int getSize()
 	{
-		return _pool.size();
+		return _idleConnections.size();
+	}
+	
+	/**
+	 * 获取最多同时存在的连接数量.
+	 * @return 最多同时存在的连接数量.
+	 */
+	public int getMaxTotal()
+	{
+		return _maxTotal;
+	}
+	
+	/**
+	 * 获取当前已经创建的连接数量, 包括空闲及正在使用的连接.
+	 * @return 当前已经创建的连接数量.
+	 */
+	public int getTotalSize()
+	{
+		return _totalCount.get();
+	}
+	
+	/**
+	 * 获取当前正在使用的连接数量.
+	 * @return 当前正在使用的连接数量.
+	 */
+	public int getActiveSize()
+	{
+		return Math.max(0, _totalCount.get() - _idleConnections.size());
 	}
 	
 	/**
-	 * 清空该连接池并关闭所有连接.
+	 * 获取正在等待连接的线程数量.
+	 * @return 正在等待连接的线程数量.
+	 */
+	public int getWaitingCount()
+	{
+		return _waitingCount.get();
+	}
+	
+	/**
+	 * 关闭该连接池并关闭所有空闲连接, 之后归还的连接会被直接关闭, 同时会从 JMX 中注销统计数据.
 	 * @throws SQLException 关闭连接失败时抛出该异常.
 	 */
 	public void cleanup() throws SQLException
 	{
-		for(Connection connection : _pool)
+		_closed = true;
+		synchronized(this)
+		{
+			if(_maintenanceExecutor != null)
+			{
+				_maintenanceExecutor.shutdownNow();
+			}
+			if(_asyncExecutor != null)
+			{
+				_asyncExecutor.shutdown();
+			}
+		}
+		PooledConnection pooled;
+		while((pooled = _idleConnections.pollFirst()) != null)
+		{
+			destroyConnection(pooled);
+		}
+		try
+		{
+			_metrics.unregisterMBean();
+		}
+		catch(JMException exception)
+		{
+		}
+	}
+	
+	/**
+	 * 连接池中的连接及其状态.
+	 * @author wizardc
+	 */
+	static class PooledConnection
+	{
+		final Connection connection;
+		//最近一次归还的时间戳
+		volatile long lastUsedTime;
+		//最近一次验证成功的时间戳
+		volatile long lastValidatedTime;
+		//是否已经被取出
+		final AtomicBoolean borrowed = new AtomicBoolean();
+		//最近一次取出的时间, 单位纳秒
+		volatile long borrowTime;
+		//开启泄漏检测时记录取出连接时的调用堆栈
+		volatile Throwable borrowTrace;
+		//本次取出是否已经通知过泄漏
+		volatile boolean leakReported = false;
+		//预编译语句缓存, 只会被取出该连接的线程访问
+		StatementCache statements;
+		
+		PooledConnection(Connection connection)
+		{
+			this.connection = connection;
+			this.lastUsedTime = System.currentTimeMillis();
+		}
+		
+		void close()
+		{
+			if(statements != null)
+			{
+				statements.closeAll();
+			}
+			try
+			{
+				connection.close();
+			}
+			catch(SQLException exception)
+			{
+			}
+		}
+	}
+	
+	/**
+	 * 一个连接的预编译语句缓存, 按最近使用的顺序淘汰并关闭超出数量的对象.
+	 * <p>连接同一时间只会被一个线程使用, 所以该类不需要同步.</p>
+	 * @author wizardc
+	 */
+	static class StatementCache extends LinkedHashMap<String, PreparedStatement>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private int _maxSize;
+		
+		StatementCache(int maxSize)
+		{
+			super(16, 0.75f, true);
+			_maxSize = maxSize;
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest)
+		{
+			if(size() > _maxSize)
+			{
+				closeQuietly(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+		
+		void closeAll()
+		{
+			for(PreparedStatement statement : values())
+			{
+				closeQuietly(statement);
+			}
+			clear();
+		}
+		
+		private static void closeQuietly(PreparedStatement statement)
 		{
-			connection.close();
-			connection = null;
+			try
+			{
+				statement.close();
+			}
+			catch(SQLException exception)
+			{
+			}
 		}
-		_pool.clear();
 	}
 }
@@ -0,0 +1,278 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+/**
+ * ConnectionPoolConfig 类记录连接池的大小及超时等配置, 创建连接池时会复制所有的配置, 之后修改不会影响已经创建的连接池.
+ * @author wizardc
+ */
+public class ConnectionPoolConfig
+{
+	//最少保持的空闲连接数量
+	private int _minIdle = 0;
+	//最多同时存在的连接数量
+	private int _maxTotal = 10;
+	//空闲连接被关闭前的最长空闲时间, 单位毫秒
+	private long _idleTimeout = 600000;
+	//获取连接时等待的最长时间, 单位毫秒
+	private long _acquireTimeout = 30000;
+	//后台维护线程的运行间隔, 单位毫秒
+	private long _housekeepingInterval = 30000;
+	//每个连接缓存的预编译语句数量
+	private int _statementCacheSize = ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE;
+	//取出连接时需要验证的最短空闲时间, 单位毫秒
+	private long _validationIdleThreshold = 500;
+	//验证连接时等待的最长时间, 单位秒
+	private int _validationTimeout = 5;
+	//后台验证空闲连接的间隔, 单位毫秒
+	private long _backgroundValidationInterval = 60000;
+	//是否在后台线程上关闭失效的连接并创建新的连接
+	private boolean _asyncReplacement = true;
+	//连接被取出多久后视为泄漏, 单位毫秒
+	private long _leakDetectionThreshold = 0;
+	//最多缓存的查询结果数量
+	private int _queryCacheSize = 0;
+	//缓存的查询结果的存活时间, 单位毫秒
+	private long _queryCacheTimeToLive = 60000;
+	
+	/**
+	 * 设置最少保持的空闲连接数量, 创建连接池时会立即创建这些连接, 之后由后台维护线程补足.
+	 * @param minIdle 最少保持的空闲连接数量, 默认为 0, 不能超过最多同时存在的连接数量.
+	 */
+	public void setMinIdle(int minIdle)
+	{
+		_minIdle = minIdle;
+	}
+	
+	/**
+	 * 获取最少保持的空闲连接数量.
+	 * @return 最少保持的空闲连接数量.
+	 */
+	public int getMinIdle()
+	{
+		return _minIdle;
+	}
+	
+	/**
+	 * 设置最多同时存在的连接数量, 连接在需要时才会创建.
+	 * @param maxTotal 最多同时存在的连接数量, 默认为 10.
+	 */
+	public void setMaxTotal(int maxTotal)
+	{
+		_maxTotal = maxTotal;
+	}
+	
+	/**
+	 * 获取最多同时存在的连接数量.
+	 * @return 最多同时存在的连接数量.
+	 */
+	public int getMaxTotal()
+	{
+		return _maxTotal;
+	}
+	
+	/**
+	 * 设置空闲连接被关闭前的最长空闲时间, 空闲连接数量不会因此少于最少保持的空闲连接数量.
+	 * @param idleTimeout 最长空闲时间, 单位毫秒, 默认为 10 分钟, 为 0 时不关闭空闲连接.
+	 */
+	public void setIdleTimeout(long idleTimeout)
+	{
+		_idleTimeout = idleTimeout;
+	}
+	
+	/**
+	 * 获取空闲连接被关闭前的最长空闲时间.
+	 * @return 最长空闲时间, 单位毫秒.
+	 */
+	public long getIdleTimeout()
+	{
+		return _idleTimeout;
+	}
+	
+	/**
+	 * 设置获取连接时等待的最长时间, 超时后会抛出 SQLTimeoutException 异常.
+	 * @param acquireTimeout 等待的最长时间, 单位毫秒, 默认为 30 秒, 为 0 时一直等待.
+	 */
+	public void setAcquireTimeout(long acquireTimeout)
+	{
+		_acquireTimeout = acquireTimeout;
+	}
+	
+	/**
+	 * 获取获取连接时等待的最长时间.
+	 * @return 等待的最长时间, 单位毫秒.
+	 */
+	public long getAcquireTimeout()
+	{
+		return _acquireTimeout;
+	}
+	
+	/**
+	 * 设置后台维护线程的运行间隔, 维护线程负责关闭超时的空闲连接及补足最少保持的空闲连接.
+	 * @param housekeepingInterval 运行间隔, 单位毫秒, 默认为 30 秒, 为 0 时不创建维护线程.
+	 */
+	public void setHousekeepingInterval(long housekeepingInterval)
+	{
+		_housekeepingInterval = housekeepingInterval;
+	}
+	
+	/**
+	 * 获取后台维护线程的运行间隔.
+	 * @return 运行间隔, 单位毫秒.
+	 */
+	public long getHousekeepingInterval()
+	{
+		return _housekeepingInterval;
+	}
+	
+	/**
+	 * 设置每个连接缓存的预编译语句数量.
+	 * @param statementCacheSize 每个连接缓存的预编译语句数量, 为 0 时不进行缓存.
+	 */
+	public void setStatementCacheSize(int statementCacheSize)
+	{
+		_statementCacheSize = statementCacheSize;
+	}
+	
+	/**
+	 * 获取每个连接缓存的预编译语句数量.
+	 * @return 每个连接缓存的预编译语句数量.
+	 */
+	public int getStatementCacheSize()
+	{
+		return _statementCacheSize;
+	}
+	
+	/**
+	 * 设置取出连接时需要验证的最短空闲时间, 在该时间内使用或验证过的连接取出时不会再次验证.
+	 * @param validationIdleThreshold 最短空闲时间, 单位毫秒, 默认为 500 毫秒, 为 0 时每次取出都会验证, 小于 0 时取出时不进行验证.
+	 */
+	public void setValidationIdleThreshold(long validationIdleThreshold)
+	{
+		_validationIdleThreshold = validationIdleThreshold;
+	}
+	
+	/**
+	 * 获取取出连接时需要验证的最短空闲时间.
+	 * @return 最短空闲时间, 单位毫秒.
+	 */
+	public long getValidationIdleThreshold()
+	{
+		return _validationIdleThreshold;
+	}
+	
+	/**
+	 * 设置验证连接时等待的最长时间.
+	 * @param validationTimeout 等待的最长时间, 单位秒, 默认为 5 秒.
+	 */
+	public void setValidationTimeout(int validationTimeout)
+	{
+		_validationTimeout = validationTimeout;
+	}
+	
+	/**
+	 * 获取验证连接时等待的最长时间.
+	 * @return 等待的最长时间, 单位秒.
+	 */
+	public int getValidationTimeout()
+	{
+		return _validationTimeout;
+	}
+	
+	/**
+	 * 设置后台验证空闲连接的间隔, 后台维护线程会验证超过该时间没有使用或验证过的空闲连接并关闭失效的连接.
+	 * @param backgroundValidationInterval 验证的间隔, 单位毫秒, 默认为 1 分钟, 为 0 时不在后台验证.
+	 */
+	public void setBackgroundValidationInterval(long backgroundValidationInterval)
+	{
+		_backgroundValidationInterval = backgroundValidationInterval;
+	}
+	
+	/**
+	 * 获取后台验证空闲连接的间隔.
+	 * @return 验证的间隔, 单位毫秒.
+	 */
+	public long getBackgroundValidationInterval()
+	{
+		return _backgroundValidationInterval;
+	}
+	
+	/**
+	 * 设置是否在后台线程上关闭失效的连接并创建新的连接, 为 false 时在取出连接的线程上进行.
+	 * @param asyncReplacement 是否在后台线程上替换失效的连接, 默认为 true.
+	 */
+	public void setAsyncReplacement(boolean asyncReplacement)
+	{
+		_asyncReplacement = asyncReplacement;
+	}
+	
+	/**
+	 * 获取是否在后台线程上关闭失效的连接并创建新的连接.
+	 * @return 是否在后台线程上替换失效的连接.
+	 */
+	public boolean isAsyncReplacement()
+	{
+		return _asyncReplacement;
+	}
+	
+	/**
+	 * 设置连接被取出多久后视为泄漏, 开启后每次取出连接都会记录调用堆栈, 由后台维护线程检测并通知.
+	 * @param leakDetectionThreshold 视为泄漏的时间, 单位毫秒, 默认为 0 表示不检测.
+	 */
+	public void setLeakDetectionThreshold(long leakDetectionThreshold)
+	{
+		_leakDetectionThreshold = leakDetectionThreshold;
+	}
+	
+	/**
+	 * 获取连接被取出多久后视为泄漏.
+	 * @return 视为泄漏的时间, 单位毫秒.
+	 */
+	public long getLeakDetectionThreshold()
+	{
+		return _leakDetectionThreshold;
+	}
+	
+	/**
+	 * 设置最多缓存的查询结果数量, 大于 0 时连接池会创建供 DatabaseUtils.executeCachedQuery 方法使用的查询结果缓存.
+	 * @param queryCacheSize 最多缓存的查询结果数量, 默认为 0 表示不缓存.
+	 */
+	public void setQueryCacheSize(int queryCacheSize)
+	{
+		_queryCacheSize = queryCacheSize;
+	}
+	
+	/**
+	 * 获取最多缓存的查询结果数量.
+	 * @return 最多缓存的查询结果数量.
+	 */
+	public int getQueryCacheSize()
+	{
+		return _queryCacheSize;
+	}
+	
+	/**
+	 * 设置缓存的查询结果的存活时间.
+	 * @param queryCacheTimeToLive 存活时间, 单位毫秒, 默认为 1 分钟, 为 0 时不会因时间失效.
+	 */
+	public void setQueryCacheTimeToLive(long queryCacheTimeToLive)
+	{
+		_queryCacheTimeToLive = queryCacheTimeToLive;
+	}
+	
+	/**
+	 * 获取缓存的查询结果的存活时间.
+	 * @return 存活时间, 单位毫秒.
+	 */
+	public long getQueryCacheTimeToLive()
+	{
+		return _queryCacheTimeToLive;
+	}
+}
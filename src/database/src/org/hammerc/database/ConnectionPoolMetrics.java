@@ -0,0 +1,297 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * ConnectionPoolMetrics 类记录一个连接池的统计数据, 包括等待连接及持有连接时间的分布, 所有时间的单位均为微秒.
+ * <p>每个连接池都会创建一个该对象, 可以通过 ConnectionPool.getMetrics 方法获取, 也可以通过 registerMBean 方法注册到 JMX 中.</p>
+ * @author wizardc
+ */
+public class ConnectionPoolMetrics implements IConnectionPoolListener, ConnectionPoolMetricsMBean
+{
+	//记录数据的连接池
+	private ConnectionPool _pool;
+	//创建连接的总次数
+	private AtomicLong _createdCount;
+	//关闭连接的总次数
+	private AtomicLong _closedCount;
+	//验证连接的总次数
+	private AtomicLong _validationCount;
+	//验证失败的总次数
+	private AtomicLong _validationFailureCount;
+	//等待连接超时的总次数
+	private AtomicLong _timeoutCount;
+	//检测到连接泄漏的总次数
+	private AtomicLong _leakCount;
+	//创建连接花费的时间
+	private LatencyHistogram _createTime;
+	//等待连接的时间
+	private LatencyHistogram _acquireWait;
+	//持有连接的时间
+	private LatencyHistogram _holdTime;
+	//注册到 JMX 时使用的名称
+	private ObjectName _objectName;
+	
+	/**
+	 * 创建一个 ConnectionPoolMetrics 对象.
+	 * @param pool 记录数据的连接池.
+	 */
+	ConnectionPoolMetrics(ConnectionPool pool)
+	{
+		_pool = pool;
+		_createdCount = new AtomicLong();
+		_closedCount = new AtomicLong();
+		_validationCount = new AtomicLong();
+		_validationFailureCount = new AtomicLong();
+		_timeoutCount = new AtomicLong();
+		_leakCount = new AtomicLong();
+		_createTime = new LatencyHistogram();
+		_acquireWait = new LatencyHistogram();
+		_holdTime = new LatencyHistogram();
+	}
+	
+	@Override
+	public void connectionCreated(ConnectionPool pool, long createTime)
+	{
+		_createdCount.incrementAndGet();
+		_createTime.record(createTime);
+	}
+	
+	@Override
+	public void connectionClosed(ConnectionPool pool)
+	{
+		_closedCount.incrementAndGet();
+	}
+	
+	@Override
+	public void connectionValidated(ConnectionPool pool, boolean valid)
+	{
+		_validationCount.incrementAndGet();
+		if(!valid)
+		{
+			_validationFailureCount.incrementAndGet();
+		}
+	}
+	
+	@Override
+	public void connectionAcquired(ConnectionPool pool, long waitTime)
+	{
+		_acquireWait.record(waitTime);
+	}
+	
+	@Override
+	public void acquireTimedOut(ConnectionPool pool, long waitTime)
+	{
+		_timeoutCount.incrementAndGet();
+	}
+	
+	@Override
+	public void connectionReleased(ConnectionPool pool, long holdTime)
+	{
+		_holdTime.record(holdTime);
+	}
+	
+	@Override
+	public void leakDetected(ConnectionPool pool, long holdTime, Throwable borrowTrace)
+	{
+		_leakCount.incrementAndGet();
+	}
+	
+	/**
+	 * 使用指定的名称将该对象注册到平台的 MBeanServer 中, 对象名称为 org.hammerc.database:type=ConnectionPool,name=指定的名称.
+	 * @param name 连接池的名称.
+	 * @throws JMException 注册失败时抛出该异常.
+	 */
+	public synchronized void registerMBean(String name) throws JMException
+	{
+		unregisterMBean();
+		ObjectName objectName = new ObjectName("org.hammerc.database:type=ConnectionPool,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		_objectName = objectName;
+	}
+	
+	/**
+	 * 从平台的 MBeanServer 中注销该对象, 没有注册时不进行任何操作.
+	 * @throws JMException 注销失败时抛出该异常.
+	 */
+	public synchronized void unregisterMBean() throws JMException
+	{
+		if(_objectName != null)
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if(server.isRegistered(_objectName))
+			{
+				server.unregisterMBean(_objectName);
+			}
+			_objectName = null;
+		}
+	}
+	
+	@Override
+	public int getIdleConnections()
+	{
+		return _pool.getSize();
+	}
+	
+	@Override
+	public int getActiveConnections()
+	{
+		return _pool.getActiveSize();
+	}
+	
+	@Override
+	public int getTotalConnections()
+	{
+		return _pool.getTotalSize();
+	}
+	
+	@Override
+	public int getWaitingThreads()
+	{
+		return _pool.getWaitingCount();
+	}
+	
+	@Override
+	public long getCreatedCount()
+	{
+		return _createdCount.get();
+	}
+	
+	@Override
+	public long getClosedCount()
+	{
+		return _closedCount.get();
+	}
+	
+	@Override
+	public long getValidationCount()
+	{
+		return _validationCount.get();
+	}
+	
+	@Override
+	public long getValidationFailureCount()
+	{
+		return _validationFailureCount.get();
+	}
+	
+	@Override
+	public long getAcquireCount()
+	{
+		return _acquireWait.getCount();
+	}
+	
+	@Override
+	public long getTimeoutCount()
+	{
+		return _timeoutCount.get();
+	}
+	
+	@Override
+	public long getLeakCount()
+	{
+		return _leakCount.get();
+	}
+	
+	@Override
+	public double getCreateTimeMean()
+	{
+		return _createTime.getMean();
+	}
+	
+	@Override
+	public double getAcquireWaitMean()
+	{
+		return _acquireWait.getMean();
+	}
+	
+	@Override
+	public long getAcquireWaitP50()
+	{
+		return _acquireWait.getPercentile(50);
+	}
+	
+	@Override
+	public long getAcquireWaitP99()
+	{
+		return _acquireWait.getPercentile(99);
+	}
+	
+	@Override
+	public long getAcquireWaitMax()
+	{
+		return _acquireWait.getMax();
+	}
+	
+	@Override
+	public double getHoldTimeMean()
+	{
+		return _holdTime.getMean();
+	}
+	
+	@Override
+	public long getHoldTimeP50()
+	{
+		return _holdTime.getPercentile(50);
+	}
+	
+	@Override
+	public long getHoldTimeP99()
+	{
+		return _holdTime.getPercentile(99);
+	}
+	
+	@Override
+	public long getHoldTimeMax()
+	{
+		return _holdTime.getMax();
+	}
+	
+	/**
+	 * 获取等待连接时间的指定百分位数.
+	 * @param percentile 百分位, 取值范围为 0 到 100.
+	 * @return 等待连接时间的百分位数.
+	 */
+	public long getAcquireWaitPercentile(double percentile)
+	{
+		return _acquireWait.getPercentile(percentile);
+	}
+	
+	/**
+	 * 获取连接持有时间的指定百分位数.
+	 * @param percentile 百分位, 取值范围为 0 到 100.
+	 * @return 连接持有时间的百分位数.
+	 */
+	public long getHoldTimePercentile(double percentile)
+	{
+		return _holdTime.getPercentile(percentile);
+	}
+	
+	@Override
+	public void reset()
+	{
+		_createdCount.set(0);
+		_closedCount.set(0);
+		_validationCount.set(0);
+		_validationFailureCount.set(0);
+		_timeoutCount.set(0);
+		_leakCount.set(0);
+		_createTime.reset();
+		_acquireWait.reset();
+		_holdTime.reset();
+	}
+}
@@ -0,0 +1,142 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+/**
+ * ConnectionPoolMetricsMBean 接口定义了通过 JMX 公开的连接池统计数据, 所有时间的单位均为微秒.
+ * @author wizardc
+ */
+public interface ConnectionPoolMetricsMBean
+{
+	/**
+	 * 获取空闲连接数量.
+	 * @return 空闲连接数量.
+	 */
+	public int getIdleConnections();
+	
+	/**
+	 * 获取正在使用的连接数量.
+	 * @return 正在使用的连接数量.
+	 */
+	public int getActiveConnections();
+	
+	/**
+	 * 获取已经创建的连接数量.
+	 * @return 已经创建的连接数量.
+	 */
+	public int getTotalConnections();
+	
+	/**
+	 * 获取正在等待连接的线程数量.
+	 * @return 正在等待连接的线程数量.
+	 */
+	public int getWaitingThreads();
+	
+	/**
+	 * 获取创建连接的总次数.
+	 * @return 创建连接的总次数.
+	 */
+	public long getCreatedCount();
+	
+	/**
+	 * 获取关闭连接的总次数.
+	 * @return 关闭连接的总次数.
+	 */
+	public long getClosedCount();
+	
+	/**
+	 * 获取验证连接的总次数.
+	 * @return 验证连接的总次数.
+	 */
+	public long getValidationCount();
+	
+	/**
+	 * 获取验证失败的总次数.
+	 * @return 验证失败的总次数.
+	 */
+	public long getValidationFailureCount();
+	
+	/**
+	 * 获取取出连接的总次数.
+	 * @return 取出连接的总次数.
+	 */
+	public long getAcquireCount();
+	
+	/**
+	 * 获取等待连接超时的总次数.
+	 * @return 等待连接超时的总次数.
+	 */
+	public long getTimeoutCount();
+	
+	/**
+	 * 获取检测到连接泄漏的总次数.
+	 * @return 检测到连接泄漏的总次数.
+	 */
+	public long getLeakCount();
+	
+	/**
+	 * 获取创建连接花费的平均时间.
+	 * @return 创建连接花费的平均时间.
+	 */
+	public double getCreateTimeMean();
+	
+	/**
+	 * 获取等待连接时间的平均值.
+	 * @return 等待连接时间的平均值.
+	 */
+	public double getAcquireWaitMean();
+	
+	/**
+	 * 获取等待连接时间的中位数.
+	 * @return 等待连接时间的中位数.
+	 */
+	public long getAcquireWaitP50();
+	
+	/**
+	 * 获取等待连接时间的 99 百分位数.
+	 * @return 等待连接时间的 99 百分位数.
+	 */
+	public long getAcquireWaitP99();
+	
+	/**
+	 * 获取等待连接时间的最大值.
+	 * @return 等待连接时间的最大值.
+	 */
+	public long getAcquireWaitMax();
+	
+	/**
+	 * 获取连接持有时间的平均值.
+	 * @return 连接持有时间的平均值.
+	 */
+	public double getHoldTimeMean();
+	
+	/**
+	 * 获取连接持有时间的中位数.
+	 * @return 连接持有时间的中位数.
+	 */
+	public long getHoldTimeP50();
+	
+	/**
+	 * 获取连接持有时间的 99 百分位数.
+	 * @return 连接持有时间的 99 百分位数.
+	 */
+	public long getHoldTimeP99();
+	
+	/**
+	 * 获取连接持有时间的最大值.
+	 * @return 连接持有时间的最大值.
+	 */
+	public long getHoldTimeMax();
+	
+	/**
+	 * 清除所有的统计数据.
+	 */
+	public void reset();
+}
@@ -0,0 +1,463 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ConnectionPoolRouter 类在一个主库及多个只读副本的连接池之间分配数据库操作, 写操作发送到主库, 读操作发送到副本.
+ * <p>读操作选择当前未完成操作最少的可用副本, 即正在使用及等待连接的数量之和最小的连接池, 没有可用的副本时发送到主库.</p>
+ * <p>副本连续验证失败达到指定次数后会被暂时移除, 经过隔离时间后重新参与分配, 之后的第一次失败会再次将其移除, 验证成功则恢复正常. 验证可以通过 startHealthCheck 方法在后台定时进行, 也可以直接调用 checkReplicas 方法.</p>
+ * <p>该类不负责关闭连接池, shutdown 方法只会停止后台验证.</p>
+ * @author wizardc
+ */
+public class ConnectionPoolRouter
+{
+	//为所有验证线程编号
+	private static final AtomicInteger HEALTH_CHECK_COUNT = new AtomicInteger();
+	
+	//主库的连接池
+	private ConnectionPool _primary;
+	//所有副本
+	private CopyOnWriteArrayList<Replica> _replicas;
+	//选择副本时的起始位置, 用于在未完成操作数量相同的副本之间轮流分配
+	private AtomicInteger _nextIndex;
+	//副本被移除前允许连续验证失败的次数
+	private volatile int _failureThreshold = 3;
+	//副本被移除后的隔离时间, 单位毫秒
+	private volatile long _quarantineTime = 30000;
+	//验证连接时等待的最长时间, 单位秒
+	private volatile int _validationTimeout = 5;
+	//后台验证线程
+	private ScheduledExecutorService _healthCheckExecutor;
+	
+	/**
+	 * 创建一个 ConnectionPoolRouter 对象.
+	 * @param primary 主库的连接池.
+	 */
+	public ConnectionPoolRouter(ConnectionPool primary)
+	{
+		_primary = primary;
+		_replicas = new CopyOnWriteArrayList<Replica>();
+		_nextIndex = new AtomicInteger();
+	}
+	
+	/**
+	 * 添加一个只读副本的连接池, 已经添加的连接池不会重复添加.
+	 * @param pool 只读副本的连接池.
+	 */
+	public void addReplica(ConnectionPool pool)
+	{
+		if(findReplica(pool) == null)
+		{
+			_replicas.add(new Replica(pool));
+		}
+	}
+	
+	/**
+	 * 移除一个只读副本的连接池.
+	 * @param pool 只读副本的连接池.
+	 * @return 是否移除成功.
+	 */
+	public boolean removeReplica(ConnectionPool pool)
+	{
+		Replica replica = findReplica(pool);
+		return replica != null && _replicas.remove(replica);
+	}
+	
+	private Replica findReplica(ConnectionPool pool)
+	{
+		for(Replica replica : _replicas)
+		{
+			if(replica.pool == pool)
+			{
+				return replica;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 设置副本被移除前允许连续验证失败的次数.
+	 * @param failureThreshold 连续验证失败的次数, 默认为 3, 小于 1 时按 1 进行设置.
+	 */
+	public void setFailureThreshold(int failureThreshold)
+	{
+		_failureThreshold = failureThreshold < 1 ? 1 : failureThreshold;
+	}
+	
+	/**
+	 * 获取副本被移除前允许连续验证失败的次数.
+	 * @return 连续验证失败的次数.
+	 */
+	public int getFailureThreshold()
+	{
+		return _failureThreshold;
+	}
+	
+	/**
+	 * 设置副本被移除后的隔离时间.
+	 * @param quarantineTime 隔离时间, 单位毫秒, 默认为 30 秒.
+	 */
+	public void setQuarantineTime(long quarantineTime)
+	{
+		_quarantineTime = Math.max(0, quarantineTime);
+	}
+	
+	/**
+	 * 获取副本被移除后的隔离时间.
+	 * @return 隔离时间, 单位毫秒.
+	 */
+	public long getQuarantineTime()
+	{
+		return _quarantineTime;
+	}
+	
+	/**
+	 * 设置验证连接时等待的最长时间.
+	 * @param validationTimeout 等待的最长时间, 单位秒, 默认为 5 秒.
+	 */
+	public void setValidationTimeout(int validationTimeout)
+	{
+		_validationTimeout = Math.max(0, validationTimeout);
+	}
+	
+	/**
+	 * 获取验证连接时等待的最长时间.
+	 * @return 等待的最长时间, 单位秒.
+	 */
+	public int getValidationTimeout()
+	{
+		return _validationTimeout;
+	}
+	
+	/**
+	 * 获取执行写操作的连接池.
+	 * @return 主库的连接池.
+	 */
+	public ConnectionPool getWritePool()
+	{
+		return _primary;
+	}
+	
+	/**
+	 * 获取执行读操作的连接池, 选择当前未完成操作最少的可用副本, 没有可用的副本时返回主库的连接池.
+	 * <p>需要读取刚写入的数据时应该使用 getWritePool 方法, 副本的数据可能存在延迟.</p>
+	 * @return 执行读操作的连接池.
+	 */
+	public ConnectionPool getReadPool()
+	{
+		int size = _replicas.size();
+		if(size == 0)
+		{
+			return _primary;
+		}
+		long now = System.currentTimeMillis();
+		int start = (_nextIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+		ConnectionPool selected = null;
+		int selectedOutstanding = Integer.MAX_VALUE;
+		for(int i = 0; i < size; i++)
+		{
+			Replica replica;
+			try
+			{
+				replica = _replicas.get((start + i) % size);
+			}
+			catch(IndexOutOfBoundsException exception)
+			{
+				//副本在遍历期间被移除
+				break;
+			}
+			if(!replica.isAvailable(now))
+			{
+				continue;
+			}
+			int outstanding = replica.pool.getActiveSize() + replica.pool.getWaitingCount();
+			if(outstanding < selectedOutstanding)
+			{
+				selected = replica.pool;
+				selectedOutstanding = outstanding;
+			}
+		}
+		return selected == null ? _primary : selected;
+	}
+	
+	/**
+	 * 判断指定的副本当前是否参与读操作的分配.
+	 * @param pool 只读副本的连接池.
+	 * @return 是否参与分配, 不是该对象的副本时返回 false.
+	 */
+	public boolean isAvailable(ConnectionPool pool)
+	{
+		Replica replica = findReplica(pool);
+		return replica != null && replica.isAvailable(System.currentTimeMillis());
+	}
+	
+	/**
+	 * 获取副本的数量.
+	 * @return 副本的数量.
+	 */
+	public int getReplicaCount()
+	{
+		return _replicas.size();
+	}
+	
+	/**
+	 * 获取当前参与读操作分配的副本数量.
+	 * @return 可用的副本数量.
+	 */
+	public int getAvailableReplicaCount()
+	{
+		long now = System.currentTimeMillis();
+		int count = 0;
+		for(Replica replica : _replicas)
+		{
+			if(replica.isAvailable(now))
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * 记录指定副本的一次失败, 连续失败达到指定次数时暂时移除该副本.
+	 * @param pool 只读副本的连接池.
+	 */
+	public void reportFailure(ConnectionPool pool)
+	{
+		Replica replica = findReplica(pool);
+		if(replica != null)
+		{
+			replica.failure();
+		}
+	}
+	
+	/**
+	 * 记录指定副本的一次成功, 清除连续失败的次数并恢复被移除的副本.
+	 * @param pool 只读副本的连接池.
+	 */
+	public void reportSuccess(ConnectionPool pool)
+	{
+		Replica replica = findReplica(pool);
+		if(replica != null)
+		{
+			replica.success();
+		}
+	}
+	
+	/**
+	 * 验证所有副本, 每个副本取出一个连接进行验证, 取出连接的等待时间不超过验证连接时等待的最长时间, 超时视为验证失败.
+	 */
+	public void checkReplicas()
+	{
+		for(Replica replica : _replicas)
+		{
+			ConnectionPool pool = replica.pool;
+			boolean valid;
+			Connection connection = null;
+			try
+			{
+				//不使用连接池配置的等待时间, 避免没有设置时一直等待
+				connection = pool.getConnection(Math.max(1, _validationTimeout) * 1000L);
+				valid = connection.isValid(_validationTimeout);
+			}
+			catch(InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch(SQLException exception)
+			{
+				valid = false;
+			}
+			finally
+			{
+				if(connection != null)
+				{
+					try
+					{
+						pool.joinConnection(connection);
+					}
+					catch(InterruptedException exception)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+			if(valid)
+			{
+				replica.success();
+			}
+			else
+			{
+				replica.failure();
+			}
+		}
+	}
+	
+	/**
+	 * 开始在后台定时验证所有副本, 重复调用时忽略.
+	 * @param interval 验证的间隔, 单位毫秒.
+	 */
+	public synchronized void startHealthCheck(long interval)
+	{
+		if(_healthCheckExecutor != null || interval <= 0)
+		{
+			return;
+		}
+		_healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "hammerc-pool-router-" + HEALTH_CHECK_COUNT.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		_healthCheckExecutor.scheduleWithFixedDelay(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				checkReplicas();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * 停止后台验证, 不会关闭任何连接池.
+	 */
+	public synchronized void shutdown()
+	{
+		if(_healthCheckExecutor != null)
+		{
+			_healthCheckExecutor.shutdownNow();
+			_healthCheckExecutor = null;
+		}
+	}
+	
+	/**
+	 * 在副本上执行会返回结果的查询数据库操作, 成功时记录副本的成功, 副本连接失败时记录失败并改为在主库上执行.
+	 * @param sql 需要执行的 SQL 语句, 有参数时使用 ? 作为参数占位符.
+	 * @param params 按顺序绑定的参数.
+	 * @return 查询结果.
+	 * @throws SQLException 查询数据库失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public QueryResult executeQuery(String sql, Object... params) throws InterruptedException, SQLException
+	{
+		ConnectionPool pool = getReadPool();
+		QueryResult result;
+		try
+		{
+			result = execute(pool, sql, params);
+		}
+		catch(SQLException exception)
+		{
+			if(pool == _primary || !isConnectionFailure(exception))
+			{
+				throw exception;
+			}
+			reportFailure(pool);
+			return execute(_primary, sql, params);
+		}
+		if(pool != _primary)
+		{
+			reportSuccess(pool);
+		}
+		return result;
+	}
+	
+	private static QueryResult execute(ConnectionPool pool, String sql, Object[] params) throws InterruptedException, SQLException
+	{
+		return params == null || params.length == 0 ? DatabaseUtils.executeQuery(pool, sql) : DatabaseUtils.executeQuery(pool, sql, params);
+	}
+	
+	/**
+	 * 在主库上执行不需要返回结果的数据库操作.
+	 * @param sql 需要执行的 SQL 语句, 有参数时使用 ? 作为参数占位符.
+	 * @param params 按顺序绑定的参数.
+	 * @return 受影响的行数, 没有参数时为 -1.
+	 * @throws SQLException 执行失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public int executeSQL(String sql, Object... params) throws InterruptedException, SQLException
+	{
+		if(params == null || params.length == 0)
+		{
+			DatabaseUtils.executeSQL(_primary, sql);
+			return -1;
+		}
+		return DatabaseUtils.executeSQL(_primary, sql, params);
+	}
+	
+	private static boolean isConnectionFailure(SQLException exception)
+	{
+		String state = exception.getSQLState();
+		return exception instanceof SQLNonTransientConnectionException || exception instanceof SQLTransientConnectionException || (state != null && state.startsWith("08"));
+	}
+	
+	/**
+	 * 副本及其状态.
+	 * @author wizardc
+	 */
+	class Replica
+	{
+		final ConnectionPool pool;
+		//连续失败的次数
+		final AtomicInteger failures = new AtomicInteger();
+		//隔离结束的时间戳, 为 0 时表示未被移除
+		volatile long quarantineUntil = 0;
+		
+		Replica(ConnectionPool pool)
+		{
+			this.pool = pool;
+		}
+		
+		boolean isAvailable(long now)
+		{
+			long until = quarantineUntil;
+			return until == 0 || until <= now;
+		}
+		
+		void failure()
+		{
+			//隔离结束后的第一次失败会再次移除该副本
+			if(failures.incrementAndGet() >= _failureThreshold)
+			{
+				quarantineUntil = System.currentTimeMillis() + Math.max(1, _quarantineTime);
+			}
+		}
+		
+		void success()
+		{
+			//每次成功的查询都会调用, 状态没有变化时不进行写入
+			if(failures.get() != 0)
+			{
+				failures.set(0);
+			}
+			if(quarantineUntil != 0)
+			{
+				quarantineUntil = 0;
+			}
+		}
+	}
+}
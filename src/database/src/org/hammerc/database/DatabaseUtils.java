@@ -10,9 +10,13 @@
 package org.hammerc.database;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * DatabaseUtils 类包含执行 MySQL 数据库查询等操作的方法.
@@ -58,6 +62,246 @@ public class DatabaseUtils
 		}
 	}
 	
+	/**
+	 * 使用预编译语句执行会返回结果的查询数据库操作, 预编译语句会缓存在连接池中重复使用.
+	 * @param pool 执行操作的连接池对象.
+	 * @param sql 需要执行的使用 ? 作为参数占位符的 SQL 语句.
+	 * @param params 按顺序绑定的参数.
+	 * @return 查询结果.
+	 * @throws SQLException 查询数据库失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public static QueryResult executeQuery(ConnectionPool pool, String sql, Object... params) throws InterruptedException, SQLException
+	{
+		Connection connection = null;
+		PreparedStatement statement = null;
+		ResultSet resultSet = null;
+		try
+		{
+			connection = pool.getConnection();
+			statement = pool.prepareStatement(connection, sql);
+			bindParams(statement, params);
+			resultSet = statement.executeQuery();
+			QueryResult queryResult = new QueryResult(resultSet);
+			return queryResult;
+		}
+		finally
+		{
+			if(resultSet != null)
+			{
+				resultSet.close();
+			}
+			if(connection != null)
+			{
+				try
+				{
+					pool.releaseStatement(connection, sql, statement);
+				}
+				finally
+				{
+					pool.joinConnection(connection);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 执行会返回结果的查询数据库操作, 并将每一行转换为指定类型的对象, 转换规则参考 RowMapper 类.
+	 * @param pool 执行操作的连接池对象.
+	 * @param type 目标类型.
+	 * @param sql 需要执行的 SQL 语句, 有参数时使用 ? 作为参数占位符并使用缓存的预编译语句.
+	 * @param params 按顺序绑定的参数.
+	 * @param <T> 目标类型.
+	 * @return 所有的目标对象.
+	 * @throws SQLException 查询数据库失败或转换失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public static <T> ArrayList<T> executeMappedQuery(ConnectionPool pool, Class<T> type, String sql, Object... params) throws InterruptedException, SQLException
+	{
+		RowMapper<T> mapper = RowMapper.forClass(type);
+		Connection connection = null;
+		Statement statement = null;
+		PreparedStatement preparedStatement = null;
+		ResultSet resultSet = null;
+		try
+		{
+			connection = pool.getConnection();
+			if(params == null || params.length == 0)
+			{
+				statement = connection.createStatement();
+				resultSet = statement.executeQuery(sql);
+			}
+			else
+			{
+				preparedStatement = pool.prepareStatement(connection, sql);
+				bindParams(preparedStatement, params);
+				resultSet = preparedStatement.executeQuery();
+			}
+			return mapper.mapAll(resultSet);
+		}
+		finally
+		{
+			if(resultSet != null)
+			{
+				resultSet.close();
+			}
+			if(statement != null)
+			{
+				statement.close();
+			}
+			if(connection != null)
+			{
+				try
+				{
+					pool.releaseStatement(connection, sql, preparedStatement);
+				}
+				finally
+				{
+					pool.joinConnection(connection);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 执行会返回结果的查询数据库操作, 优先使用连接池的查询结果缓存, 缓存中没有时查询数据库并将结果放入缓存.
+	 * <p>返回的结果可能被多个调用者共享. 修改依赖的表后需要调用 invalidateQueryCache 方法, 否则在存活时间内会一直返回旧的结果. 连接池没有查询结果缓存时直接查询数据库.</p>
+	 * @param pool 执行操作的连接池对象.
+	 * @param tables 查询结果依赖的表名, 不区分大小写, 可以为 null.
+	 * @param sql 需要执行的 SQL 语句, 有参数时使用 ? 作为参数占位符.
+	 * @param params 按顺序绑定的参数.
+	 * @return 查询结果.
+	 * @throws SQLException 查询数据库失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public static QueryResult executeCachedQuery(ConnectionPool pool, String[] tables, String sql, Object... params) throws InterruptedException, SQLException
+	{
+		QueryCache queryCache = pool.getQueryCache();
+		if(queryCache == null)
+		{
+			return params == null || params.length == 0 ? executeQuery(pool, sql) : executeQuery(pool, sql, params);
+		}
+		QueryResult queryResult = queryCache.get(sql, params);
+		if(queryResult != null)
+		{
+			return queryResult;
+		}
+		long generation = queryCache.getGeneration();
+		queryResult = params == null || params.length == 0 ? executeQuery(pool, sql) : executeQuery(pool, sql, params);
+		queryCache.put(tables, queryResult, generation, sql, params);
+		return queryResult;
+	}
+	
+	/**
+	 * 移除连接池的查询结果缓存中所有依赖指定表的结果, 连接池没有查询结果缓存时不进行任何操作.
+	 * @param pool 连接池对象.
+	 * @param tables 表名, 不区分大小写.
+	 */
+	public static void invalidateQueryCache(ConnectionPool pool, String... tables)
+	{
+		QueryCache queryCache = pool.getQueryCache();
+		if(queryCache != null)
+		{
+			queryCache.invalidate(tables);
+		}
+	}
+	
+	/**
+	 * 执行会返回结果的查询数据库操作, 查询结果按列记录.
+	 * @param pool 执行操作的连接池对象.
+	 * @param sql 需要执行的 SQL 语句.
+	 * @return 查询结果.
+	 * @throws SQLException 查询数据库失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public static ColumnarQueryResult executeColumnarQuery(ConnectionPool pool, String sql) throws InterruptedException, SQLException
+	{
+		return executeColumnarQuery(pool, sql, false);
+	}
+	
+	/**
+	 * 执行会返回结果的查询数据库操作, 查询结果按列记录.
+	 * @param pool 执行操作的连接池对象.
+	 * @param sql 需要执行的 SQL 语句.
+	 * @param direct 是否使用直接内存记录数值类型的字段, 适用于非常大的查询结果.
+	 * @return 查询结果.
+	 * @throws SQLException 查询数据库失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public static ColumnarQueryResult executeColumnarQuery(ConnectionPool pool, String sql, boolean direct) throws InterruptedException, SQLException
+	{
+		Connection connection = null;
+		Statement statement = null;
+		ResultSet resultSet = null;
+		try
+		{
+			connection = pool.getConnection();
+			statement = connection.createStatement();
+			resultSet = statement.executeQuery(sql);
+			return new ColumnarQueryResult(resultSet, direct);
+		}
+		finally
+		{
+			if(resultSet != null)
+			{
+				resultSet.close();
+			}
+			if(statement != null)
+			{
+				statement.close();
+			}
+			if(connection != null)
+			{
+				pool.joinConnection(connection);
+			}
+		}
+	}
+	
+	/**
+	 * 执行流式查询并返回可以逐行读取数据的游标, 读取完最后一行数据或关闭游标后连接会自动归还到连接池.
+	 * <p>MySQL 驱动需要将 fetchSize 设置为 Integer.MIN_VALUE 或在连接参数中开启 useCursorFetch 才会逐行读取数据.</p>
+	 * @param pool 执行操作的连接池对象.
+	 * @param sql 需要执行的 SQL 语句.
+	 * @param fetchSize 每次从数据库读取的行数, 为 0 时使用驱动的默认值, 其它值会原样交给驱动.
+	 * @return 查询游标.
+	 * @throws SQLException 查询数据库失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public static QueryCursor openCursor(ConnectionPool pool, String sql, int fetchSize) throws InterruptedException, SQLException
+	{
+		return new QueryCursor(pool, pool.getConnection(), sql, fetchSize);
+	}
+	
+	/**
+	 * 执行流式查询并将每一行数据交给回调处理, 处理完毕或回调要求停止后连接会自动归还到连接池.
+	 * @param pool 执行操作的连接池对象.
+	 * @param sql 需要执行的 SQL 语句.
+	 * @param fetchSize 每次从数据库读取的行数, 为 0 时使用驱动的默认值, 其它值会原样交给驱动.
+	 * @param handler 处理每一行数据的回调.
+	 * @return 已经处理的行数.
+	 * @throws SQLException 查询数据库或回调处理失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public static long executeQuery(ConnectionPool pool, String sql, int fetchSize, IRowHandler handler) throws InterruptedException, SQLException
+	{
+		QueryCursor cursor = openCursor(pool, sql, fetchSize);
+		try
+		{
+			while(cursor.next())
+			{
+				if(!handler.handleRow(cursor.getResultSet()))
+				{
+					break;
+				}
+			}
+			return cursor.getRowCount();
+		}
+		finally
+		{
+			cursor.close();
+		}
+	}
+	
 	/**
 	 * 执行不需要返回结果的数据库查询操作.
 	 * @param pool 执行操作的连接池对象.
@@ -87,4 +331,149 @@ public class DatabaseUtils
 			}
 		}
 	}
+	
+	/**
+	 * 使用预编译语句执行不需要返回结果的数据库查询操作, 预编译语句会缓存在连接池中重复使用.
+	 * @param pool 执行操作的连接池对象.
+	 * @param sql 需要执行的使用 ? 作为参数占位符的 SQL 语句.
+	 * @param params 按顺序绑定的参数.
+	 * @return 受影响的行数.
+	 * @throws SQLException 查询数据库失败时抛出该异常.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public static int executeSQL(ConnectionPool pool, String sql, Object... params) throws InterruptedException, SQLException
+	{
+		Connection connection = null;
+		PreparedStatement statement = null;
+		try
+		{
+			connection = pool.getConnection();
+			statement = pool.prepareStatement(connection, sql);
+			bindParams(statement, params);
+			return statement.executeUpdate();
+		}
+		finally
+		{
+			if(connection != null)
+			{
+				try
+				{
+					pool.releaseStatement(connection, sql, statement);
+				}
+				finally
+				{
+					pool.joinConnection(connection);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 在连接池的异步执行器上执行会返回结果的查询数据库操作, 不会阻塞调用线程.
+	 * <p>同时运行的操作数量不会超过连接池最多同时存在的连接数量, 多余的操作会排队等待. 没有参数时直接执行 SQL 语句, 否则使用缓存的预编译语句.</p>
+	 * @param pool 执行操作的连接池对象.
+	 * @param sql 需要执行的 SQL 语句.
+	 * @param params 按顺序绑定的参数.
+	 * @return 完成时包含查询结果的对象, 查询失败时以对应的异常完成.
+	 */
+	public static CompletableFuture<QueryResult> executeQueryAsync(final ConnectionPool pool, final String sql, final Object... params)
+	{
+		final CompletableFuture<QueryResult> future = new CompletableFuture<QueryResult>();
+		pool.getAsyncExecutor().execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if(future.isDone())
+				{
+					return;
+				}
+				try
+				{
+					future.complete(params == null || params.length == 0 ? executeQuery(pool, sql) : executeQuery(pool, sql, params));
+				}
+				catch(InterruptedException exception)
+				{
+					Thread.currentThread().interrupt();
+					future.completeExceptionally(exception);
+				}
+				catch(Exception exception)
+				{
+					future.completeExceptionally(exception);
+				}
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * 在连接池的异步执行器上执行不需要返回结果的数据库查询操作, 不会阻塞调用线程.
+	 * <p>同时运行的操作数量不会超过连接池最多同时存在的连接数量, 多余的操作会排队等待. 没有参数时直接执行 SQL 语句, 否则使用缓存的预编译语句.</p>
+	 * @param pool 执行操作的连接池对象.
+	 * @param sql 需要执行的 SQL 语句.
+	 * @param params 按顺序绑定的参数.
+	 * @return 完成时包含受影响的行数的对象, 没有参数时受影响的行数为 -1, 执行失败时以对应的异常完成.
+	 */
+	public static CompletableFuture<Integer> executeSQLAsync(final ConnectionPool pool, final String sql, final Object... params)
+	{
+		final CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+		pool.getAsyncExecutor().execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if(future.isDone())
+				{
+					return;
+				}
+				try
+				{
+					if(params == null || params.length == 0)
+					{
+						executeSQL(pool, sql);
+						future.complete(-1);
+					}
+					else
+					{
+						future.complete(executeSQL(pool, sql, params));
+					}
+				}
+				catch(InterruptedException exception)
+				{
+					Thread.currentThread().interrupt();
+					future.completeExceptionally(exception);
+				}
+				catch(Exception exception)
+				{
+					future.completeExceptionally(exception);
+				}
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * 按顺序将参数绑定到预编译语句上.
+	 * @param statement 预编译语句对象.
+	 * @param params 需要绑定的参数, 为 null 的参数会绑定为空值.
+	 * @throws SQLException 绑定参数失败时抛出该异常.
+	 */
+	static void bindParams(PreparedStatement statement, Object[] params) throws SQLException
+	{
+		if(params == null)
+		{
+			return;
+		}
+		for(int i = 0; i < params.length; i++)
+		{
+			if(params[i] == null)
+			{
+				statement.setNull(i + 1, Types.NULL);
+			}
+			else
+			{
+				statement.setObject(i + 1, params[i]);
+			}
+		}
+	}
 }
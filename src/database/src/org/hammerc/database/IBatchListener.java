@@ -0,0 +1,36 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.sql.SQLException;
+
+/**
+ * IBatchListener 接口定义了接收 BatchWriter 每一批数据写入结果的回调.
+ * <p>回调在执行写入的线程上同步执行, 不应进行耗时的操作.</p>
+ * @author wizardc
+ */
+public interface IBatchListener
+{
+	/**
+	 * 一批数据写入成功后调用.
+	 * @param writer 执行写入的对象.
+	 * @param rows 该批数据的条数.
+	 * @param elapsedTime 该批数据写入花费的时间, 单位微秒.
+	 */
+	public void batchExecuted(BatchWriter writer, int rows, long elapsedTime);
+	
+	/**
+	 * 一批数据写入失败后调用, 该批数据会被丢弃.
+	 * @param writer 执行写入的对象.
+	 * @param rows 该批数据的条数.
+	 * @param exception 写入失败的原因.
+	 */
+	public void batchFailed(BatchWriter writer, int rows, SQLException exception);
+}
@@ -0,0 +1,67 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+/**
+ * IConnectionPoolListener 接口定义了接收连接池事件的回调, 可以用来对接外部的监控系统.
+ * <p>回调在触发事件的线程上同步执行, 不应进行耗时的操作或抛出异常.</p>
+ * @author wizardc
+ */
+public interface IConnectionPoolListener
+{
+	/**
+	 * 创建了一个新的连接.
+	 * @param pool 连接池.
+	 * @param createTime 创建连接花费的时间, 单位微秒.
+	 */
+	public void connectionCreated(ConnectionPool pool, long createTime);
+	
+	/**
+	 * 关闭了一个连接.
+	 * @param pool 连接池.
+	 */
+	public void connectionClosed(ConnectionPool pool);
+	
+	/**
+	 * 验证了一个连接.
+	 * @param pool 连接池.
+	 * @param valid 连接是否有效.
+	 */
+	public void connectionValidated(ConnectionPool pool, boolean valid);
+	
+	/**
+	 * 取出了一个连接.
+	 * @param pool 连接池.
+	 * @param waitTime 从开始获取到取出连接等待的时间, 单位微秒.
+	 */
+	public void connectionAcquired(ConnectionPool pool, long waitTime);
+	
+	/**
+	 * 等待连接超时.
+	 * @param pool 连接池.
+	 * @param waitTime 等待的时间, 单位微秒.
+	 */
+	public void acquireTimedOut(ConnectionPool pool, long waitTime);
+	
+	/**
+	 * 归还了一个连接.
+	 * @param pool 连接池.
+	 * @param holdTime 连接从取出到归还的时间, 单位微秒.
+	 */
+	public void connectionReleased(ConnectionPool pool, long holdTime);
+	
+	/**
+	 * 发现一个连接被取出的时间超过了泄漏检测的阈值, 每次取出只会通知一次.
+	 * @param pool 连接池.
+	 * @param holdTime 连接已经被取出的时间, 单位微秒.
+	 * @param borrowTrace 记录了取出该连接时调用堆栈的对象.
+	 */
+	public void leakDetected(ConnectionPool pool, long holdTime, Throwable borrowTrace);
+}
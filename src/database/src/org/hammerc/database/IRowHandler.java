@@ -0,0 +1,29 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * IRowHandler 接口定义了逐行处理流式查询结果的回调.
+ * <p>回调在查询线程上同步执行, 下一行数据只会在回调返回后读取, 处理缓慢时数据库驱动也会相应地暂停读取数据.</p>
+ * @author wizardc
+ */
+public interface IRowHandler
+{
+	/**
+	 * 处理一行数据, 只应读取当前行的数据而不应移动原生查询结果的指针.
+	 * @param resultSet 指向当前行的原生查询结果.
+	 * @return 是否继续处理下一行数据, 返回 false 时会立即结束查询并归还连接.
+	 * @throws SQLException 读取数据失败时抛出该异常.
+	 */
+	public boolean handleRow(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,167 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram 类按对数分段记录非负的耗时数据, 用于计算百分位数.
+ * <p>每个 2 的幂区间被等分为 32 段, 计算出的百分位数的相对误差不超过 1/32. 记录数据只需要几次原子操作且不会创建对象, 可以被多个线程同时调用.</p>
+ * @author wizardc
+ */
+public class LatencyHistogram
+{
+	//每个 2 的幂区间等分的段数的位数
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	//可以表示所有 long 值的分段总数
+	private static final int BUCKET_COUNT = (64 - SUB_BITS) * SUB_COUNT;
+	
+	//每个分段记录的数量
+	private AtomicLongArray _buckets;
+	//记录的总数量
+	private AtomicLong _count;
+	//记录的数据的总和
+	private AtomicLong _sum;
+	//记录的最大值
+	private AtomicLong _max;
+	
+	/**
+	 * 创建一个 LatencyHistogram 对象.
+	 */
+	public LatencyHistogram()
+	{
+		_buckets = new AtomicLongArray(BUCKET_COUNT);
+		_count = new AtomicLong();
+		_sum = new AtomicLong();
+		_max = new AtomicLong();
+	}
+	
+	/**
+	 * 记录一个数据.
+	 * @param value 要记录的数据, 小于 0 时按 0 记录.
+	 */
+	public void record(long value)
+	{
+		if(value < 0)
+		{
+			value = 0;
+		}
+		_buckets.incrementAndGet(indexOf(value));
+		_count.incrementAndGet();
+		_sum.addAndGet(value);
+		long max = _max.get();
+		while(value > max && !_max.compareAndSet(max, value))
+		{
+			max = _max.get();
+		}
+	}
+	
+	private static int indexOf(long value)
+	{
+		if(value < SUB_COUNT)
+		{
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+	
+	private static long upperBoundOf(int index)
+	{
+		if(index < SUB_COUNT)
+		{
+			return index;
+		}
+		int exponent = index / SUB_COUNT + SUB_BITS - 1;
+		long sub = index % SUB_COUNT;
+		long lower = (SUB_COUNT + sub) << (exponent - SUB_BITS);
+		return lower + (1L << (exponent - SUB_BITS)) - 1;
+	}
+	
+	/**
+	 * 获取记录的总数量.
+	 * @return 记录的总数量.
+	 */
+	public long getCount()
+	{
+		return _count.get();
+	}
+	
+	/**
+	 * 获取记录的最大值.
+	 * @return 记录的最大值, 没有记录时返回 0.
+	 */
+	public long getMax()
+	{
+		return _max.get();
+	}
+	
+	/**
+	 * 获取记录的平均值.
+	 * @return 记录的平均值, 没有记录时返回 0.
+	 */
+	public double getMean()
+	{
+		long count = _count.get();
+		return count == 0 ? 0 : (double) _sum.get() / count;
+	}
+	
+	/**
+	 * 获取指定的百分位数, 返回值为该百分位数所在分段的上限且不会超过记录的最大值.
+	 * @param percentile 百分位, 取值范围为 0 到 100.
+	 * @return 百分位数, 没有记录时返回 0.
+	 */
+	public long getPercentile(double percentile)
+	{
+		long count = 0;
+		long[] buckets = new long[BUCKET_COUNT];
+		for(int i = 0; i < BUCKET_COUNT; i++)
+		{
+			buckets[i] = _buckets.get(i);
+			count += buckets[i];
+		}
+		if(count == 0)
+		{
+			return 0;
+		}
+		long target = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * count);
+		if(target < 1)
+		{
+			target = 1;
+		}
+		long total = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++)
+		{
+			total += buckets[i];
+			if(total >= target)
+			{
+				return Math.min(upperBoundOf(i), _max.get());
+			}
+		}
+		return _max.get();
+	}
+	
+	/**
+	 * 清除所有记录.
+	 */
+	public void reset()
+	{
+		for(int i = 0; i < BUCKET_COUNT; i++)
+		{
+			_buckets.set(i, 0);
+		}
+		_count.set(0);
+		_sum.set(0);
+		_max.set(0);
+	}
+}
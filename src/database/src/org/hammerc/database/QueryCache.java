@@ -0,0 +1,417 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QueryCache 类按 SQL 语句及参数缓存查询结果, 用于减少对变化缓慢的数据的重复查询.
+ * <p>缓存的数量有上限, 超出时移除最久未被访问的结果, 每个结果在超过存活时间后失效. 缓存结果时可以指定其依赖的表名, 修改这些表后通过 invalidate 方法移除所有相关的结果.</p>
+ * <p>缓存的 QueryResult 对象会被所有的调用者共享, 不应修改其内容. 该类是线程安全的.</p>
+ * @author wizardc
+ */
+public class QueryCache
+{
+	//最多缓存的查询结果数量
+	private int _maxSize;
+	//查询结果的存活时间, 单位毫秒
+	private long _timeToLive;
+	//按访问顺序记录的缓存项, 头部为最久未被访问的项
+	private LinkedHashMap<Key, Entry> _entries;
+	//记录每个表名相关的缓存项
+	private HashMap<String, HashSet<Key>> _tableKeys;
+	//每次使缓存失效时递增的版本号, 用于丢弃查询期间已经失效的结果
+	private long _generation;
+	//记录每个表名最近一次失效时的版本号
+	private HashMap<String, Long> _tableGenerations;
+	//最近一次移除所有查询结果时的版本号
+	private long _allGeneration;
+	//命中的次数
+	private AtomicLong _hitCount;
+	//未命中的次数
+	private AtomicLong _missCount;
+	//因数量超出上限或超过存活时间被移除的次数
+	private AtomicLong _evictionCount;
+	//通过 invalidate 方法被移除的次数
+	private AtomicLong _invalidationCount;
+	
+	/**
+	 * 创建一个 QueryCache 对象.
+	 * @param maxSize 最多缓存的查询结果数量, 小于 1 时按 1 进行设置.
+	 * @param timeToLive 查询结果的存活时间, 单位毫秒, 小于等于 0 时不会因时间失效.
+	 */
+	public QueryCache(int maxSize, long timeToLive)
+	{
+		_maxSize = maxSize < 1 ? 1 : maxSize;
+		_timeToLive = timeToLive;
+		_entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		_tableKeys = new HashMap<String, HashSet<Key>>();
+		_tableGenerations = new HashMap<String, Long>();
+		_hitCount = new AtomicLong();
+		_missCount = new AtomicLong();
+		_evictionCount = new AtomicLong();
+		_invalidationCount = new AtomicLong();
+	}
+	
+	/**
+	 * 获取缓存的查询结果.
+	 * @param sql SQL 语句.
+	 * @param params 按顺序绑定的参数.
+	 * @return 缓存的查询结果, 不存在或已失效时返回 null.
+	 */
+	public QueryResult get(String sql, Object... params)
+	{
+		Key key = new Key(sql, params);
+		synchronized(this)
+		{
+			Entry entry = _entries.get(key);
+			if(entry != null)
+			{
+				if(entry.expireTime == 0 || entry.expireTime > System.currentTimeMillis())
+				{
+					_hitCount.incrementAndGet();
+					return entry.result;
+				}
+				removeEntry(key, entry);
+				_evictionCount.incrementAndGet();
+			}
+		}
+		_missCount.incrementAndGet();
+		return null;
+	}
+	
+	/**
+	 * 缓存查询结果.
+	 * @param tables 查询结果依赖的表名, 不区分大小写, 可以为 null.
+	 * @param result 查询结果.
+	 * @param sql SQL 语句.
+	 * @param params 按顺序绑定的参数.
+	 */
+	public void put(String[] tables, QueryResult result, String sql, Object... params)
+	{
+		put(tables, result, getGeneration(), sql, params);
+	}
+	
+	/**
+	 * 获取当前的版本号, 需要在查询数据库之前获取并在缓存结果时传入.
+	 * @return 当前的版本号.
+	 */
+	synchronized long getGeneration()
+	{
+		return _generation;
+	}
+	
+	/**
+	 * 缓存查询结果, 如果从获取版本号到现在使依赖的表失效过或调用过 invalidateAll 方法则不进行缓存, 避免缓存在查询期间被修改的数据.
+	 * @param tables 查询结果依赖的表名, 可以为 null.
+	 * @param result 查询结果.
+	 * @param generation 查询数据库之前获取的版本号.
+	 * @param sql SQL 语句.
+	 * @param params 按顺序绑定的参数.
+	 */
+	synchronized void put(String[] tables, QueryResult result, long generation, String sql, Object[] params)
+	{
+		String[] normalized = normalize(tables);
+		if(isStale(normalized, generation))
+		{
+			return;
+		}
+		Key key = new Key(sql, params);
+		Entry old = _entries.get(key);
+		if(old != null)
+		{
+			removeEntry(key, old);
+		}
+		_entries.put(key, new Entry(result, _timeToLive > 0 ? System.currentTimeMillis() + _timeToLive : 0, normalized));
+		for(String table : normalized)
+		{
+			HashSet<Key> keys = _tableKeys.get(table);
+			if(keys == null)
+			{
+				keys = new HashSet<Key>();
+				_tableKeys.put(table, keys);
+			}
+			keys.add(key);
+		}
+		while(_entries.size() > _maxSize)
+		{
+			Map.Entry<Key, Entry> eldest = _entries.entrySet().iterator().next();
+			removeEntry(eldest.getKey(), eldest.getValue());
+			_evictionCount.incrementAndGet();
+		}
+	}
+	
+	//判断从获取版本号到现在依赖的表是否失效过, 不检查无关的表
+	private boolean isStale(String[] tables, long generation)
+	{
+		if(_allGeneration > generation)
+		{
+			return true;
+		}
+		for(String table : tables)
+		{
+			Long tableGeneration = _tableGenerations.get(table);
+			if(tableGeneration != null && tableGeneration > generation)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 移除所有依赖指定表的查询结果, 修改表中的数据后需要调用该方法.
+	 * @param tables 表名, 不区分大小写.
+	 */
+	public synchronized void invalidate(String... tables)
+	{
+		_generation++;
+		for(String table : tables)
+		{
+			_tableGenerations.put(table.toLowerCase(), _generation);
+			HashSet<Key> keys = _tableKeys.remove(table.toLowerCase());
+			if(keys == null)
+			{
+				continue;
+			}
+			for(Key key : keys)
+			{
+				Entry entry = _entries.remove(key);
+				if(entry != null)
+				{
+					unlinkTables(key, entry, table.toLowerCase());
+					_invalidationCount.incrementAndGet();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 移除所有的查询结果.
+	 */
+	public synchronized void invalidateAll()
+	{
+		_generation++;
+		//该版本号之前获取的结果都会被丢弃, 不再需要记录每个表的版本号
+		_allGeneration = _generation;
+		_tableGenerations.clear();
+		_invalidationCount.addAndGet(_entries.size());
+		_entries.clear();
+		_tableKeys.clear();
+	}
+	
+	/**
+	 * 移除所有已经超过存活时间的查询结果.
+	 */
+	public synchronized void evictExpired()
+	{
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<Key, Entry>> iterator = _entries.entrySet().iterator();
+		while(iterator.hasNext())
+		{
+			Map.Entry<Key, Entry> item = iterator.next();
+			Entry entry = item.getValue();
+			if(entry.expireTime != 0 && entry.expireTime <= now)
+			{
+				iterator.remove();
+				unlinkTables(item.getKey(), entry, null);
+				_evictionCount.incrementAndGet();
+			}
+		}
+	}
+	
+	private void removeEntry(Key key, Entry entry)
+	{
+		_entries.remove(key);
+		unlinkTables(key, entry, null);
+	}
+	
+	private void unlinkTables(Key key, Entry entry, String skipTable)
+	{
+		for(String table : entry.tables)
+		{
+			if(table.equals(skipTable))
+			{
+				continue;
+			}
+			HashSet<Key> keys = _tableKeys.get(table);
+			if(keys != null)
+			{
+				keys.remove(key);
+				if(keys.isEmpty())
+				{
+					_tableKeys.remove(table);
+				}
+			}
+		}
+	}
+	
+	private static String[] normalize(String[] tables)
+	{
+		if(tables == null)
+		{
+			return new String[0];
+		}
+		String[] result = new String[tables.length];
+		for(int i = 0; i < tables.length; i++)
+		{
+			result[i] = tables[i].toLowerCase();
+		}
+		return result;
+	}
+	
+	/**
+	 * 获取最多缓存的查询结果数量.
+	 * @return 最多缓存的查询结果数量.
+	 */
+	public int getMaxSize()
+	{
+		return _maxSize;
+	}
+	
+	/**
+	 * 获取查询结果的存活时间.
+	 * @return 查询结果的存活时间, 单位毫秒.
+	 */
+	public long getTimeToLive()
+	{
+		return _timeToLive;
+	}
+	
+	/**
+	 * 获取当前缓存的查询结果数量, 包括已经超过存活时间但还未被移除的结果.
+	 * @return 当前缓存的查询结果数量.
+	 */
+	public synchronized int size()
+	{
+		return _entries.size();
+	}
+	
+	/**
+	 * 获取命中的次数.
+	 * @return 命中的次数.
+	 */
+	public long getHitCount()
+	{
+		return _hitCount.get();
+	}
+	
+	/**
+	 * 获取未命中的次数.
+	 * @return 未命中的次数.
+	 */
+	public long getMissCount()
+	{
+		return _missCount.get();
+	}
+	
+	/**
+	 * 获取命中率.
+	 * @return 命中率, 没有任何访问时返回 0.
+	 */
+	public double getHitRate()
+	{
+		long hits = _hitCount.get();
+		long total = hits + _missCount.get();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	/**
+	 * 获取因数量超出上限或超过存活时间被移除的次数.
+	 * @return 被移除的次数.
+	 */
+	public long getEvictionCount()
+	{
+		return _evictionCount.get();
+	}
+	
+	/**
+	 * 获取通过 invalidate 及 invalidateAll 方法被移除的次数.
+	 * @return 被移除的次数.
+	 */
+	public long getInvalidationCount()
+	{
+		return _invalidationCount.get();
+	}
+	
+	/**
+	 * 重置所有的统计数据.
+	 */
+	public void resetStatistics()
+	{
+		_hitCount.set(0);
+		_missCount.set(0);
+		_evictionCount.set(0);
+		_invalidationCount.set(0);
+	}
+	
+	/**
+	 * 由 SQL 语句及参数组成的缓存键.
+	 * @author wizardc
+	 */
+	static class Key
+	{
+		private String _sql;
+		private Object[] _params;
+		private int _hashCode;
+		
+		Key(String sql, Object[] params)
+		{
+			_sql = sql;
+			_params = params == null ? new Object[0] : params.clone();
+			_hashCode = sql.hashCode() * 31 + Arrays.deepHashCode(_params);
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return _hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object object)
+		{
+			if(this == object)
+			{
+				return true;
+			}
+			if(!(object instanceof Key))
+			{
+				return false;
+			}
+			Key key = (Key) object;
+			return _hashCode == key._hashCode && _sql.equals(key._sql) && Arrays.deepEquals(_params, key._params);
+		}
+	}
+	
+	/**
+	 * 缓存项.
+	 * @author wizardc
+	 */
+	static class Entry
+	{
+		final QueryResult result;
+		final long expireTime;
+		final String[] tables;
+		
+		Entry(QueryResult result, long expireTime, String[] tables)
+		{
+			this.result = result;
+			this.expireTime = expireTime;
+			this.tables = tables;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * QueryCursor 类用来逐行读取查询结果, 不会将所有数据一次读取到内存中.
+ * <p>该对象会一直占用一个连接池中的连接, 读取完最后一行数据或调用 close 方法后连接会自动归还到连接池. 该类不是线程安全的.</p>
+ * @author wizardc
+ */
+public class QueryCursor implements AutoCloseable
+{
+	//连接所属的连接池
+	private ConnectionPool _pool;
+	//占用的连接
+	private Connection _connection;
+	//执行查询的语句对象
+	private Statement _statement;
+	//原生查询结果
+	private ResultSet _resultSet;
+	//已经读取的行数
+	private long _rowCount;
+	//是否已经关闭
+	private boolean _closed = false;
+	
+	/**
+	 * 在指定的连接上执行查询并创建一个 QueryCursor 对象, 创建失败时会归还连接.
+	 * @param pool 连接所属的连接池.
+	 * @param connection 执行查询的连接, 关闭时会归还到连接池.
+	 * @param sql 需要执行的 SQL 语句.
+	 * @param fetchSize 每次从数据库读取的行数, 为 0 时使用驱动的默认值, 其它值会原样交给驱动, 如 MySQL 驱动的 Integer.MIN_VALUE.
+	 * @throws SQLException 查询数据库失败时抛出该异常.
+	 */
+	QueryCursor(ConnectionPool pool, Connection connection, String sql, int fetchSize) throws SQLException
+	{
+		_pool = pool;
+		_connection = connection;
+		try
+		{
+			_statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			if(fetchSize != 0)
+			{
+				_statement.setFetchSize(fetchSize);
+			}
+			_resultSet = _statement.executeQuery(sql);
+		}
+		catch(SQLException exception)
+		{
+			closeQuietly();
+			throw exception;
+		}
+	}
+	
+	/**
+	 * 将指针移动到下一行数据, 没有更多数据时会自动关闭该对象并归还连接.
+	 * @return 是否还有数据.
+	 * @throws SQLException 读取数据失败时抛出该异常, 同时会关闭该对象并归还连接.
+	 */
+	public boolean next() throws SQLException
+	{
+		if(_closed)
+		{
+			return false;
+		}
+		boolean hasNext;
+		try
+		{
+			hasNext = _resultSet.next();
+		}
+		catch(SQLException exception)
+		{
+			closeQuietly();
+			throw exception;
+		}
+		if(hasNext)
+		{
+			_rowCount++;
+		}
+		else
+		{
+			close();
+		}
+		return hasNext;
+	}
+	
+	/**
+	 * 获取指向当前行的原生查询结果, 不应直接移动其指针或将其关闭.
+	 * @return 原生查询结果.
+	 */
+	public ResultSet getResultSet()
+	{
+		return _resultSet;
+	}
+	
+	/**
+	 * 获取已经读取的行数.
+	 * @return 已经读取的行数.
+	 */
+	public long getRowCount()
+	{
+		return _rowCount;
+	}
+	
+	/**
+	 * 判断该对象是否已经关闭.
+	 * @return 是否已经关闭.
+	 */
+	public boolean isClosed()
+	{
+		return _closed;
+	}
+	
+	/**
+	 * 关闭查询并将连接归还到连接池, 重复调用不会进行任何操作.
+	 * <p>查询结果, 语句对象及连接会分别关闭, 其中一个关闭失败不会影响其它资源的释放, 归还连接时被中断会重新设置线程的中断状态.</p>
+	 * @throws SQLException 关闭查询失败时抛出该异常, 连接仍然会被归还.
+	 */
+	@Override
+	public void close() throws SQLException
+	{
+		if(_closed)
+		{
+			return;
+		}
+		_closed = true;
+		try
+		{
+			if(_resultSet != null)
+			{
+				_resultSet.close();
+			}
+		}
+		finally
+		{
+			try
+			{
+				if(_statement != null)
+				{
+					_statement.close();
+				}
+			}
+			finally
+			{
+				try
+				{
+					_pool.joinConnection(_connection);
+				}
+				catch(InterruptedException exception)
+				{
+					Thread.currentThread().interrupt();
+				}
+				_connection = null;
+			}
+		}
+	}
+	
+	//出现异常时释放资源, 保留原始的异常
+	private void closeQuietly()
+	{
+		try
+		{
+			close();
+		}
+		catch(SQLException exception)
+		{
+		}
+	}
+}
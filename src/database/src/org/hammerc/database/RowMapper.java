@@ -0,0 +1,519 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RowMapper 类将查询结果的每一行转换为指定类型的对象.
+ * <p>字段按名称与目标类型的属性对应, 忽略大小写及下划线, 优先使用公开的 set 方法, 否则直接设置同名的成员变量, 没有对应属性的字段会被忽略. 目标类型需要有无参数的构造函数.</p>
+ * <p>每种查询结果的字段组合只会在第一次遇到时生成一次映射计划, 计划中的每个字段使用 MethodHandle 按目标类型直接读取及设置, 之后的每一行不再进行反射及名称查找. 该类是线程安全的.</p>
+ * @author wizardc
+ * @param <T> 目标类型.
+ */
+public class RowMapper<T>
+{
+	//所有已经创建的映射对象
+	private static final ConcurrentHashMap<Class<?>, RowMapper<?>> MAPPERS = new ConcurrentHashMap<Class<?>, RowMapper<?>>();
+	
+	//目标类型
+	private Class<T> _type;
+	//目标类型的无参数构造函数
+	private MethodHandle _constructor;
+	//按规范化后的名称记录目标类型的所有可设置属性
+	private HashMap<String, Property> _properties;
+	//按字段组合记录的映射计划
+	private ConcurrentHashMap<String, Plan> _plans;
+	
+	/**
+	 * 获取指定类型的映射对象, 同一类型始终返回同一个对象.
+	 * @param type 目标类型.
+	 * @param <T> 目标类型.
+	 * @return 映射对象.
+	 * @throws IllegalArgumentException 目标类型没有可访问的无参数构造函数时抛出该异常.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> RowMapper<T> forClass(Class<T> type) throws IllegalArgumentException
+	{
+		RowMapper<?> mapper = MAPPERS.get(type);
+		if(mapper == null)
+		{
+			mapper = new RowMapper<T>(type);
+			RowMapper<?> old = MAPPERS.putIfAbsent(type, mapper);
+			if(old != null)
+			{
+				mapper = old;
+			}
+		}
+		return (RowMapper<T>) mapper;
+	}
+	
+	private RowMapper(Class<T> type) throws IllegalArgumentException
+	{
+		_type = type;
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try
+		{
+			Constructor<T> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			_constructor = lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+		}
+		catch(Exception exception)
+		{
+			throw new IllegalArgumentException("The class \"" + type.getName() + "\" has no accessible default constructor!", exception);
+		}
+		_properties = new HashMap<String, Property>();
+		for(Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass())
+		{
+			for(Field field : clazz.getDeclaredFields())
+			{
+				int modifiers = field.getModifiers();
+				String name = normalize(field.getName());
+				if(Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || _properties.containsKey(name))
+				{
+					continue;
+				}
+				try
+				{
+					field.setAccessible(true);
+					_properties.put(name, new Property(field.getType(), lookup.unreflectSetter(field)));
+				}
+				catch(Exception exception)
+				{
+				}
+			}
+		}
+		//公开的 set 方法优先于同名的成员变量
+		for(Method method : type.getMethods())
+		{
+			String methodName = method.getName();
+			if(Modifier.isStatic(method.getModifiers()) || methodName.length() <= 3 || !methodName.startsWith("set") || method.getParameterTypes().length != 1)
+			{
+				continue;
+			}
+			try
+			{
+				_properties.put(normalize(methodName.substring(3)), new Property(method.getParameterTypes()[0], lookup.unreflect(method)));
+			}
+			catch(Exception exception)
+			{
+			}
+		}
+		_plans = new ConcurrentHashMap<String, Plan>();
+	}
+	
+	private static String normalize(String name)
+	{
+		return name.replace("_", "").toLowerCase();
+	}
+	
+	/**
+	 * 获取目标类型.
+	 * @return 目标类型.
+	 */
+	public Class<T> getType()
+	{
+		return _type;
+	}
+	
+	/**
+	 * 将查询结果的当前行转换为目标对象, 可以在 IRowHandler 中使用.
+	 * <p>每次调用都会按字段组合查找映射计划, 逐行读取大量数据时使用 mapAll 方法只会在开始时查找一次.</p>
+	 * @param resultSet 已经移动到需要转换的行的查询结果.
+	 * @return 目标对象.
+	 * @throws SQLException 读取字段失败或设置属性失败时抛出该异常.
+	 */
+	public T mapRow(ResultSet resultSet) throws SQLException
+	{
+		return getPlan(resultSet.getMetaData()).map(resultSet);
+	}
+	
+	/**
+	 * 将查询结果从当前位置开始的所有行转换为目标对象.
+	 * @param resultSet 查询结果.
+	 * @return 所有的目标对象.
+	 * @throws SQLException 读取字段失败或设置属性失败时抛出该异常.
+	 */
+	public ArrayList<T> mapAll(ResultSet resultSet) throws SQLException
+	{
+		Plan plan = getPlan(resultSet.getMetaData());
+		ArrayList<T> result = new ArrayList<T>();
+		while(resultSet.next())
+		{
+			result.add(plan.map(resultSet));
+		}
+		return result;
+	}
+	
+	/**
+	 * 将查询游标剩余的所有行转换为目标对象, 读取完毕后游标会自动关闭并归还连接.
+	 * @param cursor 查询游标.
+	 * @return 所有的目标对象.
+	 * @throws SQLException 读取字段失败或设置属性失败时抛出该异常, 读取数据失败时游标会被关闭.
+	 */
+	public ArrayList<T> mapAll(QueryCursor cursor) throws SQLException
+	{
+		Plan plan = getPlan(cursor.getResultSet().getMetaData());
+		ArrayList<T> result = new ArrayList<T>();
+		while(cursor.next())
+		{
+			result.add(plan.map(cursor.getResultSet()));
+		}
+		return result;
+	}
+	
+	private Plan getPlan(ResultSetMetaData metaData) throws SQLException
+	{
+		int columnCount = metaData.getColumnCount();
+		String[] labels = new String[columnCount];
+		StringBuilder key = new StringBuilder();
+		for(int i = 0; i < columnCount; i++)
+		{
+			labels[i] = metaData.getColumnLabel(i + 1);
+			key.append(labels[i]).append(',');
+		}
+		Plan plan = _plans.get(key.toString());
+		if(plan == null)
+		{
+			ArrayList<ColumnSetter> setters = new ArrayList<ColumnSetter>();
+			for(int i = 0; i < columnCount; i++)
+			{
+				Property property = _properties.get(normalize(labels[i]));
+				if(property != null)
+				{
+					setters.add(createSetter(i + 1, labels[i], property));
+				}
+			}
+			plan = new Plan(setters.toArray(new ColumnSetter[setters.size()]));
+			Plan old = _plans.putIfAbsent(key.toString(), plan);
+			if(old != null)
+			{
+				plan = old;
+			}
+		}
+		return plan;
+	}
+	
+	private static ColumnSetter createSetter(int column, String label, Property property)
+	{
+		Class<?> type = property.type;
+		MethodHandle setter = property.setter;
+		if(type == int.class)
+		{
+			return new IntSetter(column, label, setter.asType(MethodType.methodType(void.class, Object.class, int.class)));
+		}
+		if(type == long.class)
+		{
+			return new LongSetter(column, label, setter.asType(MethodType.methodType(void.class, Object.class, long.class)));
+		}
+		if(type == double.class)
+		{
+			return new DoubleSetter(column, label, setter.asType(MethodType.methodType(void.class, Object.class, double.class)));
+		}
+		if(type == float.class)
+		{
+			return new FloatSetter(column, label, setter.asType(MethodType.methodType(void.class, Object.class, float.class)));
+		}
+		if(type == boolean.class)
+		{
+			return new BooleanSetter(column, label, setter.asType(MethodType.methodType(void.class, Object.class, boolean.class)));
+		}
+		if(type == short.class)
+		{
+			return new ShortSetter(column, label, setter.asType(MethodType.methodType(void.class, Object.class, short.class)));
+		}
+		if(type == byte.class)
+		{
+			return new ByteSetter(column, label, setter.asType(MethodType.methodType(void.class, Object.class, byte.class)));
+		}
+		return new ObjectSetter(column, label, type, setter.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+	}
+	
+	/**
+	 * 目标类型中可设置的属性.
+	 * @author wizardc
+	 */
+	static class Property
+	{
+		final Class<?> type;
+		final MethodHandle setter;
+		
+		Property(Class<?> type, MethodHandle setter)
+		{
+			this.type = type;
+			this.setter = setter;
+		}
+	}
+	
+	/**
+	 * 一种字段组合的映射计划.
+	 * @author wizardc
+	 */
+	class Plan
+	{
+		private ColumnSetter[] _setters;
+		
+		Plan(ColumnSetter[] setters)
+		{
+			_setters = setters;
+		}
+		
+		@SuppressWarnings("unchecked")
+		T map(ResultSet resultSet) throws SQLException
+		{
+			Object target;
+			try
+			{
+				target = _constructor.invokeExact();
+			}
+			catch(Throwable throwable)
+			{
+				throw new SQLException("Failed to create an instance of \"" + _type.getName() + "\"!", throwable);
+			}
+			for(ColumnSetter setter : _setters)
+			{
+				try
+				{
+					setter.set(target, resultSet);
+				}
+				catch(SQLException exception)
+				{
+					throw exception;
+				}
+				catch(Throwable throwable)
+				{
+					throw new SQLException("Failed to map the column \"" + setter.label + "\" to \"" + _type.getName() + "\"!", throwable);
+				}
+			}
+			return (T) target;
+		}
+	}
+	
+	/**
+	 * 读取一个字段并设置到目标对象上.
+	 * @author wizardc
+	 */
+	abstract static class ColumnSetter
+	{
+		final int column;
+		final String label;
+		final MethodHandle setter;
+		
+		ColumnSetter(int column, String label, MethodHandle setter)
+		{
+			this.column = column;
+			this.label = label;
+			this.setter = setter;
+		}
+		
+		abstract void set(Object target, ResultSet resultSet) throws Throwable;
+	}
+	
+	static class IntSetter extends ColumnSetter
+	{
+		IntSetter(int column, String label, MethodHandle setter)
+		{
+			super(column, label, setter);
+		}
+		
+		@Override
+		void set(Object target, ResultSet resultSet) throws Throwable
+		{
+			setter.invokeExact(target, resultSet.getInt(column));
+		}
+	}
+	
+	static class LongSetter extends ColumnSetter
+	{
+		LongSetter(int column, String label, MethodHandle setter)
+		{
+			super(column, label, setter);
+		}
+		
+		@Override
+		void set(Object target, ResultSet resultSet) throws Throwable
+		{
+			setter.invokeExact(target, resultSet.getLong(column));
+		}
+	}
+	
+	static class DoubleSetter extends ColumnSetter
+	{
+		DoubleSetter(int column, String label, MethodHandle setter)
+		{
+			super(column, label, setter);
+		}
+		
+		@Override
+		void set(Object target, ResultSet resultSet) throws Throwable
+		{
+			setter.invokeExact(target, resultSet.getDouble(column));
+		}
+	}
+	
+	static class FloatSetter extends ColumnSetter
+	{
+		FloatSetter(int column, String label, MethodHandle setter)
+		{
+			super(column, label, setter);
+		}
+		
+		@Override
+		void set(Object target, ResultSet resultSet) throws Throwable
+		{
+			setter.invokeExact(target, resultSet.getFloat(column));
+		}
+	}
+	
+	static class BooleanSetter extends ColumnSetter
+	{
+		BooleanSetter(int column, String label, MethodHandle setter)
+		{
+			super(column, label, setter);
+		}
+		
+		@Override
+		void set(Object target, ResultSet resultSet) throws Throwable
+		{
+			setter.invokeExact(target, resultSet.getBoolean(column));
+		}
+	}
+	
+	static class ShortSetter extends ColumnSetter
+	{
+		ShortSetter(int column, String label, MethodHandle setter)
+		{
+			super(column, label, setter);
+		}
+		
+		@Override
+		void set(Object target, ResultSet resultSet) throws Throwable
+		{
+			setter.invokeExact(target, resultSet.getShort(column));
+		}
+	}
+	
+	static class ByteSetter extends ColumnSetter
+	{
+		ByteSetter(int column, String label, MethodHandle setter)
+		{
+			super(column, label, setter);
+		}
+		
+		@Override
+		void set(Object target, ResultSet resultSet) throws Throwable
+		{
+			setter.invokeExact(target, resultSet.getByte(column));
+		}
+	}
+	
+	/**
+	 * 引用类型的属性, 包装类型的属性在字段为空值时设置为 null.
+	 * @author wizardc
+	 */
+	static class ObjectSetter extends ColumnSetter
+	{
+		private Class<?> _type;
+		
+		ObjectSetter(int column, String label, Class<?> type, MethodHandle setter)
+		{
+			super(column, label, setter);
+			_type = type;
+		}
+		
+		@Override
+		void set(Object target, ResultSet resultSet) throws Throwable
+		{
+			setter.invokeExact(target, read(resultSet));
+		}
+		
+		private Object read(ResultSet resultSet) throws SQLException
+		{
+			Object value;
+			if(_type == String.class)
+			{
+				return resultSet.getString(column);
+			}
+			else if(_type == Integer.class)
+			{
+				value = resultSet.getInt(column);
+			}
+			else if(_type == Long.class)
+			{
+				value = resultSet.getLong(column);
+			}
+			else if(_type == Double.class)
+			{
+				value = resultSet.getDouble(column);
+			}
+			else if(_type == Float.class)
+			{
+				value = resultSet.getFloat(column);
+			}
+			else if(_type == Boolean.class)
+			{
+				value = resultSet.getBoolean(column);
+			}
+			else if(_type == Short.class)
+			{
+				value = resultSet.getShort(column);
+			}
+			else if(_type == Byte.class)
+			{
+				value = resultSet.getByte(column);
+			}
+			else if(_type == BigDecimal.class)
+			{
+				return resultSet.getBigDecimal(column);
+			}
+			else if(_type == byte[].class)
+			{
+				return resultSet.getBytes(column);
+			}
+			else if(_type == Timestamp.class || _type == java.util.Date.class)
+			{
+				return resultSet.getTimestamp(column);
+			}
+			else if(_type == Date.class)
+			{
+				return resultSet.getDate(column);
+			}
+			else if(_type == Time.class)
+			{
+				return resultSet.getTime(column);
+			}
+			else if(_type == Object.class)
+			{
+				return resultSet.getObject(column);
+			}
+			else
+			{
+				return resultSet.getObject(column, _type);
+			}
+			return resultSet.wasNull() ? null : value;
+		}
+	}
+}
@@ -0,0 +1,206 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * BatchWriter 的测试.
+ * @author wizardc
+ */
+public class BatchWriterTest
+{
+	@Test
+	public void discardsPartialBatchAfterBindFailure() throws Exception
+	{
+		ConnectionPool pool = ConnectionPoolTest.newPool("batch_bind", 4);
+		try
+		{
+			DatabaseUtils.executeSQL(pool, "CREATE TABLE items (id INT NOT NULL)");
+			BatchWriter writer = new BatchWriter(pool, "INSERT INTO items (id) VALUES (?)", 10, 0, false);
+			writer.add(1);
+			writer.add(2);
+			//多出的参数会在绑定时失败
+			writer.add(3, 4);
+			try
+			{
+				writer.flush();
+				fail();
+			}
+			catch(SQLException exception)
+			{
+			}
+			assertEquals(0, writer.getPendingCount());
+			writer.add(5);
+			writer.flush();
+			assertEquals(1, pool.getStatementCacheHitCount());
+			assertEquals(Integer.valueOf(5), selectIds(pool).get(0));
+			assertEquals(1, selectIds(pool).size());
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	@Test
+	public void discardsFailedTransactionalBatch() throws Exception
+	{
+		ConnectionPool pool = ConnectionPoolTest.newPool("batch_transaction", 4);
+		try
+		{
+			DatabaseUtils.executeSQL(pool, "CREATE TABLE items (id INT NOT NULL)");
+			BatchWriter writer = new BatchWriter(pool, "INSERT INTO items (id) VALUES (?)", 10, 0, true);
+			writer.add(1);
+			writer.add((Object) null);
+			try
+			{
+				writer.flush();
+				fail();
+			}
+			catch(SQLException exception)
+			{
+			}
+			writer.add(2);
+			writer.add(3);
+			writer.flush();
+			List<Integer> ids = selectIds(pool);
+			assertEquals(2, ids.size());
+			assertEquals(Integer.valueOf(2), ids.get(0));
+			assertEquals(Integer.valueOf(3), ids.get(1));
+			assertEquals(1, writer.getFailedCount());
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	@Test
+	public void requeuesUnsentBatchesWhenInterrupted() throws Exception
+	{
+		final ConnectionPool pool = ConnectionPoolTest.newPool("batch_interrupt", 4);
+		try
+		{
+			DatabaseUtils.executeSQL(pool, "CREATE TABLE items (id INT NOT NULL)");
+			BatchWriter writer = new BatchWriter(pool, "INSERT INTO items (id) VALUES (?)", 2, 0, false);
+			//占用唯一的连接后中断当前线程, 写入时等待连接会被中断
+			Connection held = pool.getConnection();
+			Thread.currentThread().interrupt();
+			writer.add(1);
+			assertInterrupted(writer, 2);
+			assertEquals(2, writer.getPendingCount());
+			Thread.currentThread().interrupt();
+			assertInterrupted(writer, 3);
+			assertEquals(3, writer.getPendingCount());
+			pool.joinConnection(held);
+			//第一批写入后再次占用连接并中断, 剩余的批次需要保留
+			final Connection[] borrowed = new Connection[1];
+			writer.setListener(new IBatchListener()
+			{
+				@Override
+				public void batchExecuted(BatchWriter writer, int rows, long elapsedTime)
+				{
+					if(borrowed[0] == null)
+					{
+						try
+						{
+							borrowed[0] = pool.getConnection();
+						}
+						catch(Exception exception)
+						{
+							throw new IllegalStateException(exception);
+						}
+						Thread.currentThread().interrupt();
+					}
+				}
+				
+				@Override
+				public void batchFailed(BatchWriter writer, int rows, SQLException exception)
+				{
+				}
+			});
+			try
+			{
+				writer.flush();
+				fail();
+			}
+			catch(InterruptedException exception)
+			{
+			}
+			assertTrue(Thread.interrupted());
+			assertEquals(1, writer.getPendingCount());
+			assertEquals(2, selectIds(borrowed[0]).size());
+			pool.joinConnection(borrowed[0]);
+			writer.flush();
+			assertEquals(0, writer.getPendingCount());
+			List<Integer> ids = selectIds(pool);
+			assertEquals(3, ids.size());
+			for(int i = 0; i < 3; i++)
+			{
+				assertEquals(Integer.valueOf(i + 1), ids.get(i));
+			}
+			assertEquals(2, writer.getBatchCount());
+			assertEquals(0, writer.getFailedCount());
+		}
+		finally
+		{
+			Thread.interrupted();
+			pool.cleanup();
+		}
+	}
+	
+	//添加一条数据触发的写入被中断后中断状态需要保留
+	private static void assertInterrupted(BatchWriter writer, int id) throws Exception
+	{
+		try
+		{
+			writer.add(id);
+			fail();
+		}
+		catch(InterruptedException exception)
+		{
+		}
+		assertTrue(Thread.interrupted());
+	}
+	
+	private static List<Integer> selectIds(Connection connection) throws Exception
+	{
+		ResultSet resultSet = connection.createStatement().executeQuery("SELECT id FROM items ORDER BY id");
+		List<Integer> ids = new ArrayList<Integer>();
+		while(resultSet.next())
+		{
+			ids.add(resultSet.getInt(1));
+		}
+		resultSet.getStatement().close();
+		return ids;
+	}
+	
+	private static List<Integer> selectIds(ConnectionPool pool) throws Exception
+	{
+		QueryResult result = DatabaseUtils.executeQuery(pool, "SELECT id FROM items ORDER BY id");
+		List<Integer> ids = new ArrayList<Integer>();
+		for(int i = 0; i < result.size(); i++)
+		{
+			ids.add(result.getInteger(i, "id"));
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,279 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * BoundedExecutor 的测试.
+ * @author wizardc
+ */
+public class BoundedExecutorTest
+{
+	@Test
+	public void limitsConcurrentTasks() throws Exception
+	{
+		ExecutorService service = Executors.newFixedThreadPool(4);
+		try
+		{
+			BoundedExecutor executor = new BoundedExecutor(service, 2);
+			final AtomicInteger running = new AtomicInteger();
+			final AtomicInteger peak = new AtomicInteger();
+			List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+			for(int i = 0; i < 8; i++)
+			{
+				final int value = i;
+				futures.add(CompletableFuture.supplyAsync(new Supplier<Integer>()
+				{
+					@Override
+					public Integer get()
+					{
+						int current = running.incrementAndGet();
+						int last = peak.get();
+						while(current > last && !peak.compareAndSet(last, current))
+						{
+							last = peak.get();
+						}
+						try
+						{
+							Thread.sleep(20);
+						}
+						catch(InterruptedException exception)
+						{
+							Thread.currentThread().interrupt();
+						}
+						running.decrementAndGet();
+						return value;
+					}
+				}, executor));
+			}
+			for(int i = 0; i < 8; i++)
+			{
+				assertEquals(i, (int) futures.get(i).get(5, TimeUnit.SECONDS));
+			}
+			assertEquals(2, peak.get());
+			awaitIdle(executor);
+			assertEquals(0, executor.getQueuedCount());
+		}
+		finally
+		{
+			service.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void runsOnlyRejectedTaskInline() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Thread> workers = new ArrayList<Thread>();
+		//只接受第一个任务的执行器
+		Executor accepting = new Executor()
+		{
+			@Override
+			public void execute(Runnable command)
+			{
+				if(!workers.isEmpty())
+				{
+					throw new RejectedExecutionException();
+				}
+				Thread thread = new Thread(command);
+				workers.add(thread);
+				thread.start();
+			}
+		};
+		final BoundedExecutor executor = new BoundedExecutor(accepting, 2);
+		executor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					release.await();
+				}
+				catch(InterruptedException exception)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		final Thread caller = Thread.currentThread();
+		final List<Thread> queuedThreads = new ArrayList<Thread>();
+		final CountDownLatch queuedDone = new CountDownLatch(2);
+		final Runnable queued = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				synchronized(queuedThreads)
+				{
+					queuedThreads.add(Thread.currentThread());
+				}
+				queuedDone.countDown();
+			}
+		};
+		final List<Thread> rejectedThread = new ArrayList<Thread>();
+		executor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				rejectedThread.add(Thread.currentThread());
+				//两个名额都被占用, 这两个任务只能排队
+				executor.execute(queued);
+				executor.execute(queued);
+			}
+		});
+		assertEquals(1, rejectedThread.size());
+		assertSame(caller, rejectedThread.get(0));
+		assertEquals(2, executor.getQueuedCount());
+		assertEquals(1, executor.getRunningCount());
+		release.countDown();
+		assertTrue(queuedDone.await(5, TimeUnit.SECONDS));
+		for(Thread thread : queuedThreads)
+		{
+			assertSame(workers.get(0), thread);
+		}
+		workers.get(0).join(5000);
+		assertEquals(0, executor.getRunningCount());
+	}
+	
+	@Test
+	public void runsQueuedTasksInlineAfterShutdown() throws Exception
+	{
+		ExecutorService service = Executors.newSingleThreadExecutor();
+		final BoundedExecutor executor = new BoundedExecutor(service, 1);
+		executor.shutdown();
+		final AtomicInteger count = new AtomicInteger();
+		final Runnable nested = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				count.incrementAndGet();
+			}
+		};
+		executor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				count.incrementAndGet();
+				executor.execute(nested);
+			}
+		});
+		//没有其它工作者时排队的任务也会在当前线程运行
+		assertEquals(2, count.get());
+		assertEquals(0, executor.getQueuedCount());
+		assertEquals(0, executor.getRunningCount());
+	}
+	
+	@Test
+	public void releasesSlotWhenTaskThrowsError() throws Exception
+	{
+		Executor direct = new Executor()
+		{
+			@Override
+			public void execute(Runnable command)
+			{
+				command.run();
+			}
+		};
+		BoundedExecutor executor = new BoundedExecutor(direct, 1);
+		try
+		{
+			executor.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					throw new AssertionError("boom");
+				}
+			});
+			fail();
+		}
+		catch(AssertionError exception)
+		{
+			assertEquals("boom", exception.getMessage());
+		}
+		assertEquals(0, executor.getRunningCount());
+		final AtomicInteger count = new AtomicInteger();
+		executor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				count.incrementAndGet();
+			}
+		});
+		assertEquals(1, count.get());
+	}
+	
+	@Test
+	public void completesFuturesExceptionally() throws Exception
+	{
+		ConnectionPool pool = ConnectionPoolTest.newPool("bounded_async", 0);
+		try
+		{
+			assertEquals(1, pool.getAsyncExecutor().getLimit());
+			assertEquals(-1, (int) DatabaseUtils.executeSQLAsync(pool, "CREATE TABLE items (id INT)").get(5, TimeUnit.SECONDS));
+			assertEquals(1, (int) DatabaseUtils.executeSQLAsync(pool, "INSERT INTO items (id) VALUES (?)", 7).get(5, TimeUnit.SECONDS));
+			assertEquals(1, DatabaseUtils.executeQueryAsync(pool, "SELECT id FROM items").get(5, TimeUnit.SECONDS).size());
+			CompletableFuture<QueryResult> failed = DatabaseUtils.executeQueryAsync(pool, "SELECT id FROM missing_items");
+			try
+			{
+				failed.get(5, TimeUnit.SECONDS);
+				fail();
+			}
+			catch(ExecutionException exception)
+			{
+				assertTrue(exception.getCause() instanceof SQLException);
+			}
+			assertTrue(failed.isCompletedExceptionally());
+			//失败的操作不会占用执行器的名额
+			assertEquals(1, DatabaseUtils.executeQueryAsync(pool, "SELECT id FROM items WHERE id = ?", 7).get(5, TimeUnit.SECONDS).size());
+			awaitIdle(pool.getAsyncExecutor());
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	//等待所有工作者结束
+	private static void awaitIdle(BoundedExecutor executor) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 5000;
+		while(executor.getRunningCount() > 0 && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(1);
+		}
+		assertEquals(0, executor.getRunningCount());
+	}
+}
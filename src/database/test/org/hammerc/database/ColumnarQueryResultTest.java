@@ -0,0 +1,170 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+import org.junit.Test;
+
+/**
+ * ColumnarQueryResult 的测试.
+ * @author wizardc
+ */
+public class ColumnarQueryResultTest
+{
+	@Test
+	public void keepsUnsignedIntegerRange() throws Exception
+	{
+		Object[][] rows = {
+			{4294967295L, new BigInteger("18446744073709551615"), -1, -1L},
+			{2147483648L, new BigInteger("9223372036854775808"), 7, 8L},
+			{null, null, null, null}
+		};
+		ResultSet resultSet = newResultSet(new String[] {"u_int", "u_bigint", "s_int", "s_bigint"}, new int[] {Types.INTEGER, Types.BIGINT, Types.INTEGER, Types.BIGINT}, new boolean[] {false, false, true, true}, rows);
+		ColumnarQueryResult result = new ColumnarQueryResult(resultSet);
+		assertEquals(3, result.size());
+		assertEquals(4294967295L, result.getLong(0, 0));
+		assertEquals(4294967295L, result.getObject(0, 0));
+		assertEquals(2147483648L, result.getLong(1, 0));
+		assertEquals(new BigInteger("18446744073709551615"), result.getObject(0, 1));
+		assertEquals(new BigInteger("9223372036854775808"), result.getObject(1, "U_BIGINT"));
+		assertEquals(-1, result.getInteger(0, 2));
+		assertEquals(-1, result.getObject(0, 2));
+		assertEquals(8L, result.getObject(1, 3));
+		for(int i = 0; i < 4; i++)
+		{
+			assertTrue(result.isNull(2, i));
+			assertNull(result.getObject(2, i));
+		}
+	}
+	
+	@Test
+	public void rejectsUnknownColumnName() throws Exception
+	{
+		ResultSet resultSet = newResultSet(new String[] {"id"}, new int[] {Types.INTEGER}, new boolean[] {true}, new Object[][] {{1}});
+		ColumnarQueryResult result = new ColumnarQueryResult(resultSet);
+		assertEquals(1, result.getObject(0, "ID"));
+		try
+		{
+			result.getObject(0, "missing");
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+			assertTrue(exception.getMessage().contains("missing"));
+		}
+	}
+	
+	@Test
+	public void convertsObjectColumnsToBoolean() throws Exception
+	{
+		Object[][] rows = {
+			{Boolean.TRUE, new BigInteger("18446744073709551615"), new BigDecimal("2.5"), "true"},
+			{Boolean.FALSE, BigInteger.ZERO, BigDecimal.ZERO, "1"},
+			{null, null, null, "no"}
+		};
+		ResultSet resultSet = newResultSet(new String[] {"flag", "u_bigint", "amount", "text"}, new int[] {Types.OTHER, Types.BIGINT, Types.DECIMAL, Types.VARCHAR}, new boolean[] {false, false, true, false}, rows);
+		ColumnarQueryResult result = new ColumnarQueryResult(resultSet);
+		assertTrue(result.getBoolean(0, 0));
+		assertTrue(result.getBoolean(0, 1));
+		assertTrue(result.getBoolean(0, 2));
+		assertTrue(result.getBoolean(0, 3));
+		assertFalse(result.getBoolean(1, 0));
+		assertFalse(result.getBoolean(1, 1));
+		assertFalse(result.getBoolean(1, 2));
+		assertTrue(result.getBoolean(1, 3));
+		for(int i = 0; i < 4; i++)
+		{
+			assertFalse(result.getBoolean(2, i));
+		}
+	}
+	
+	//创建一个按行返回指定数据的查询结果
+	private static ResultSet newResultSet(final String[] labels, final int[] types, final boolean[] signed, final Object[][] rows)
+	{
+		final ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class}, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				String name = method.getName();
+				if(name.equals("getColumnCount"))
+				{
+					return labels.length;
+				}
+				int column = (Integer) args[0] - 1;
+				if(name.equals("getColumnLabel"))
+				{
+					return labels[column];
+				}
+				if(name.equals("getColumnType"))
+				{
+					return types[column];
+				}
+				if(name.equals("isSigned"))
+				{
+					return signed[column];
+				}
+				throw new UnsupportedOperationException(name);
+			}
+		});
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class}, new InvocationHandler()
+		{
+			private int _row = -1;
+			private Object _last;
+			
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				String name = method.getName();
+				if(name.equals("getMetaData"))
+				{
+					return metaData;
+				}
+				if(name.equals("next"))
+				{
+					return ++_row < rows.length;
+				}
+				if(name.equals("wasNull"))
+				{
+					return _last == null;
+				}
+				_last = rows[_row][(Integer) args[0] - 1];
+				Number number = _last instanceof Number ? (Number) _last : null;
+				if(name.equals("getObject"))
+				{
+					return _last;
+				}
+				if(name.equals("getInt"))
+				{
+					return number == null ? 0 : number.intValue();
+				}
+				if(name.equals("getLong"))
+				{
+					return number == null ? 0L : number.longValue();
+				}
+				throw new UnsupportedOperationException(name);
+			}
+		});
+	}
+}
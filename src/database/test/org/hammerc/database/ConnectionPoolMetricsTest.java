@@ -0,0 +1,171 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * ConnectionPoolMetrics 及连接池事件回调的测试.
+ * @author wizardc
+ */
+public class ConnectionPoolMetricsTest
+{
+	@Test
+	public void notifiesBorrowAndRelease() throws Exception
+	{
+		ConnectionPool pool = ConnectionPoolTest.newPool("metrics_events", 0);
+		try
+		{
+			RecordingListener listener = new RecordingListener();
+			pool.setListener(listener);
+			Connection connection = pool.getConnection();
+			assertEquals(1, listener.acquired.size());
+			assertEquals(0, listener.released.size());
+			assertEquals(1, pool.getMetrics().getActiveConnections());
+			Thread.sleep(20);
+			pool.joinConnection(connection);
+			assertEquals(1, listener.released.size());
+			//持有时间的单位为微秒
+			assertTrue(listener.released.get(0) >= 20000);
+			//重复归还不会再次通知
+			pool.joinConnection(connection);
+			assertEquals(1, listener.released.size());
+			assertEquals(0, pool.getMetrics().getActiveConnections());
+			assertEquals(1, pool.getMetrics().getIdleConnections());
+			//统计数据与回调同时记录
+			ConnectionPoolMetrics metrics = pool.getMetrics();
+			assertEquals(1, metrics.getAcquireCount());
+			assertEquals((long) listener.released.get(0), metrics.getHoldTimeMax());
+			assertTrue(metrics.getHoldTimeP50() >= 20000);
+			pool.setListener(null);
+			pool.joinConnection(pool.getConnection());
+			assertEquals(1, listener.acquired.size());
+			assertEquals(2, metrics.getAcquireCount());
+			metrics.reset();
+			assertEquals(0, metrics.getAcquireCount());
+			assertEquals(0, metrics.getHoldTimeMax());
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	@Test
+	public void reportsLeakOncePerBorrow() throws Exception
+	{
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+		poolConfig.setMinIdle(1);
+		poolConfig.setMaxTotal(1);
+		poolConfig.setHousekeepingInterval(10);
+		poolConfig.setLeakDetectionThreshold(50);
+		ConnectionPool pool = new ConnectionPool(new H2ConnectionConfig("metrics_leak"), poolConfig);
+		try
+		{
+			RecordingListener listener = new RecordingListener();
+			pool.setListener(listener);
+			Connection connection = pool.getConnection();
+			assertEquals(0, listener.leakCount());
+			awaitLeaks(listener, 1);
+			//多次维护后仍然只通知一次
+			Thread.sleep(100);
+			assertEquals(1, listener.leakCount());
+			assertEquals(1, pool.getMetrics().getLeakCount());
+			assertTrue(listener.leakHoldTimes.get(0) >= 50000);
+			assertTrue(listener.leaks.get(0).getMessage().contains(Thread.currentThread().getName()));
+			pool.joinConnection(connection);
+			Thread.sleep(100);
+			assertEquals(1, listener.leakCount());
+			//再次取出后重新检测
+			connection = pool.getConnection();
+			awaitLeaks(listener, 2);
+			assertEquals(2, pool.getMetrics().getLeakCount());
+			pool.joinConnection(connection);
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	//等待收到指定次数的泄漏通知
+	private static void awaitLeaks(RecordingListener listener, int count) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 5000;
+		while(listener.leakCount() < count && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(5);
+		}
+		assertEquals(count, listener.leakCount());
+	}
+	
+	/**
+	 * 记录收到的连接池事件.
+	 * @author wizardc
+	 */
+	static class RecordingListener implements IConnectionPoolListener
+	{
+		final List<Long> acquired = new ArrayList<Long>();
+		final List<Long> released = new ArrayList<Long>();
+		final List<Throwable> leaks = new ArrayList<Throwable>();
+		final List<Long> leakHoldTimes = new ArrayList<Long>();
+		
+		@Override
+		public void connectionCreated(ConnectionPool pool, long createTime)
+		{
+		}
+		
+		@Override
+		public void connectionClosed(ConnectionPool pool)
+		{
+		}
+		
+		@Override
+		public void connectionValidated(ConnectionPool pool, boolean valid)
+		{
+		}
+		
+		@Override
+		public synchronized void connectionAcquired(ConnectionPool pool, long waitTime)
+		{
+			acquired.add(waitTime);
+		}
+		
+		@Override
+		public void acquireTimedOut(ConnectionPool pool, long waitTime)
+		{
+		}
+		
+		@Override
+		public synchronized void connectionReleased(ConnectionPool pool, long holdTime)
+		{
+			released.add(holdTime);
+		}
+		
+		@Override
+		public synchronized void leakDetected(ConnectionPool pool, long holdTime, Throwable borrowTrace)
+		{
+			leaks.add(borrowTrace);
+			leakHoldTimes.add(holdTime);
+		}
+		
+		synchronized int leakCount()
+		{
+			return leaks.size();
+		}
+	}
+}
@@ -0,0 +1,227 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * ConnectionPoolRouter 的测试, 主库及副本分别使用不同的 H2 内存数据库.
+ * @author wizardc
+ */
+public class ConnectionPoolRouterTest
+{
+	//测试用数据库的编号, 保证每个测试使用新的数据库
+	private static int _databaseIndex;
+	
+	private ConnectionPool _primary;
+	private SwitchableConfig _firstConfig;
+	private ConnectionPool _first;
+	private ConnectionPool _second;
+	private ConnectionPoolRouter _router;
+	
+	@Before
+	public void createPools() throws Exception
+	{
+		_databaseIndex++;
+		_primary = newPool(new SwitchableConfig("router_primary_" + _databaseIndex), "primary");
+		_firstConfig = new SwitchableConfig("router_first_" + _databaseIndex);
+		_first = newPool(_firstConfig, "first");
+		_second = newPool(new SwitchableConfig("router_second_" + _databaseIndex), "second");
+		_router = new ConnectionPoolRouter(_primary);
+		_router.addReplica(_first);
+		_router.setFailureThreshold(2);
+		_router.setValidationTimeout(1);
+	}
+	
+	@After
+	public void closePools() throws Exception
+	{
+		_router.shutdown();
+		_primary.cleanup();
+		_first.cleanup();
+		_second.cleanup();
+	}
+	
+	@Test
+	public void successfulReplicaQueryClearsFailures() throws Exception
+	{
+		_router.reportFailure(_first);
+		assertEquals("first", queryName());
+		//成功的查询清除了之前的失败, 再失败一次不会达到移除的次数
+		_router.reportFailure(_first);
+		assertTrue(_router.isAvailable(_first));
+		_router.reportFailure(_first);
+		assertFalse(_router.isAvailable(_first));
+		assertSame(_primary, _router.getReadPool());
+		assertEquals("primary", queryName());
+	}
+	
+	@Test
+	public void quarantinesAndRecoversReplica() throws Exception
+	{
+		_router.addReplica(_second);
+		//隔离时间足够长, 移除后的断言不会因为隔离结束而失败
+		_router.setQuarantineTime(60000);
+		_router.checkReplicas();
+		assertEquals(2, _router.getAvailableReplicaCount());
+		//副本数据库关闭后已有的连接失效且无法创建新的连接
+		_firstConfig.down = true;
+		shutdown(_firstConfig);
+		_router.checkReplicas();
+		assertTrue(_router.isAvailable(_first));
+		_router.checkReplicas();
+		assertFalse(_router.isAvailable(_first));
+		assertTrue(_router.isAvailable(_second));
+		for(int i = 0; i < 4; i++)
+		{
+			assertSame(_second, _router.getReadPool());
+		}
+		//数据库恢复后验证成功会重新参与分配
+		_firstConfig.down = false;
+		createTable(_firstConfig, "first");
+		_router.checkReplicas();
+		assertTrue(_router.isAvailable(_first));
+		assertEquals(2, _router.getAvailableReplicaCount());
+	}
+	
+	@Test
+	public void rejoinsAfterQuarantineExpires() throws Exception
+	{
+		_router.setQuarantineTime(60000);
+		_router.reportFailure(_first);
+		_router.reportFailure(_first);
+		assertFalse(_router.isAvailable(_first));
+		//缩短隔离时间只影响之后的移除
+		_router.setQuarantineTime(1);
+		assertFalse(_router.isAvailable(_first));
+		_router.reportSuccess(_first);
+		assertTrue(_router.isAvailable(_first));
+		_router.reportFailure(_first);
+		_router.reportFailure(_first);
+		Thread.sleep(20);
+		assertTrue(_router.isAvailable(_first));
+		assertSame(_first, _router.getReadPool());
+	}
+	
+	@Test
+	public void failsOverToPrimaryOnConnectionFailure() throws Exception
+	{
+		_router.setFailureThreshold(1);
+		_firstConfig.down = true;
+		shutdown(_firstConfig);
+		assertEquals("primary", queryName());
+		assertFalse(_router.isAvailable(_first));
+	}
+	
+	@Test
+	public void countsAcquireTimeoutAsFailure() throws Exception
+	{
+		ConnectionPool busy = new ConnectionPool(new SwitchableConfig("router_busy_" + _databaseIndex), 1);
+		try
+		{
+			_router.addReplica(busy);
+			_router.setFailureThreshold(1);
+			Connection connection = busy.getConnection();
+			long startTime = System.currentTimeMillis();
+			_router.checkReplicas();
+			assertTrue(System.currentTimeMillis() - startTime < 10000);
+			assertFalse(_router.isAvailable(busy));
+			assertTrue(_router.isAvailable(_first));
+			busy.joinConnection(connection);
+			_router.checkReplicas();
+			assertTrue(_router.isAvailable(busy));
+		}
+		finally
+		{
+			busy.cleanup();
+		}
+	}
+	
+	private String queryName() throws Exception
+	{
+		return _router.executeQuery("SELECT name FROM source WHERE id = ?", 1).getString(0, "name");
+	}
+	
+	private static ConnectionPool newPool(SwitchableConfig config, String name) throws Exception
+	{
+		createTable(config, name);
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+		poolConfig.setMinIdle(1);
+		poolConfig.setMaxTotal(2);
+		poolConfig.setHousekeepingInterval(0);
+		poolConfig.setAsyncReplacement(false);
+		poolConfig.setValidationIdleThreshold(0);
+		poolConfig.setAcquireTimeout(0);
+		return new ConnectionPool(config, poolConfig);
+	}
+	
+	//在数据库中创建记录自身名称的表
+	private static void createTable(SwitchableConfig config, String name) throws Exception
+	{
+		Connection connection = DriverManager.getConnection(config.getConnectionString());
+		try
+		{
+			Statement statement = connection.createStatement();
+			statement.execute("CREATE TABLE source (id INT, name VARCHAR(16))");
+			statement.execute("INSERT INTO source VALUES (1, '" + name + "')");
+			statement.close();
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+	
+	//关闭内存数据库, 所有已经打开的连接都会失效
+	private static void shutdown(SwitchableConfig config) throws Exception
+	{
+		Connection connection = DriverManager.getConnection(config.memoryConnectionString());
+		connection.createStatement().execute("SHUTDOWN");
+		connection.close();
+	}
+	
+	/**
+	 * 可以模拟数据库无法连接的配置对象.
+	 * @author wizardc
+	 */
+	static class SwitchableConfig extends H2ConnectionConfig
+	{
+		//是否模拟数据库无法连接
+		volatile boolean down;
+		
+		SwitchableConfig(String database)
+		{
+			super(database);
+		}
+		
+		String memoryConnectionString()
+		{
+			return super.getConnectionString();
+		}
+		
+		@Override
+		public String getConnectionString()
+		{
+			//数据库已经关闭时不会重新创建而是连接失败
+			return down ? super.getConnectionString() + ";IFEXISTS=TRUE" : super.getConnectionString();
+		}
+	}
+}
@@ -0,0 +1,317 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.Test;
+
+/**
+ * ConnectionPool 的测试.
+ * @author wizardc
+ */
+public class ConnectionPoolTest
+{
+	@Test
+	public void releasesCachedStatementsBySql() throws Exception
+	{
+		ConnectionPool pool = newPool("statement_cache", 2);
+		try
+		{
+			Connection connection = pool.getConnection();
+			Statement statement = connection.createStatement();
+			statement.execute("CREATE TABLE items (id INT)");
+			statement.close();
+			String sql = "INSERT INTO items (id) VALUES (?)";
+			PreparedStatement cached = pool.prepareStatement(connection, sql);
+			cached.setInt(1, 1);
+			cached.addBatch();
+			pool.releaseStatement(connection, sql, cached);
+			assertFalse(cached.isClosed());
+			//归还时清除了未执行的批处理
+			PreparedStatement again = pool.prepareStatement(connection, sql);
+			assertSame(cached, again);
+			assertEquals(0, again.executeBatch().length);
+			pool.releaseStatement(connection, sql, again);
+			//不在缓存中的对象会被关闭
+			PreparedStatement other = connection.prepareStatement(sql);
+			pool.releaseStatement(connection, sql, other);
+			assertTrue(other.isClosed());
+			//超出缓存数量被淘汰的对象会被关闭
+			pool.releaseStatement(connection, "SELECT 1", pool.prepareStatement(connection, "SELECT 1"));
+			pool.releaseStatement(connection, "SELECT 2", pool.prepareStatement(connection, "SELECT 2"));
+			assertTrue(cached.isClosed());
+			PreparedStatement renewed = pool.prepareStatement(connection, sql);
+			assertNotSame(cached, renewed);
+			pool.releaseStatement(connection, sql, renewed);
+			assertEquals(1, pool.getStatementCacheHitCount());
+			ResultSet resultSet = connection.createStatement().executeQuery("SELECT COUNT(*) FROM items");
+			resultSet.next();
+			assertEquals(0, resultSet.getInt(1));
+			resultSet.getStatement().close();
+			pool.joinConnection(connection);
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	@Test
+	public void timesOutWaitingForConnection() throws Exception
+	{
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+		poolConfig.setMinIdle(0);
+		poolConfig.setMaxTotal(1);
+		poolConfig.setAcquireTimeout(100);
+		poolConfig.setHousekeepingInterval(0);
+		ConnectionPool pool = new ConnectionPool(new H2ConnectionConfig("acquire_timeout"), poolConfig);
+		try
+		{
+			Connection connection = pool.getConnection();
+			long startTime = System.currentTimeMillis();
+			try
+			{
+				pool.getConnection();
+				fail();
+			}
+			catch(SQLTimeoutException exception)
+			{
+			}
+			assertTrue(System.currentTimeMillis() - startTime >= 100);
+			assertEquals(1, pool.getMetrics().getTimeoutCount());
+			assertEquals(0, pool.getWaitingCount());
+			//单独指定的等待时间优先于配置
+			try
+			{
+				pool.getConnection(10);
+				fail();
+			}
+			catch(SQLTimeoutException exception)
+			{
+			}
+			pool.joinConnection(connection);
+			assertSame(connection, pool.getConnection());
+			pool.joinConnection(connection);
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	@Test
+	public void keepsSizeWithinMinAndMax() throws Exception
+	{
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+		poolConfig.setMinIdle(2);
+		poolConfig.setMaxTotal(3);
+		poolConfig.setAcquireTimeout(10);
+		poolConfig.setHousekeepingInterval(0);
+		ConnectionPool pool = new ConnectionPool(new H2ConnectionConfig("pool_sizing"), poolConfig);
+		try
+		{
+			//最少保持的空闲连接在创建时就已经存在
+			assertEquals(2, pool.getSize());
+			assertEquals(2, pool.getTotalSize());
+			List<Connection> connections = new ArrayList<Connection>();
+			for(int i = 0; i < 3; i++)
+			{
+				connections.add(pool.getConnection());
+			}
+			assertEquals(3, pool.getTotalSize());
+			assertEquals(3, pool.getActiveSize());
+			try
+			{
+				pool.getConnection();
+				fail();
+			}
+			catch(SQLTimeoutException exception)
+			{
+			}
+			assertEquals(3, pool.getTotalSize());
+			for(Connection connection : connections)
+			{
+				pool.joinConnection(connection);
+			}
+			assertEquals(3, pool.getSize());
+			assertEquals(0, pool.getActiveSize());
+			//空闲连接按后进先出的顺序取出
+			assertSame(connections.get(2), pool.getConnection());
+			pool.joinConnection(connections.get(2));
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	@Test
+	public void evictsIdleConnectionsDownToMinIdle() throws Exception
+	{
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+		poolConfig.setMinIdle(1);
+		poolConfig.setMaxTotal(3);
+		poolConfig.setIdleTimeout(50);
+		poolConfig.setHousekeepingInterval(10);
+		ConnectionPool pool = new ConnectionPool(new H2ConnectionConfig("idle_eviction"), poolConfig);
+		try
+		{
+			List<Connection> connections = new ArrayList<Connection>();
+			for(int i = 0; i < 3; i++)
+			{
+				connections.add(pool.getConnection());
+			}
+			for(Connection connection : connections)
+			{
+				pool.joinConnection(connection);
+			}
+			long deadline = System.currentTimeMillis() + 5000;
+			while(pool.getTotalSize() > 1 && System.currentTimeMillis() < deadline)
+			{
+				Thread.sleep(5);
+			}
+			assertEquals(1, pool.getTotalSize());
+			assertEquals(1, pool.getSize());
+			assertEquals(2, pool.getMetrics().getClosedCount());
+			//最近归还的连接被保留
+			assertSame(connections.get(2), pool.getConnection());
+			assertTrue(connections.get(0).isClosed());
+			assertTrue(connections.get(1).isClosed());
+			pool.joinConnection(connections.get(2));
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	@Test
+	public void joinsConcurrentlyReturnedConnectionOnce() throws Exception
+	{
+		ConnectionPool pool = newPool("concurrent_join", 0);
+		try
+		{
+			for(int i = 0; i < 200; i++)
+			{
+				final ConnectionPool target = pool;
+				final Connection connection = pool.getConnection();
+				final CyclicBarrier barrier = new CyclicBarrier(4);
+				Thread[] threads = new Thread[4];
+				for(int j = 0; j < threads.length; j++)
+				{
+					threads[j] = new Thread(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							try
+							{
+								barrier.await();
+								target.joinConnection(connection);
+							}
+							catch(Exception exception)
+							{
+							}
+						}
+					});
+					threads[j].start();
+				}
+				for(Thread thread : threads)
+				{
+					thread.join();
+				}
+				assertEquals(1, pool.getSize());
+			}
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	@Test
+	public void legacyConstructorValidatesEveryBorrow() throws Exception
+	{
+		ConnectionPool pool = new ConnectionPool(new H2ConnectionConfig("legacy_validation"), 1);
+		try
+		{
+			Connection connection = pool.getConnection();
+			pool.joinConnection(connection);
+			assertSame(connection, pool.getConnection());
+			assertEquals(2, pool.getMetrics().getValidationCount());
+			//刚归还的失效连接也会在取出时被发现并替换
+			connection.close();
+			pool.joinConnection(connection);
+			Connection renewed = pool.getConnection();
+			assertNotSame(connection, renewed);
+			assertFalse(renewed.isClosed());
+			assertEquals(1, pool.getMetrics().getValidationFailureCount());
+			pool.joinConnection(renewed);
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	@Test
+	public void validatesOnlyAfterIdleThreshold() throws Exception
+	{
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+		poolConfig.setMinIdle(1);
+		poolConfig.setMaxTotal(1);
+		poolConfig.setHousekeepingInterval(0);
+		poolConfig.setValidationIdleThreshold(200);
+		ConnectionPool pool = new ConnectionPool(new H2ConnectionConfig("validation_threshold"), poolConfig);
+		try
+		{
+			Connection connection = pool.getConnection();
+			pool.joinConnection(connection);
+			pool.joinConnection(pool.getConnection());
+			assertEquals(0, pool.getMetrics().getValidationCount());
+			Thread.sleep(250);
+			pool.joinConnection(pool.getConnection());
+			assertEquals(1, pool.getMetrics().getValidationCount());
+			//归还时间在阈值内的连接不会再次验证
+			pool.joinConnection(pool.getConnection());
+			assertEquals(1, pool.getMetrics().getValidationCount());
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	//创建一个连接数量为 1 的连接池
+	static ConnectionPool newPool(String database, int statementCacheSize) throws Exception
+	{
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+		poolConfig.setMinIdle(1);
+		poolConfig.setMaxTotal(1);
+		poolConfig.setHousekeepingInterval(0);
+		poolConfig.setStatementCacheSize(statementCacheSize);
+		return new ConnectionPool(new H2ConnectionConfig(database), poolConfig);
+	}
+}
@@ -0,0 +1,77 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+/**
+ * 连接 H2 内存数据库的配置对象.
+ * @author wizardc
+ */
+public class H2ConnectionConfig implements IConnectionConfig
+{
+	//内存数据库的名称
+	private String _database;
+	
+	/**
+	 * 创建一个 H2ConnectionConfig 对象.
+	 * @param database 内存数据库的名称, 名称相同的配置会连接到同一个数据库.
+	 */
+	public H2ConnectionConfig(String database)
+	{
+		_database = database;
+	}
+	
+	@Override
+	public String getDriverClass()
+	{
+		return "org.h2.Driver";
+	}
+	
+	@Override
+	public String getConnectionHost()
+	{
+		return "mem";
+	}
+	
+	@Override
+	public int getConnectionPort()
+	{
+		return 0;
+	}
+	
+	@Override
+	public String getConnectionUsername()
+	{
+		return "sa";
+	}
+	
+	@Override
+	public String getConnectionPassword()
+	{
+		return "";
+	}
+	
+	@Override
+	public String getDatabase()
+	{
+		return _database;
+	}
+	
+	@Override
+	public String getOtherParam()
+	{
+		return ";DB_CLOSE_DELAY=-1";
+	}
+	
+	@Override
+	public String getConnectionString()
+	{
+		return "jdbc:h2:mem:" + getDatabase() + getOtherParam();
+	}
+}
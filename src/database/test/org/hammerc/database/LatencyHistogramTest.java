@@ -0,0 +1,112 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * LatencyHistogram 的测试.
+ * @author wizardc
+ */
+public class LatencyHistogramTest
+{
+	@Test
+	public void returnsZeroWithoutRecords()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getMean(), 0);
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(0, histogram.getPercentile(100));
+	}
+	
+	@Test
+	public void keepsSmallValuesExact()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 0; i < 64; i++)
+		{
+			histogram.record(i);
+		}
+		assertEquals(64, histogram.getCount());
+		assertEquals(63, histogram.getMax());
+		assertEquals(31.5, histogram.getMean(), 0);
+		assertEquals(0, histogram.getPercentile(0));
+		assertEquals(31, histogram.getPercentile(50));
+		assertEquals(62, histogram.getPercentile(98));
+		assertEquals(63, histogram.getPercentile(100));
+		//超出范围的百分位按边界计算
+		assertEquals(0, histogram.getPercentile(-1));
+		assertEquals(63, histogram.getPercentile(101));
+	}
+	
+	@Test
+	public void reportsBucketUpperBound()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		//64 及 65 在同一个分段中, 66 位于下一个分段
+		histogram.record(64);
+		assertEquals(64, histogram.getPercentile(50));
+		histogram.record(66);
+		assertEquals(65, histogram.getPercentile(50));
+		assertEquals(66, histogram.getPercentile(100));
+		histogram.record(65);
+		assertEquals(65, histogram.getPercentile(50));
+		assertEquals(3, histogram.getCount());
+		histogram.reset();
+		//2 的幂是新区间的起点
+		histogram.record(1023);
+		histogram.record(1024);
+		histogram.record(1100);
+		assertEquals(1023, histogram.getPercentile(33));
+		assertEquals(1055, histogram.getPercentile(66));
+		assertEquals(1100, histogram.getPercentile(100));
+	}
+	
+	@Test
+	public void staysWithinRelativeError()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		int count = 100000;
+		for(int i = 1; i <= count; i++)
+		{
+			histogram.record(i);
+		}
+		double[] percentiles = {1, 25, 50, 90, 99, 99.9};
+		for(double percentile : percentiles)
+		{
+			long exact = (long) Math.ceil(percentile / 100 * count);
+			long value = histogram.getPercentile(percentile);
+			assertTrue(percentile + ": " + value, value >= exact && value <= exact + exact / 32);
+		}
+		assertEquals(count, histogram.getPercentile(100));
+		assertEquals((count + 1) / 2.0, histogram.getMean(), 0);
+	}
+	
+	@Test
+	public void handlesExtremeValues()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(100));
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(100));
+	}
+}
@@ -0,0 +1,102 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * QueryCache 的测试.
+ * @author wizardc
+ */
+public class QueryCacheTest
+{
+	//各个测试共享的查询结果
+	private static QueryResult _result;
+	
+	@BeforeClass
+	public static void createResult() throws Exception
+	{
+		Connection connection = DriverManager.getConnection(new H2ConnectionConfig("query_cache").getConnectionString(), "sa", "");
+		try
+		{
+			Statement statement = connection.createStatement();
+			ResultSet resultSet = statement.executeQuery("SELECT 1 AS id");
+			_result = new QueryResult(resultSet);
+			statement.close();
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+	
+	@Test
+	public void keepsResultWhenUnrelatedTableIsInvalidated()
+	{
+		QueryCache cache = new QueryCache(16, 0);
+		long generation = cache.getGeneration();
+		cache.invalidate("orders");
+		cache.put(new String[] {"Users"}, _result, generation, "SELECT * FROM users", new Object[0]);
+		assertSame(_result, cache.get("SELECT * FROM users"));
+	}
+	
+	@Test
+	public void dropsResultWhenDependentTableIsInvalidated()
+	{
+		QueryCache cache = new QueryCache(16, 0);
+		long generation = cache.getGeneration();
+		cache.invalidate("USERS");
+		cache.put(new String[] {"orders", "users"}, _result, generation, "SELECT * FROM users, orders", new Object[0]);
+		assertNull(cache.get("SELECT * FROM users, orders"));
+		assertEquals(0, cache.size());
+		//失效之后获取的版本号可以正常缓存
+		cache.put(new String[] {"orders", "users"}, _result, cache.getGeneration(), "SELECT * FROM users, orders", new Object[0]);
+		assertSame(_result, cache.get("SELECT * FROM users, orders"));
+	}
+	
+	@Test
+	public void dropsEveryResultAfterInvalidateAll()
+	{
+		QueryCache cache = new QueryCache(16, 0);
+		long generation = cache.getGeneration();
+		cache.invalidate("orders");
+		cache.invalidateAll();
+		cache.put(new String[] {"users"}, _result, generation, "SELECT * FROM users", new Object[0]);
+		cache.put(null, _result, generation, "SELECT 1", new Object[0]);
+		assertEquals(0, cache.size());
+		generation = cache.getGeneration();
+		cache.put(new String[] {"orders"}, _result, generation, "SELECT * FROM orders", new Object[0]);
+		assertEquals(1, cache.size());
+	}
+	
+	@Test
+	public void invalidatesOnlyDependentResults()
+	{
+		QueryCache cache = new QueryCache(16, 0);
+		cache.put(new String[] {"users"}, _result, "SELECT * FROM users WHERE id = ?", 1);
+		cache.put(new String[] {"users"}, _result, "SELECT * FROM users WHERE id = ?", 2);
+		cache.put(new String[] {"orders"}, _result, "SELECT * FROM orders");
+		cache.invalidate("users");
+		assertNull(cache.get("SELECT * FROM users WHERE id = ?", 1));
+		assertNull(cache.get("SELECT * FROM users WHERE id = ?", 2));
+		assertSame(_result, cache.get("SELECT * FROM orders"));
+		assertEquals(2, cache.getInvalidationCount());
+	}
+}
@@ -0,0 +1,217 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Test;
+
+/**
+ * QueryCursor 的测试.
+ * @author wizardc
+ */
+public class QueryCursorTest
+{
+	@Test
+	public void streamsRowsAndReturnsConnection() throws Exception
+	{
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+		poolConfig.setMinIdle(1);
+		poolConfig.setMaxTotal(1);
+		poolConfig.setHousekeepingInterval(0);
+		ConnectionPool pool = new ConnectionPool(new H2ConnectionConfig("cursor"), poolConfig);
+		try
+		{
+			QueryCursor cursor = DatabaseUtils.openCursor(pool, "SELECT X FROM SYSTEM_RANGE(1, 100)", 10);
+			assertEquals(0, pool.getSize());
+			long sum = 0;
+			while(cursor.next())
+			{
+				sum += cursor.getResultSet().getLong(1);
+			}
+			assertTrue(cursor.isClosed());
+			assertEquals(100, cursor.getRowCount());
+			assertEquals(5050, sum);
+			assertEquals(1, pool.getSize());
+		}
+		finally
+		{
+			pool.cleanup();
+		}
+	}
+	
+	@Test
+	public void forwardsNegativeFetchSize() throws Exception
+	{
+		StubConnection stub = new StubConnection();
+		QueryCursor cursor = new QueryCursor(newPool(), stub.connection, "SELECT 1", Integer.MIN_VALUE);
+		assertEquals(Integer.MIN_VALUE, stub.fetchSize);
+		cursor.close();
+		stub = new StubConnection();
+		cursor = new QueryCursor(newPool(), stub.connection, "SELECT 1", 0);
+		assertFalse(stub.fetchSizeSet);
+		cursor.close();
+	}
+	
+	@Test
+	public void closesEveryResourceWhenResultSetCloseFails() throws Exception
+	{
+		StubConnection stub = new StubConnection();
+		stub.resultSetCloseFailure = new SQLException("result set");
+		QueryCursor cursor = new QueryCursor(newPool(), stub.connection, "SELECT 1", 0);
+		try
+		{
+			cursor.close();
+			fail();
+		}
+		catch(SQLException exception)
+		{
+			assertSame(stub.resultSetCloseFailure, exception);
+		}
+		assertTrue(cursor.isClosed());
+		assertTrue(stub.statementClosed);
+		assertTrue(stub.connectionClosed);
+		//重复关闭不会进行任何操作
+		cursor.close();
+	}
+	
+	@Test
+	public void keepsQueryFailureWhenCloseFails() throws Exception
+	{
+		StubConnection stub = new StubConnection();
+		stub.queryFailure = new SQLException("query");
+		stub.statementCloseFailure = new SQLException("statement");
+		try
+		{
+			new QueryCursor(newPool(), stub.connection, "SELECT 1", 0);
+			fail();
+		}
+		catch(SQLException exception)
+		{
+			assertSame(stub.queryFailure, exception);
+		}
+		assertTrue(stub.connectionClosed);
+	}
+	
+	//创建一个不持有连接的连接池, 归还不属于连接池的连接时会直接将其关闭
+	private static ConnectionPool newPool() throws Exception
+	{
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+		poolConfig.setMinIdle(0);
+		poolConfig.setHousekeepingInterval(0);
+		return new ConnectionPool(new H2ConnectionConfig("cursor_stub"), poolConfig);
+	}
+	
+	/**
+	 * 记录调用情况的连接, 语句对象及查询结果.
+	 * @author wizardc
+	 */
+	static class StubConnection
+	{
+		Connection connection;
+		Statement statement;
+		ResultSet resultSet;
+		int fetchSize;
+		boolean fetchSizeSet;
+		boolean statementClosed;
+		boolean connectionClosed;
+		SQLException queryFailure;
+		SQLException resultSetCloseFailure;
+		SQLException statementCloseFailure;
+		
+		StubConnection()
+		{
+			resultSet = newProxy(ResultSet.class, new InvocationHandler()
+			{
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+				{
+					if(method.getName().equals("close") && resultSetCloseFailure != null)
+					{
+						throw resultSetCloseFailure;
+					}
+					return null;
+				}
+			});
+			statement = newProxy(Statement.class, new InvocationHandler()
+			{
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+				{
+					String name = method.getName();
+					if(name.equals("setFetchSize"))
+					{
+						fetchSize = (Integer) args[0];
+						fetchSizeSet = true;
+					}
+					else if(name.equals("executeQuery"))
+					{
+						if(queryFailure != null)
+						{
+							throw queryFailure;
+						}
+						return resultSet;
+					}
+					else if(name.equals("close"))
+					{
+						statementClosed = true;
+						if(statementCloseFailure != null)
+						{
+							throw statementCloseFailure;
+						}
+					}
+					return null;
+				}
+			});
+			connection = newProxy(Connection.class, new InvocationHandler()
+			{
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args)
+				{
+					String name = method.getName();
+					if(name.equals("createStatement"))
+					{
+						return statement;
+					}
+					if(name.equals("close"))
+					{
+						connectionClosed = true;
+					}
+					else if(name.equals("hashCode"))
+					{
+						return System.identityHashCode(proxy);
+					}
+					else if(name.equals("equals"))
+					{
+						return proxy == args[0];
+					}
+					return null;
+				}
+			});
+		}
+		
+		private static <T> T newProxy(Class<T> type, InvocationHandler handler)
+		{
+			return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+		}
+	}
+}
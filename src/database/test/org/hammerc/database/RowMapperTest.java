@@ -0,0 +1,112 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * RowMapper 的测试.
+ * @author wizardc
+ */
+public class RowMapperTest
+{
+	//各个测试共享的连接池
+	private static ConnectionPool _pool;
+	
+	@BeforeClass
+	public static void createTable() throws Exception
+	{
+		_pool = ConnectionPoolTest.newPool("row_mapper", 0);
+		DatabaseUtils.executeSQL(_pool, "CREATE TABLE users (id INT NOT NULL, user_name VARCHAR(32), score BIGINT)");
+		DatabaseUtils.executeSQL(_pool, "INSERT INTO users VALUES (1, 'a', 10), (2, 'b', NULL), (3, 'c', 30)");
+	}
+	
+	@AfterClass
+	public static void dropPool() throws Exception
+	{
+		_pool.cleanup();
+	}
+	
+	@Test
+	public void mapsRowsByLabel() throws Exception
+	{
+		ArrayList<User> users = DatabaseUtils.executeMappedQuery(_pool, User.class, "SELECT id, user_name, score FROM users WHERE id > ? ORDER BY id", 0);
+		assertEquals(3, users.size());
+		assertEquals(1, users.get(0).id);
+		assertEquals("a", users.get(0).userName);
+		assertEquals(Long.valueOf(10), users.get(0).score);
+		assertNull(users.get(1).score);
+		assertEquals("c", users.get(2).userName);
+	}
+	
+	@Test
+	public void mapsRowsOfDifferentColumnSets() throws Exception
+	{
+		RowMapper<User> mapper = RowMapper.forClass(User.class);
+		Connection connection = _pool.getConnection();
+		try
+		{
+			Statement statement = connection.createStatement();
+			ResultSet first = statement.executeQuery("SELECT id, user_name FROM users ORDER BY id");
+			Statement other = connection.createStatement();
+			ResultSet second = other.executeQuery("SELECT id * 10 AS score FROM users ORDER BY 1");
+			//交替读取两个字段组合不同的查询结果
+			while(first.next() && second.next())
+			{
+				User user = mapper.mapRow(first);
+				User swapped = mapper.mapRow(second);
+				assertEquals(user.id * 10, swapped.score.intValue());
+				assertEquals(0, swapped.id);
+				assertNull(swapped.userName);
+				assertNull(user.score);
+			}
+			statement.close();
+			other.close();
+		}
+		finally
+		{
+			_pool.joinConnection(connection);
+		}
+	}
+	
+	@Test
+	public void mapsCursorRows() throws Exception
+	{
+		QueryCursor cursor = DatabaseUtils.openCursor(_pool, "SELECT id, user_name FROM users ORDER BY id", 2);
+		assertTrue(cursor.next());
+		ArrayList<User> users = RowMapper.forClass(User.class).mapAll(cursor);
+		assertEquals(2, users.size());
+		assertEquals(2, users.get(0).id);
+		assertEquals("c", users.get(1).userName);
+		assertTrue(cursor.isClosed());
+	}
+	
+	/**
+	 * 映射的目标类型.
+	 * @author wizardc
+	 */
+	public static class User
+	{
+		int id;
+		String userName;
+		Long score;
+	}
+}
@@ -0,0 +1,392 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * CompressionDictionary 类记录一个用于 Deflate 压缩的预设字典, 使用编号及版本进行标识.
+ * <p>短消息压缩时滑动窗口为空, 几乎找不到可以引用的重复数据. 预先放入消息中常见的片段后, 即使很短的消息也可以直接引用字典中的内容. 字典末尾的内容距离消息更近, 编码的代价更小, 因此越常见的片段放在越靠后的位置.</p>
+ * @author wizardc
+ */
+public class CompressionDictionary
+{
+	/**
+	 * 默认的字典大小.
+	 */
+	public static final int DEFAULT_SIZE = 16 * 1024;
+	
+	//训练时统计的片段长度
+	private static final int SEGMENT_LENGTH = 16;
+	//训练时片段的采样步长
+	private static final int SEGMENT_STEP = 4;
+	
+	//字典的编号
+	private int _id;
+	//字典的版本
+	private int _version;
+	//字典的内容
+	private byte[] _data;
+	
+	/**
+	 * 创建一个 CompressionDictionary 对象.
+	 * @param id 字典的编号, 为 0 到 65535 之间的值.
+	 * @param version 字典的版本, 为 0 到 65535 之间的值.
+	 * @param data 字典的内容, 会进行复制.
+	 * @throws IllegalArgumentException 编号或版本超出范围, 或字典内容为空时抛出该异常.
+	 */
+	public CompressionDictionary(int id, int version, byte[] data) throws IllegalArgumentException
+	{
+		if(id < 0 || id > 0xffff || version < 0 || version > 0xffff)
+		{
+			throw new IllegalArgumentException("The dictionary id or version is out of range!");
+		}
+		if(data.length == 0)
+		{
+			throw new IllegalArgumentException("The dictionary is empty!");
+		}
+		_id = id;
+		_version = version;
+		_data = data.clone();
+	}
+	
+	/**
+	 * 使用样本数据训练一个字典.
+	 * <p>统计每个固定长度的片段出现在多少个样本中, 选取出现在至少两个样本中的片段, 按出现次数从少到多拼接, 超出字典大小时丢弃出现次数最少的片段. 采样的片段互相重叠, 同一段重复内容会被多个片段覆盖, 拼接时重叠的片段会合并为一段, 字典中不会出现重复的内容.</p>
+	 * @param id 字典的编号, 为 0 到 65535 之间的值.
+	 * @param version 字典的版本, 为 0 到 65535 之间的值.
+	 * @param samples 样本数据, 应该来自实际的消息.
+	 * @param maxSize 字典的最大长度.
+	 * @return 字典对象.
+	 * @throws IllegalArgumentException 编号或版本超出范围, 或样本中没有重复的片段时抛出该异常.
+	 */
+	public static CompressionDictionary train(int id, int version, Collection<byte[]> samples, int maxSize) throws IllegalArgumentException
+	{
+		final HashMap<Segment, Integer> counts = new HashMap<Segment, Integer>();
+		HashSet<Segment> seen = new HashSet<Segment>();
+		for(byte[] sample : samples)
+		{
+			seen.clear();
+			for(int i = 0; i + SEGMENT_LENGTH <= sample.length; i += SEGMENT_STEP)
+			{
+				Segment segment = new Segment(sample, i);
+				//同一个样本中重复的片段只统计一次, 样本自身的重复不需要字典
+				if(seen.add(segment))
+				{
+					Integer count = counts.get(segment);
+					counts.put(segment, count == null ? 1 : count + 1);
+				}
+			}
+		}
+		ArrayList<Map.Entry<Segment, Integer>> entries = new ArrayList<Map.Entry<Segment, Integer>>();
+		for(Map.Entry<Segment, Integer> entry : counts.entrySet())
+		{
+			if(entry.getValue() > 1)
+			{
+				entries.add(entry);
+			}
+		}
+		//出现次数多的排在前面, 次数相同时按内容排序保证结果稳定
+		Collections.sort(entries, new Comparator<Map.Entry<Segment, Integer>>()
+		{
+			@Override
+			public int compare(Map.Entry<Segment, Integer> a, Map.Entry<Segment, Integer> b)
+			{
+				int result = b.getValue().compareTo(a.getValue());
+				return result != 0 ? result : a.getKey().compareTo(b.getKey());
+			}
+		});
+		DictionaryBuilder builder = new DictionaryBuilder(maxSize);
+		for(Map.Entry<Segment, Integer> entry : entries)
+		{
+			if(!builder.add(entry.getKey()))
+			{
+				break;
+			}
+		}
+		byte[] data = builder.toBytes();
+		if(data.length == 0)
+		{
+			throw new IllegalArgumentException("The samples have no common segments!");
+		}
+		return new CompressionDictionary(id, version, data);
+	}
+	
+	/**
+	 * 获取字典的编号.
+	 * @return 字典的编号.
+	 */
+	public int getId()
+	{
+		return _id;
+	}
+	
+	/**
+	 * 获取字典的版本.
+	 * @return 字典的版本.
+	 */
+	public int getVersion()
+	{
+		return _version;
+	}
+	
+	/**
+	 * 获取字典的内容, 返回的数组不应被修改.
+	 * @return 字典的内容.
+	 */
+	public byte[] getData()
+	{
+		return _data;
+	}
+	
+	/**
+	 * 拼接字典内容, 与已有内容重叠的片段只加入不重叠的部分, 首尾重叠的内容合并为一段.
+	 * @author wizardc
+	 */
+	static class DictionaryBuilder
+	{
+		//合并时至少需要重叠的字节数
+		private static final int MIN_OVERLAP = SEGMENT_STEP;
+		
+		//字典的最大长度
+		private int _maxSize;
+		//所有内容的总长度
+		private int _size;
+		//互不重叠的内容, 先加入的片段出现次数更多
+		private ArrayList<Piece> _pieces = new ArrayList<Piece>();
+		//已经包含在字典中的片段
+		private HashSet<Segment> _covered = new HashSet<Segment>();
+		//所有内容开头及结尾的字节, 键为不同长度的前缀及后缀
+		private HashMap<ByteBuffer, Piece> _heads = new HashMap<ByteBuffer, Piece>();
+		private HashMap<ByteBuffer, Piece> _tails = new HashMap<ByteBuffer, Piece>();
+		
+		DictionaryBuilder(int maxSize)
+		{
+			_maxSize = maxSize;
+		}
+		
+		/**
+		 * 加入一个片段, 已经包含在字典中时忽略.
+		 * @param segment 片段.
+		 * @return 超出字典大小无法加入时返回 false.
+		 */
+		boolean add(Segment segment)
+		{
+			if(_covered.contains(segment))
+			{
+				return true;
+			}
+			Piece piece = new Piece(Arrays.copyOfRange(segment.data, segment.offset, segment.offset + SEGMENT_LENGTH));
+			//查找重叠最多的内容
+			Piece other = null;
+			boolean before = false;
+			int overlap = SEGMENT_LENGTH - 1;
+			for(; overlap >= MIN_OVERLAP; overlap--)
+			{
+				other = _tails.get(ByteBuffer.wrap(piece.data, 0, overlap));
+				if(other != null)
+				{
+					before = true;
+					break;
+				}
+				other = _heads.get(ByteBuffer.wrap(piece.data, SEGMENT_LENGTH - overlap, overlap));
+				if(other != null)
+				{
+					break;
+				}
+			}
+			if(other == null)
+			{
+				overlap = 0;
+			}
+			if(_size + SEGMENT_LENGTH - overlap > _maxSize)
+			{
+				return false;
+			}
+			_size += SEGMENT_LENGTH;
+			_pieces.add(piece);
+			index(piece, true);
+			_covered.add(new Segment(piece.data, 0));
+			if(other != null)
+			{
+				piece = before ? merge(other, piece, overlap) : merge(piece, other, overlap);
+			}
+			bridge(piece);
+			return true;
+		}
+		
+		//合并后的内容可能与另一段内容首尾重叠
+		private void bridge(Piece piece)
+		{
+			boolean merged = true;
+			while(merged)
+			{
+				merged = false;
+				for(int overlap = SEGMENT_LENGTH - 1; overlap >= MIN_OVERLAP && !merged; overlap--)
+				{
+					Piece other = _heads.get(ByteBuffer.wrap(piece.data, piece.data.length - overlap, overlap));
+					if(other != null && other != piece)
+					{
+						piece = merge(piece, other, overlap);
+						merged = true;
+						continue;
+					}
+					other = _tails.get(ByteBuffer.wrap(piece.data, 0, overlap));
+					if(other != null && other != piece)
+					{
+						piece = merge(other, piece, overlap);
+						merged = true;
+					}
+				}
+			}
+		}
+		
+		//将 second 去掉重叠部分后接在 first 之后, 结果保留在先加入的对象中
+		private Piece merge(Piece first, Piece second, int overlap)
+		{
+			index(first, false);
+			index(second, false);
+			int junction = first.data.length;
+			byte[] data = new byte[junction + second.data.length - overlap];
+			System.arraycopy(first.data, 0, data, 0, junction);
+			System.arraycopy(second.data, overlap, data, junction, second.data.length - overlap);
+			Piece result = _pieces.indexOf(first) < _pieces.indexOf(second) ? first : second;
+			_pieces.remove(result == first ? second : first);
+			result.data = data;
+			index(result, true);
+			_size -= overlap;
+			//只有跨过连接处的片段是新出现的
+			for(int i = Math.max(0, junction - SEGMENT_LENGTH + 1); i < junction - overlap && i + SEGMENT_LENGTH <= data.length; i++)
+			{
+				_covered.add(new Segment(data, i));
+			}
+			return result;
+		}
+		
+		private void index(Piece piece, boolean add)
+		{
+			byte[] data = piece.data;
+			for(int overlap = MIN_OVERLAP; overlap < SEGMENT_LENGTH; overlap++)
+			{
+				ByteBuffer head = ByteBuffer.wrap(data, 0, overlap);
+				ByteBuffer tail = ByteBuffer.wrap(data, data.length - overlap, overlap);
+				if(add)
+				{
+					_heads.put(head, piece);
+					_tails.put(tail, piece);
+				}
+				else
+				{
+					if(_heads.get(head) == piece)
+					{
+						_heads.remove(head);
+					}
+					if(_tails.get(tail) == piece)
+					{
+						_tails.remove(tail);
+					}
+				}
+			}
+		}
+		
+		/**
+		 * 拼接所有内容, 先加入的内容放在后面.
+		 * @return 字典的内容.
+		 */
+		byte[] toBytes()
+		{
+			byte[] data = new byte[_size];
+			int position = 0;
+			for(int i = _pieces.size() - 1; i >= 0; i--)
+			{
+				byte[] piece = _pieces.get(i).data;
+				System.arraycopy(piece, 0, data, position, piece.length);
+				position += piece.length;
+			}
+			return data;
+		}
+	}
+	
+	/**
+	 * 拼接中的一段连续内容.
+	 * @author wizardc
+	 */
+	static class Piece
+	{
+		byte[] data;
+		
+		Piece(byte[] data)
+		{
+			this.data = data;
+		}
+	}
+	
+	/**
+	 * 样本中的一个片段.
+	 * @author wizardc
+	 */
+	static class Segment implements Comparable<Segment>
+	{
+		final byte[] data;
+		final int offset;
+		private final int _hashCode;
+		
+		Segment(byte[] data, int offset)
+		{
+			this.data = data;
+			this.offset = offset;
+			int hash = 1;
+			for(int i = 0; i < SEGMENT_LENGTH; i++)
+			{
+				hash = hash * 31 + data[offset + i];
+			}
+			_hashCode = hash;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return _hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object object)
+		{
+			if(!(object instanceof Segment))
+			{
+				return false;
+			}
+			Segment segment = (Segment) object;
+			return _hashCode == segment._hashCode && compareTo(segment) == 0;
+		}
+		
+		@Override
+		public int compareTo(Segment segment)
+		{
+			for(int i = 0; i < SEGMENT_LENGTH; i++)
+			{
+				int result = (data[offset + i] & 0xff) - (segment.data[segment.offset + i] & 0xff);
+				if(result != 0)
+				{
+					return result;
+				}
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,340 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+
+/**
+ * Compressor 类使用指定的压缩算法将数据编码为带有算法编号的数据帧, 解码时按帧中的编号自动选择算法.
+ * <p>数据帧的第一个字节为算法编号, 为 0 时后面直接跟随原始数据, 否则后面跟随 4 字节大端序的原始长度及压缩后的数据.</p>
+ * <p>小于压缩阈值的数据及压缩后与原始长度之比超过最大压缩比的数据会按原始数据写入. 最近的平均压缩比持续超过最大压缩比时只会对部分数据尝试压缩, 以减少对无法压缩的数据的无效计算. 该类是线程安全的.</p>
+ * @author wizardc
+ */
+public class Compressor
+{
+	/**
+	 * 未压缩数据的算法编号.
+	 */
+	public static final int STORED = 0;
+	
+	/**
+	 * 默认的压缩阈值.
+	 */
+	public static final int DEFAULT_THRESHOLD = 128;
+	
+	/**
+	 * 默认的最大压缩比.
+	 */
+	public static final double DEFAULT_MAX_RATIO = 0.9;
+	
+	/**
+	 * 默认的解码后数据的最大长度.
+	 */
+	public static final int DEFAULT_MAX_DECODED_LENGTH = 64 * 1024 * 1024;
+	
+	//平均压缩比持续过高时每隔多少次尝试压缩一次
+	private static final int SAMPLE_INTERVAL = 16;
+	
+	//编码使用的压缩算法
+	private ICompressionCodec _codec;
+	//解码时可以使用的压缩算法, 索引为算法编号
+	private volatile ICompressionCodec[] _codecs;
+	//压缩阈值, 小于该长度的数据不进行压缩
+	private volatile int _threshold = DEFAULT_THRESHOLD;
+	//最大压缩比
+	private volatile double _maxRatio = DEFAULT_MAX_RATIO;
+	//解码后数据的最大长度
+	private volatile int _maxDecodedLength = DEFAULT_MAX_DECODED_LENGTH;
+	//最近尝试压缩的平均压缩比, 使用指数移动平均计算
+	private volatile double _averageRatio = 0;
+	//平均压缩比过高时跳过的次数
+	private AtomicLong _sampleCounter;
+	//编码的次数
+	private AtomicLong _encodedCount;
+	//按压缩后数据写入的次数
+	private AtomicLong _compressedCount;
+	//小于压缩阈值的次数
+	private AtomicLong _belowThresholdCount;
+	//尝试压缩后因压缩比过高按原始数据写入的次数
+	private AtomicLong _poorRatioCount;
+	//因平均压缩比过高未尝试压缩的次数
+	private AtomicLong _sampledOutCount;
+	
+	/**
+	 * 创建一个 Compressor 对象, 解码时可以使用 ZLibCodec, DeflateCodec 及 LZ4Codec.
+	 * @param codec 编码使用的压缩算法.
+	 */
+	public Compressor(ICompressionCodec codec)
+	{
+		_codec = codec;
+		_codecs = new ICompressionCodec[256];
+		_sampleCounter = new AtomicLong();
+		_encodedCount = new AtomicLong();
+		_compressedCount = new AtomicLong();
+		_belowThresholdCount = new AtomicLong();
+		_poorRatioCount = new AtomicLong();
+		_sampledOutCount = new AtomicLong();
+		registerCodec(new ZLibCodec());
+		registerCodec(new DeflateCodec());
+		registerCodec(new LZ4Codec());
+		registerCodec(codec);
+	}
+	
+	/**
+	 * 注册一个解码时可以使用的压缩算法, 相同编号的算法会被替换.
+	 * @param codec 压缩算法.
+	 * @throws IllegalArgumentException 算法编号不在 1 到 255 之间时抛出该异常.
+	 */
+	public synchronized void registerCodec(ICompressionCodec codec) throws IllegalArgumentException
+	{
+		int id = codec.getId();
+		if(id < 1 || id > 255)
+		{
+			throw new IllegalArgumentException("The codec id \"" + id + "\" is out of range!");
+		}
+		ICompressionCodec[] codecs = _codecs.clone();
+		codecs[id] = codec;
+		_codecs = codecs;
+	}
+	
+	/**
+	 * 获取指定编号的压缩算法.
+	 * @param id 算法编号.
+	 * @return 压缩算法, 不存在时返回 null.
+	 */
+	public ICompressionCodec getCodec(int id)
+	{
+		return id < 1 || id > 255 ? null : _codecs[id];
+	}
+	
+	/**
+	 * 获取编码使用的压缩算法.
+	 * @return 编码使用的压缩算法.
+	 */
+	public ICompressionCodec getCodec()
+	{
+		return _codec;
+	}
+	
+	/**
+	 * 设置压缩阈值.
+	 * @param threshold 压缩阈值, 小于该长度的数据不进行压缩, 默认为 128 字节.
+	 */
+	public void setThreshold(int threshold)
+	{
+		_threshold = Math.max(0, threshold);
+	}
+	
+	/**
+	 * 获取压缩阈值.
+	 * @return 压缩阈值.
+	 */
+	public int getThreshold()
+	{
+		return _threshold;
+	}
+	
+	/**
+	 * 设置最大压缩比, 压缩后与原始长度之比超过该值时按原始数据写入.
+	 * @param maxRatio 最大压缩比, 默认为 0.9.
+	 */
+	public void setMaxRatio(double maxRatio)
+	{
+		_maxRatio = maxRatio;
+	}
+	
+	/**
+	 * 获取最大压缩比.
+	 * @return 最大压缩比.
+	 */
+	public double getMaxRatio()
+	{
+		return _maxRatio;
+	}
+	
+	/**
+	 * 设置解码后数据的最大长度, 数据帧中记录的原始长度超过该值时解码失败, 用于防止恶意数据耗尽内存.
+	 * @param maxDecodedLength 解码后数据的最大长度, 默认为 64MB.
+	 */
+	public void setMaxDecodedLength(int maxDecodedLength)
+	{
+		_maxDecodedLength = Math.max(0, maxDecodedLength);
+	}
+	
+	/**
+	 * 获取解码后数据的最大长度.
+	 * @return 解码后数据的最大长度.
+	 */
+	public int getMaxDecodedLength()
+	{
+		return _maxDecodedLength;
+	}
+	
+	/**
+	 * 将数据编码为数据帧.
+	 * @param data 原始数据.
+	 * @return 数据帧.
+	 */
+	public byte[] encode(byte[] data)
+	{
+		return encode(data, 0, data.length);
+	}
+	
+	/**
+	 * 将数据编码为数据帧.
+	 * @param data 原始数据.
+	 * @param offset 数据的起始位置.
+	 * @param length 数据的长度.
+	 * @return 数据帧.
+	 */
+	public byte[] encode(byte[] data, int offset, int length)
+	{
+		_encodedCount.incrementAndGet();
+		if(length < _threshold)
+		{
+			_belowThresholdCount.incrementAndGet();
+			return stored(data, offset, length);
+		}
+		double maxRatio = _maxRatio;
+		if(_averageRatio > maxRatio && _sampleCounter.incrementAndGet() % SAMPLE_INTERVAL != 0)
+		{
+			_sampledOutCount.incrementAndGet();
+			return stored(data, offset, length);
+		}
+		byte[] compressed = _codec.compress(data, offset, length);
+		double ratio = length == 0 ? 1 : (double) compressed.length / length;
+		_averageRatio = _averageRatio == 0 ? ratio : _averageRatio * 0.9 + ratio * 0.1;
+		if(ratio > maxRatio || compressed.length + 5 >= length + 1)
+		{
+			_poorRatioCount.incrementAndGet();
+			return stored(data, offset, length);
+		}
+		_compressedCount.incrementAndGet();
+		byte[] frame = new byte[5 + compressed.length];
+		frame[0] = (byte) _codec.getId();
+		frame[1] = (byte) (length >>> 24);
+		frame[2] = (byte) (length >>> 16);
+		frame[3] = (byte) (length >>> 8);
+		frame[4] = (byte) length;
+		System.arraycopy(compressed, 0, frame, 5, compressed.length);
+		return frame;
+	}
+	
+	private static byte[] stored(byte[] data, int offset, int length)
+	{
+		byte[] frame = new byte[1 + length];
+		frame[0] = STORED;
+		System.arraycopy(data, offset, frame, 1, length);
+		return frame;
+	}
+	
+	/**
+	 * 解码数据帧.
+	 * @param frame 数据帧.
+	 * @return 原始数据.
+	 * @throws DataFormatException 数据帧损坏, 算法编号未注册或原始长度超过最大长度时抛出该异常.
+	 */
+	public byte[] decode(byte[] frame) throws DataFormatException
+	{
+		return decode(frame, 0, frame.length);
+	}
+	
+	/**
+	 * 解码数据帧.
+	 * @param frame 数据帧.
+	 * @param offset 数据帧的起始位置.
+	 * @param length 数据帧的长度.
+	 * @return 原始数据.
+	 * @throws DataFormatException 数据帧损坏, 算法编号未注册或原始长度超过最大长度时抛出该异常.
+	 */
+	public byte[] decode(byte[] frame, int offset, int length) throws DataFormatException
+	{
+		if(length < 1)
+		{
+			throw new DataFormatException("The frame is empty!");
+		}
+		int id = frame[offset] & 0xff;
+		if(id == STORED)
+		{
+			return Arrays.copyOfRange(frame, offset + 1, offset + length);
+		}
+		ICompressionCodec codec = _codecs[id];
+		if(codec == null)
+		{
+			throw new DataFormatException("Unknown codec id \"" + id + "\"!");
+		}
+		if(length < 5)
+		{
+			throw new DataFormatException("The frame header is truncated!");
+		}
+		int originalLength = (frame[offset + 1] & 0xff) << 24 | (frame[offset + 2] & 0xff) << 16 | (frame[offset + 3] & 0xff) << 8 | (frame[offset + 4] & 0xff);
+		if(originalLength < 0 || originalLength > _maxDecodedLength)
+		{
+			throw new DataFormatException("The original length \"" + originalLength + "\" exceeds the limit!");
+		}
+		return codec.decompress(frame, offset + 5, length - 5, originalLength);
+	}
+	
+	/**
+	 * 获取编码的次数.
+	 * @return 编码的次数.
+	 */
+	public long getEncodedCount()
+	{
+		return _encodedCount.get();
+	}
+	
+	/**
+	 * 获取按压缩后数据写入的次数.
+	 * @return 按压缩后数据写入的次数.
+	 */
+	public long getCompressedCount()
+	{
+		return _compressedCount.get();
+	}
+	
+	/**
+	 * 获取因小于压缩阈值按原始数据写入的次数.
+	 * @return 小于压缩阈值的次数.
+	 */
+	public long getBelowThresholdCount()
+	{
+		return _belowThresholdCount.get();
+	}
+	
+	/**
+	 * 获取尝试压缩后因压缩比过高按原始数据写入的次数.
+	 * @return 压缩比过高的次数.
+	 */
+	public long getPoorRatioCount()
+	{
+		return _poorRatioCount.get();
+	}
+	
+	/**
+	 * 获取因最近的平均压缩比过高未尝试压缩的次数.
+	 * @return 未尝试压缩的次数.
+	 */
+	public long getSampledOutCount()
+	{
+		return _sampledOutCount.get();
+	}
+	
+	/**
+	 * 获取最近尝试压缩的平均压缩比.
+	 * @return 平均压缩比, 没有尝试过压缩时返回 0.
+	 */
+	public double getAverageRatio()
+	{
+		return _averageRatio;
+	}
+}
@@ -0,0 +1,54 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import java.util.zip.Deflater;
+
+/**
+ * 使用原始 Deflate 格式进行压缩的算法, 省去了 ZLib 头及校验和, 适合本身已经有校验的短消息.
+ * @author wizardc
+ */
+public class DeflateCodec extends ZLibCodec
+{
+	/**
+	 * 算法的编号.
+	 */
+	public static final int ID = 2;
+	
+	/**
+	 * 使用默认的压缩级别创建一个 DeflateCodec 对象.
+	 */
+	public DeflateCodec()
+	{
+		this(Deflater.DEFAULT_COMPRESSION);
+	}
+	
+	/**
+	 * 创建一个 DeflateCodec 对象.
+	 * @param level 压缩级别, 为 -1 到 9 之间的值.
+	 * @throws IllegalArgumentException 压缩级别无效时抛出该异常.
+	 */
+	public DeflateCodec(int level) throws IllegalArgumentException
+	{
+		super(level, true);
+	}
+	
+	@Override
+	public int getId()
+	{
+		return ID;
+	}
+	
+	@Override
+	public String getName()
+	{
+		return "deflate";
+	}
+}
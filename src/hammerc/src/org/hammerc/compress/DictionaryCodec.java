@@ -0,0 +1,209 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import org.hammerc.utils.ZLibUtil;
+
+/**
+ * 使用预设字典进行原始 Deflate 压缩的算法, 适合大量内容相似的短消息.
+ * <p>压缩数据的前 4 个字节为 2 字节的字典编号及 2 字节的字典版本, 解码时按编号及版本选择字典. 更新字典时添加同一编号的新版本即可, 旧版本仍然保留用于解码已经发出的消息.</p>
+ * @author wizardc
+ */
+public class DictionaryCodec implements ICompressionCodec
+{
+	/**
+	 * 算法的编号.
+	 */
+	public static final int ID = 4;
+	
+	//压缩级别
+	private int _level;
+	//所有可以用于解码的字典, 键为编号及版本的组合
+	private ConcurrentHashMap<Integer, CompressionDictionary> _dictionaries;
+	//编码使用的字典
+	private volatile CompressionDictionary _current;
+	
+	/**
+	 * 使用默认的压缩级别创建一个 DictionaryCodec 对象.
+	 */
+	public DictionaryCodec()
+	{
+		this(Deflater.DEFAULT_COMPRESSION);
+	}
+	
+	/**
+	 * 创建一个 DictionaryCodec 对象.
+	 * @param level 压缩级别, 为 -1 到 9 之间的值.
+	 * @throws IllegalArgumentException 压缩级别无效时抛出该异常.
+	 */
+	public DictionaryCodec(int level) throws IllegalArgumentException
+	{
+		if(level < -1 || level > 9)
+		{
+			throw new IllegalArgumentException("The compression level \"" + level + "\" is invalid!");
+		}
+		_level = level;
+		_dictionaries = new ConcurrentHashMap<Integer, CompressionDictionary>();
+	}
+	
+	@Override
+	public int getId()
+	{
+		return ID;
+	}
+	
+	@Override
+	public String getName()
+	{
+		return "deflate-dictionary";
+	}
+	
+	/**
+	 * 添加一个字典, 相同编号及版本的字典会被替换.
+	 * <p>还没有编码使用的字典, 或者添加的字典与编码使用的字典编号相同且版本更高时, 之后的编码会使用该字典.</p>
+	 * @param dictionary 字典对象.
+	 */
+	public synchronized void addDictionary(CompressionDictionary dictionary)
+	{
+		_dictionaries.put(key(dictionary.getId(), dictionary.getVersion()), dictionary);
+		CompressionDictionary current = _current;
+		if(current == null || (current.getId() == dictionary.getId() && current.getVersion() <= dictionary.getVersion()))
+		{
+			_current = dictionary;
+		}
+	}
+	
+	/**
+	 * 移除一个字典, 移除编码使用的字典后需要重新指定.
+	 * @param id 字典的编号.
+	 * @param version 字典的版本.
+	 * @return 是否移除成功.
+	 */
+	public synchronized boolean removeDictionary(int id, int version)
+	{
+		CompressionDictionary dictionary = _dictionaries.remove(key(id, version));
+		if(dictionary != null && dictionary == _current)
+		{
+			_current = null;
+		}
+		return dictionary != null;
+	}
+	
+	/**
+	 * 指定编码使用的字典, 使用该编号已添加的最高版本.
+	 * @param id 字典的编号.
+	 * @throws IllegalArgumentException 没有该编号的字典时抛出该异常.
+	 */
+	public synchronized void useDictionary(int id) throws IllegalArgumentException
+	{
+		CompressionDictionary selected = null;
+		for(CompressionDictionary dictionary : _dictionaries.values())
+		{
+			if(dictionary.getId() == id && (selected == null || dictionary.getVersion() > selected.getVersion()))
+			{
+				selected = dictionary;
+			}
+		}
+		if(selected == null)
+		{
+			throw new IllegalArgumentException("The dictionary \"" + id + "\" does not exist!");
+		}
+		_current = selected;
+	}
+	
+	/**
+	 * 获取指定编号及版本的字典.
+	 * @param id 字典的编号.
+	 * @param version 字典的版本.
+	 * @return 字典对象, 不存在时返回 null.
+	 */
+	public CompressionDictionary getDictionary(int id, int version)
+	{
+		return _dictionaries.get(key(id, version));
+	}
+	
+	/**
+	 * 获取编码使用的字典.
+	 * @return 编码使用的字典, 没有时返回 null.
+	 */
+	public CompressionDictionary getCurrentDictionary()
+	{
+		return _current;
+	}
+	
+	private static Integer key(int id, int version)
+	{
+		return id << 16 | version;
+	}
+	
+	/**
+	 * 使用当前的字典压缩数据.
+	 * @param data 待压缩数据.
+	 * @param offset 数据的起始位置.
+	 * @param length 数据的长度.
+	 * @return 压缩后的数据.
+	 * @throws IllegalStateException 没有编码使用的字典时抛出该异常.
+	 */
+	@Override
+	public byte[] compress(byte[] data, int offset, int length) throws IllegalStateException
+	{
+		CompressionDictionary dictionary = _current;
+		if(dictionary == null)
+		{
+			throw new IllegalStateException("No dictionary is selected for compression!");
+		}
+		byte[] output = new byte[4 + ZLibUtil.compressBound(length)];
+		output[0] = (byte) (dictionary.getId() >>> 8);
+		output[1] = (byte) dictionary.getId();
+		output[2] = (byte) (dictionary.getVersion() >>> 8);
+		output[3] = (byte) dictionary.getVersion();
+		ByteBuffer dst = ByteBuffer.wrap(output, 4, output.length - 4);
+		int size = ZLibUtil.compress(ByteBuffer.wrap(data, offset, length), dst, _level, true, dictionary.getData());
+		return Arrays.copyOf(output, 4 + size);
+	}
+	
+	@Override
+	public byte[] decompress(byte[] data, int offset, int length, int originalLength) throws DataFormatException
+	{
+		if(length < 4)
+		{
+			throw new DataFormatException("The dictionary header is truncated!");
+		}
+		int id = (data[offset] & 0xff) << 8 | (data[offset + 1] & 0xff);
+		int version = (data[offset + 2] & 0xff) << 8 | (data[offset + 3] & 0xff);
+		CompressionDictionary dictionary = _dictionaries.get(key(id, version));
+		if(dictionary == null)
+		{
+			throw new DataFormatException("Unknown dictionary \"" + id + "\" version \"" + version + "\"!");
+		}
+		byte[] output = new byte[originalLength];
+		int size;
+		try
+		{
+			size = ZLibUtil.decompress(ByteBuffer.wrap(data, offset + 4, length - 4), ByteBuffer.wrap(output), true, dictionary.getData());
+		}
+		catch(BufferOverflowException exception)
+		{
+			throw new DataFormatException("The decompressed data is longer than " + originalLength + " bytes!");
+		}
+		if(size != originalLength)
+		{
+			throw new DataFormatException("The decompressed data is shorter than " + originalLength + " bytes!");
+		}
+		return output;
+	}
+}
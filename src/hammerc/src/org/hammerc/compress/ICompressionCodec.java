@@ -0,0 +1,52 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * 定义了压缩算法的接口, 每种算法使用一个唯一的编号写入数据帧, 解码时按编号选择对应的算法.
+ * <p>实现类需要是线程安全的.</p>
+ * @author wizardc
+ */
+public interface ICompressionCodec
+{
+	/**
+	 * 获取算法的编号, 为 1 到 255 之间的值, 0 保留给未压缩的数据.
+	 * @return 算法的编号.
+	 */
+	public int getId();
+	
+	/**
+	 * 获取算法的名称.
+	 * @return 算法的名称.
+	 */
+	public String getName();
+	
+	/**
+	 * 压缩数据.
+	 * @param data 待压缩数据.
+	 * @param offset 数据的起始位置.
+	 * @param length 数据的长度.
+	 * @return 压缩后的数据.
+	 */
+	public byte[] compress(byte[] data, int offset, int length);
+	
+	/**
+	 * 解压数据.
+	 * @param data 待解压的数据.
+	 * @param offset 数据的起始位置.
+	 * @param length 数据的长度.
+	 * @param originalLength 解压后数据的长度.
+	 * @return 解压后的数据.
+	 * @throws DataFormatException 数据损坏或解压后的长度与 originalLength 不一致时抛出该异常.
+	 */
+	public byte[] decompress(byte[] data, int offset, int length, int originalLength) throws DataFormatException;
+}
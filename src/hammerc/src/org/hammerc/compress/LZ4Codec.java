@@ -0,0 +1,277 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+/**
+ * 纯 Java 实现的 LZ4 块格式压缩算法, 压缩率低于 ZLib 但压缩及解压速度快得多, 适合对延迟敏感的场景.
+ * <p>输出与 LZ4 的块格式兼容, 不包含 LZ4 帧头, 解压时需要提供原始数据的长度.</p>
+ * @author wizardc
+ */
+public class LZ4Codec implements ICompressionCodec
+{
+	/**
+	 * 算法的编号.
+	 */
+	public static final int ID = 3;
+	
+	//最短的匹配长度
+	private static final int MIN_MATCH = 4;
+	//哈希表的位数
+	private static final int HASH_LOG = 12;
+	//匹配的最大距离
+	private static final int MAX_DISTANCE = 65535;
+	//末尾必须作为字面量输出的字节数
+	private static final int LAST_LITERALS = 5;
+	//距离末尾小于该字节数时不再查找匹配
+	private static final int MF_LIMIT = 12;
+	//匹配失败时加速跳过的位数
+	private static final int SKIP_TRIGGER = 6;
+	
+	@Override
+	public int getId()
+	{
+		return ID;
+	}
+	
+	@Override
+	public String getName()
+	{
+		return "lz4";
+	}
+	
+	/**
+	 * 获取指定长度的数据压缩后的最大长度.
+	 * @param length 待压缩数据的长度.
+	 * @return 压缩后的最大长度.
+	 */
+	public static int compressBound(int length)
+	{
+		return length + length / 255 + 16;
+	}
+	
+	@Override
+	public byte[] compress(byte[] data, int offset, int length)
+	{
+		byte[] output = new byte[compressBound(length)];
+		int end = offset + length;
+		int anchor = offset;
+		int op = 0;
+		if(length > MF_LIMIT)
+		{
+			int[] table = new int[1 << HASH_LOG];
+			int matchLimit = end - LAST_LITERALS;
+			int mfLimit = end - MF_LIMIT;
+			int ip = offset;
+			while(ip < mfLimit)
+			{
+				int sequence = readInt(data, ip);
+				int hash = hash(sequence);
+				int ref = table[hash];
+				table[hash] = ip;
+				if(ref < offset || ref >= ip || ip - ref > MAX_DISTANCE || readInt(data, ref) != sequence)
+				{
+					//连续匹配失败时逐渐加大步长
+					ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+					continue;
+				}
+				//向前扩展匹配
+				while(ip > anchor && ref > offset && data[ip - 1] == data[ref - 1])
+				{
+					ip--;
+					ref--;
+				}
+				int matchLength = MIN_MATCH;
+				while(ip + matchLength < matchLimit && data[ip + matchLength] == data[ref + matchLength])
+				{
+					matchLength++;
+				}
+				op = writeSequence(data, anchor, ip - anchor, ip - ref, matchLength - MIN_MATCH, output, op);
+				ip += matchLength;
+				anchor = ip;
+				if(ip < mfLimit)
+				{
+					table[hash(readInt(data, ip - 2))] = ip - 2;
+				}
+			}
+		}
+		op = writeLastLiterals(data, anchor, end - anchor, output, op);
+		return Arrays.copyOf(output, op);
+	}
+	
+	private static int writeSequence(byte[] data, int literalStart, int literalLength, int distance, int matchLength, byte[] output, int op)
+	{
+		int token = op++;
+		if(literalLength >= 15)
+		{
+			output[token] = (byte) 0xf0;
+			op = writeLength(literalLength - 15, output, op);
+		}
+		else
+		{
+			output[token] = (byte) (literalLength << 4);
+		}
+		System.arraycopy(data, literalStart, output, op, literalLength);
+		op += literalLength;
+		output[op++] = (byte) distance;
+		output[op++] = (byte) (distance >>> 8);
+		if(matchLength >= 15)
+		{
+			output[token] |= 0x0f;
+			op = writeLength(matchLength - 15, output, op);
+		}
+		else
+		{
+			output[token] |= (byte) matchLength;
+		}
+		return op;
+	}
+	
+	private static int writeLastLiterals(byte[] data, int literalStart, int literalLength, byte[] output, int op)
+	{
+		if(literalLength >= 15)
+		{
+			output[op++] = (byte) 0xf0;
+			op = writeLength(literalLength - 15, output, op);
+		}
+		else
+		{
+			output[op++] = (byte) (literalLength << 4);
+		}
+		System.arraycopy(data, literalStart, output, op, literalLength);
+		return op + literalLength;
+	}
+	
+	private static int writeLength(int length, byte[] output, int op)
+	{
+		while(length >= 255)
+		{
+			output[op++] = (byte) 255;
+			length -= 255;
+		}
+		output[op++] = (byte) length;
+		return op;
+	}
+	
+	private static int readInt(byte[] data, int index)
+	{
+		return (data[index] & 0xff) | (data[index + 1] & 0xff) << 8 | (data[index + 2] & 0xff) << 16 | (data[index + 3] & 0xff) << 24;
+	}
+	
+	private static int hash(int sequence)
+	{
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+	
+	@Override
+	public byte[] decompress(byte[] data, int offset, int length, int originalLength) throws DataFormatException
+	{
+		byte[] output = new byte[originalLength];
+		int ip = offset;
+		int end = offset + length;
+		int op = 0;
+		while(true)
+		{
+			if(ip >= end)
+			{
+				throw new DataFormatException("Unexpected end of LZ4 block!");
+			}
+			int token = data[ip++] & 0xff;
+			int literalLength = token >>> 4;
+			if(literalLength == 15)
+			{
+				int b;
+				do
+				{
+					if(ip >= end)
+					{
+						throw new DataFormatException("Unexpected end of LZ4 block!");
+					}
+					b = data[ip++] & 0xff;
+					//恶意数据可以使长度超出 int 的范围
+					if(b > Integer.MAX_VALUE - literalLength)
+					{
+						throw new DataFormatException("Malformed LZ4 block!");
+					}
+					literalLength += b;
+				}
+				while(b == 255);
+			}
+			if(literalLength > end - ip || literalLength > originalLength - op)
+			{
+				throw new DataFormatException("Malformed LZ4 block!");
+			}
+			System.arraycopy(data, ip, output, op, literalLength);
+			ip += literalLength;
+			op += literalLength;
+			//最后一个序列只有字面量
+			if(ip == end)
+			{
+				break;
+			}
+			if(end - ip < 2)
+			{
+				throw new DataFormatException("Unexpected end of LZ4 block!");
+			}
+			int distance = (data[ip] & 0xff) | (data[ip + 1] & 0xff) << 8;
+			ip += 2;
+			if(distance == 0 || distance > op)
+			{
+				throw new DataFormatException("Malformed LZ4 block!");
+			}
+			int matchLength = token & 0x0f;
+			if(matchLength == 15)
+			{
+				int b;
+				do
+				{
+					if(ip >= end)
+					{
+						throw new DataFormatException("Unexpected end of LZ4 block!");
+					}
+					b = data[ip++] & 0xff;
+					//恶意数据可以使长度超出 int 的范围
+					if(b > Integer.MAX_VALUE - matchLength)
+					{
+						throw new DataFormatException("Malformed LZ4 block!");
+					}
+					matchLength += b;
+				}
+				while(b == 255);
+			}
+			if(matchLength > originalLength - op - MIN_MATCH)
+			{
+				throw new DataFormatException("Malformed LZ4 block!");
+			}
+			matchLength += MIN_MATCH;
+			int ref = op - distance;
+			if(distance >= matchLength)
+			{
+				System.arraycopy(output, ref, output, op, matchLength);
+				op += matchLength;
+			}
+			else
+			{
+				//重叠的匹配需要逐字节复制
+				for(int i = 0; i < matchLength; i++)
+				{
+					output[op++] = output[ref++];
+				}
+			}
+		}
+		if(op != originalLength)
+		{
+			throw new DataFormatException("The decompressed data is shorter than " + originalLength + " bytes!");
+		}
+		return output;
+	}
+}
@@ -0,0 +1,123 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import org.hammerc.utils.ZLibUtil;
+
+/**
+ * 使用 ZLibUtil 进行压缩的算法, 压缩数据带有 ZLib 头及校验和.
+ * @author wizardc
+ */
+public class ZLibCodec implements ICompressionCodec
+{
+	/**
+	 * 算法的编号.
+	 */
+	public static final int ID = 1;
+	
+	/**
+	 * 压缩级别.
+	 */
+	protected int _level;
+	
+	/**
+	 * 是否输出不带 ZLib 头及校验和的原始 Deflate 数据.
+	 */
+	protected boolean _nowrap;
+	
+	/**
+	 * 使用默认的压缩级别创建一个 ZLibCodec 对象.
+	 */
+	public ZLibCodec()
+	{
+		this(Deflater.DEFAULT_COMPRESSION);
+	}
+	
+	/**
+	 * 创建一个 ZLibCodec 对象.
+	 * @param level 压缩级别, 为 -1 到 9 之间的值.
+	 * @throws IllegalArgumentException 压缩级别无效时抛出该异常.
+	 */
+	public ZLibCodec(int level) throws IllegalArgumentException
+	{
+		this(level, false);
+	}
+	
+	/**
+	 * 创建一个 ZLibCodec 对象.
+	 * @param level 压缩级别, 为 -1 到 9 之间的值.
+	 * @param nowrap 是否输出不带 ZLib 头及校验和的原始 Deflate 数据.
+	 * @throws IllegalArgumentException 压缩级别无效时抛出该异常.
+	 */
+	protected ZLibCodec(int level, boolean nowrap) throws IllegalArgumentException
+	{
+		if(level < -1 || level > 9)
+		{
+			throw new IllegalArgumentException("The compression level \"" + level + "\" is invalid!");
+		}
+		_level = level;
+		_nowrap = nowrap;
+	}
+	
+	@Override
+	public int getId()
+	{
+		return ID;
+	}
+	
+	@Override
+	public String getName()
+	{
+		return "zlib";
+	}
+	
+	/**
+	 * 获取压缩级别.
+	 * @return 压缩级别.
+	 */
+	public int getLevel()
+	{
+		return _level;
+	}
+	
+	@Override
+	public byte[] compress(byte[] data, int offset, int length)
+	{
+		byte[] output = new byte[ZLibUtil.compressBound(length)];
+		int size = ZLibUtil.compress(ByteBuffer.wrap(data, offset, length), ByteBuffer.wrap(output), _level, _nowrap);
+		return Arrays.copyOf(output, size);
+	}
+	
+	@Override
+	public byte[] decompress(byte[] data, int offset, int length, int originalLength) throws DataFormatException
+	{
+		byte[] output = new byte[originalLength];
+		int size;
+		try
+		{
+			size = ZLibUtil.decompress(ByteBuffer.wrap(data, offset, length), ByteBuffer.wrap(output), _nowrap);
+		}
+		catch(BufferOverflowException exception)
+		{
+			throw new DataFormatException("The decompressed data is longer than " + originalLength + " bytes!");
+		}
+		if(size != originalLength)
+		{
+			throw new DataFormatException("The decompressed data is shorter than " + originalLength + " bytes!");
+		}
+		return output;
+	}
+}
@@ -11,11 +11,14 @@ package org.hammerc.io;
 
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
-import org.hammerc.utils.ByteUtil;
+import org.hammerc.utils.UTF8StringCache;
+import org.hammerc.utils.UTF8Util;
 import org.hammerc.utils.UnsignedUtil;
+import org.hammerc.utils.VarIntUtil;
 
 /**
  * 数据输入类.
@@ -28,6 +31,11 @@ public class ByteArrayInput implements IDataInput
 	 */
 	protected ByteBuffer _byteBuffer;
 	
+	/**
+	 * 字符串缓存, 为 null 时不使用缓存.
+	 */
+	protected UTF8StringCache _stringCache;
+	
 	/**
 	 * 构造函数.
 	 * @param bytes 字节数组.
@@ -76,6 +84,24 @@ public class ByteArrayInput implements IDataInput
 		return _byteBuffer.position();
 	}
 	
+	/**
+	 * 设置读取字符串时使用的缓存, 重复出现的短字符串会返回同一个对象.
+	 * @param stringCache 字符串缓存, 为 null 时不使用缓存.
+	 */
+	public void stringCache(UTF8StringCache stringCache)
+	{
+		_stringCache = stringCache;
+	}
+	
+	/**
+	 * 获取读取字符串时使用的缓存.
+	 * @return 字符串缓存, 没有设置时返回 null.
+	 */
+	public UTF8StringCache stringCache()
+	{
+		return _stringCache;
+	}
+	
 	/**
 	 * 获取字节缓冲对象.
 	 * @return 字节缓冲对象.
@@ -100,8 +126,7 @@ public class ByteArrayInput implements IDataInput
 	@Override
 	public short readUnsignedByte()
 	{
-		byte b = _byteBuffer.get();
-		return UnsignedUtil.readUnsignedByte(b);
+		return UnsignedUtil.readUnsignedByte(_byteBuffer.get());
 	}
 	
 	@Override
@@ -113,13 +138,7 @@ public class ByteArrayInput implements IDataInput
 	@Override
 	public int readUnsignedShort()
 	{
-		byte[] bytes = new byte[2];
-		_byteBuffer.get(bytes, 0, 2);
-		if(this.endian().equals(ByteOrder.LITTLE_ENDIAN))
-		{
-			bytes = ByteUtil.reverse(bytes);
-		}
-		return UnsignedUtil.readUnsignedShort(bytes);
+		return _byteBuffer.getShort() & 0xffff;
 	}
 	
 	@Override
@@ -131,13 +150,7 @@ public class ByteArrayInput implements IDataInput
 	@Override
 	public long readUnsignedInt()
 	{
-		byte[] bytes = new byte[4];
-		_byteBuffer.get(bytes, 0, 4);
-		if(this.endian().equals(ByteOrder.LITTLE_ENDIAN))
-		{
-			bytes = ByteUtil.reverse(bytes);
-		}
-		return UnsignedUtil.readUnsignedInt(bytes);
+		return _byteBuffer.getInt() & 0xffffffffL;
 	}
 	
 	@Override
@@ -149,13 +162,13 @@ public class ByteArrayInput implements IDataInput
 	@Override
 	public BigInteger readUnsignedLong()
 	{
-		byte[] bytes = new byte[8];
-		_byteBuffer.get(bytes, 0, 8);
-		if(this.endian().equals(ByteOrder.LITTLE_ENDIAN))
-		{
-			bytes = ByteUtil.reverse(bytes);
-		}
-		return UnsignedUtil.readUnsignedLong(bytes);
+		return UnsignedUtil.toUnsignedBigInteger(_byteBuffer.getLong());
+	}
+	
+	@Override
+	public long readUnsignedLongValue()
+	{
+		return _byteBuffer.getLong();
 	}
 	
 	@Override
@@ -170,6 +183,50 @@ public class ByteArrayInput implements IDataInput
 		return _byteBuffer.getDouble();
 	}
 	
+	@Override
+	public int readVarInt() throws IllegalStateException
+	{
+		return VarIntUtil.decodeZigZag(this.readUnsignedVarInt());
+	}
+	
+	@Override
+	public int readUnsignedVarInt() throws IllegalStateException
+	{
+		int result = 0;
+		for(int shift = 0; shift < 32; shift += 7)
+		{
+			byte b = _byteBuffer.get();
+			result |= (b & 0x7f) << shift;
+			if(b >= 0)
+			{
+				return result;
+			}
+		}
+		throw new IllegalStateException("The varint is malformed!");
+	}
+	
+	@Override
+	public long readVarLong() throws IllegalStateException
+	{
+		return VarIntUtil.decodeZigZag(this.readUnsignedVarLong());
+	}
+	
+	@Override
+	public long readUnsignedVarLong() throws IllegalStateException
+	{
+		long result = 0;
+		for(int shift = 0; shift < 64; shift += 7)
+		{
+			byte b = _byteBuffer.get();
+			result |= (long) (b & 0x7f) << shift;
+			if(b >= 0)
+			{
+				return result;
+			}
+		}
+		throw new IllegalStateException("The varint is malformed!");
+	}
+	
 	@Override
 	public String readUTF() throws UnsupportedEncodingException
 	{
@@ -180,9 +237,19 @@ public class ByteArrayInput implements IDataInput
 	@Override
 	public String readUTFBytes(int length) throws UnsupportedEncodingException
 	{
-		byte[] bytes = new byte[length];
-		_byteBuffer.get(bytes, 0, length);
-		return new String(bytes, "UTF-8");
+		UTF8StringCache stringCache = _stringCache;
+		if(stringCache == null || length > stringCache.maxLength())
+		{
+			return UTF8Util.decode(_byteBuffer, length);
+		}
+		if(_byteBuffer.remaining() < length)
+		{
+			throw new BufferUnderflowException();
+		}
+		int position = _byteBuffer.position();
+		String value = stringCache.get(_byteBuffer, position, length);
+		_byteBuffer.position(position + length);
+		return value;
 	}
 	
 	@Override
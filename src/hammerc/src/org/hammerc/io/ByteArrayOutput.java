@@ -17,7 +17,9 @@ import java.util.ArrayList;
 import java.util.Iterator;
 
 import org.hammerc.utils.ByteUtil;
+import org.hammerc.utils.UTF8Util;
 import org.hammerc.utils.UnsignedUtil;
+import org.hammerc.utils.VarIntUtil;
 
 /**
  * 数据输出类.
@@ -67,7 +69,7 @@ public class ByteArrayOutput implements IDataOutput
 		{
 			return null;
 		}
-		//记录字符串转换后的字节避免转换两次
+		//记录指定编码的字符串转换后的字节避免转换两次, UTF-8 字符串直接编码到结果数组中
 		ArrayList<byte[]> bytesList = new ArrayList<byte[]>();
 		//先计算出需要的字节的总长度
 		int size = 0;
@@ -99,14 +101,10 @@ public class ByteArrayOutput implements IDataOutput
 					break;
 				case TypeInfo.UTF:
 					size += 2;
-					bytes = ((String) ti.value).getBytes("UTF-8");
-					bytesList.add(bytes);
-					size += bytes.length;
+					size += UTF8Util.encodedLength((String) ti.value);
 					break;
 				case TypeInfo.UTF_BYTES:
-					bytes = ((String) ti.value).getBytes("UTF-8");
-					bytesList.add(bytes);
-					size += bytes.length;
+					size += UTF8Util.encodedLength((String) ti.value);
 					break;
 				case TypeInfo.MULTI_BYTES:
 					bytes = ((String) ti.value).getBytes(ti.charSet);
@@ -125,6 +123,7 @@ public class ByteArrayOutput implements IDataOutput
 		byteBuffer.order(_order);
 		byte[] numBytes = null;
 		int i = 0;
+		int position = 0;
 		it = _arrayList.iterator();
 		while(it.hasNext())
 		{
@@ -187,18 +186,13 @@ public class ByteArrayOutput implements IDataOutput
 					byteBuffer.putDouble(((Double) ti.value).doubleValue());
 					break;
 				case TypeInfo.UTF:
-					bytes = bytesList.get(i++);
-					numBytes = UnsignedUtil.writeUnsignedShort(bytes.length);
-					if(this.endian().equals(ByteOrder.LITTLE_ENDIAN))
-					{
-						numBytes = ByteUtil.reverse(numBytes);
-					}
-					byteBuffer.put(numBytes);
-					byteBuffer.put(bytes);
+					//字符串直接编码到结果数组中, 再回填长度
+					position = byteBuffer.position();
+					byteBuffer.position(UTF8Util.encode((String) ti.value, byteBuffer.array(), position + 2));
+					byteBuffer.putShort(position, (short) (byteBuffer.position() - position - 2));
 					break;
 				case TypeInfo.UTF_BYTES:
-					bytes = bytesList.get(i++);
-					byteBuffer.put(bytes);
+					byteBuffer.position(UTF8Util.encode((String) ti.value, byteBuffer.array(), byteBuffer.position()));
 					break;
 				case TypeInfo.MULTI_BYTES:
 					bytes = bytesList.get(i++);
@@ -279,6 +273,30 @@ public class ByteArrayOutput implements IDataOutput
 		_arrayList.add(new TypeInfo(TypeInfo.DOUBLE, value));
 	}
 	
+	@Override
+	public void writeVarInt(int value)
+	{
+		this.writeBytes(VarIntUtil.encodeUnsignedVarInt(VarIntUtil.encodeZigZag(value)));
+	}
+	
+	@Override
+	public void writeUnsignedVarInt(int value)
+	{
+		this.writeBytes(VarIntUtil.encodeUnsignedVarInt(value));
+	}
+	
+	@Override
+	public void writeVarLong(long value)
+	{
+		this.writeBytes(VarIntUtil.encodeUnsignedVarLong(VarIntUtil.encodeZigZag(value)));
+	}
+	
+	@Override
+	public void writeUnsignedVarLong(long value)
+	{
+		this.writeBytes(VarIntUtil.encodeUnsignedVarLong(value));
+	}
+	
 	@Override
 	public void writeUTF(String value)
 	{
@@ -0,0 +1,422 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.io;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+import org.hammerc.utils.UTF8Util;
+import org.hammerc.utils.VarIntUtil;
+
+/**
+ * 直接写入字节缓冲的数据输出类.
+ * <p>与 ByteArrayOutput 不同, 写入的数据会立即编码到可自动扩容的字节缓冲中, 不会为每个字段创建临时对象.</p>
+ * @author wizardc
+ */
+public class ByteBufferOutput implements IDataOutput
+{
+	/**
+	 * 默认的初始容量.
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+	
+	/**
+	 * UTF-8 字符集.
+	 */
+	protected static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	/**
+	 * 字节缓冲对象.
+	 */
+	protected ByteBuffer _byteBuffer;
+	
+	/**
+	 * 是否使用直接内存.
+	 */
+	protected boolean _direct;
+	
+	/**
+	 * 已写入数据的长度.
+	 */
+	protected int _length;
+	
+	/**
+	 * 构造函数.
+	 */
+	public ByteBufferOutput()
+	{
+		this(DEFAULT_CAPACITY, false);
+	}
+	
+	/**
+	 * 构造函数.
+	 * @param capacity 初始容量.
+	 */
+	public ByteBufferOutput(int capacity)
+	{
+		this(capacity, false);
+	}
+	
+	/**
+	 * 构造函数.
+	 * @param capacity 初始容量, 小于 1 时按默认容量进行设置.
+	 * @param direct 是否使用直接内存.
+	 */
+	public ByteBufferOutput(int capacity, boolean direct)
+	{
+		_direct = direct;
+		_byteBuffer = allocate(capacity < 1 ? DEFAULT_CAPACITY : capacity);
+		_byteBuffer.order(ByteOrder.BIG_ENDIAN);
+		_length = 0;
+	}
+	
+	@Override
+	public void endian(ByteOrder order)
+	{
+		_byteBuffer.order(order);
+	}
+	
+	@Override
+	public ByteOrder endian()
+	{
+		return _byteBuffer.order();
+	}
+	
+	/**
+	 * 设置指针位置, 可用于回写已经写入的数据.
+	 * @param newPosition 新的指针位置, 不能大于已写入数据的长度.
+	 * @throws IllegalArgumentException 指针位置超出已写入数据的范围时抛出该异常.
+	 */
+	public void position(int newPosition) throws IllegalArgumentException
+	{
+		if(newPosition < 0 || newPosition > _length)
+		{
+			throw new IllegalArgumentException("The position \"" + newPosition + "\" is out of range!");
+		}
+		_byteBuffer.position(newPosition);
+	}
+	
+	/**
+	 * 获取指针位置.
+	 * @return 指针位置.
+	 */
+	public int position()
+	{
+		return _byteBuffer.position();
+	}
+	
+	/**
+	 * 获取已写入数据的长度.
+	 * @return 已写入数据的长度.
+	 */
+	public int length()
+	{
+		return _length;
+	}
+	
+	/**
+	 * 获取当前的容量.
+	 * @return 当前的容量.
+	 */
+	public int capacity()
+	{
+		return _byteBuffer.capacity();
+	}
+	
+	/**
+	 * 获取包含已写入数据的字节缓冲对象, 该对象与本对象共享数据不会进行复制, 再次写入数据后该对象可能失效.
+	 * @return 位置为 0, 界限为已写入数据长度的字节缓冲对象.
+	 */
+	public ByteBuffer byteBuffer()
+	{
+		ByteBuffer byteBuffer = _byteBuffer.duplicate();
+		byteBuffer.order(_byteBuffer.order());
+		byteBuffer.position(0);
+		byteBuffer.limit(_length);
+		return byteBuffer;
+	}
+	
+	/**
+	 * 获取底层的字节数组, 不会进行复制, 有效数据为 0 到 length() 之间的部分.
+	 * @return 底层的字节数组.
+	 * @throws UnsupportedOperationException 使用直接内存时抛出该异常.
+	 */
+	public byte[] array() throws UnsupportedOperationException
+	{
+		if(!_byteBuffer.hasArray())
+		{
+			throw new UnsupportedOperationException("The direct buffer has no backing array!");
+		}
+		return _byteBuffer.array();
+	}
+	
+	/**
+	 * 获取数据对应的字节数组, 当容量恰好等于数据长度时直接返回底层的字节数组不会进行复制.
+	 * @return 字节数组.
+	 */
+	public byte[] bytes()
+	{
+		if(_byteBuffer.hasArray() && _byteBuffer.arrayOffset() == 0 && _byteBuffer.capacity() == _length)
+		{
+			return _byteBuffer.array();
+		}
+		byte[] bytes = new byte[_length];
+		ByteBuffer byteBuffer = this.byteBuffer();
+		byteBuffer.get(bytes, 0, _length);
+		return bytes;
+	}
+	
+	@Override
+	public void writeBoolean(boolean value)
+	{
+		ensureCapacity(1);
+		_byteBuffer.put(value ? (byte) 1 : (byte) 0);
+		updateLength();
+	}
+	
+	@Override
+	public void writeByte(byte value)
+	{
+		ensureCapacity(1);
+		_byteBuffer.put(value);
+		updateLength();
+	}
+	
+	@Override
+	public void writeUnsignedByte(short value)
+	{
+		ensureCapacity(1);
+		_byteBuffer.put((byte) value);
+		updateLength();
+	}
+	
+	@Override
+	public void writeShort(short value)
+	{
+		ensureCapacity(2);
+		_byteBuffer.putShort(value);
+		updateLength();
+	}
+	
+	@Override
+	public void writeUnsignedShort(int value)
+	{
+		ensureCapacity(2);
+		_byteBuffer.putShort((short) value);
+		updateLength();
+	}
+	
+	@Override
+	public void writeInt(int value)
+	{
+		ensureCapacity(4);
+		_byteBuffer.putInt(value);
+		updateLength();
+	}
+	
+	@Override
+	public void writeUnsignedInt(long value)
+	{
+		ensureCapacity(4);
+		_byteBuffer.putInt((int) value);
+		updateLength();
+	}
+	
+	@Override
+	public void writeLong(long value)
+	{
+		ensureCapacity(8);
+		_byteBuffer.putLong(value);
+		updateLength();
+	}
+	
+	@Override
+	public void writeUnsignedLong(BigInteger value)
+	{
+		ensureCapacity(8);
+		_byteBuffer.putLong(value.longValue());
+		updateLength();
+	}
+	
+	@Override
+	public void writeFloat(float value)
+	{
+		ensureCapacity(4);
+		_byteBuffer.putFloat(value);
+		updateLength();
+	}
+	
+	@Override
+	public void writeDouble(double value)
+	{
+		ensureCapacity(8);
+		_byteBuffer.putDouble(value);
+		updateLength();
+	}
+	
+	@Override
+	public void writeVarInt(int value)
+	{
+		this.writeUnsignedVarInt(VarIntUtil.encodeZigZag(value));
+	}
+	
+	@Override
+	public void writeUnsignedVarInt(int value)
+	{
+		ensureCapacity(VarIntUtil.MAX_VAR_INT_SIZE);
+		while((value & ~0x7f) != 0)
+		{
+			_byteBuffer.put((byte) (value & 0x7f | 0x80));
+			value >>>= 7;
+		}
+		_byteBuffer.put((byte) value);
+		updateLength();
+	}
+	
+	@Override
+	public void writeVarLong(long value)
+	{
+		this.writeUnsignedVarLong(VarIntUtil.encodeZigZag(value));
+	}
+	
+	@Override
+	public void writeUnsignedVarLong(long value)
+	{
+		ensureCapacity(VarIntUtil.MAX_VAR_LONG_SIZE);
+		while((value & ~0x7fL) != 0)
+		{
+			_byteBuffer.put((byte) (value & 0x7f | 0x80));
+			value >>>= 7;
+		}
+		_byteBuffer.put((byte) value);
+		updateLength();
+	}
+	
+	/**
+	 * 写入 UTF-8 字符串.
+	 * @param value 字符串.
+	 * @throws IllegalArgumentException 编码后的长度超过 65535 字节时抛出该异常.
+	 */
+	@Override
+	public void writeUTF(String value) throws IllegalArgumentException
+	{
+		int count = value.length();
+		//每个字符编码后最多 3 个字节, 剩余容量足够时直接编码后回填长度, 只需遍历一次字符串
+		if(count <= 0xffff / 3 && _byteBuffer.hasArray() && _byteBuffer.capacity() - _byteBuffer.position() >= 2 + count * 3)
+		{
+			int position = _byteBuffer.position();
+			int start = _byteBuffer.arrayOffset() + position + 2;
+			int length = UTF8Util.encode(value, _byteBuffer.array(), start) - start;
+			_byteBuffer.putShort(position, (short) length);
+			_byteBuffer.position(position + 2 + length);
+			updateLength();
+			return;
+		}
+		int length = UTF8Util.encodedLength(value);
+		if(length > 0xffff)
+		{
+			throw new IllegalArgumentException("The encoded string is too long: " + length + " bytes!");
+		}
+		ensureCapacity(2 + length);
+		_byteBuffer.putShort((short) length);
+		UTF8Util.encode(value, _byteBuffer, length);
+		updateLength();
+	}
+	
+	@Override
+	public void writeUTFBytes(String value)
+	{
+		int length = UTF8Util.encodedLength(value);
+		ensureCapacity(length);
+		UTF8Util.encode(value, _byteBuffer, length);
+		updateLength();
+	}
+	
+	/**
+	 * 写入指定编码的字符串.
+	 * @param value 字符串.
+	 * @param charSet 指定的编码字符集.
+	 * @throws java.nio.charset.UnsupportedCharsetException 不支持指定的编码字符集时抛出该异常.
+	 */
+	@Override
+	public void writeMultiBytes(String value, String charSet)
+	{
+		this.writeBytes(value.getBytes(Charset.forName(charSet)));
+	}
+	
+	@Override
+	public void writeBytes(byte[] bytes)
+	{
+		this.writeBytes(bytes, 0, bytes.length);
+	}
+	
+	@Override
+	public void writeBytes(byte[] bytes, int offset, int length)
+	{
+		ensureCapacity(length);
+		_byteBuffer.put(bytes, offset, length);
+		updateLength();
+	}
+	
+	/**
+	 * 清除数据, 保留已分配的容量以便重复使用.
+	 */
+	public void clear()
+	{
+		_byteBuffer.clear();
+		_length = 0;
+	}
+	
+	/**
+	 * 确保从当前指针位置起还可以写入指定长度的数据, 容量不足时按两倍增长.
+	 * @param size 需要写入的长度.
+	 */
+	protected void ensureCapacity(int size)
+	{
+		int position = _byteBuffer.position();
+		int required = position + size;
+		if(required < 0)
+		{
+			throw new OutOfMemoryError("Required capacity is too large!");
+		}
+		if(required <= _byteBuffer.capacity())
+		{
+			return;
+		}
+		int capacity = _byteBuffer.capacity() << 1;
+		if(capacity < required)
+		{
+			capacity = required;
+		}
+		ByteBuffer byteBuffer = allocate(capacity);
+		byteBuffer.order(_byteBuffer.order());
+		_byteBuffer.position(0);
+		_byteBuffer.limit(Math.max(_length, position));
+		byteBuffer.put(_byteBuffer);
+		byteBuffer.position(position);
+		_byteBuffer = byteBuffer;
+	}
+	
+	private ByteBuffer allocate(int capacity)
+	{
+		return _direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+	}
+	
+	private void updateLength()
+	{
+		int position = _byteBuffer.position();
+		if(position > _length)
+		{
+			_length = position;
+		}
+	}
+}
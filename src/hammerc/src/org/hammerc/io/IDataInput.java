@@ -103,6 +103,13 @@ public interface IDataInput
 	 */
 	public BigInteger readUnsignedLong();
 	
+	/**
+	 * 读取无符号长整型, 不创建 BigInteger 对象.
+	 * <p>注: 返回值为原始的 64 位数据, 大于 Long.MAX_VALUE 的数值会表现为负数, 需要使用 Long.compareUnsigned 等方法进行处理.</p>
+	 * @return 无符号长整型的 64 位数据.
+	 */
+	public long readUnsignedLongValue();
+	
 	/**
 	 * 读取单精度浮点数.
 	 * @return 单精度浮点数.
@@ -115,6 +122,34 @@ public interface IDataInput
 	 */
 	public double readDouble();
 	
+	/**
+	 * 读取使用 zig-zag 及变长编码的带符号整型.
+	 * @return 带符号整型.
+	 * @throws IllegalStateException 编码超过 5 个字节时抛出该异常.
+	 */
+	public int readVarInt() throws IllegalStateException;
+	
+	/**
+	 * 读取使用变长编码的无符号整型.
+	 * @return 按无符号处理的整型.
+	 * @throws IllegalStateException 编码超过 5 个字节时抛出该异常.
+	 */
+	public int readUnsignedVarInt() throws IllegalStateException;
+	
+	/**
+	 * 读取使用 zig-zag 及变长编码的带符号长整型.
+	 * @return 带符号长整型.
+	 * @throws IllegalStateException 编码超过 10 个字节时抛出该异常.
+	 */
+	public long readVarLong() throws IllegalStateException;
+	
+	/**
+	 * 读取使用变长编码的无符号长整型.
+	 * @return 按无符号处理的长整型.
+	 * @throws IllegalStateException 编码超过 10 个字节时抛出该异常.
+	 */
+	public long readUnsignedVarLong() throws IllegalStateException;
+	
 	/**
 	 * 读取 UTF-8 字符串.
 	 * @return UTF-8 字符串.
@@ -96,6 +96,30 @@ public interface IDataOutput
 	 */
 	public void writeDouble(double value);
 	
+	/**
+	 * 写入使用 zig-zag 及变长编码的带符号整型, 占用 1 到 5 个字节, 绝对值越小占用的字节越少.
+	 * @param value 带符号整型.
+	 */
+	public void writeVarInt(int value);
+	
+	/**
+	 * 写入使用变长编码的无符号整型, 占用 1 到 5 个字节, 数值越小占用的字节越少.
+	 * @param value 按无符号处理的整型.
+	 */
+	public void writeUnsignedVarInt(int value);
+	
+	/**
+	 * 写入使用 zig-zag 及变长编码的带符号长整型, 占用 1 到 10 个字节.
+	 * @param value 带符号长整型.
+	 */
+	public void writeVarLong(long value);
+	
+	/**
+	 * 写入使用变长编码的无符号长整型, 占用 1 到 10 个字节.
+	 * @param value 按无符号处理的长整型.
+	 */
+	public void writeUnsignedVarLong(long value);
+	
 	/**
 	 * 写入 UTF-8 字符串.
 	 * @param value 字符串.
@@ -0,0 +1,25 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.io;
+
+/**
+ * 定义了可以预先计算编码长度的序列化数据类型.
+ * <p>编码前获取长度后可以一次分配大小合适的缓冲区, 也可以直接写入长度前缀而不需要在编码后回填.</p>
+ * @author wizardc
+ */
+public interface ISizedExternalizable extends IExternalizable
+{
+	/**
+	 * 获取将其自身编码到数据流中后的精确字节数.
+	 * @return 编码后的字节数, 无法预先计算时返回 -1.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public int encodedSize() throws Exception;
+}
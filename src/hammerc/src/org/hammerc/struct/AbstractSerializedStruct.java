@@ -0,0 +1,40 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import org.hammerc.io.IDataInput;
+import org.hammerc.io.IDataOutput;
+
+/**
+ * 使用 StructProcessor 生成的序列化类编码及解码的自定义数据类.
+ * <p>使用 Struct 标记的类继承该类后不需要实现 writeToBytes 及 readFromBytes 方法; 没有生成序列化类的子类在编码时会抛出 IllegalArgumentException, 手写编码的类应该直接继承 AbstractStruct.</p>
+ * @author wizardc
+ */
+public abstract class AbstractSerializedStruct extends AbstractStruct
+{
+	/**
+	 * 构造函数.
+	 */
+	public AbstractSerializedStruct()
+	{
+	}
+	
+	@Override
+	protected void writeToBytes(IDataOutput output) throws Exception
+	{
+		StructSerializers.lookup(this.getClass()).writeTo(this, output);
+	}
+	
+	@Override
+	protected void readFromBytes(IDataInput input) throws Exception
+	{
+		StructSerializers.lookup(this.getClass()).readFrom(this, input);
+	}
+}
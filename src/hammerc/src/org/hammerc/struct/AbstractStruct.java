@@ -11,7 +11,7 @@ package org.hammerc.struct;
 
 import org.hammerc.io.IDataInput;
 import org.hammerc.io.IDataOutput;
-import org.hammerc.io.IExternalizable;
+import org.hammerc.io.ISizedExternalizable;
 
 import java.nio.ByteOrder;
 
@@ -19,7 +19,7 @@ import java.nio.ByteOrder;
  * 可以写入字节流和从字节流中读取的自定义数据类.
  * @author wizardc
  */
-public abstract class AbstractStruct implements IExternalizable
+public abstract class AbstractStruct implements ISizedExternalizable
 {
 	/**
 	 * 自定义数据类的编码字节序.
@@ -33,6 +33,19 @@ public abstract class AbstractStruct implements IExternalizable
 	{
 	}
 	
+	/**
+	 * 获取编码后的精确字节数, 默认使用 StructProcessor 生成的序列化类计算, 没有序列化类时返回 -1.
+	 * <p>重写了 writeToBytes 方法的子类如果编码格式与生成的序列化类不同, 需要同时重写该方法.</p>
+	 * @return 编码后的字节数, 无法预先计算时返回 -1.
+	 * @throws Exception 会抛出的异常.
+	 */
+	@Override
+	public int encodedSize() throws Exception
+	{
+		IStructSerializer<AbstractStruct> serializer = StructSerializers.lookupIfPresent(this.getClass());
+		return serializer == null ? -1 : serializer.encodedSize(this);
+	}
+	
 	@Override
 	final public void writeExternal(IDataOutput output) throws Exception
 	{
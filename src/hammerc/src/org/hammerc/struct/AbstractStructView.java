@@ -0,0 +1,381 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import org.hammerc.io.ByteArrayInput;
+import org.hammerc.utils.UTF8Util;
+import org.hammerc.utils.VarIntUtil;
+
+/**
+ * 自定义数据的只读视图, 直接读取编码后的字节缓冲, 只在访问字段时才解码.
+ * <p>StructProcessor 为使用 Struct(view = true) 标记的类生成名为 "类名View" 的子类. 位置固定的字段直接按常量偏移读取; 位于变长字段之后的字段在首次访问时依次跳过前面的字段计算位置并缓存; 变长元素的数组缓存上次访问的元素位置, 按索引递增访问时不需要从第一个元素开始跳过; 字符串及字节数组可以获取不复制数据的切片.</p>
+ * <p>视图只使用绝对位置读取, 不会修改字节缓冲的位置及界限, 但视图有效期间不能修改缓冲中的数据. 字节缓冲的字节序与 AbstractStruct.STRUCT_ENDIAN 不同时会复制一个字节缓冲对象(不复制数据).</p>
+ * @author wizardc
+ */
+public abstract class AbstractStructView<T extends AbstractStruct>
+{
+	/**
+	 * 编码后的数据.
+	 */
+	protected ByteBuffer _buffer;
+	
+	/**
+	 * 视图在字节缓冲中的起始位置.
+	 */
+	protected int _offset;
+	
+	//所有字段的起始位置, 最后一项为结束位置
+	private int[] _positions;
+	//已经计算出位置的最后一个字段
+	private int _resolved;
+	
+	/**
+	 * 构造函数.
+	 * @param fieldCount 字段的数量.
+	 */
+	protected AbstractStructView(int fieldCount)
+	{
+		_positions = new int[fieldCount + 1];
+	}
+	
+	/**
+	 * 从字节缓冲的当前位置开始创建视图, 不会修改字节缓冲的位置.
+	 * @param buffer 字节缓冲.
+	 */
+	public void wrap(ByteBuffer buffer)
+	{
+		wrap(buffer, buffer.position());
+	}
+	
+	/**
+	 * 从字节缓冲的指定位置开始创建视图, 可以重复调用以复用视图对象.
+	 * @param buffer 字节缓冲.
+	 * @param offset 自定义数据在字节缓冲中的起始位置.
+	 */
+	public void wrap(ByteBuffer buffer, int offset)
+	{
+		_buffer = buffer.order() == AbstractStruct.STRUCT_ENDIAN ? buffer : buffer.duplicate().order(AbstractStruct.STRUCT_ENDIAN);
+		_offset = offset;
+		_positions[0] = offset;
+		_resolved = 0;
+		reset();
+	}
+	
+	/**
+	 * 创建视图时调用, 子类需要在这里清除缓存的数组元素位置.
+	 */
+	protected void reset()
+	{
+	}
+	
+	/**
+	 * 从输入流对象的当前位置开始创建视图, 并将输入流对象的位置移动到该自定义数据之后, 与 BytesReader.readStruct 相同.
+	 * <p>移动位置只需要读取变长字段的长度, 不会解码任何字段.</p>
+	 * @param input 输入流对象.
+	 */
+	public void wrap(ByteArrayInput input)
+	{
+		wrap(input.byteBuffer(), input.position());
+		input.position(_offset + size());
+	}
+	
+	/**
+	 * 获取视图在字节缓冲中的起始位置.
+	 * @return 起始位置.
+	 */
+	public int offset()
+	{
+		return _offset;
+	}
+	
+	/**
+	 * 获取自定义数据编码后的字节数.
+	 * @return 编码后的字节数.
+	 * @throws IndexOutOfBoundsException 数据不完整时抛出该异常.
+	 */
+	public int size() throws IndexOutOfBoundsException
+	{
+		return position(_positions.length - 1) - _offset;
+	}
+	
+	/**
+	 * 获取包含整个自定义数据的切片, 不复制数据, 可以用于直接转发.
+	 * @return 字节缓冲的切片.
+	 */
+	public ByteBuffer slice()
+	{
+		return slice(_buffer, _offset, size());
+	}
+	
+	/**
+	 * 完整解码为自定义数据对象.
+	 * @return 自定义数据对象.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public T toStruct() throws Exception
+	{
+		T value = newStruct();
+		value.readExternal(new ByteArrayInput(slice()));
+		return value;
+	}
+	
+	/**
+	 * 创建一个自定义数据对象.
+	 * @return 自定义数据对象.
+	 */
+	protected abstract T newStruct();
+	
+	/**
+	 * 获取字段结束的位置.
+	 * @param field 字段的索引.
+	 * @param position 字段的起始位置.
+	 * @return 字段的结束位置.
+	 */
+	protected abstract int skip(int field, int position);
+	
+	/**
+	 * 获取字段的起始位置, 按需依次跳过前面的字段计算并缓存.
+	 * @param field 字段的索引, 为字段数量时获取结束位置.
+	 * @return 字段的起始位置.
+	 */
+	protected final int position(int field)
+	{
+		int[] positions = _positions;
+		int resolved = _resolved;
+		if(field <= resolved)
+		{
+			return positions[field];
+		}
+		int position = positions[resolved];
+		while(resolved < field)
+		{
+			position = skip(resolved, position);
+			positions[++resolved] = position;
+		}
+		_resolved = resolved;
+		return position;
+	}
+	
+	/**
+	 * 跳过一个字符串.
+	 * @param buffer 字节缓冲.
+	 * @param position 字符串的起始位置.
+	 * @return 字符串的结束位置.
+	 */
+	protected static int skipString(ByteBuffer buffer, int position)
+	{
+		return position + 2 + (buffer.getShort(position) & 0xffff);
+	}
+	
+	/**
+	 * 跳过一个字节数组.
+	 * @param buffer 字节缓冲.
+	 * @param position 字节数组的起始位置.
+	 * @return 字节数组的结束位置.
+	 * @throws IndexOutOfBoundsException 长度超出字节缓冲时抛出该异常.
+	 */
+	protected static int skipBytes(ByteBuffer buffer, int position) throws IndexOutOfBoundsException
+	{
+		long end = position + 4L + (buffer.getInt(position) & 0xffffffffL);
+		if(end > buffer.limit())
+		{
+			throw new IndexOutOfBoundsException("The byte array length is out of bounds!");
+		}
+		return (int) end;
+	}
+	
+	/**
+	 * 读取一个数组的长度.
+	 * @param buffer 字节缓冲.
+	 * @param position 数组的起始位置.
+	 * @return 数组的长度.
+	 */
+	protected static int arrayLength(ByteBuffer buffer, int position)
+	{
+		return buffer.getShort(position) & 0xffff;
+	}
+	
+	/**
+	 * 读取一个使用变长编码的无符号 32 位数字.
+	 * @param buffer 字节缓冲.
+	 * @param position 数字的位置.
+	 * @return 对应的数据.
+	 * @throws IllegalStateException 编码超过 5 个字节时抛出该异常.
+	 */
+	protected static int getUnsignedVarInt(ByteBuffer buffer, int position) throws IllegalStateException
+	{
+		int result = 0;
+		for(int shift = 0; shift < 32; shift += 7)
+		{
+			byte b = buffer.get(position++);
+			result |= (b & 0x7f) << shift;
+			if(b >= 0)
+			{
+				return result;
+			}
+		}
+		throw new IllegalStateException("The varint is malformed!");
+	}
+	
+	/**
+	 * 读取一个使用变长编码的无符号 64 位数字.
+	 * @param buffer 字节缓冲.
+	 * @param position 数字的位置.
+	 * @return 对应的数据.
+	 * @throws IllegalStateException 编码超过 10 个字节时抛出该异常.
+	 */
+	protected static long getUnsignedVarLong(ByteBuffer buffer, int position) throws IllegalStateException
+	{
+		long result = 0;
+		for(int shift = 0; shift < 64; shift += 7)
+		{
+			byte b = buffer.get(position++);
+			result |= (long) (b & 0x7f) << shift;
+			if(b >= 0)
+			{
+				return result;
+			}
+		}
+		throw new IllegalStateException("The varint is malformed!");
+	}
+	
+	/**
+	 * 跳过一个使用变长编码的数字.
+	 * @param buffer 字节缓冲.
+	 * @param position 数字的位置.
+	 * @return 数字的结束位置.
+	 * @throws IllegalStateException 编码超过 10 个字节时抛出该异常.
+	 */
+	protected static int skipVarInt(ByteBuffer buffer, int position) throws IllegalStateException
+	{
+		int end = position + VarIntUtil.MAX_VAR_LONG_SIZE;
+		while(position < end)
+		{
+			if(buffer.get(position++) >= 0)
+			{
+				return position;
+			}
+		}
+		throw new IllegalStateException("The varint is malformed!");
+	}
+	
+	/**
+	 * 跳过一个使用变长编码长度的字符串或字节数组.
+	 * @param buffer 字节缓冲.
+	 * @param position 数据的起始位置.
+	 * @return 数据的结束位置.
+	 * @throws IndexOutOfBoundsException 长度超出字节缓冲时抛出该异常.
+	 */
+	protected static int skipVarData(ByteBuffer buffer, int position) throws IndexOutOfBoundsException
+	{
+		long end = (long) skipVarInt(buffer, position) + (getUnsignedVarInt(buffer, position) & 0xffffffffL);
+		if(end > buffer.limit())
+		{
+			throw new IndexOutOfBoundsException("The data length is out of bounds!");
+		}
+		return (int) end;
+	}
+	
+	/**
+	 * 解码一个使用变长编码长度的字符串.
+	 * @param buffer 字节缓冲.
+	 * @param position 字符串的起始位置.
+	 * @return 字符串.
+	 */
+	protected static String getVarString(ByteBuffer buffer, int position)
+	{
+		int start = skipVarInt(buffer, position);
+		return UTF8Util.decode(buffer, start, skipVarData(buffer, position) - start);
+	}
+	
+	/**
+	 * 获取使用变长编码长度的字符串或字节数组数据的切片.
+	 * @param buffer 字节缓冲.
+	 * @param position 数据的起始位置.
+	 * @return 字节缓冲的切片.
+	 */
+	protected static ByteBuffer getVarDataBuffer(ByteBuffer buffer, int position)
+	{
+		int start = skipVarInt(buffer, position);
+		return slice(buffer, start, skipVarData(buffer, position) - start);
+	}
+	
+	/**
+	 * 读取一个无符号 64 位数字.
+	 * @param buffer 字节缓冲.
+	 * @param position 数字的位置.
+	 * @return 对应的数据.
+	 */
+	protected static BigInteger getUnsignedLong(ByteBuffer buffer, int position)
+	{
+		long value = buffer.getLong(position);
+		BigInteger result = BigInteger.valueOf(value & Long.MAX_VALUE);
+		return value < 0 ? result.setBit(63) : result;
+	}
+	
+	/**
+	 * 解码一个字符串, 使用堆内存或只包含 ASCII 字符时不会复制数据.
+	 * @param buffer 字节缓冲.
+	 * @param position 字符串的起始位置.
+	 * @return 字符串.
+	 */
+	protected static String getString(ByteBuffer buffer, int position)
+	{
+		int length = buffer.getShort(position) & 0xffff;
+		position += 2;
+		return UTF8Util.decode(buffer, position, length);
+	}
+	
+	/**
+	 * 获取字符串 UTF-8 编码数据的切片.
+	 * @param buffer 字节缓冲.
+	 * @param position 字符串的起始位置.
+	 * @return 字节缓冲的切片.
+	 */
+	protected static ByteBuffer getStringBuffer(ByteBuffer buffer, int position)
+	{
+		return slice(buffer, position + 2, buffer.getShort(position) & 0xffff);
+	}
+	
+	/**
+	 * 获取字节数组数据的切片.
+	 * @param buffer 字节缓冲.
+	 * @param position 字节数组的起始位置.
+	 * @return 字节缓冲的切片.
+	 */
+	protected static ByteBuffer getBytesBuffer(ByteBuffer buffer, int position)
+	{
+		int end = skipBytes(buffer, position);
+		return slice(buffer, position + 4, end - position - 4);
+	}
+	
+	/**
+	 * 获取字节缓冲指定范围的只读切片, 不复制数据.
+	 * @param buffer 字节缓冲.
+	 * @param position 起始位置.
+	 * @param length 长度.
+	 * @return 只读的切片, 字节序为 AbstractStruct.STRUCT_ENDIAN.
+	 * @throws IndexOutOfBoundsException 范围超出字节缓冲时抛出该异常.
+	 */
+	protected static ByteBuffer slice(ByteBuffer buffer, int position, int length) throws IndexOutOfBoundsException
+	{
+		if(position < 0 || length < 0 || position + length > buffer.limit())
+		{
+			throw new IndexOutOfBoundsException("The range [" + position + ", " + (position + length) + ") is out of bounds!");
+		}
+		ByteBuffer slice = buffer.asReadOnlyBuffer();
+		slice.limit(position + length);
+		slice.position(position);
+		return slice.slice().order(AbstractStruct.STRUCT_ENDIAN);
+	}
+}
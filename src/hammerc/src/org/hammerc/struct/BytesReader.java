@@ -13,6 +13,7 @@ import org.hammerc.io.IDataInput;
 
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
 
 /**
  * 提供从字节流中读取数据的功能.
@@ -110,6 +111,16 @@ public class BytesReader
 		return input.readUnsignedLong();
 	}
 	
+	/**
+	 * 读取一个无符号 64 位数字, 不创建 BigInteger 对象, 大于 Long.MAX_VALUE 的数值会表现为负数.
+	 * @param input 输入流对象.
+	 * @return 对应的数据.
+	 */
+	public static long readULongValue(IDataInput input)
+	{
+		return input.readUnsignedLongValue();
+	}
+	
 	/**
 	 * 读取一个 32 位浮点数.
 	 * @param input 输入流对象.
@@ -155,15 +166,91 @@ public class BytesReader
 	}
 	
 	/**
-	 * 读取一个自定义数据.
+	 * 读取一个使用 zig-zag 及变长编码的带符号 32 位数字.
+	 * @param input 输入流对象.
+	 * @return 对应的数据.
+	 */
+	public static int readVarInt(IDataInput input)
+	{
+		return input.readVarInt();
+	}
+	
+	/**
+	 * 读取一个使用变长编码的无符号 32 位数字.
+	 * @param input 输入流对象.
+	 * @return 对应的数据.
+	 */
+	public static int readUVarInt(IDataInput input)
+	{
+		return input.readUnsignedVarInt();
+	}
+	
+	/**
+	 * 读取一个使用 zig-zag 及变长编码的带符号 64 位数字.
+	 * @param input 输入流对象.
+	 * @return 对应的数据.
+	 */
+	public static long readVarLong(IDataInput input)
+	{
+		return input.readVarLong();
+	}
+	
+	/**
+	 * 读取一个使用变长编码的无符号 64 位数字.
+	 * @param input 输入流对象.
+	 * @return 对应的数据.
+	 */
+	public static long readUVarLong(IDataInput input)
+	{
+		return input.readUnsignedVarLong();
+	}
+	
+	/**
+	 * 读取一个使用变长编码长度的字符串.
+	 * @param input 输入流对象.
+	 * @return 对应的数据.
+	 * @throws UnsupportedEncodingException 无法解码字符串时抛出.
+	 */
+	public static String readVarString(IDataInput input) throws UnsupportedEncodingException
+	{
+		return input.readUTFBytes(readLength(input));
+	}
+	
+	/**
+	 * 读取一个使用变长编码长度的字节数组.
+	 * @param input 输入流对象.
+	 * @return 对应的数据.
+	 */
+	public static byte[] readVarBytes(IDataInput input)
+	{
+		byte[] bytes = new byte[readLength(input)];
+		input.readBytes(bytes, 0, bytes.length);
+		return bytes;
+	}
+	
+	private static int readLength(IDataInput input)
+	{
+		int length = input.readUnsignedVarInt();
+		//长度不可能超过剩余数据, 避免损坏的数据分配过大的数组
+		if(length < 0 || length > input.bytesAvailable())
+		{
+			throw new BufferUnderflowException();
+		}
+		return length;
+	}
+	
+	/**
+	 * 读取一个自定义数据, 有生成的序列化类时不使用反射创建对象.
 	 * @param input 输入流对象.
 	 * @param structClass 自定义数据类.
 	 * @return 自定义数据.
 	 * @throws Exception 会抛出的异常.
 	 */
+	@SuppressWarnings("unchecked")
 	public static AbstractStruct readStruct(IDataInput input, Class structClass) throws Exception
 	{
-		AbstractStruct target = (AbstractStruct) structClass.newInstance();
+		IStructSerializer<?> serializer = StructSerializers.find((Class<? extends AbstractStruct>) structClass);
+		AbstractStruct target = serializer != null ? serializer.newInstance() : (AbstractStruct) structClass.newInstance();
 		target.readExternal(input);
 		return target;
 	}
@@ -10,6 +10,7 @@
 package org.hammerc.struct;
 
 import org.hammerc.io.IDataOutput;
+import org.hammerc.utils.UTF8Util;
 
 import java.math.BigInteger;
 
@@ -69,6 +70,21 @@ public class BytesWriter
 		output.writeUnsignedShort(value);
 	}
 	
+	/**
+	 * 写入一个 16 位无符号的数组长度, 与 StructWriter.writeArrayLength 相同.
+	 * @param output 输出流对象.
+	 * @param length 数组长度.
+	 * @throws IllegalArgumentException 长度超过 65535 时抛出该异常.
+	 */
+	public static void writeArrayLength(IDataOutput output, int length) throws IllegalArgumentException
+	{
+		if(length > 0xffff)
+		{
+			throw new IllegalArgumentException("The array is too long: " + length + " elements!");
+		}
+		output.writeUnsignedShort(length);
+	}
+	
 	/**
 	 * 写入一个带符号 32 位数字.
 	 * @param output 输出流对象.
@@ -150,6 +166,68 @@ public class BytesWriter
 		output.writeBytes(value);
 	}
 	
+	/**
+	 * 写入一个使用 zig-zag 及变长编码的带符号 32 位数字.
+	 * @param output 输出流对象.
+	 * @param value 要写入的数据.
+	 */
+	public static void writeVarInt(IDataOutput output, int value)
+	{
+		output.writeVarInt(value);
+	}
+	
+	/**
+	 * 写入一个使用变长编码的无符号 32 位数字.
+	 * @param output 输出流对象.
+	 * @param value 要写入的数据.
+	 */
+	public static void writeUVarInt(IDataOutput output, int value)
+	{
+		output.writeUnsignedVarInt(value);
+	}
+	
+	/**
+	 * 写入一个使用 zig-zag 及变长编码的带符号 64 位数字.
+	 * @param output 输出流对象.
+	 * @param value 要写入的数据.
+	 */
+	public static void writeVarLong(IDataOutput output, long value)
+	{
+		output.writeVarLong(value);
+	}
+	
+	/**
+	 * 写入一个使用变长编码的无符号 64 位数字.
+	 * @param output 输出流对象.
+	 * @param value 要写入的数据.
+	 */
+	public static void writeUVarLong(IDataOutput output, long value)
+	{
+		output.writeUnsignedVarLong(value);
+	}
+	
+	/**
+	 * 写入一个使用变长编码长度的字符串, 短字符串的长度只占用 1 个字节.
+	 * @param output 输出流对象.
+	 * @param value 要写入的数据.
+	 */
+	public static void writeVarString(IDataOutput output, String value)
+	{
+		output.writeUnsignedVarInt(UTF8Util.encodedLength(value));
+		output.writeUTFBytes(value);
+	}
+	
+	/**
+	 * 写入一个使用变长编码长度的字节数组, 短数组的长度只占用 1 个字节.
+	 * @param output 输出流对象.
+	 * @param value 要写入的数据.
+	 */
+	public static void writeVarBytes(IDataOutput output, byte[] value)
+	{
+		output.writeUnsignedVarInt(value.length);
+		output.writeBytes(value);
+	}
+	
 	/**
 	 * 写入一个自定义数据.
 	 * @param output 输出流对象.
@@ -0,0 +1,129 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+/**
+ * 自定义数据字段的编码类型, 与 BytesWriter 及 BytesReader 的方法一一对应.
+ * @author wizardc
+ */
+public enum FieldType
+{
+	/**
+	 * 按 Java 类型选择编码类型.
+	 */
+	AUTO(-1),
+	
+	/**
+	 * 布尔值, 对应 boolean 字段.
+	 */
+	BOOLEAN(1),
+	
+	/**
+	 * 带符号 8 位数字, 对应 byte 字段.
+	 */
+	BYTE(1),
+	
+	/**
+	 * 无符号 8 位数字, 对应 short 字段.
+	 */
+	UBYTE(1),
+	
+	/**
+	 * 带符号 16 位数字, 对应 short 字段.
+	 */
+	SHORT(2),
+	
+	/**
+	 * 无符号 16 位数字, 对应 int 字段.
+	 */
+	USHORT(2),
+	
+	/**
+	 * 带符号 32 位数字, 对应 int 字段.
+	 */
+	INT(4),
+	
+	/**
+	 * 无符号 32 位数字, 对应 long 字段.
+	 */
+	UINT(4),
+	
+	/**
+	 * 带符号 64 位数字, 对应 long 字段.
+	 */
+	LONG(8),
+	
+	/**
+	 * 无符号 64 位数字, 对应 BigInteger 字段, 或者使用补码表示的 long 字段.
+	 */
+	ULONG(8),
+	
+	/**
+	 * 32 位浮点数, 对应 float 字段.
+	 */
+	FLOAT(4),
+	
+	/**
+	 * 64 位浮点数, 对应 double 字段.
+	 */
+	DOUBLE(8),
+	
+	/**
+	 * 使用 zig-zag 及变长编码的带符号 32 位数字, 对应 int 字段.
+	 */
+	VARINT(-1),
+	
+	/**
+	 * 使用变长编码的无符号 32 位数字, 对应 int 字段.
+	 */
+	UVARINT(-1),
+	
+	/**
+	 * 使用 zig-zag 及变长编码的带符号 64 位数字, 对应 long 字段.
+	 */
+	VARLONG(-1),
+	
+	/**
+	 * 使用变长编码的无符号 64 位数字, 对应 long 字段.
+	 */
+	UVARLONG(-1),
+	
+	/**
+	 * 带 16 位长度的 UTF-8 字符串, 对应 String 字段, 自定义数据使用变长长度时长度前缀为变长编码.
+	 */
+	STRING(-1),
+	
+	/**
+	 * 带 32 位长度的字节数组, 对应 byte[] 字段, 自定义数据使用变长长度时长度前缀为变长编码.
+	 */
+	BYTES(-1),
+	
+	/**
+	 * 自定义数据, 对应使用 Struct 标记的 AbstractStruct 子类字段.
+	 */
+	STRUCT(-1);
+	
+	//固定的编码长度, 长度可变时为 -1
+	private int _size;
+	
+	FieldType(int size)
+	{
+		_size = size;
+	}
+	
+	/**
+	 * 获取固定的编码长度.
+	 * @return 固定的编码长度, 长度可变时返回 -1.
+	 */
+	public int getSize()
+	{
+		return _size;
+	}
+}
@@ -0,0 +1,72 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import org.hammerc.io.IDataInput;
+import org.hammerc.io.IDataOutput;
+
+/**
+ * 自定义数据类的序列化接口, 通常由 StructProcessor 为使用 Struct 标记的类生成.
+ * @author wizardc
+ */
+public interface IStructSerializer<T extends AbstractStruct>
+{
+	/**
+	 * 获取对应的自定义数据类.
+	 * @return 对应的自定义数据类.
+	 */
+	public Class<T> getStructClass();
+	
+	/**
+	 * 创建一个自定义数据对象, 不使用反射.
+	 * @return 自定义数据对象.
+	 */
+	public T newInstance();
+	
+	/**
+	 * 计算对象编码后的精确字节数, 定长部分在生成时已经计算好, 只需要累加字符串, 字节数组, 数组及嵌套数据的长度.
+	 * @param value 自定义数据对象.
+	 * @return 编码后的字节数.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public int encodedSize(T value) throws Exception;
+	
+	/**
+	 * 直接编码对象到写入对象中.
+	 * @param value 自定义数据对象.
+	 * @param writer 写入对象.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public void write(T value, StructWriter writer) throws Exception;
+	
+	/**
+	 * 直接从读取对象中解码对象.
+	 * @param value 自定义数据对象.
+	 * @param reader 读取对象.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public void read(T value, StructReader reader) throws Exception;
+	
+	/**
+	 * 通过输出流对象编码对象, 供 AbstractSerializedStruct 的 writeToBytes 方法使用.
+	 * @param value 自定义数据对象.
+	 * @param output 输出流对象.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public void writeTo(T value, IDataOutput output) throws Exception;
+	
+	/**
+	 * 通过输入流对象解码对象, 供 AbstractSerializedStruct 的 readFromBytes 方法使用.
+	 * @param value 自定义数据对象.
+	 * @param input 输入流对象.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public void readFrom(T value, IDataInput input) throws Exception;
+}
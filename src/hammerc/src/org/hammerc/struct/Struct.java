@@ -0,0 +1,41 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记需要在编译时生成序列化类的自定义数据类.
+ * <p>StructProcessor 会为标记的类在同一个包中生成名为 "类名Serializer" 的 IStructSerializer 实现, 嵌套类的类名中的 "$" 替换为 "_". 按字段的声明顺序编码所有非静态非 transient 的字段, 字段不能为 private, 类必须有可访问的无参构造函数.</p>
+ * <p>注解保留在类文件中, 以便其它模块中的自定义数据类引用已编译的自定义数据类. 标记的类继承 AbstractSerializedStruct 时不需要实现 writeToBytes 及 readFromBytes 方法, 直接继承 AbstractStruct 时仍然需要实现.</p>
+ * @author wizardc
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Struct
+{
+	/**
+	 * 是否同时生成名为 "类名View" 的 AbstractStructView 实现, 嵌套的自定义数据类也需要生成视图.
+	 * @return 是否生成视图.
+	 */
+	boolean view() default false;
+	
+	/**
+	 * 字符串, 字节数组及数组的长度前缀是否使用变长编码, 长度小于 128 时只占用 1 个字节. 使用变长编码时数组的长度不再限制为 65535.
+	 * <p>注: 该选项会改变编码格式, 通信双方需要使用相同的设置, 嵌套的自定义数据按各自的设置编码.</p>
+	 * @return 是否使用变长编码的长度前缀.
+	 */
+	boolean varLength() default false;
+}
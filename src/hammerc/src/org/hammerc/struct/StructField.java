@@ -0,0 +1,33 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 指定自定义数据字段的编码类型, 没有标记的字段按 Java 类型使用默认的编码类型.
+ * <p>数组字段的类型指定的是元素的编码类型.</p>
+ * @author wizardc
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface StructField
+{
+	/**
+	 * 字段的编码类型.
+	 * @return 字段的编码类型.
+	 */
+	FieldType type() default FieldType.AUTO;
+}
@@ -0,0 +1,393 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+
+import org.hammerc.utils.UTF8StringCache;
+import org.hammerc.utils.UTF8Util;
+import org.hammerc.utils.VarIntUtil;
+
+/**
+ * 供生成的序列化类使用的读取对象, 直接从字节数组中解码数据.
+ * <p>以 get 开头的方法不检查剩余数据的长度, 调用前需要使用 require 方法确保数据足够, 生成的序列化类会为连续的定长字段只检查一次. 以 read 开头的方法会自动检查.</p>
+ * @author wizardc
+ */
+public final class StructReader
+{
+	//数据
+	private byte[] _data;
+	//读取位置
+	private int _position;
+	//数据的结束位置
+	private int _limit;
+	//是否使用大端字节序
+	private boolean _bigEndian;
+	//字符串缓存, 为 null 时不使用缓存
+	private UTF8StringCache _stringCache;
+	
+	/**
+	 * 使用 AbstractStruct.STRUCT_ENDIAN 字节序创建一个 StructReader 对象.
+	 * @param data 数据.
+	 */
+	public StructReader(byte[] data)
+	{
+		this(data, 0, data.length, AbstractStruct.STRUCT_ENDIAN);
+	}
+	
+	/**
+	 * 创建一个 StructReader 对象.
+	 * @param data 数据.
+	 * @param offset 数据的起始位置.
+	 * @param length 数据的长度.
+	 * @param order 字节序.
+	 * @throws IndexOutOfBoundsException 范围超出数组时抛出该异常.
+	 */
+	public StructReader(byte[] data, int offset, int length, ByteOrder order) throws IndexOutOfBoundsException
+	{
+		if(offset < 0 || length < 0 || offset + length > data.length || offset + length < 0)
+		{
+			throw new IndexOutOfBoundsException("The range [" + offset + ", " + (offset + length) + ") is out of bounds!");
+		}
+		_data = data;
+		_position = offset;
+		_limit = offset + length;
+		_bigEndian = order == ByteOrder.BIG_ENDIAN;
+	}
+	
+	/**
+	 * 设置读取字符串时使用的缓存, 重复出现的短字符串会返回同一个对象.
+	 * @param stringCache 字符串缓存, 为 null 时不使用缓存.
+	 */
+	public void stringCache(UTF8StringCache stringCache)
+	{
+		_stringCache = stringCache;
+	}
+	
+	/**
+	 * 获取读取字符串时使用的缓存.
+	 * @return 字符串缓存, 没有设置时返回 null.
+	 */
+	public UTF8StringCache stringCache()
+	{
+		return _stringCache;
+	}
+	
+	/**
+	 * 获取读取位置.
+	 * @return 读取位置.
+	 */
+	public int position()
+	{
+		return _position;
+	}
+	
+	/**
+	 * 获取剩余数据的长度.
+	 * @return 剩余数据的长度.
+	 */
+	public int bytesAvailable()
+	{
+		return _limit - _position;
+	}
+	
+	/**
+	 * 确保还可以读取指定长度的数据.
+	 * @param size 需要读取的长度.
+	 * @throws BufferUnderflowException 剩余数据不足时抛出该异常.
+	 */
+	public void require(int size) throws BufferUnderflowException
+	{
+		if(size < 0 || size > _limit - _position)
+		{
+			throw new BufferUnderflowException();
+		}
+	}
+	
+	/**
+	 * 读取一个布尔值, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public boolean getBoolean()
+	{
+		return _data[_position++] != 0;
+	}
+	
+	/**
+	 * 读取一个带符号 8 位数字, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public byte getByte()
+	{
+		return _data[_position++];
+	}
+	
+	/**
+	 * 读取一个无符号 8 位数字, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public short getUnsignedByte()
+	{
+		return (short) (_data[_position++] & 0xff);
+	}
+	
+	/**
+	 * 读取一个带符号 16 位数字, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public short getShort()
+	{
+		return (short) getUnsignedShort();
+	}
+	
+	/**
+	 * 读取一个无符号 16 位数字, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public int getUnsignedShort()
+	{
+		byte[] data = _data;
+		int position = _position;
+		_position = position + 2;
+		if(_bigEndian)
+		{
+			return (data[position] & 0xff) << 8 | (data[position + 1] & 0xff);
+		}
+		return (data[position + 1] & 0xff) << 8 | (data[position] & 0xff);
+	}
+	
+	/**
+	 * 读取一个带符号 32 位数字, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public int getInt()
+	{
+		byte[] data = _data;
+		int position = _position;
+		_position = position + 4;
+		if(_bigEndian)
+		{
+			return data[position] << 24 | (data[position + 1] & 0xff) << 16 | (data[position + 2] & 0xff) << 8 | (data[position + 3] & 0xff);
+		}
+		return data[position + 3] << 24 | (data[position + 2] & 0xff) << 16 | (data[position + 1] & 0xff) << 8 | (data[position] & 0xff);
+	}
+	
+	/**
+	 * 读取一个无符号 32 位数字, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public long getUnsignedInt()
+	{
+		return getInt() & 0xffffffffL;
+	}
+	
+	/**
+	 * 读取一个带符号 64 位数字, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public long getLong()
+	{
+		long first = getInt() & 0xffffffffL;
+		long second = getInt() & 0xffffffffL;
+		return _bigEndian ? first << 32 | second : second << 32 | first;
+	}
+	
+	/**
+	 * 读取一个无符号 64 位数字, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public BigInteger getUnsignedLong()
+	{
+		long value = getLong();
+		BigInteger result = BigInteger.valueOf(value & Long.MAX_VALUE);
+		return value < 0 ? result.setBit(63) : result;
+	}
+	
+	/**
+	 * 读取一个 32 位浮点数, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public float getFloat()
+	{
+		return Float.intBitsToFloat(getInt());
+	}
+	
+	/**
+	 * 读取一个 64 位浮点数, 不检查剩余数据.
+	 * @return 对应的数据.
+	 */
+	public double getDouble()
+	{
+		return Double.longBitsToDouble(getLong());
+	}
+	
+	/**
+	 * 读取一个使用 zig-zag 及变长编码的带符号 32 位数字.
+	 * @return 对应的数据.
+	 * @throws BufferUnderflowException 剩余数据不足时抛出该异常.
+	 * @throws IllegalStateException 编码超过 5 个字节时抛出该异常.
+	 */
+	public int readVarInt() throws BufferUnderflowException, IllegalStateException
+	{
+		return VarIntUtil.decodeZigZag(readUnsignedVarInt());
+	}
+	
+	/**
+	 * 读取一个使用变长编码的无符号 32 位数字.
+	 * @return 对应的数据.
+	 * @throws BufferUnderflowException 剩余数据不足时抛出该异常.
+	 * @throws IllegalStateException 编码超过 5 个字节时抛出该异常.
+	 */
+	public int readUnsignedVarInt() throws BufferUnderflowException, IllegalStateException
+	{
+		byte[] data = _data;
+		int position = _position;
+		int result = 0;
+		for(int shift = 0; shift < 32; shift += 7)
+		{
+			if(position >= _limit)
+			{
+				throw new BufferUnderflowException();
+			}
+			byte b = data[position++];
+			result |= (b & 0x7f) << shift;
+			if(b >= 0)
+			{
+				_position = position;
+				return result;
+			}
+		}
+		throw new IllegalStateException("The varint is malformed!");
+	}
+	
+	/**
+	 * 读取一个使用 zig-zag 及变长编码的带符号 64 位数字.
+	 * @return 对应的数据.
+	 * @throws BufferUnderflowException 剩余数据不足时抛出该异常.
+	 * @throws IllegalStateException 编码超过 10 个字节时抛出该异常.
+	 */
+	public long readVarLong() throws BufferUnderflowException, IllegalStateException
+	{
+		return VarIntUtil.decodeZigZag(readUnsignedVarLong());
+	}
+	
+	/**
+	 * 读取一个使用变长编码的无符号 64 位数字.
+	 * @return 对应的数据.
+	 * @throws BufferUnderflowException 剩余数据不足时抛出该异常.
+	 * @throws IllegalStateException 编码超过 10 个字节时抛出该异常.
+	 */
+	public long readUnsignedVarLong() throws BufferUnderflowException, IllegalStateException
+	{
+		byte[] data = _data;
+		int position = _position;
+		long result = 0;
+		for(int shift = 0; shift < 64; shift += 7)
+		{
+			if(position >= _limit)
+			{
+				throw new BufferUnderflowException();
+			}
+			byte b = data[position++];
+			result |= (long) (b & 0x7f) << shift;
+			if(b >= 0)
+			{
+				_position = position;
+				return result;
+			}
+		}
+		throw new IllegalStateException("The varint is malformed!");
+	}
+	
+	/**
+	 * 读取一个使用变长编码的数组长度, 每个元素至少占用 1 个字节, 长度不能超过剩余数据的长度.
+	 * @return 数组长度.
+	 * @throws BufferUnderflowException 长度超过剩余数据的长度时抛出该异常.
+	 */
+	public int readVarArrayLength() throws BufferUnderflowException
+	{
+		int length = readUnsignedVarInt();
+		require(length);
+		return length;
+	}
+	
+	/**
+	 * 读取一个使用变长编码长度的 UTF-8 字符串.
+	 * @return 对应的数据.
+	 * @throws BufferUnderflowException 剩余数据不足时抛出该异常.
+	 */
+	public String readVarString() throws BufferUnderflowException
+	{
+		int length = readUnsignedVarInt();
+		require(length);
+		return decodeString(length);
+	}
+	
+	/**
+	 * 读取一个使用变长编码长度的字节数组.
+	 * @return 对应的数据.
+	 * @throws BufferUnderflowException 剩余数据不足时抛出该异常.
+	 */
+	public byte[] readVarBytes() throws BufferUnderflowException
+	{
+		int length = readUnsignedVarInt();
+		require(length);
+		byte[] bytes = new byte[length];
+		System.arraycopy(_data, _position, bytes, 0, length);
+		_position += length;
+		return bytes;
+	}
+	
+	/**
+	 * 读取一个带 16 位长度的 UTF-8 字符串.
+	 * @return 对应的数据.
+	 * @throws BufferUnderflowException 剩余数据不足时抛出该异常.
+	 */
+	public String readString() throws BufferUnderflowException
+	{
+		require(2);
+		int length = getUnsignedShort();
+		require(length);
+		return decodeString(length);
+	}
+	
+	private String decodeString(int length)
+	{
+		int position = _position;
+		_position = position + length;
+		UTF8StringCache stringCache = _stringCache;
+		if(stringCache != null)
+		{
+			return stringCache.get(_data, position, length);
+		}
+		return new String(_data, position, length, UTF8Util.UTF_8);
+	}
+	
+	/**
+	 * 读取一个带 32 位长度的字节数组.
+	 * @return 对应的数据.
+	 * @throws BufferUnderflowException 剩余数据不足时抛出该异常.
+	 */
+	public byte[] readBytes() throws BufferUnderflowException
+	{
+		require(4);
+		long length = getUnsignedInt();
+		if(length > _limit - _position)
+		{
+			throw new BufferUnderflowException();
+		}
+		byte[] bytes = new byte[(int) length];
+		System.arraycopy(_data, _position, bytes, 0, bytes.length);
+		_position += bytes.length;
+		return bytes;
+	}
+}
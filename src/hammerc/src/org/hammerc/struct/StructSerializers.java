@@ -0,0 +1,227 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import java.nio.BufferUnderflowException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 管理自定义数据类的序列化对象, 并提供使用序列化对象编码及解码的功能.
+ * <p>首次获取时按命名规则加载 StructProcessor 生成的序列化类, 也可以通过 register 方法注册手写的序列化对象.</p>
+ * @author wizardc
+ */
+public class StructSerializers
+{
+	//生成的序列化类的类名后缀
+	private static final String SUFFIX = "Serializer";
+	//表示没有序列化对象的标记
+	private static final Object NONE = new Object();
+	
+	//所有已查找过的序列化对象
+	private static final ConcurrentHashMap<Class<?>, Object> SERIALIZERS = new ConcurrentHashMap<Class<?>, Object>();
+	
+	/**
+	 * 注册一个序列化对象, 会替换已有的序列化对象.
+	 * @param serializer 序列化对象.
+	 */
+	public static <T extends AbstractStruct> void register(IStructSerializer<T> serializer)
+	{
+		SERIALIZERS.put(serializer.getStructClass(), serializer);
+	}
+	
+	/**
+	 * 查找指定自定义数据类的序列化对象.
+	 * @param structClass 自定义数据类.
+	 * @return 序列化对象, 没有时返回 null.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends AbstractStruct> IStructSerializer<T> find(Class<T> structClass)
+	{
+		Object serializer = SERIALIZERS.get(structClass);
+		if(serializer == null)
+		{
+			serializer = load(structClass);
+			Object previous = SERIALIZERS.putIfAbsent(structClass, serializer);
+			if(previous != null)
+			{
+				serializer = previous;
+			}
+		}
+		return serializer == NONE ? null : (IStructSerializer<T>) serializer;
+	}
+	
+	/**
+	 * 获取指定自定义数据类的序列化对象.
+	 * @param structClass 自定义数据类.
+	 * @return 序列化对象.
+	 * @throws IllegalArgumentException 没有序列化对象时抛出该异常.
+	 */
+	public static <T extends AbstractStruct> IStructSerializer<T> get(Class<T> structClass) throws IllegalArgumentException
+	{
+		IStructSerializer<T> serializer = find(structClass);
+		if(serializer == null)
+		{
+			throw new IllegalArgumentException("The class \"" + structClass.getName() + "\" has no serializer, is it annotated with @Struct?");
+		}
+		return serializer;
+	}
+	
+	@SuppressWarnings("unchecked")
+	static IStructSerializer<AbstractStruct> lookup(Class<? extends AbstractStruct> structClass)
+	{
+		return (IStructSerializer<AbstractStruct>) get(structClass);
+	}
+	
+	@SuppressWarnings("unchecked")
+	static IStructSerializer<AbstractStruct> lookupIfPresent(Class<? extends AbstractStruct> structClass)
+	{
+		return (IStructSerializer<AbstractStruct>) find(structClass);
+	}
+	
+	private static Object load(Class<?> structClass)
+	{
+		String name = structClass.getName();
+		int index = name.lastIndexOf('.') + 1;
+		name = name.substring(0, index) + name.substring(index).replace('$', '_') + SUFFIX;
+		try
+		{
+			Class<?> serializerClass = Class.forName(name, true, structClass.getClassLoader());
+			Object serializer = serializerClass.getField("INSTANCE").get(null);
+			if(serializer instanceof IStructSerializer && ((IStructSerializer<?>) serializer).getStructClass() == structClass)
+			{
+				return serializer;
+			}
+		}
+		catch(Exception exception)
+		{
+		}
+		return NONE;
+	}
+	
+	/**
+	 * 使用序列化对象编码一个自定义数据, 按预先计算的长度一次分配数组, 不会扩容及复制.
+	 * @param value 自定义数据.
+	 * @return 编码后的数据.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public static byte[] encode(AbstractStruct value) throws Exception
+	{
+		IStructSerializer<AbstractStruct> serializer = lookup(value.getClass());
+		StructWriter writer = new StructWriter(serializer.encodedSize(value));
+		serializer.write(value, writer);
+		return writer.bytes();
+	}
+	
+	/**
+	 * 编码一组自定义数据, 每个数据前带有 32 位的长度前缀.
+	 * <p>先计算所有数据的长度再一次分配数组, 长度前缀直接写入而不需要在编码后回填.</p>
+	 * @param values 自定义数据列表.
+	 * @return 编码后的数据.
+	 * @throws Exception 会抛出的异常.
+	 */
+	@SuppressWarnings("unchecked")
+	public static byte[] encodeAll(List<? extends AbstractStruct> values) throws Exception
+	{
+		int count = values.size();
+		IStructSerializer<?>[] serializers = new IStructSerializer<?>[count];
+		int[] sizes = new int[count];
+		long total = 0;
+		for(int i = 0; i < count; i++)
+		{
+			AbstractStruct value = values.get(i);
+			IStructSerializer<AbstractStruct> serializer = lookup(value.getClass());
+			serializers[i] = serializer;
+			sizes[i] = serializer.encodedSize(value);
+			total += 4 + sizes[i];
+		}
+		if(total > Integer.MAX_VALUE - 8)
+		{
+			throw new OutOfMemoryError("The encoded structs are too large: " + total + " bytes!");
+		}
+		StructWriter writer = new StructWriter((int) total);
+		for(int i = 0; i < count; i++)
+		{
+			writer.ensureCapacity(4);
+			writer.putInt(sizes[i]);
+			((IStructSerializer<AbstractStruct>) serializers[i]).write(values.get(i), writer);
+		}
+		return writer.bytes();
+	}
+	
+	/**
+	 * 解码使用 encodeAll 方法编码的一组自定义数据.
+	 * @param data 编码后的数据.
+	 * @param structClass 自定义数据类.
+	 * @return 自定义数据列表.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public static <T extends AbstractStruct> ArrayList<T> decodeAll(byte[] data, Class<T> structClass) throws Exception
+	{
+		IStructSerializer<T> serializer = get(structClass);
+		ArrayList<T> values = new ArrayList<T>();
+		StructReader reader = new StructReader(data);
+		while(reader.bytesAvailable() > 0)
+		{
+			reader.require(4);
+			int size = reader.getInt();
+			reader.require(size);
+			int end = reader.position() + size;
+			T value = serializer.newInstance();
+			serializer.read(value, reader);
+			//长度前缀与实际读取的长度不一致说明数据已经损坏
+			if(reader.position() != end)
+			{
+				throw new BufferUnderflowException();
+			}
+			values.add(value);
+		}
+		return values;
+	}
+	
+	/**
+	 * 使用序列化对象编码一个自定义数据到指定的写入对象中.
+	 * @param value 自定义数据.
+	 * @param writer 写入对象.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public static void encode(AbstractStruct value, StructWriter writer) throws Exception
+	{
+		lookup(value.getClass()).write(value, writer);
+	}
+	
+	/**
+	 * 使用序列化对象解码一个自定义数据.
+	 * @param data 编码后的数据.
+	 * @param structClass 自定义数据类.
+	 * @return 自定义数据.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public static <T extends AbstractStruct> T decode(byte[] data, Class<T> structClass) throws Exception
+	{
+		return decode(new StructReader(data), structClass);
+	}
+	
+	/**
+	 * 使用序列化对象从指定的读取对象中解码一个自定义数据.
+	 * @param reader 读取对象.
+	 * @param structClass 自定义数据类.
+	 * @return 自定义数据.
+	 * @throws Exception 会抛出的异常.
+	 */
+	public static <T extends AbstractStruct> T decode(StructReader reader, Class<T> structClass) throws Exception
+	{
+		IStructSerializer<T> serializer = get(structClass);
+		T value = serializer.newInstance();
+		serializer.read(value, reader);
+		return value;
+	}
+}
@@ -0,0 +1,413 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+
+import org.hammerc.utils.UTF8Util;
+import org.hammerc.utils.VarIntUtil;
+
+/**
+ * 供生成的序列化类使用的写入对象, 直接将数据编码到可自动扩容的字节数组中.
+ * <p>以 put 开头的方法不检查容量, 调用前需要使用 ensureCapacity 方法确保容量足够, 生成的序列化类会为连续的定长字段只检查一次容量. 以 write 开头的方法会自动扩容.</p>
+ * @author wizardc
+ */
+public final class StructWriter
+{
+	/**
+	 * 默认的初始容量.
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+	
+	//数据
+	private byte[] _buffer;
+	//写入位置
+	private int _position;
+	//是否使用大端字节序
+	private boolean _bigEndian;
+	
+	/**
+	 * 使用默认的初始容量及 AbstractStruct.STRUCT_ENDIAN 字节序创建一个 StructWriter 对象.
+	 */
+	public StructWriter()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * 使用 AbstractStruct.STRUCT_ENDIAN 字节序创建一个 StructWriter 对象.
+	 * @param capacity 初始容量, 小于 1 时按默认容量进行设置.
+	 */
+	public StructWriter(int capacity)
+	{
+		this(capacity, AbstractStruct.STRUCT_ENDIAN);
+	}
+	
+	/**
+	 * 创建一个 StructWriter 对象.
+	 * @param capacity 初始容量, 小于 1 时按默认容量进行设置.
+	 * @param order 字节序.
+	 */
+	public StructWriter(int capacity, ByteOrder order)
+	{
+		_buffer = new byte[capacity < 1 ? DEFAULT_CAPACITY : capacity];
+		_bigEndian = order == ByteOrder.BIG_ENDIAN;
+	}
+	
+	/**
+	 * 获取字节序.
+	 * @return 字节序.
+	 */
+	public ByteOrder endian()
+	{
+		return _bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+	}
+	
+	/**
+	 * 获取已写入数据的长度.
+	 * @return 已写入数据的长度.
+	 */
+	public int length()
+	{
+		return _position;
+	}
+	
+	/**
+	 * 获取底层的字节数组, 不会进行复制, 有效数据为 0 到 length() 之间的部分.
+	 * @return 底层的字节数组.
+	 */
+	public byte[] array()
+	{
+		return _buffer;
+	}
+	
+	/**
+	 * 获取数据对应的字节数组, 当容量恰好等于数据长度时直接返回底层的字节数组不会进行复制.
+	 * @return 字节数组.
+	 */
+	public byte[] bytes()
+	{
+		if(_buffer.length == _position)
+		{
+			return _buffer;
+		}
+		byte[] bytes = new byte[_position];
+		System.arraycopy(_buffer, 0, bytes, 0, _position);
+		return bytes;
+	}
+	
+	/**
+	 * 清除数据, 保留已分配的容量以便重复使用.
+	 */
+	public void clear()
+	{
+		_position = 0;
+	}
+	
+	/**
+	 * 确保还可以写入指定长度的数据, 容量不足时按两倍增长.
+	 * @param size 需要写入的长度.
+	 */
+	public void ensureCapacity(int size)
+	{
+		int required = _position + size;
+		if(required > _buffer.length)
+		{
+			grow(required);
+		}
+	}
+	
+	private void grow(int required)
+	{
+		if(required < 0)
+		{
+			throw new OutOfMemoryError("Required capacity is too large!");
+		}
+		int capacity = Math.max(_buffer.length << 1, required);
+		byte[] buffer = new byte[capacity < 0 ? required : capacity];
+		System.arraycopy(_buffer, 0, buffer, 0, _position);
+		_buffer = buffer;
+	}
+	
+	/**
+	 * 写入一个布尔值, 不检查容量.
+	 * @param value 要写入的数据.
+	 */
+	public void putBoolean(boolean value)
+	{
+		_buffer[_position++] = value ? (byte) 1 : (byte) 0;
+	}
+	
+	/**
+	 * 写入一个 8 位数字, 不检查容量.
+	 * @param value 要写入的数据.
+	 */
+	public void putByte(int value)
+	{
+		_buffer[_position++] = (byte) value;
+	}
+	
+	/**
+	 * 写入一个 16 位数字, 不检查容量.
+	 * @param value 要写入的数据.
+	 */
+	public void putShort(int value)
+	{
+		byte[] buffer = _buffer;
+		int position = _position;
+		if(_bigEndian)
+		{
+			buffer[position] = (byte) (value >>> 8);
+			buffer[position + 1] = (byte) value;
+		}
+		else
+		{
+			buffer[position] = (byte) value;
+			buffer[position + 1] = (byte) (value >>> 8);
+		}
+		_position = position + 2;
+	}
+	
+	/**
+	 * 写入一个 32 位数字, 不检查容量.
+	 * @param value 要写入的数据.
+	 */
+	public void putInt(int value)
+	{
+		byte[] buffer = _buffer;
+		int position = _position;
+		if(_bigEndian)
+		{
+			buffer[position] = (byte) (value >>> 24);
+			buffer[position + 1] = (byte) (value >>> 16);
+			buffer[position + 2] = (byte) (value >>> 8);
+			buffer[position + 3] = (byte) value;
+		}
+		else
+		{
+			buffer[position] = (byte) value;
+			buffer[position + 1] = (byte) (value >>> 8);
+			buffer[position + 2] = (byte) (value >>> 16);
+			buffer[position + 3] = (byte) (value >>> 24);
+		}
+		_position = position + 4;
+	}
+	
+	/**
+	 * 写入一个 64 位数字, 不检查容量.
+	 * @param value 要写入的数据.
+	 */
+	public void putLong(long value)
+	{
+		if(_bigEndian)
+		{
+			putInt((int) (value >>> 32));
+			putInt((int) value);
+		}
+		else
+		{
+			putInt((int) value);
+			putInt((int) (value >>> 32));
+		}
+	}
+	
+	/**
+	 * 写入一个无符号 64 位数字, 不检查容量.
+	 * @param value 要写入的数据.
+	 */
+	public void putUnsignedLong(BigInteger value)
+	{
+		putLong(value.longValue());
+	}
+	
+	/**
+	 * 写入一个 32 位浮点数, 不检查容量.
+	 * @param value 要写入的数据.
+	 */
+	public void putFloat(float value)
+	{
+		putInt(Float.floatToRawIntBits(value));
+	}
+	
+	/**
+	 * 写入一个 64 位浮点数, 不检查容量.
+	 * @param value 要写入的数据.
+	 */
+	public void putDouble(double value)
+	{
+		putLong(Double.doubleToRawLongBits(value));
+	}
+	
+	/**
+	 * 写入一个 16 位无符号的数组长度.
+	 * @param length 数组长度.
+	 * @throws IllegalArgumentException 长度超过 65535 时抛出该异常.
+	 */
+	public void writeArrayLength(int length) throws IllegalArgumentException
+	{
+		if(length > 0xffff)
+		{
+			throw new IllegalArgumentException("The array is too long: " + length + " elements!");
+		}
+		ensureCapacity(2);
+		putShort(length);
+	}
+	
+	/**
+	 * 计算字符串使用 UTF-8 编码后的字节数, 不包括长度前缀, 不会创建临时数组.
+	 * <p>与 String.getBytes 的行为一致, 不成对的代理字符按替换字符 "?" 计算.</p>
+	 * @param value 字符串.
+	 * @return 编码后的字节数.
+	 */
+	public static int utf8Length(String value)
+	{
+		return UTF8Util.encodedLength(value);
+	}
+	
+	/**
+	 * 写入一个带 16 位长度的 UTF-8 字符串.
+	 * @param value 要写入的数据.
+	 * @throws IllegalArgumentException 编码后的长度超过 65535 字节时抛出该异常.
+	 */
+	public void writeString(String value) throws IllegalArgumentException
+	{
+		int length = value.length();
+		//UTF-8 编码后的长度不会小于字符数量
+		if(length > 0xffff)
+		{
+			throw new IllegalArgumentException("The encoded string is too long: at least " + length + " bytes!");
+		}
+		ensureCapacity(2 + length);
+		int start = _position;
+		int position = start + 2;
+		byte[] buffer = _buffer;
+		//只包含 ASCII 字符时直接写入, 不创建临时数组
+		for(int i = 0; i < length; i++)
+		{
+			char c = value.charAt(i);
+			if(c >= 0x80)
+			{
+				writeEncodedString(value);
+				return;
+			}
+			buffer[position++] = (byte) c;
+		}
+		putShort(length);
+		_position = position;
+	}
+	
+	private void writeEncodedString(String value)
+	{
+		int length = UTF8Util.encodedLength(value);
+		if(length > 0xffff)
+		{
+			throw new IllegalArgumentException("The encoded string is too long: " + length + " bytes!");
+		}
+		ensureCapacity(2 + length);
+		putShort(length);
+		_position = UTF8Util.encode(value, _buffer, _position);
+	}
+	
+	/**
+	 * 计算使用变长编码长度的字符串编码后的字节数, 包括长度前缀.
+	 * @param value 字符串.
+	 * @return 编码后的字节数.
+	 */
+	public static int varStringSize(String value)
+	{
+		int length = utf8Length(value);
+		return VarIntUtil.sizeOfUnsignedVarInt(length) + length;
+	}
+	
+	/**
+	 * 计算使用变长编码长度的字节数组编码后的字节数, 包括长度前缀.
+	 * @param value 字节数组.
+	 * @return 编码后的字节数.
+	 */
+	public static int varBytesSize(byte[] value)
+	{
+		return VarIntUtil.sizeOfUnsignedVarInt(value.length) + value.length;
+	}
+	
+	/**
+	 * 写入一个使用 zig-zag 及变长编码的带符号 32 位数字.
+	 * @param value 要写入的数据.
+	 */
+	public void writeVarInt(int value)
+	{
+		writeUnsignedVarInt(VarIntUtil.encodeZigZag(value));
+	}
+	
+	/**
+	 * 写入一个使用变长编码的无符号 32 位数字.
+	 * @param value 要写入的数据.
+	 */
+	public void writeUnsignedVarInt(int value)
+	{
+		ensureCapacity(VarIntUtil.MAX_VAR_INT_SIZE);
+		_position = VarIntUtil.writeUnsignedVarInt(_buffer, _position, value);
+	}
+	
+	/**
+	 * 写入一个使用 zig-zag 及变长编码的带符号 64 位数字.
+	 * @param value 要写入的数据.
+	 */
+	public void writeVarLong(long value)
+	{
+		writeUnsignedVarLong(VarIntUtil.encodeZigZag(value));
+	}
+	
+	/**
+	 * 写入一个使用变长编码的无符号 64 位数字.
+	 * @param value 要写入的数据.
+	 */
+	public void writeUnsignedVarLong(long value)
+	{
+		ensureCapacity(VarIntUtil.MAX_VAR_LONG_SIZE);
+		_position = VarIntUtil.writeUnsignedVarLong(_buffer, _position, value);
+	}
+	
+	/**
+	 * 写入一个使用变长编码长度的 UTF-8 字符串.
+	 * @param value 要写入的数据.
+	 */
+	public void writeVarString(String value)
+	{
+		int size = UTF8Util.encodedLength(value);
+		writeUnsignedVarInt(size);
+		ensureCapacity(size);
+		_position = UTF8Util.encode(value, _buffer, _position);
+	}
+	
+	/**
+	 * 写入一个使用变长编码长度的字节数组.
+	 * @param value 要写入的数据.
+	 */
+	public void writeVarBytes(byte[] value)
+	{
+		writeUnsignedVarInt(value.length);
+		ensureCapacity(value.length);
+		System.arraycopy(value, 0, _buffer, _position, value.length);
+		_position += value.length;
+	}
+	
+	/**
+	 * 写入一个带 32 位长度的字节数组.
+	 * @param value 要写入的数据.
+	 */
+	public void writeBytes(byte[] value)
+	{
+		ensureCapacity(4 + value.length);
+		putInt(value.length);
+		System.arraycopy(value, 0, _buffer, _position, value.length);
+		_position += value.length;
+	}
+}
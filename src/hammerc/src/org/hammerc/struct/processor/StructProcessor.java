@@ -0,0 +1,861 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import org.hammerc.struct.FieldType;
+import org.hammerc.struct.Struct;
+import org.hammerc.struct.StructField;
+
+/**
+ * 为使用 Struct 标记的自定义数据类生成 IStructSerializer 实现的注解处理器.
+ * <p>生成的序列化类直接读写 StructWriter 及 StructReader, 所有调用都是单态的; 连续的定长字段只检查一次容量; 嵌套的自定义数据直接使用 new 创建并调用对应的序列化类, 不使用反射. 编码格式与使用 BytesWriter 及 BytesReader 按字段顺序手写的实现相同, 数组使用 16 位无符号长度前缀.</p>
+ * <p>hammerc 的 jar 包中已经注册了该处理器, 依赖 hammerc 编译时会自动运行, 显式指定了 annotationProcessorPaths 时需要加入 hammerc.</p>
+ * @author wizardc
+ */
+public class StructProcessor extends AbstractProcessor
+{
+	private static final String ABSTRACT_STRUCT = "org.hammerc.struct.AbstractStruct";
+	private static final String SUFFIX = "Serializer";
+	private static final String VIEW_SUFFIX = "View";
+	static final String VAR_INT_UTIL = "org.hammerc.utils.VarIntUtil";
+	
+	@Override
+	public Set<String> getSupportedAnnotationTypes()
+	{
+		HashSet<String> types = new HashSet<String>();
+		types.add(Struct.class.getName());
+		types.add(StructField.class.getName());
+		return types;
+	}
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+	{
+		for(Element element : roundEnv.getElementsAnnotatedWith(Struct.class))
+		{
+			if(element.getKind() != ElementKind.CLASS)
+			{
+				error("@Struct can only be applied to classes!", element);
+				continue;
+			}
+			TypeElement type = (TypeElement) element;
+			StructModel model = buildModel(type);
+			if(model != null)
+			{
+				try
+				{
+					writeSource(model, type);
+				}
+				catch(IOException exception)
+				{
+					error("Failed to write the serializer: " + exception.getMessage(), type);
+				}
+			}
+		}
+		return true;
+	}
+	
+	private StructModel buildModel(TypeElement type)
+	{
+		boolean valid = true;
+		if(!processingEnv.getTypeUtils().isAssignable(type.asType(), abstractStructType()))
+		{
+			error("The class annotated with @Struct must extend AbstractStruct!", type);
+			valid = false;
+		}
+		if(type.getModifiers().contains(Modifier.ABSTRACT))
+		{
+			error("The class annotated with @Struct can not be abstract!", type);
+			valid = false;
+		}
+		if(type.getModifiers().contains(Modifier.PRIVATE) || (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)))
+		{
+			error("The class annotated with @Struct must be a top level class or a non-private static nested class!", type);
+			valid = false;
+		}
+		if(!hasDefaultConstructor(type))
+		{
+			error("The class annotated with @Struct must have a non-private constructor without parameters!", type);
+			valid = false;
+		}
+		StructModel model = new StructModel();
+		model.packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		model.className = type.getQualifiedName().toString();
+		model.serializerName = serializerSimpleName(type);
+		model.viewName = viewSimpleName(type);
+		model.view = type.getAnnotation(Struct.class).view();
+		model.varLength = type.getAnnotation(Struct.class).varLength();
+		//父类的字段先编码
+		ArrayList<TypeElement> hierarchy = new ArrayList<TypeElement>();
+		for(TypeElement current = type; current != null && !current.getQualifiedName().contentEquals(ABSTRACT_STRUCT); current = superclass(current))
+		{
+			hierarchy.add(0, current);
+		}
+		for(TypeElement current : hierarchy)
+		{
+			for(Element member : current.getEnclosedElements())
+			{
+				if(member.getKind() != ElementKind.FIELD)
+				{
+					continue;
+				}
+				Set<Modifier> modifiers = member.getModifiers();
+				if(modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT))
+				{
+					continue;
+				}
+				FieldModel field = buildField((VariableElement) member, model.packageName, model.varLength);
+				if(field == null)
+				{
+					valid = false;
+				}
+				else if(model.view && field.type == FieldType.STRUCT && !field.hasView)
+				{
+					error("The nested struct class of a view must be annotated with @Struct(view = true)!", member);
+					valid = false;
+				}
+				else
+				{
+					model.fields.add(field);
+				}
+			}
+		}
+		return valid ? model : null;
+	}
+	
+	private FieldModel buildField(VariableElement member, String packageName, boolean varLength)
+	{
+		Set<Modifier> modifiers = member.getModifiers();
+		String memberPackage = processingEnv.getElementUtils().getPackageOf(member).getQualifiedName().toString();
+		if(modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || (!modifiers.contains(Modifier.PUBLIC) && !memberPackage.equals(packageName)))
+		{
+			error("The struct field must be non-final and accessible from package \"" + packageName + "\"!", member);
+			return null;
+		}
+		FieldModel field = new FieldModel();
+		field.name = member.getSimpleName().toString();
+		field.varLength = varLength;
+		TypeMirror type = member.asType();
+		if(type.getKind() == TypeKind.ARRAY && ((ArrayType) type).getComponentType().getKind() != TypeKind.BYTE)
+		{
+			field.array = true;
+			type = ((ArrayType) type).getComponentType();
+		}
+		field.javaType = processingEnv.getTypeUtils().erasure(type).toString();
+		StructField annotation = member.getAnnotation(StructField.class);
+		FieldType declared = annotation == null ? FieldType.AUTO : annotation.type();
+		field.type = resolveType(type, declared);
+		if(field.type == null)
+		{
+			error("The struct field type \"" + type + "\" does not support encoding type " + declared + "!", member);
+			return null;
+		}
+		if(field.type == FieldType.STRUCT)
+		{
+			TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+			if(element.getAnnotation(Struct.class) == null)
+			{
+				error("The nested struct class \"" + element.getQualifiedName() + "\" must be annotated with @Struct!", member);
+				return null;
+			}
+			String prefix = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName() + ".";
+			prefix = prefix.equals(".") ? "" : prefix;
+			field.serializer = prefix + serializerSimpleName(element);
+			field.view = prefix + viewSimpleName(element);
+			field.hasView = element.getAnnotation(Struct.class).view();
+		}
+		field.primitiveLong = type.getKind() == TypeKind.LONG;
+		return field;
+	}
+	
+	private FieldType resolveType(TypeMirror type, FieldType declared)
+	{
+		FieldType natural;
+		switch(type.getKind())
+		{
+			case BOOLEAN:
+				natural = FieldType.BOOLEAN;
+				break;
+			case BYTE:
+				natural = FieldType.BYTE;
+				break;
+			case SHORT:
+				natural = FieldType.SHORT;
+				break;
+			case INT:
+				natural = FieldType.INT;
+				break;
+			case LONG:
+				natural = FieldType.LONG;
+				break;
+			case FLOAT:
+				natural = FieldType.FLOAT;
+				break;
+			case DOUBLE:
+				natural = FieldType.DOUBLE;
+				break;
+			case ARRAY:
+				natural = ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE ? FieldType.BYTES : null;
+				break;
+			case DECLARED:
+				String name = processingEnv.getTypeUtils().erasure(type).toString();
+				if(name.equals("java.lang.String"))
+				{
+					natural = FieldType.STRING;
+				}
+				else if(name.equals("java.math.BigInteger"))
+				{
+					natural = FieldType.ULONG;
+				}
+				else if(processingEnv.getTypeUtils().isAssignable(type, abstractStructType()))
+				{
+					natural = FieldType.STRUCT;
+				}
+				else
+				{
+					natural = null;
+				}
+				break;
+			default:
+				natural = null;
+		}
+		if(natural == null || declared == FieldType.AUTO || declared == natural)
+		{
+			return natural;
+		}
+		//无符号类型使用更宽的 Java 类型保存
+		if((declared == FieldType.UBYTE && natural == FieldType.SHORT) || (declared == FieldType.USHORT && natural == FieldType.INT) || (declared == FieldType.UINT && natural == FieldType.LONG) || (declared == FieldType.ULONG && natural == FieldType.LONG))
+		{
+			return declared;
+		}
+		//变长编码使用与定长编码相同的 Java 类型
+		if(((declared == FieldType.VARINT || declared == FieldType.UVARINT) && natural == FieldType.INT) || ((declared == FieldType.VARLONG || declared == FieldType.UVARLONG) && natural == FieldType.LONG))
+		{
+			return declared;
+		}
+		return null;
+	}
+	
+	private boolean hasDefaultConstructor(TypeElement type)
+	{
+		for(Element member : type.getEnclosedElements())
+		{
+			if(member.getKind() == ElementKind.CONSTRUCTOR && ((ExecutableElement) member).getParameters().isEmpty())
+			{
+				return !member.getModifiers().contains(Modifier.PRIVATE);
+			}
+		}
+		return false;
+	}
+	
+	private TypeElement superclass(TypeElement type)
+	{
+		TypeMirror superclass = type.getSuperclass();
+		return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+	}
+	
+	private TypeMirror abstractStructType()
+	{
+		return processingEnv.getElementUtils().getTypeElement(ABSTRACT_STRUCT).asType();
+	}
+	
+	private String serializerSimpleName(TypeElement type)
+	{
+		return flatSimpleName(type) + SUFFIX;
+	}
+	
+	private String viewSimpleName(TypeElement type)
+	{
+		return flatSimpleName(type) + VIEW_SUFFIX;
+	}
+	
+	private String flatSimpleName(TypeElement type)
+	{
+		String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+		return name.substring(name.lastIndexOf('.') + 1).replace('$', '_');
+	}
+	
+	private void error(String message, Element element)
+	{
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+	
+	private void writeSource(StructModel model, TypeElement type) throws IOException
+	{
+		writeFile(model.serializerName, generateSerializer(model), model, type);
+		if(model.view)
+		{
+			writeFile(model.viewName, new ViewGenerator(model).generate(), model, type);
+		}
+	}
+	
+	private void writeFile(String simpleName, String source, StructModel model, TypeElement type) throws IOException
+	{
+		String qualifiedName = model.packageName.isEmpty() ? simpleName : model.packageName + "." + simpleName;
+		JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+		Writer writer = file.openWriter();
+		try
+		{
+			writer.write(source);
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+	
+	private String generateSerializer(StructModel model)
+	{
+		SourceWriter out = new SourceWriter();
+		out.line("// Generated by org.hammerc.struct.processor.StructProcessor, do not edit.");
+		if(!model.packageName.isEmpty())
+		{
+			out.line("package " + model.packageName + ";");
+		}
+		out.line("");
+		out.line("public final class " + model.serializerName + " implements org.hammerc.struct.IStructSerializer<" + model.className + ">");
+		out.open();
+		out.line("public static final " + model.serializerName + " INSTANCE = new " + model.serializerName + "();");
+		out.line("");
+		out.line("/**");
+		out.line(" * 编码后长度固定的部分, 包括定长字段及所有长度前缀.");
+		out.line(" */");
+		out.line("public static final int FIXED_SIZE = " + fixedSize(model) + ";");
+		out.line("");
+		out.line("@Override");
+		out.line("public Class<" + model.className + "> getStructClass()");
+		out.open();
+		out.line("return " + model.className + ".class;");
+		out.close();
+		out.line("");
+		out.line("@Override");
+		out.line("public " + model.className + " newInstance()");
+		out.open();
+		out.line("return new " + model.className + "();");
+		out.close();
+		out.line("");
+		writeEncodedSizeMethod(out, model);
+		out.line("");
+		writeWriteMethod(out, model);
+		out.line("");
+		writeReadMethod(out, model);
+		out.line("");
+		writeWriteToMethod(out, model);
+		out.line("");
+		writeReadFromMethod(out, model);
+		out.close();
+		return out.toString();
+	}
+	
+	private int fixedSize(StructModel model)
+	{
+		int size = 0;
+		for(FieldModel field : model.fields)
+		{
+			//使用变长编码的长度前缀不是定长的
+			if(field.array || field.type == FieldType.STRING)
+			{
+				size += field.varLength ? 0 : 2;
+			}
+			else if(field.type == FieldType.BYTES)
+			{
+				size += field.varLength ? 0 : 4;
+			}
+			else if(field.type.getSize() > 0)
+			{
+				size += field.type.getSize();
+			}
+		}
+		return size;
+	}
+	
+	private void writeEncodedSizeMethod(SourceWriter out, StructModel model)
+	{
+		out.line("@Override");
+		out.line("public int encodedSize(" + model.className + " value) throws Exception");
+		out.open();
+		out.line("int size = FIXED_SIZE;");
+		for(FieldModel field : model.fields)
+		{
+			String value = "value." + field.name;
+			if(!field.array)
+			{
+				if(field.type.getSize() < 0)
+				{
+					out.line("size += " + variableSize(field, value) + ";");
+				}
+			}
+			else if(field.type.getSize() > 0)
+			{
+				out.line("size += " + (field.varLength ? VAR_INT_UTIL + ".sizeOfUnsignedVarInt(" + value + ".length) + " : "") + value + ".length * " + field.type.getSize() + ";");
+			}
+			else
+			{
+				if(field.varLength)
+				{
+					out.line("size += " + VAR_INT_UTIL + ".sizeOfUnsignedVarInt(" + value + ".length);");
+				}
+				//元素的定长长度前缀不在 FIXED_SIZE 中
+				int prefix = field.varLength ? 0 : field.type == FieldType.STRING ? 2 : field.type == FieldType.BYTES ? 4 : 0;
+				out.line("for(" + field.javaType + " item : " + value + ")");
+				out.open();
+				out.line("size += " + (prefix > 0 ? prefix + " + " : "") + variableSize(field, "item") + ";");
+				out.close();
+			}
+		}
+		out.line("return size;");
+		out.close();
+	}
+	
+	private String variableSize(FieldModel field, String value)
+	{
+		switch(field.type)
+		{
+			case STRING:
+				return field.varLength ? "org.hammerc.struct.StructWriter.varStringSize(" + value + ")" : "org.hammerc.struct.StructWriter.utf8Length(" + value + ")";
+			case BYTES:
+				return field.varLength ? "org.hammerc.struct.StructWriter.varBytesSize(" + value + ")" : value + ".length";
+			case VARINT:
+				return VAR_INT_UTIL + ".sizeOfUnsignedVarInt(" + VAR_INT_UTIL + ".encodeZigZag(" + value + "))";
+			case UVARINT:
+				return VAR_INT_UTIL + ".sizeOfUnsignedVarInt(" + value + ")";
+			case VARLONG:
+				return VAR_INT_UTIL + ".sizeOfUnsignedVarLong(" + VAR_INT_UTIL + ".encodeZigZag(" + value + "))";
+			case UVARLONG:
+				return VAR_INT_UTIL + ".sizeOfUnsignedVarLong(" + value + ")";
+			default:
+				return field.serializer + ".INSTANCE.encodedSize(" + value + ")";
+		}
+	}
+	
+	private void writeWriteMethod(SourceWriter out, StructModel model)
+	{
+		out.line("@Override");
+		out.line("public void write(" + model.className + " value, org.hammerc.struct.StructWriter writer) throws Exception");
+		out.open();
+		List<FieldModel> fields = model.fields;
+		int index = 0;
+		while(index < fields.size())
+		{
+			//连续的定长字段合并为一次容量检查
+			int size = 0;
+			int end = index;
+			while(end < fields.size() && !fields.get(end).array && fields.get(end).type.getSize() > 0)
+			{
+				size += fields.get(end).type.getSize();
+				end++;
+			}
+			if(end > index)
+			{
+				out.line("writer.ensureCapacity(" + size + ");");
+				for(; index < end; index++)
+				{
+					out.line(putStatement(fields.get(index), "value." + fields.get(index).name));
+				}
+				continue;
+			}
+			FieldModel field = fields.get(index++);
+			if(!field.array)
+			{
+				out.line(putStatement(field, "value." + field.name));
+				continue;
+			}
+			String array = field.name + "Array";
+			out.line(field.javaType + "[] " + array + " = value." + field.name + ";");
+			out.line(field.varLength ? "writer.writeUnsignedVarInt(" + array + ".length);" : "writer.writeArrayLength(" + array + ".length);");
+			if(field.type.getSize() > 0)
+			{
+				out.line("writer.ensureCapacity(" + array + ".length * " + field.type.getSize() + ");");
+			}
+			out.line("for(int i = 0; i < " + array + ".length; i++)");
+			out.open();
+			out.line(putStatement(field, array + "[i]"));
+			out.close();
+		}
+		out.close();
+	}
+	
+	private String putStatement(FieldModel field, String value)
+	{
+		switch(field.type)
+		{
+			case BOOLEAN:
+				return "writer.putBoolean(" + value + ");";
+			case BYTE:
+			case UBYTE:
+				return "writer.putByte(" + value + ");";
+			case SHORT:
+			case USHORT:
+				return "writer.putShort(" + value + ");";
+			case INT:
+				return "writer.putInt(" + value + ");";
+			case UINT:
+				return "writer.putInt((int) " + value + ");";
+			case LONG:
+				return "writer.putLong(" + value + ");";
+			case ULONG:
+				return field.primitiveLong ? "writer.putLong(" + value + ");" : "writer.putUnsignedLong(" + value + ");";
+			case FLOAT:
+				return "writer.putFloat(" + value + ");";
+			case DOUBLE:
+				return "writer.putDouble(" + value + ");";
+			case STRING:
+				return field.varLength ? "writer.writeVarString(" + value + ");" : "writer.writeString(" + value + ");";
+			case BYTES:
+				return field.varLength ? "writer.writeVarBytes(" + value + ");" : "writer.writeBytes(" + value + ");";
+			case VARINT:
+				return "writer.writeVarInt(" + value + ");";
+			case UVARINT:
+				return "writer.writeUnsignedVarInt(" + value + ");";
+			case VARLONG:
+				return "writer.writeVarLong(" + value + ");";
+			case UVARLONG:
+				return "writer.writeUnsignedVarLong(" + value + ");";
+			default:
+				return field.serializer + ".INSTANCE.write(" + value + ", writer);";
+		}
+	}
+	
+	private void writeReadMethod(SourceWriter out, StructModel model)
+	{
+		out.line("@Override");
+		out.line("public void read(" + model.className + " value, org.hammerc.struct.StructReader reader) throws Exception");
+		out.open();
+		List<FieldModel> fields = model.fields;
+		int index = 0;
+		while(index < fields.size())
+		{
+			int size = 0;
+			int end = index;
+			while(end < fields.size() && !fields.get(end).array && fields.get(end).type.getSize() > 0)
+			{
+				size += fields.get(end).type.getSize();
+				end++;
+			}
+			if(end > index)
+			{
+				out.line("reader.require(" + size + ");");
+				for(; index < end; index++)
+				{
+					out.line("value." + fields.get(index).name + " = " + getExpression(fields.get(index)) + ";");
+				}
+				continue;
+			}
+			FieldModel field = fields.get(index++);
+			if(!field.array)
+			{
+				readStatement(out, field, "value." + field.name, true);
+				continue;
+			}
+			String array = field.name + "Array";
+			if(field.varLength)
+			{
+				out.line(field.javaType + "[] " + array + " = " + newArray(field, "reader.readVarArrayLength()") + ";");
+			}
+			else
+			{
+				out.line("reader.require(2);");
+				out.line(field.javaType + "[] " + array + " = " + newArray(field, "reader.getUnsignedShort()") + ";");
+			}
+			if(field.type.getSize() > 0)
+			{
+				out.line("reader.require(" + array + ".length * " + field.type.getSize() + ");");
+			}
+			out.line("for(int i = 0; i < " + array + ".length; i++)");
+			out.open();
+			readStatement(out, field, array + "[i]", false);
+			out.close();
+			out.line("value." + field.name + " = " + array + ";");
+		}
+		out.close();
+	}
+	
+	private void readStatement(SourceWriter out, FieldModel field, String target, boolean block)
+	{
+		if(field.type == FieldType.STRUCT)
+		{
+			//不在循环中时使用代码块限制临时变量的作用域
+			String item = field.name + "Item";
+			if(block)
+			{
+				out.open();
+			}
+			out.line(field.javaType + " " + item + " = new " + field.javaType + "();");
+			out.line(field.serializer + ".INSTANCE.read(" + item + ", reader);");
+			out.line(target + " = " + item + ";");
+			if(block)
+			{
+				out.close();
+			}
+		}
+		else
+		{
+			out.line(target + " = " + getExpression(field) + ";");
+		}
+	}
+	
+	private String getExpression(FieldModel field)
+	{
+		switch(field.type)
+		{
+			case BOOLEAN:
+				return "reader.getBoolean()";
+			case BYTE:
+				return "reader.getByte()";
+			case UBYTE:
+				return "reader.getUnsignedByte()";
+			case SHORT:
+				return "reader.getShort()";
+			case USHORT:
+				return "reader.getUnsignedShort()";
+			case INT:
+				return "reader.getInt()";
+			case UINT:
+				return "reader.getUnsignedInt()";
+			case LONG:
+				return "reader.getLong()";
+			case ULONG:
+				return field.primitiveLong ? "reader.getLong()" : "reader.getUnsignedLong()";
+			case FLOAT:
+				return "reader.getFloat()";
+			case DOUBLE:
+				return "reader.getDouble()";
+			case STRING:
+				return field.varLength ? "reader.readVarString()" : "reader.readString()";
+			case VARINT:
+				return "reader.readVarInt()";
+			case UVARINT:
+				return "reader.readUnsignedVarInt()";
+			case VARLONG:
+				return "reader.readVarLong()";
+			case UVARLONG:
+				return "reader.readUnsignedVarLong()";
+			default:
+				return field.varLength ? "reader.readVarBytes()" : "reader.readBytes()";
+		}
+	}
+	
+	private void writeWriteToMethod(SourceWriter out, StructModel model)
+	{
+		out.line("@Override");
+		out.line("public void writeTo(" + model.className + " value, org.hammerc.io.IDataOutput output) throws Exception");
+		out.open();
+		for(FieldModel field : model.fields)
+		{
+			String method = "org.hammerc.struct.BytesWriter." + bytesMethod(field, "write");
+			if(field.array)
+			{
+				out.line("org.hammerc.struct.BytesWriter." + (field.varLength ? "writeUVarInt" : "writeArrayLength") + "(output, value." + field.name + ".length);");
+				out.line("for(" + field.javaType + " item : value." + field.name + ")");
+				out.open();
+				out.line(method + "(output, item);");
+				out.close();
+			}
+			else
+			{
+				out.line(method + "(output, value." + field.name + ");");
+			}
+		}
+		out.close();
+	}
+	
+	private void writeReadFromMethod(SourceWriter out, StructModel model)
+	{
+		out.line("@Override");
+		out.line("public void readFrom(" + model.className + " value, org.hammerc.io.IDataInput input) throws Exception");
+		out.open();
+		for(FieldModel field : model.fields)
+		{
+			String expression = "org.hammerc.struct.BytesReader." + bytesMethod(field, "read");
+			expression = field.type == FieldType.STRUCT ? "(" + field.javaType + ") " + expression + "(input, " + field.javaType + ".class)" : expression + "(input)";
+			if(field.array)
+			{
+				String array = field.name + "Array";
+				out.line(field.javaType + "[] " + array + " = " + newArray(field, "org.hammerc.struct.BytesReader." + (field.varLength ? "readUVarInt" : "readUShort") + "(input)") + ";");
+				out.line("for(int i = 0; i < " + array + ".length; i++)");
+				out.open();
+				out.line(array + "[i] = " + expression + ";");
+				out.close();
+				out.line("value." + field.name + " = " + array + ";");
+			}
+			else
+			{
+				out.line("value." + field.name + " = " + expression + ";");
+			}
+		}
+		out.close();
+	}
+	
+	//元素本身为数组时长度需要写在第一对方括号中, 如 new byte[length][]
+	private String newArray(FieldModel field, String length)
+	{
+		int index = field.javaType.indexOf('[');
+		if(index < 0)
+		{
+			return "new " + field.javaType + "[" + length + "]";
+		}
+		return "new " + field.javaType.substring(0, index) + "[" + length + "]" + field.javaType.substring(index);
+	}
+	
+	private String bytesMethod(FieldModel field, String prefix)
+	{
+		switch(field.type)
+		{
+			case BOOLEAN:
+				return prefix + "Boolean";
+			case BYTE:
+				return prefix + "Byte";
+			case UBYTE:
+				return prefix + "UByte";
+			case SHORT:
+				return prefix + "Short";
+			case USHORT:
+				return prefix + "UShort";
+			case INT:
+				return prefix + "Int";
+			case UINT:
+				return prefix + "UInt";
+			case LONG:
+				return prefix + "Long";
+			case ULONG:
+				if(field.primitiveLong)
+				{
+					return prefix.equals("read") ? "readULongValue" : "writeLong";
+				}
+				return prefix + "ULong";
+			case FLOAT:
+				return prefix + "Float";
+			case DOUBLE:
+				return prefix + "Double";
+			case STRING:
+				return prefix + (field.varLength ? "VarString" : "String");
+			case BYTES:
+				return prefix + (field.varLength ? "VarBytes" : "Bytes");
+			case VARINT:
+				return prefix + "VarInt";
+			case UVARINT:
+				return prefix + "UVarInt";
+			case VARLONG:
+				return prefix + "VarLong";
+			case UVARLONG:
+				return prefix + "UVarLong";
+			default:
+				return prefix + "Struct";
+		}
+	}
+	
+	/**
+	 * 自定义数据类的描述.
+	 * @author wizardc
+	 */
+	static class StructModel
+	{
+		String packageName;
+		String className;
+		String serializerName;
+		String viewName;
+		boolean view;
+		boolean varLength;
+		List<FieldModel> fields = new ArrayList<FieldModel>();
+	}
+	
+	/**
+	 * 字段的描述, 数组字段记录的是元素的类型.
+	 * @author wizardc
+	 */
+	static class FieldModel
+	{
+		String name;
+		String javaType;
+		FieldType type;
+		boolean array;
+		boolean varLength;
+		boolean primitiveLong;
+		String serializer;
+		String view;
+		boolean hasView;
+	}
+	
+	/**
+	 * 按仓库的代码风格输出源码.
+	 * @author wizardc
+	 */
+	static class SourceWriter
+	{
+		private StringBuilder _builder = new StringBuilder();
+		private int _indent;
+		
+		void line(String line)
+		{
+			for(int i = 0; i < _indent; i++)
+			{
+				_builder.append('\t');
+			}
+			_builder.append(line).append('\n');
+		}
+		
+		void open()
+		{
+			line("{");
+			_indent++;
+		}
+		
+		void close()
+		{
+			_indent--;
+			line("}");
+		}
+		
+		void indent()
+		{
+			_indent++;
+		}
+		
+		void outdent()
+		{
+			_indent--;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return _builder.toString();
+		}
+	}
+}
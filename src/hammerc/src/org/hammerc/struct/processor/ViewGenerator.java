@@ -0,0 +1,390 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct.processor;
+
+import java.util.List;
+
+import org.hammerc.struct.FieldType;
+
+/**
+ * 生成 AbstractStructView 实现的源码.
+ * @author wizardc
+ */
+class ViewGenerator
+{
+	private StructProcessor.StructModel _model;
+	private StructProcessor.SourceWriter _out;
+	
+	ViewGenerator(StructProcessor.StructModel model)
+	{
+		_model = model;
+		_out = new StructProcessor.SourceWriter();
+	}
+	
+	String generate()
+	{
+		StructProcessor.SourceWriter out = _out;
+		StructProcessor.StructModel model = _model;
+		String name = model.viewName;
+		int count = model.fields.size();
+		out.line("// Generated by org.hammerc.struct.processor.StructProcessor, do not edit.");
+		if(!model.packageName.isEmpty())
+		{
+			out.line("package " + model.packageName + ";");
+		}
+		out.line("");
+		out.line("public final class " + name + " extends org.hammerc.struct.AbstractStructView<" + model.className + ">");
+		out.open();
+		out.line("public " + name + "()");
+		out.open();
+		out.line("super(" + count + ");");
+		out.close();
+		out.line("");
+		out.line("public " + name + "(java.nio.ByteBuffer buffer)");
+		out.open();
+		out.line("super(" + count + ");");
+		out.line("wrap(buffer);");
+		out.close();
+		out.line("");
+		out.line("@Override");
+		out.line("protected " + model.className + " newStruct()");
+		out.open();
+		out.line("return new " + model.className + "();");
+		out.close();
+		out.line("");
+		out.line("@Override");
+		out.line("protected int skip(int field, int position)");
+		out.open();
+		out.line("return skipField(_buffer, field, position);");
+		out.close();
+		out.line("");
+		out.line("/**");
+		out.line(" * 跳过一个完整的自定义数据.");
+		out.line(" * @param buffer 字节缓冲.");
+		out.line(" * @param position 自定义数据的起始位置.");
+		out.line(" * @return 自定义数据的结束位置.");
+		out.line(" */");
+		out.line("public static int skipStruct(java.nio.ByteBuffer buffer, int position)");
+		out.open();
+		out.line("for(int field = 0; field < " + count + "; field++)");
+		out.open();
+		out.line("position = skipField(buffer, field, position);");
+		out.close();
+		out.line("return position;");
+		out.close();
+		out.line("");
+		writeSkipField();
+		writeCursors();
+		List<StructProcessor.FieldModel> fields = model.fields;
+		//位于所有变长字段之前的字段使用常量偏移
+		int constant = 0;
+		for(int i = 0; i < count; i++)
+		{
+			StructProcessor.FieldModel field = fields.get(i);
+			String position = constant >= 0 ? "_offset + " + constant : "position(" + i + ")";
+			out.line("");
+			if(field.array)
+			{
+				writeArrayGetters(field, i, position);
+			}
+			else
+			{
+				writeGetters(field, position);
+			}
+			if(constant >= 0)
+			{
+				constant = field.array || field.type.getSize() < 0 ? -1 : constant + field.type.getSize();
+			}
+		}
+		out.close();
+		return out.toString();
+	}
+	
+	private void writeSkipField()
+	{
+		StructProcessor.SourceWriter out = _out;
+		List<StructProcessor.FieldModel> fields = _model.fields;
+		out.line("private static int skipField(java.nio.ByteBuffer buffer, int field, int position)");
+		out.open();
+		out.line("switch(field)");
+		out.open();
+		for(int i = 0; i < fields.size(); i++)
+		{
+			StructProcessor.FieldModel field = fields.get(i);
+			out.line("case " + i + ":");
+			out.indent();
+			if(!field.array)
+			{
+				out.line("return " + skipExpression(field, "position") + ";");
+			}
+			else
+			{
+				out.open();
+				writeArrayPrefix(field);
+				if(field.type.getSize() > 0)
+				{
+					out.line("return position + length * " + field.type.getSize() + ";");
+				}
+				else
+				{
+					out.line("for(int i = 0; i < length; i++)");
+					out.open();
+					out.line("position = " + skipExpression(field, "position") + ";");
+					out.close();
+					out.line("return position;");
+				}
+				out.close();
+			}
+			out.outdent();
+		}
+		out.line("default:");
+		out.indent();
+		out.line("throw new IndexOutOfBoundsException(\"The field \" + field + \" does not exist!\");");
+		out.outdent();
+		out.close();
+		out.close();
+	}
+	
+	//变长元素的数组记录上次访问的元素索引及位置, 创建视图时清除
+	private void writeCursors()
+	{
+		StructProcessor.SourceWriter out = _out;
+		boolean any = false;
+		for(StructProcessor.FieldModel field : _model.fields)
+		{
+			if(field.array && field.type.getSize() < 0)
+			{
+				out.line("");
+				out.line("private int _" + field.name + "Index = -1;");
+				out.line("private int _" + field.name + "Position;");
+				any = true;
+			}
+		}
+		if(!any)
+		{
+			return;
+		}
+		out.line("");
+		out.line("@Override");
+		out.line("protected void reset()");
+		out.open();
+		for(StructProcessor.FieldModel field : _model.fields)
+		{
+			if(field.array && field.type.getSize() < 0)
+			{
+				out.line("_" + field.name + "Index = -1;");
+			}
+		}
+		out.close();
+	}
+	
+	//读取数组长度到 length 变量并将 position 移动到第一个元素
+	private void writeArrayPrefix(StructProcessor.FieldModel field)
+	{
+		if(field.varLength)
+		{
+			_out.line("int length = getUnsignedVarInt(buffer, position);");
+			_out.line("position = skipVarInt(buffer, position);");
+		}
+		else
+		{
+			_out.line("int length = arrayLength(buffer, position);");
+			_out.line("position += 2;");
+		}
+	}
+	
+	private String skipExpression(StructProcessor.FieldModel field, String position)
+	{
+		switch(field.type)
+		{
+			case STRING:
+				return (field.varLength ? "skipVarData" : "skipString") + "(buffer, " + position + ")";
+			case BYTES:
+				return (field.varLength ? "skipVarData" : "skipBytes") + "(buffer, " + position + ")";
+			case VARINT:
+			case UVARINT:
+			case VARLONG:
+			case UVARLONG:
+				return "skipVarInt(buffer, " + position + ")";
+			case STRUCT:
+				return field.view + ".skipStruct(buffer, " + position + ")";
+			default:
+				return position + " + " + field.type.getSize();
+		}
+	}
+	
+	private void writeGetters(StructProcessor.FieldModel field, String position)
+	{
+		StructProcessor.SourceWriter out = _out;
+		String getter = getterName(field);
+		switch(field.type)
+		{
+			case STRING:
+				out.line("public String " + getter + "()");
+				out.open();
+				out.line("return " + (field.varLength ? "getVarString" : "getString") + "(_buffer, " + position + ");");
+				out.close();
+				out.line("");
+				out.line("public java.nio.ByteBuffer " + getter + "Buffer()");
+				out.open();
+				out.line("return " + (field.varLength ? "getVarDataBuffer" : "getStringBuffer") + "(_buffer, " + position + ");");
+				out.close();
+				break;
+			case BYTES:
+				out.line("public java.nio.ByteBuffer " + getter + "()");
+				out.open();
+				out.line("return " + (field.varLength ? "getVarDataBuffer" : "getBytesBuffer") + "(_buffer, " + position + ");");
+				out.close();
+				break;
+			case STRUCT:
+				out.line("public " + field.view + " " + getter + "()");
+				out.open();
+				out.line("return " + getter + "(new " + field.view + "());");
+				out.close();
+				out.line("");
+				out.line("public " + field.view + " " + getter + "(" + field.view + " view)");
+				out.open();
+				out.line("view.wrap(_buffer, " + position + ");");
+				out.line("return view;");
+				out.close();
+				break;
+			default:
+				out.line("public " + field.javaType + " " + getter + "()");
+				out.open();
+				out.line("return " + valueExpression(field, position) + ";");
+				out.close();
+		}
+	}
+	
+	private void writeArrayGetters(StructProcessor.FieldModel field, int index, String position)
+	{
+		StructProcessor.SourceWriter out = _out;
+		String getter = getterName(field);
+		out.line("public int " + getter + "Length()");
+		out.open();
+		out.line("return " + (field.varLength ? "getUnsignedVarInt" : "arrayLength") + "(_buffer, " + position + ");");
+		out.close();
+		out.line("");
+		//定长元素直接计算位置, 变长元素需要依次跳过前面的元素
+		out.line("private int " + field.name + "Position(int index)");
+		out.open();
+		out.line("java.nio.ByteBuffer buffer = _buffer;");
+		out.line("int position = " + position + ";");
+		writeArrayPrefix(field);
+		out.line("if(index < 0 || index >= length)");
+		out.open();
+		out.line("throw new IndexOutOfBoundsException(\"The index \" + index + \" is out of bounds!\");");
+		out.close();
+		if(field.type.getSize() > 0)
+		{
+			out.line("return position + index * " + field.type.getSize() + ";");
+		}
+		else
+		{
+			//索引不小于上次访问的元素时从该元素开始跳过
+			String cursor = "_" + field.name;
+			out.line("int i = 0;");
+			out.line("if(" + cursor + "Index >= 0 && " + cursor + "Index <= index)");
+			out.open();
+			out.line("i = " + cursor + "Index;");
+			out.line("position = " + cursor + "Position;");
+			out.close();
+			out.line("for(; i < index; i++)");
+			out.open();
+			out.line("position = " + skipExpression(field, "position") + ";");
+			out.close();
+			out.line(cursor + "Index = index;");
+			out.line(cursor + "Position = position;");
+			out.line("return position;");
+		}
+		out.close();
+		out.line("");
+		String element = field.name + "Position(index)";
+		switch(field.type)
+		{
+			case STRING:
+				out.line("public String " + getter + "(int index)");
+				out.open();
+				out.line("return " + (field.varLength ? "getVarString" : "getString") + "(_buffer, " + element + ");");
+				out.close();
+				out.line("");
+				out.line("public java.nio.ByteBuffer " + getter + "Buffer(int index)");
+				out.open();
+				out.line("return " + (field.varLength ? "getVarDataBuffer" : "getStringBuffer") + "(_buffer, " + element + ");");
+				out.close();
+				break;
+			case BYTES:
+				out.line("public java.nio.ByteBuffer " + getter + "(int index)");
+				out.open();
+				out.line("return " + (field.varLength ? "getVarDataBuffer" : "getBytesBuffer") + "(_buffer, " + element + ");");
+				out.close();
+				break;
+			case STRUCT:
+				out.line("public " + field.view + " " + getter + "(int index)");
+				out.open();
+				out.line("return " + getter + "(index, new " + field.view + "());");
+				out.close();
+				out.line("");
+				out.line("public " + field.view + " " + getter + "(int index, " + field.view + " view)");
+				out.open();
+				out.line("view.wrap(_buffer, " + element + ");");
+				out.line("return view;");
+				out.close();
+				break;
+			default:
+				out.line("public " + field.javaType + " " + getter + "(int index)");
+				out.open();
+				out.line("return " + valueExpression(field, element) + ";");
+				out.close();
+		}
+	}
+	
+	private String valueExpression(StructProcessor.FieldModel field, String position)
+	{
+		switch(field.type)
+		{
+			case BOOLEAN:
+				return "_buffer.get(" + position + ") != 0";
+			case BYTE:
+				return "_buffer.get(" + position + ")";
+			case UBYTE:
+				return "(short) (_buffer.get(" + position + ") & 0xff)";
+			case SHORT:
+				return "_buffer.getShort(" + position + ")";
+			case USHORT:
+				return "_buffer.getShort(" + position + ") & 0xffff";
+			case INT:
+				return "_buffer.getInt(" + position + ")";
+			case UINT:
+				return "_buffer.getInt(" + position + ") & 0xffffffffL";
+			case LONG:
+				return "_buffer.getLong(" + position + ")";
+			case ULONG:
+				return field.primitiveLong ? "_buffer.getLong(" + position + ")" : "getUnsignedLong(_buffer, " + position + ")";
+			case FLOAT:
+				return "_buffer.getFloat(" + position + ")";
+			case VARINT:
+				return StructProcessor.VAR_INT_UTIL + ".decodeZigZag(getUnsignedVarInt(_buffer, " + position + "))";
+			case UVARINT:
+				return "getUnsignedVarInt(_buffer, " + position + ")";
+			case VARLONG:
+				return StructProcessor.VAR_INT_UTIL + ".decodeZigZag(getUnsignedVarLong(_buffer, " + position + "))";
+			case UVARLONG:
+				return "getUnsignedVarLong(_buffer, " + position + ")";
+			default:
+				return "_buffer.getDouble(" + position + ")";
+		}
+	}
+	
+	private String getterName(StructProcessor.FieldModel field)
+	{
+		return "get" + Character.toUpperCase(field.name.charAt(0)) + field.name.substring(1);
+	}
+}
@@ -0,0 +1,213 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 按 UTF-8 编码数据缓存解码后的字符串, 用于重复出现的短字符串, 如键名及枚举名.
+ * <p>缓存为固定大小的直接映射表, 按编码数据的哈希值选择槽位, 命中时返回已有的字符串对象, 不会创建新的字符串; 未命中时解码并替换该槽位中的字符串. 超过最大长度的数据不会进入缓存.</p>
+ * <p>该类是线程安全的, 多个线程可以共用同一个缓存对象, 并发替换槽位时只会导致少量额外的解码.</p>
+ * @author wizardc
+ */
+public class UTF8StringCache
+{
+	/**
+	 * 默认的槽位数量.
+	 */
+	public static final int DEFAULT_SIZE = 1024;
+	
+	/**
+	 * 默认可以缓存的最大字节数.
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 32;
+	
+	//缓存的槽位
+	private Entry[] _entries;
+	//可以缓存的最大字节数
+	private int _maxLength;
+	
+	/**
+	 * 使用默认的槽位数量及最大字节数创建一个 UTF8StringCache 对象.
+	 */
+	public UTF8StringCache()
+	{
+		this(DEFAULT_SIZE, DEFAULT_MAX_LENGTH);
+	}
+	
+	/**
+	 * 创建一个 UTF8StringCache 对象.
+	 * @param size 槽位数量, 会向上调整为 2 的幂.
+	 * @param maxLength 可以缓存的最大字节数.
+	 * @throws IllegalArgumentException 参数小于 1 时抛出该异常.
+	 */
+	public UTF8StringCache(int size, int maxLength) throws IllegalArgumentException
+	{
+		if(size < 1 || size > 1 << 30 || maxLength < 1)
+		{
+			throw new IllegalArgumentException("The size \"" + size + "\" or max length \"" + maxLength + "\" is invalid!");
+		}
+		int capacity = 1;
+		while(capacity < size)
+		{
+			capacity <<= 1;
+		}
+		_entries = new Entry[capacity];
+		_maxLength = maxLength;
+	}
+	
+	/**
+	 * 获取可以缓存的最大字节数.
+	 * @return 可以缓存的最大字节数.
+	 */
+	public int maxLength()
+	{
+		return _maxLength;
+	}
+	
+	/**
+	 * 获取字节数组中指定范围的数据对应的字符串.
+	 * @param bytes 字节数组.
+	 * @param offset 起始位置.
+	 * @param length 编码后的字节数.
+	 * @return 字符串.
+	 */
+	public String get(byte[] bytes, int offset, int length)
+	{
+		if(length > _maxLength)
+		{
+			return new String(bytes, offset, length, UTF8Util.UTF_8);
+		}
+		int hash = length;
+		for(int i = 0; i < length; i++)
+		{
+			hash = hash * 31 + bytes[offset + i];
+		}
+		Entry[] entries = _entries;
+		int index = spread(hash) & (entries.length - 1);
+		Entry entry = entries[index];
+		if(entry != null && entry.hash == hash && entry.matches(bytes, offset, length))
+		{
+			return entry.value;
+		}
+		byte[] copy = new byte[length];
+		System.arraycopy(bytes, offset, copy, 0, length);
+		String value = new String(copy, UTF8Util.UTF_8);
+		entries[index] = new Entry(copy, hash, value);
+		return value;
+	}
+	
+	/**
+	 * 获取字节缓冲中指定范围的数据对应的字符串, 不会改变字节缓冲的位置.
+	 * @param buffer 字节缓冲.
+	 * @param position 起始位置.
+	 * @param length 编码后的字节数.
+	 * @return 字符串.
+	 * @throws IndexOutOfBoundsException 范围超出字节缓冲时抛出该异常.
+	 */
+	public String get(ByteBuffer buffer, int position, int length) throws IndexOutOfBoundsException
+	{
+		if(length > _maxLength || position < 0 || position + length > buffer.limit())
+		{
+			return UTF8Util.decode(buffer, position, length);
+		}
+		if(buffer.hasArray())
+		{
+			return get(buffer.array(), buffer.arrayOffset() + position, length);
+		}
+		int hash = length;
+		for(int i = 0; i < length; i++)
+		{
+			hash = hash * 31 + buffer.get(position + i);
+		}
+		Entry[] entries = _entries;
+		int index = spread(hash) & (entries.length - 1);
+		Entry entry = entries[index];
+		if(entry != null && entry.hash == hash && entry.matches(buffer, position, length))
+		{
+			return entry.value;
+		}
+		byte[] copy = new byte[length];
+		for(int i = 0; i < length; i++)
+		{
+			copy[i] = buffer.get(position + i);
+		}
+		String value = new String(copy, UTF8Util.UTF_8);
+		entries[index] = new Entry(copy, hash, value);
+		return value;
+	}
+	
+	/**
+	 * 清除所有缓存的字符串.
+	 */
+	public void clear()
+	{
+		Entry[] entries = _entries;
+		for(int i = 0; i < entries.length; i++)
+		{
+			entries[i] = null;
+		}
+	}
+	
+	private static int spread(int hash)
+	{
+		return hash ^ (hash >>> 16);
+	}
+	
+	/**
+	 * 缓存的槽位, 创建后不会改变.
+	 * @author wizardc
+	 */
+	static final class Entry
+	{
+		final byte[] bytes;
+		final int hash;
+		final String value;
+		
+		Entry(byte[] bytes, int hash, String value)
+		{
+			this.bytes = bytes;
+			this.hash = hash;
+			this.value = value;
+		}
+		
+		boolean matches(byte[] data, int offset, int length)
+		{
+			if(bytes.length != length)
+			{
+				return false;
+			}
+			for(int i = 0; i < length; i++)
+			{
+				if(bytes[i] != data[offset + i])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		boolean matches(ByteBuffer data, int position, int length)
+		{
+			if(bytes.length != length)
+			{
+				return false;
+			}
+			for(int i = 0; i < length; i++)
+			{
+				if(bytes[i] != data.get(position + i))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
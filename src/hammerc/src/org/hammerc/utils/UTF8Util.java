@@ -0,0 +1,193 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.utils;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * 提供 UTF-8 字符串的编码及解码方法.
+ * <p>编码时直接写入目标字节数组或字节缓冲的底层数组, 不会创建临时数组, 开头只包含 ASCII 字符的部分按每个字符 1 个字节直接写入. 编码结果与 String.getBytes 相同, 不成对的代理字符替换为 "?".</p>
+ * <p>解码时直接使用字节数组或字节缓冲的底层数组, 不会复制数据. 直接内存没有底层数组, 编码及解码时批量复制一次.</p>
+ * @author wizardc
+ */
+public class UTF8Util
+{
+	/**
+	 * UTF-8 字符集.
+	 */
+	public static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	/**
+	 * 计算字符串使用 UTF-8 编码后的字节数, 不会创建临时数组.
+	 * @param value 字符串.
+	 * @return 编码后的字节数.
+	 */
+	public static int encodedLength(String value)
+	{
+		int length = value.length();
+		int size = length;
+		for(int i = 0; i < length; i++)
+		{
+			char c = value.charAt(i);
+			if(c < 0x80)
+			{
+				continue;
+			}
+			if(c < 0x800)
+			{
+				size += 1;
+			}
+			else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+			{
+				//一对代理字符编码为 4 个字节
+				size += 2;
+				i++;
+			}
+			else if(!Character.isSurrogate(c))
+			{
+				size += 2;
+			}
+		}
+		return size;
+	}
+	
+	/**
+	 * 将字符串使用 UTF-8 编码写入字节数组, 调用者需要保证剩余空间不小于 encodedLength 的返回值.
+	 * @param value 字符串.
+	 * @param bytes 目标字节数组.
+	 * @param offset 写入的起始位置.
+	 * @return 写入后的位置.
+	 * @throws ArrayIndexOutOfBoundsException 剩余空间不足时抛出该异常.
+	 */
+	public static int encode(String value, byte[] bytes, int offset) throws ArrayIndexOutOfBoundsException
+	{
+		int length = value.length();
+		int i = 0;
+		//ASCII 字符直接写入
+		for(; i < length; i++)
+		{
+			char c = value.charAt(i);
+			if(c >= 0x80)
+			{
+				break;
+			}
+			bytes[offset++] = (byte) c;
+		}
+		for(; i < length; i++)
+		{
+			char c = value.charAt(i);
+			if(c < 0x80)
+			{
+				bytes[offset++] = (byte) c;
+			}
+			else if(c < 0x800)
+			{
+				bytes[offset++] = (byte) (0xc0 | (c >> 6));
+				bytes[offset++] = (byte) (0x80 | (c & 0x3f));
+			}
+			else if(Character.isSurrogate(c))
+			{
+				if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+				{
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+					bytes[offset++] = (byte) (0xf0 | (codePoint >> 18));
+					bytes[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+					bytes[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+					bytes[offset++] = (byte) (0x80 | (codePoint & 0x3f));
+				}
+				else
+				{
+					bytes[offset++] = (byte) '?';
+				}
+			}
+			else
+			{
+				bytes[offset++] = (byte) (0xe0 | (c >> 12));
+				bytes[offset++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				bytes[offset++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+		return offset;
+	}
+	
+	/**
+	 * 将字符串使用 UTF-8 编码写入字节缓冲的当前位置, 写入后位置向后移动.
+	 * @param value 字符串.
+	 * @param buffer 目标字节缓冲.
+	 * @param encodedLength 字符串编码后的字节数, 即 encodedLength 的返回值.
+	 * @throws BufferOverflowException 剩余空间不足时抛出该异常.
+	 */
+	public static void encode(String value, ByteBuffer buffer, int encodedLength) throws BufferOverflowException
+	{
+		if(buffer.remaining() < encodedLength)
+		{
+			throw new BufferOverflowException();
+		}
+		if(buffer.hasArray())
+		{
+			int position = buffer.position();
+			encode(value, buffer.array(), buffer.arrayOffset() + position);
+			buffer.position(position + encodedLength);
+		}
+		else
+		{
+			//直接内存逐个字节写入比批量复制慢, 使用 JDK 的编码器
+			buffer.put(value.getBytes(UTF_8));
+		}
+	}
+	
+	/**
+	 * 从字节缓冲的当前位置解码指定长度的 UTF-8 字符串, 读取后位置向后移动.
+	 * @param buffer 字节缓冲.
+	 * @param length 编码后的字节数.
+	 * @return 字符串.
+	 * @throws BufferUnderflowException 剩余数据不足时抛出该异常.
+	 */
+	public static String decode(ByteBuffer buffer, int length) throws BufferUnderflowException
+	{
+		if(length < 0 || buffer.remaining() < length)
+		{
+			throw new BufferUnderflowException();
+		}
+		int position = buffer.position();
+		String value = decode(buffer, position, length);
+		buffer.position(position + length);
+		return value;
+	}
+	
+	/**
+	 * 从字节缓冲的指定位置解码指定长度的 UTF-8 字符串, 不会改变字节缓冲的位置.
+	 * @param buffer 字节缓冲.
+	 * @param position 起始位置.
+	 * @param length 编码后的字节数.
+	 * @return 字符串.
+	 * @throws IndexOutOfBoundsException 范围超出字节缓冲时抛出该异常.
+	 */
+	public static String decode(ByteBuffer buffer, int position, int length) throws IndexOutOfBoundsException
+	{
+		if(position < 0 || length < 0 || position + length > buffer.limit())
+		{
+			throw new IndexOutOfBoundsException("The range [" + position + ", " + (position + length) + ") is out of bounds!");
+		}
+		if(buffer.hasArray())
+		{
+			return new String(buffer.array(), buffer.arrayOffset() + position, length, UTF_8);
+		}
+		//直接内存逐个字节读取比批量复制慢, 批量复制后使用 JDK 的解码器
+		byte[] bytes = new byte[length];
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position);
+		duplicate.get(bytes, 0, length);
+		return new String(bytes, UTF_8);
+	}
+}
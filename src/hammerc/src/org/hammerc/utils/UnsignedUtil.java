@@ -58,6 +58,20 @@ public class UnsignedUtil
 		return new BigInteger(1, bytes);
 	}
 	
+	/**
+	 * 将 64 位数据按无符号长整型转换为 BigInteger.
+	 * @param value 64 位数据.
+	 * @return 无符号长整型.
+	 */
+	public static BigInteger toUnsignedBigInteger(long value)
+	{
+		if(value >= 0)
+		{
+			return BigInteger.valueOf(value);
+		}
+		return BigInteger.valueOf(value >>> 1).shiftLeft(1).add(BigInteger.valueOf(value & 1));
+	}
+	
 	/**
 	 * 转换无符号整型为字节.
 	 * @param value 无符号字节.
@@ -0,0 +1,149 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.utils;
+
+/**
+ * 提供变长整型(varint)及 zig-zag 编码的功能, 与 Protocol Buffers 的编码格式相同.
+ * <p>每个字节使用低 7 位保存数据, 最高位表示后面是否还有字节, 低位在前. 带符号数先使用 zig-zag 编码将绝对值较小的负数映射为较小的正数.</p>
+ * @author wizardc
+ */
+public class VarIntUtil
+{
+	/**
+	 * 32 位变长整型的最大字节数.
+	 */
+	public static final int MAX_VAR_INT_SIZE = 5;
+	
+	/**
+	 * 64 位变长整型的最大字节数.
+	 */
+	public static final int MAX_VAR_LONG_SIZE = 10;
+	
+	/**
+	 * 对 32 位整型进行 zig-zag 编码.
+	 * @param value 带符号整型.
+	 * @return 编码后的无符号整型.
+	 */
+	public static int encodeZigZag(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+	
+	/**
+	 * 对 32 位整型进行 zig-zag 解码.
+	 * @param value 编码后的无符号整型.
+	 * @return 带符号整型.
+	 */
+	public static int decodeZigZag(int value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * 对 64 位整型进行 zig-zag 编码.
+	 * @param value 带符号长整型.
+	 * @return 编码后的无符号长整型.
+	 */
+	public static long encodeZigZag(long value)
+	{
+		return (value << 1) ^ (value >> 63);
+	}
+	
+	/**
+	 * 对 64 位整型进行 zig-zag 解码.
+	 * @param value 编码后的无符号长整型.
+	 * @return 带符号长整型.
+	 */
+	public static long decodeZigZag(long value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * 获取无符号 32 位整型编码后的字节数.
+	 * @param value 无符号整型.
+	 * @return 编码后的字节数.
+	 */
+	public static int sizeOfUnsignedVarInt(int value)
+	{
+		//每 7 位有效数据占用一个字节, 0 也占用一个字节
+		return (31 - Integer.numberOfLeadingZeros(value | 1)) / 7 + 1;
+	}
+	
+	/**
+	 * 获取无符号 64 位整型编码后的字节数.
+	 * @param value 无符号长整型.
+	 * @return 编码后的字节数.
+	 */
+	public static int sizeOfUnsignedVarLong(long value)
+	{
+		return (63 - Long.numberOfLeadingZeros(value | 1)) / 7 + 1;
+	}
+	
+	/**
+	 * 将无符号 32 位整型编码到字节数组中.
+	 * @param bytes 字节数组, 需要至少有 5 个字节的空间.
+	 * @param offset 写入的起始位置.
+	 * @param value 无符号整型.
+	 * @return 写入后的位置.
+	 */
+	public static int writeUnsignedVarInt(byte[] bytes, int offset, int value)
+	{
+		while((value & ~0x7f) != 0)
+		{
+			bytes[offset++] = (byte) (value & 0x7f | 0x80);
+			value >>>= 7;
+		}
+		bytes[offset++] = (byte) value;
+		return offset;
+	}
+	
+	/**
+	 * 将无符号 64 位整型编码到字节数组中.
+	 * @param bytes 字节数组, 需要至少有 10 个字节的空间.
+	 * @param offset 写入的起始位置.
+	 * @param value 无符号长整型.
+	 * @return 写入后的位置.
+	 */
+	public static int writeUnsignedVarLong(byte[] bytes, int offset, long value)
+	{
+		while((value & ~0x7fL) != 0)
+		{
+			bytes[offset++] = (byte) (value & 0x7f | 0x80);
+			value >>>= 7;
+		}
+		bytes[offset++] = (byte) value;
+		return offset;
+	}
+	
+	/**
+	 * 编码无符号 32 位整型.
+	 * @param value 无符号整型.
+	 * @return 编码后的字节.
+	 */
+	public static byte[] encodeUnsignedVarInt(int value)
+	{
+		byte[] bytes = new byte[sizeOfUnsignedVarInt(value)];
+		writeUnsignedVarInt(bytes, 0, value);
+		return bytes;
+	}
+	
+	/**
+	 * 编码无符号 64 位整型.
+	 * @param value 无符号长整型.
+	 * @return 编码后的字节.
+	 */
+	public static byte[] encodeUnsignedVarLong(long value)
+	{
+		byte[] bytes = new byte[sizeOfUnsignedVarLong(value)];
+		writeUnsignedVarLong(bytes, 0, value);
+		return bytes;
+	}
+}
@@ -9,95 +9,653 @@
 
 package org.hammerc.utils;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
 /**
  * 提供 ZLib 的压缩及解压方法.
+ * <p>所有方法使用池化的 Deflater 及 Inflater 对象, 不会在每次调用时创建及销毁本地的压缩上下文. 支持字节数组, 字节缓冲 (包括直接内存) 及流的压缩和解压, 数据损坏或不完整时会抛出异常.</p>
+ * <p>字节缓冲的压缩及解压方法还可以处理不带 ZLib 头及校验和的原始 Deflate 数据.</p>
  * @author wizardc
  */
 public class ZLibUtil
 {
 	/**
-	 * 使用 ZLib 压缩数据.
+	 * 默认的缓冲区大小.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	
+	//每种压缩上下文最多缓存的数量
+	private static final int MAX_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	
+	//按压缩级别记录的压缩上下文池, 索引为压缩级别加 1, 不带 ZLib 头的上下文位于后半部分
+	private static final ContextPool[] DEFLATER_POOLS = new ContextPool[22];
+	//解压上下文池, 索引 1 为不带 ZLib 头的上下文
+	private static final ContextPool[] INFLATER_POOLS = {new ContextPool(), new ContextPool()};
+	
+	//流操作及直接内存中转使用的缓冲区大小
+	private static volatile int _bufferSize = DEFAULT_BUFFER_SIZE;
+	
+	static
+	{
+		for(int i = 0; i < DEFLATER_POOLS.length; i++)
+		{
+			DEFLATER_POOLS[i] = new ContextPool();
+		}
+	}
+	
+	/**
+	 * 设置流操作及直接内存中转使用的缓冲区大小, 只对之后创建的压缩上下文有效.
+	 * @param bufferSize 缓冲区大小, 默认为 8192, 小于 64 时按 64 进行设置.
+	 */
+	public static void setBufferSize(int bufferSize)
+	{
+		_bufferSize = Math.max(64, bufferSize);
+	}
+	
+	/**
+	 * 获取流操作及直接内存中转使用的缓冲区大小.
+	 * @return 缓冲区大小.
+	 */
+	public static int getBufferSize()
+	{
+		return _bufferSize;
+	}
+	
+	/**
+	 * 获取指定长度的数据压缩后的最大长度.
+	 * @param length 待压缩数据的长度.
+	 * @return 压缩后的最大长度.
+	 */
+	public static int compressBound(int length)
+	{
+		return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 19;
+	}
+	
+	/**
+	 * 使用默认的压缩级别压缩数据.
 	 * @param data 待压缩数据.
 	 * @return byte[] 压缩后的数据.
 	 */
 	public static byte[] compress(byte[] data)
 	{
-		byte[] output = new byte[0];
-		Deflater compresser = new Deflater();
-		compresser.reset();
-		compresser.setInput(data);
-		compresser.finish();
-		ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length);
+		return compress(data, 0, data.length, Deflater.DEFAULT_COMPRESSION);
+	}
+	
+	/**
+	 * 使用指定的压缩级别压缩数据.
+	 * @param data 待压缩数据.
+	 * @param level 压缩级别, 为 -1 到 9 之间的值.
+	 * @return byte[] 压缩后的数据.
+	 * @throws IllegalArgumentException 压缩级别无效时抛出该异常.
+	 */
+	public static byte[] compress(byte[] data, int level) throws IllegalArgumentException
+	{
+		return compress(data, 0, data.length, level);
+	}
+	
+	/**
+	 * 使用指定的压缩级别压缩数据.
+	 * @param data 待压缩数据.
+	 * @param offset 数据的起始位置.
+	 * @param length 数据的长度.
+	 * @param level 压缩级别, 为 -1 到 9 之间的值.
+	 * @return byte[] 压缩后的数据.
+	 * @throws IllegalArgumentException 压缩级别无效时抛出该异常.
+	 */
+	public static byte[] compress(byte[] data, int offset, int length, int level) throws IllegalArgumentException
+	{
+		DeflaterContext context = borrowDeflater(level, false);
 		try
 		{
-			byte[] buf = new byte[1024];
-			while(!compresser.finished())
+			Deflater deflater = context.deflater;
+			deflater.setInput(data, offset, length);
+			deflater.finish();
+			byte[] output = new byte[compressBound(length)];
+			int size = 0;
+			while(!deflater.finished())
 			{
-				int i = compresser.deflate(buf);
-				bos.write(buf, 0, i);
+				if(size == output.length)
+				{
+					output = Arrays.copyOf(output, output.length << 1);
+				}
+				size += deflater.deflate(output, size, output.length - size);
 			}
-			output = bos.toByteArray();
+			return size == output.length ? output : Arrays.copyOf(output, size);
 		}
-		catch(Exception exception)
+		finally
 		{
-			output = data;
+			releaseDeflater(context);
+		}
+	}
+	
+	/**
+	 * 解压数据.
+	 * @param data 待解压的数据.
+	 * @return byte[] 解压后的数据.
+	 * @throws DataFormatException 数据损坏或不完整时抛出该异常.
+	 */
+	public static byte[] decompress(byte[] data) throws DataFormatException
+	{
+		return decompress(data, 0, data.length);
+	}
+	
+	/**
+	 * 解压数据.
+	 * @param data 待解压的数据.
+	 * @param offset 数据的起始位置.
+	 * @param length 数据的长度.
+	 * @return byte[] 解压后的数据.
+	 * @throws DataFormatException 数据损坏或不完整时抛出该异常.
+	 */
+	public static byte[] decompress(byte[] data, int offset, int length) throws DataFormatException
+	{
+		InflaterContext context = borrowInflater(false);
+		try
+		{
+			Inflater inflater = context.inflater;
+			inflater.setInput(data, offset, length);
+			byte[] output = new byte[Math.max(64, length << 2)];
+			int size = 0;
+			while(!inflater.finished())
+			{
+				if(size == output.length)
+				{
+					output = Arrays.copyOf(output, output.length << 1);
+				}
+				int count = inflater.inflate(output, size, output.length - size);
+				if(count == 0 && !inflater.finished())
+				{
+					checkStalled(inflater);
+				}
+				size += count;
+			}
+			return size == output.length ? output : Arrays.copyOf(output, size);
 		}
 		finally
 		{
-			try
+			releaseInflater(context);
+		}
+	}
+	
+	/**
+	 * 压缩源字节缓冲中剩余的所有数据并写入目标字节缓冲, 支持直接内存.
+	 * <p>成功后源字节缓冲的位置移动到界限处, 目标字节缓冲的位置移动到写入数据的末尾. 目标字节缓冲空间不足时两者的位置均不会改变.</p>
+	 * @param src 源字节缓冲.
+	 * @param dst 目标字节缓冲.
+	 * @param level 压缩级别, 为 -1 到 9 之间的值.
+	 * @return 写入目标字节缓冲的长度.
+	 * @throws BufferOverflowException 目标字节缓冲空间不足时抛出该异常, 使用 compressBound 方法计算的空间可以保证足够.
+	 * @throws IllegalArgumentException 压缩级别无效时抛出该异常.
+	 */
+	public static int compress(ByteBuffer src, ByteBuffer dst, int level) throws BufferOverflowException, IllegalArgumentException
+	{
+		return compress(src, dst, level, false);
+	}
+	
+	/**
+	 * 压缩源字节缓冲中剩余的所有数据并写入目标字节缓冲, 支持直接内存.
+	 * <p>成功后源字节缓冲的位置移动到界限处, 目标字节缓冲的位置移动到写入数据的末尾. 目标字节缓冲空间不足时两者的位置均不会改变.</p>
+	 * @param src 源字节缓冲.
+	 * @param dst 目标字节缓冲.
+	 * @param level 压缩级别, 为 -1 到 9 之间的值.
+	 * @param nowrap 为 true 时输出不带 ZLib 头及校验和的原始 Deflate 数据.
+	 * @return 写入目标字节缓冲的长度.
+	 * @throws BufferOverflowException 目标字节缓冲空间不足时抛出该异常, 使用 compressBound 方法计算的空间可以保证足够.
+	 * @throws IllegalArgumentException 压缩级别无效时抛出该异常.
+	 */
+	public static int compress(ByteBuffer src, ByteBuffer dst, int level, boolean nowrap) throws BufferOverflowException, IllegalArgumentException
+	{
+		return compress(src, dst, level, nowrap, null);
+	}
+	
+	/**
+	 * 压缩源字节缓冲中剩余的所有数据并写入目标字节缓冲, 支持直接内存.
+	 * <p>成功后源字节缓冲的位置移动到界限处, 目标字节缓冲的位置移动到写入数据的末尾. 目标字节缓冲空间不足时两者的位置均不会改变.</p>
+	 * @param src 源字节缓冲.
+	 * @param dst 目标字节缓冲.
+	 * @param level 压缩级别, 为 -1 到 9 之间的值.
+	 * @param nowrap 为 true 时输出不带 ZLib 头及校验和的原始 Deflate 数据.
+	 * @param dictionary 预设字典, 解压时需要提供相同的字典, 为 null 时不使用预设字典.
+	 * @return 写入目标字节缓冲的长度.
+	 * @throws BufferOverflowException 目标字节缓冲空间不足时抛出该异常, 使用 compressBound 方法计算的空间可以保证足够.
+	 * @throws IllegalArgumentException 压缩级别无效时抛出该异常.
+	 */
+	public static int compress(ByteBuffer src, ByteBuffer dst, int level, boolean nowrap, byte[] dictionary) throws BufferOverflowException, IllegalArgumentException
+	{
+		int srcStart = src.position();
+		int dstStart = dst.position();
+		DeflaterContext context = borrowDeflater(level, nowrap);
+		try
+		{
+			Deflater deflater = context.deflater;
+			if(dictionary != null)
 			{
-				bos.close();
+				deflater.setDictionary(dictionary);
 			}
-			catch(IOException exception)
+			feedInput(deflater, src, context.input);
+			while(!deflater.finished())
 			{
+				if(!dst.hasRemaining())
+				{
+					src.position(srcStart);
+					dst.position(dstStart);
+					throw new BufferOverflowException();
+				}
+				if(deflater.needsInput())
+				{
+					if(src.hasRemaining())
+					{
+						feedInput(deflater, src, context.input);
+					}
+					else
+					{
+						deflater.finish();
+					}
+				}
+				if(dst.hasArray())
+				{
+					int count = deflater.deflate(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+					dst.position(dst.position() + count);
+				}
+				else
+				{
+					int count = deflater.deflate(context.output, 0, Math.min(context.output.length, dst.remaining()));
+					dst.put(context.output, 0, count);
+				}
 			}
+			return dst.position() - dstStart;
+		}
+		finally
+		{
+			releaseDeflater(context);
 		}
-		compresser.end();
-		return output;
 	}
 	
 	/**
-	 * 使用 ZLib 解压.
-	 * @param data 待压缩的数据.
-	 * @return byte[] 解压缩后的数据.
+	 * 解压源字节缓冲中的一段压缩数据并写入目标字节缓冲, 支持直接内存.
+	 * <p>成功后源字节缓冲的位置移动到该段压缩数据的末尾, 目标字节缓冲的位置移动到写入数据的末尾. 失败时两者的位置均不会改变.</p>
+	 * @param src 源字节缓冲.
+	 * @param dst 目标字节缓冲.
+	 * @return 写入目标字节缓冲的长度.
+	 * @throws DataFormatException 数据损坏或不完整时抛出该异常.
+	 * @throws BufferOverflowException 目标字节缓冲空间不足时抛出该异常.
+	 */
+	public static int decompress(ByteBuffer src, ByteBuffer dst) throws DataFormatException, BufferOverflowException
+	{
+		return decompress(src, dst, false);
+	}
+	
+	/**
+	 * 解压源字节缓冲中的一段压缩数据并写入目标字节缓冲, 支持直接内存.
+	 * <p>成功后源字节缓冲的位置移动到该段压缩数据的末尾, 目标字节缓冲的位置移动到写入数据的末尾. 失败时两者的位置均不会改变.</p>
+	 * @param src 源字节缓冲.
+	 * @param dst 目标字节缓冲.
+	 * @param nowrap 为 true 时按不带 ZLib 头及校验和的原始 Deflate 数据进行解压.
+	 * @return 写入目标字节缓冲的长度.
+	 * @throws DataFormatException 数据损坏或不完整时抛出该异常.
+	 * @throws BufferOverflowException 目标字节缓冲空间不足时抛出该异常.
 	 */
-	public static byte[] decompress(byte[] data)
+	public static int decompress(ByteBuffer src, ByteBuffer dst, boolean nowrap) throws DataFormatException, BufferOverflowException
 	{
-		byte[] output = new byte[0];
-		Inflater decompresser = new Inflater();
-		decompresser.reset();
-		decompresser.setInput(data);
-		ByteArrayOutputStream o = new ByteArrayOutputStream(data.length);
+		return decompress(src, dst, nowrap, null);
+	}
+	
+	/**
+	 * 解压源字节缓冲中的一段压缩数据并写入目标字节缓冲, 支持直接内存.
+	 * <p>成功后源字节缓冲的位置移动到该段压缩数据的末尾, 目标字节缓冲的位置移动到写入数据的末尾. 失败时两者的位置均不会改变.</p>
+	 * @param src 源字节缓冲.
+	 * @param dst 目标字节缓冲.
+	 * @param nowrap 为 true 时按不带 ZLib 头及校验和的原始 Deflate 数据进行解压.
+	 * @param dictionary 压缩时使用的预设字典, 为 null 时不使用预设字典.
+	 * @return 写入目标字节缓冲的长度.
+	 * @throws DataFormatException 数据损坏, 不完整或需要的预设字典不匹配时抛出该异常.
+	 * @throws BufferOverflowException 目标字节缓冲空间不足时抛出该异常.
+	 */
+	public static int decompress(ByteBuffer src, ByteBuffer dst, boolean nowrap, byte[] dictionary) throws DataFormatException, BufferOverflowException
+	{
+		int srcStart = src.position();
+		int dstStart = dst.position();
+		InflaterContext context = borrowInflater(nowrap);
 		try
 		{
-			byte[] buf = new byte[1024];
-			while(!decompresser.finished())
+			Inflater inflater = context.inflater;
+			//原始 Deflate 数据不会记录字典的校验和, 需要在解压前设置
+			if(nowrap && dictionary != null)
 			{
-				int i = decompresser.inflate(buf);
-				o.write(buf, 0, i);
+				inflater.setDictionary(dictionary);
 			}
-			output = o.toByteArray();
+			while(!inflater.finished())
+			{
+				if(inflater.needsInput())
+				{
+					if(!src.hasRemaining())
+					{
+						throw new DataFormatException("Unexpected end of compressed data!");
+					}
+					feedInput(inflater, src, context.input);
+				}
+				int count;
+				if(!dst.hasRemaining())
+				{
+					//目标空间已满时确认是否还有需要输出的数据, 没有输出数据的压缩流也需要读取到末尾
+					if(inflater.inflate(context.output, 0, 1) > 0)
+					{
+						throw new BufferOverflowException();
+					}
+					count = 0;
+				}
+				else if(dst.hasArray())
+				{
+					count = inflater.inflate(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+					dst.position(dst.position() + count);
+				}
+				else
+				{
+					count = inflater.inflate(context.output, 0, Math.min(context.output.length, dst.remaining()));
+					dst.put(context.output, 0, count);
+				}
+				if(count == 0 && inflater.needsDictionary())
+				{
+					if(dictionary == null)
+					{
+						throw new DataFormatException("The compressed data requires a preset dictionary!");
+					}
+					try
+					{
+						inflater.setDictionary(dictionary);
+					}
+					catch(IllegalArgumentException exception)
+					{
+						throw new DataFormatException("The preset dictionary does not match!");
+					}
+					dictionary = null;
+				}
+			}
+			//退回多读入的数据
+			src.position(src.position() - inflater.getRemaining());
+			return dst.position() - dstStart;
+		}
+		catch(DataFormatException exception)
+		{
+			src.position(srcStart);
+			dst.position(dstStart);
+			throw exception;
 		}
-		catch(Exception exception)
+		catch(BufferOverflowException exception)
 		{
-			output = data;
+			src.position(srcStart);
+			dst.position(dstStart);
+			throw exception;
 		}
 		finally
 		{
-			try
+			releaseInflater(context);
+		}
+	}
+	
+	/**
+	 * 压缩输入流中的所有数据并写入输出流, 适用于无法一次放入内存的大量数据, 不会关闭任何一个流.
+	 * @param input 输入流.
+	 * @param output 输出流.
+	 * @param level 压缩级别, 为 -1 到 9 之间的值.
+	 * @return 写入输出流的长度.
+	 * @throws IOException 读写流失败时抛出该异常.
+	 * @throws IllegalArgumentException 压缩级别无效时抛出该异常.
+	 */
+	public static long compress(InputStream input, OutputStream output, int level) throws IOException, IllegalArgumentException
+	{
+		DeflaterContext context = borrowDeflater(level, false);
+		try
+		{
+			Deflater deflater = context.deflater;
+			long total = 0;
+			while(!deflater.finished())
+			{
+				if(deflater.needsInput())
+				{
+					int count = input.read(context.input);
+					if(count < 0)
+					{
+						deflater.finish();
+					}
+					else
+					{
+						deflater.setInput(context.input, 0, count);
+					}
+				}
+				int count = deflater.deflate(context.output);
+				output.write(context.output, 0, count);
+				total += count;
+			}
+			return total;
+		}
+		finally
+		{
+			releaseDeflater(context);
+		}
+	}
+	
+	/**
+	 * 解压输入流中的一段压缩数据并写入输出流, 适用于无法一次放入内存的大量数据, 不会关闭任何一个流.
+	 * <p>为了按块读取, 输入流在该段压缩数据之后的部分内容可能会被读取并丢弃.</p>
+	 * @param input 输入流.
+	 * @param output 输出流.
+	 * @return 写入输出流的长度.
+	 * @throws IOException 读写流失败时抛出该异常.
+	 * @throws DataFormatException 数据损坏或不完整时抛出该异常.
+	 */
+	public static long decompress(InputStream input, OutputStream output) throws IOException, DataFormatException
+	{
+		InflaterContext context = borrowInflater(false);
+		try
+		{
+			Inflater inflater = context.inflater;
+			long total = 0;
+			while(!inflater.finished())
+			{
+				if(inflater.needsInput())
+				{
+					int count = input.read(context.input);
+					if(count < 0)
+					{
+						throw new DataFormatException("Unexpected end of compressed data!");
+					}
+					inflater.setInput(context.input, 0, count);
+				}
+				int count = inflater.inflate(context.output);
+				if(count == 0 && inflater.needsDictionary())
+				{
+					throw new DataFormatException("The compressed data requires a preset dictionary!");
+				}
+				output.write(context.output, 0, count);
+				total += count;
+			}
+			return total;
+		}
+		finally
+		{
+			releaseInflater(context);
+		}
+	}
+	
+	private static void feedInput(Deflater deflater, ByteBuffer src, byte[] buffer)
+	{
+		if(src.hasArray())
+		{
+			deflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+			src.position(src.limit());
+		}
+		else
+		{
+			int count = Math.min(src.remaining(), buffer.length);
+			src.get(buffer, 0, count);
+			deflater.setInput(buffer, 0, count);
+		}
+	}
+	
+	private static void feedInput(Inflater inflater, ByteBuffer src, byte[] buffer)
+	{
+		if(src.hasArray())
+		{
+			inflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+			src.position(src.limit());
+		}
+		else
+		{
+			int count = Math.min(src.remaining(), buffer.length);
+			src.get(buffer, 0, count);
+			inflater.setInput(buffer, 0, count);
+		}
+	}
+	
+	private static void checkStalled(Inflater inflater) throws DataFormatException
+	{
+		if(inflater.needsDictionary())
+		{
+			throw new DataFormatException("The compressed data requires a preset dictionary!");
+		}
+		if(inflater.needsInput())
+		{
+			throw new DataFormatException("Unexpected end of compressed data!");
+		}
+	}
+	
+	private static DeflaterContext borrowDeflater(int level, boolean nowrap) throws IllegalArgumentException
+	{
+		if(level < -1 || level > 9)
+		{
+			throw new IllegalArgumentException("The compression level \"" + level + "\" is invalid!");
+		}
+		DeflaterContext context = (DeflaterContext) DEFLATER_POOLS[deflaterIndex(level, nowrap)].poll();
+		return context != null ? context : new DeflaterContext(level, nowrap, _bufferSize);
+	}
+	
+	private static int deflaterIndex(int level, boolean nowrap)
+	{
+		return nowrap ? level + 12 : level + 1;
+	}
+	
+	private static void releaseDeflater(DeflaterContext context)
+	{
+		context.deflater.reset();
+		DEFLATER_POOLS[deflaterIndex(context.level, context.nowrap)].release(context);
+	}
+	
+	private static InflaterContext borrowInflater(boolean nowrap)
+	{
+		InflaterContext context = (InflaterContext) INFLATER_POOLS[nowrap ? 1 : 0].poll();
+		return context != null ? context : new InflaterContext(nowrap, _bufferSize);
+	}
+	
+	private static void releaseInflater(InflaterContext context)
+	{
+		context.inflater.reset();
+		INFLATER_POOLS[context.nowrap ? 1 : 0].release(context);
+	}
+	
+	/**
+	 * 池化的本地压缩上下文及其中转缓冲区.
+	 * @author wizardc
+	 */
+	abstract static class Context
+	{
+		final byte[] input;
+		final byte[] output;
+		
+		Context(int bufferSize)
+		{
+			input = new byte[bufferSize];
+			output = new byte[bufferSize];
+		}
+		
+		/**
+		 * 释放本地资源.
+		 */
+		abstract void end();
+	}
+	
+	static class DeflaterContext extends Context
+	{
+		final Deflater deflater;
+		final int level;
+		final boolean nowrap;
+		
+		DeflaterContext(int level, boolean nowrap, int bufferSize)
+		{
+			super(bufferSize);
+			deflater = new Deflater(level, nowrap);
+			this.level = level;
+			this.nowrap = nowrap;
+		}
+		
+		@Override
+		void end()
+		{
+			deflater.end();
+		}
+	}
+	
+	static class InflaterContext extends Context
+	{
+		final Inflater inflater;
+		final boolean nowrap;
+		
+		InflaterContext(boolean nowrap, int bufferSize)
+		{
+			super(bufferSize);
+			inflater = new Inflater(nowrap);
+			this.nowrap = nowrap;
+		}
+		
+		@Override
+		void end()
+		{
+			inflater.end();
+		}
+	}
+	
+	/**
+	 * 数量有上限的压缩上下文池, 超出上限归还的上下文会被直接释放.
+	 * @author wizardc
+	 */
+	static class ContextPool
+	{
+		private ConcurrentLinkedQueue<Context> _contexts = new ConcurrentLinkedQueue<Context>();
+		private AtomicInteger _size = new AtomicInteger();
+		
+		Context poll()
+		{
+			Context context = _contexts.poll();
+			if(context != null)
 			{
-				o.close();
+				_size.decrementAndGet();
 			}
-			catch(IOException exception)
+			return context;
+		}
+		
+		void release(Context context)
+		{
+			//缓冲区大小已经改变的上下文不再缓存
+			if(context.input.length == _bufferSize)
 			{
+				if(_size.incrementAndGet() <= MAX_POOL_SIZE)
+				{
+					_contexts.offer(context);
+					return;
+				}
+				_size.decrementAndGet();
 			}
+			context.end();
 		}
-		decompresser.end();
-		return output;
 	}
 }
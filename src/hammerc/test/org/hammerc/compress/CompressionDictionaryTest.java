@@ -0,0 +1,117 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+/**
+ * CompressionDictionary 训练的测试.
+ * @author wizardc
+ */
+public class CompressionDictionaryTest
+{
+	//两段没有重复字符且字符不相交的内容, 长度为采样步长的整数倍
+	private static final String RUN = "0123456789abcdefghijklmnopqrstuvwxyz-_=+[]{};:,.<>/?";
+	private static final String OTHER_RUN = "ABCDEFGHIJKLMNOPQRSTUVWXYZ()";
+	
+	@Test
+	public void trainsOverlappingSegmentsIntoOneCopy() throws Exception
+	{
+		ArrayList<byte[]> samples = new ArrayList<byte[]>();
+		samples.add(bytes(RUN + "!!!!"));
+		samples.add(bytes("@@@@" + RUN + "####"));
+		samples.add(bytes("$$$$%%%%" + RUN));
+		CompressionDictionary dictionary = CompressionDictionary.train(1, 2, samples, CompressionDictionary.DEFAULT_SIZE);
+		assertEquals(1, dictionary.getId());
+		assertEquals(2, dictionary.getVersion());
+		//每隔 4 个字节采样的 10 个片段合并为一份完整的内容
+		assertArrayEquals(bytes(RUN), dictionary.getData());
+	}
+	
+	@Test
+	public void placesMostCommonSegmentsLast() throws Exception
+	{
+		ArrayList<byte[]> samples = new ArrayList<byte[]>();
+		samples.add(bytes(RUN));
+		samples.add(bytes(RUN + "~~~~" + OTHER_RUN));
+		samples.add(bytes(OTHER_RUN + "^^^^" + RUN));
+		samples.add(bytes("&&&&"));
+		CompressionDictionary dictionary = CompressionDictionary.train(1, 1, samples, CompressionDictionary.DEFAULT_SIZE);
+		assertArrayEquals(bytes(OTHER_RUN + RUN), dictionary.getData());
+	}
+	
+	@Test
+	public void respectsMaxSize() throws Exception
+	{
+		ArrayList<byte[]> samples = new ArrayList<byte[]>();
+		samples.add(bytes(RUN));
+		samples.add(bytes(RUN));
+		CompressionDictionary dictionary = CompressionDictionary.train(1, 1, samples, 40);
+		assertTrue(dictionary.getData().length >= 16 && dictionary.getData().length <= 40);
+	}
+	
+	@Test
+	public void rejectsSamplesWithoutCommonSegments() throws Exception
+	{
+		ArrayList<byte[]> samples = new ArrayList<byte[]>();
+		samples.add(bytes(RUN));
+		samples.add(bytes(OTHER_RUN));
+		try
+		{
+			CompressionDictionary.train(1, 1, samples, CompressionDictionary.DEFAULT_SIZE);
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+		}
+		samples.add(bytes(RUN));
+		try
+		{
+			CompressionDictionary.train(1, 1, samples, 15);
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+		}
+	}
+	
+	@Test
+	public void validatesIdAndVersion() throws Exception
+	{
+		byte[] data = {1};
+		int[][] invalid = {{-1, 0}, {0x10000, 0}, {0, -1}, {0, 0x10000}};
+		for(int[] pair : invalid)
+		{
+			try
+			{
+				new CompressionDictionary(pair[0], pair[1], data);
+				fail();
+			}
+			catch(IllegalArgumentException exception)
+			{
+			}
+		}
+		CompressionDictionary dictionary = new CompressionDictionary(0xffff, 0xffff, data);
+		data[0] = 2;
+		assertEquals(1, dictionary.getData()[0]);
+	}
+	
+	static byte[] bytes(String text) throws Exception
+	{
+		return text.getBytes("UTF-8");
+	}
+}
@@ -0,0 +1,143 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+
+/**
+ * Compressor 数据帧格式的测试.
+ * @author wizardc
+ */
+public class CompressorTest
+{
+	@Test
+	public void storesEmptyAndTinyData() throws Exception
+	{
+		Compressor compressor = new Compressor(new LZ4Codec());
+		assertArrayEquals(new byte[] {Compressor.STORED}, compressor.encode(new byte[0]));
+		assertEquals(0, compressor.decode(new byte[] {Compressor.STORED}).length);
+		byte[] frame = compressor.encode(new byte[] {1, 2, 3});
+		assertArrayEquals(new byte[] {Compressor.STORED, 1, 2, 3}, frame);
+		assertArrayEquals(new byte[] {1, 2, 3}, compressor.decode(frame));
+		assertEquals(2, compressor.getBelowThresholdCount());
+	}
+	
+	@Test
+	public void writesCodecIdAndOriginalLength() throws Exception
+	{
+		byte[] data = new byte[0x12345];
+		Arrays.fill(data, (byte) 'z');
+		Compressor compressor = new Compressor(new LZ4Codec());
+		byte[] frame = compressor.encode(data);
+		assertEquals(LZ4Codec.ID, frame[0]);
+		assertArrayEquals(new byte[] {0, 1, 0x23, 0x45}, Arrays.copyOfRange(frame, 1, 5));
+		assertArrayEquals(data, compressor.decode(frame));
+		assertEquals(1, compressor.getCompressedCount());
+	}
+	
+	@Test
+	public void decodesFramesOfEveryRegisteredCodec() throws Exception
+	{
+		byte[] data = "the quick brown fox jumps over the lazy dog, the quick brown fox jumps over the lazy dog, again and again and again".getBytes("UTF-8");
+		Compressor decoder = new Compressor(new LZ4Codec());
+		decoder.setThreshold(0);
+		ICompressionCodec[] codecs = {new ZLibCodec(), new DeflateCodec(), new LZ4Codec()};
+		for(ICompressionCodec codec : codecs)
+		{
+			Compressor encoder = new Compressor(codec);
+			encoder.setThreshold(0);
+			byte[] frame = encoder.encode(data);
+			assertEquals(codec.getId(), frame[0]);
+			assertArrayEquals(data, decoder.decode(frame));
+		}
+	}
+	
+	@Test
+	public void storesIncompressibleData() throws Exception
+	{
+		byte[] data = new byte[4096];
+		new Random(3).nextBytes(data);
+		Compressor compressor = new Compressor(new LZ4Codec());
+		byte[] frame = compressor.encode(data);
+		assertEquals(Compressor.STORED, frame[0]);
+		assertEquals(data.length + 1, frame.length);
+		assertArrayEquals(data, compressor.decode(frame));
+		assertEquals(1, compressor.getPoorRatioCount());
+	}
+	
+	@Test
+	public void decodesPartOfArray() throws Exception
+	{
+		byte[] data = new byte[1000];
+		Arrays.fill(data, (byte) 1);
+		Compressor compressor = new Compressor(new LZ4Codec());
+		byte[] frame = compressor.encode(data);
+		byte[] buffer = new byte[frame.length + 6];
+		System.arraycopy(frame, 0, buffer, 3, frame.length);
+		assertArrayEquals(data, compressor.decode(buffer, 3, frame.length));
+	}
+	
+	@Test
+	public void rejectsTruncatedFrames() throws Exception
+	{
+		byte[] data = new byte[1000];
+		for(int i = 0; i < data.length; i++)
+		{
+			data[i] = (byte) (i % 7);
+		}
+		Compressor compressor = new Compressor(new LZ4Codec());
+		byte[] frame = compressor.encode(data);
+		for(int length = 0; length < frame.length; length++)
+		{
+			assertMalformed(compressor, Arrays.copyOf(frame, length));
+		}
+	}
+	
+	@Test
+	public void rejectsCorruptFrames() throws Exception
+	{
+		Compressor compressor = new Compressor(new LZ4Codec());
+		compressor.setMaxDecodedLength(1024);
+		//未注册的算法编号
+		assertMalformed(compressor, new byte[] {(byte) 200, 0, 0, 0, 1, 0x10, 'a'});
+		//原始长度为负数或超过最大长度
+		assertMalformed(compressor, new byte[] {LZ4Codec.ID, (byte) 0x80, 0, 0, 0, 0x10, 'a'});
+		assertMalformed(compressor, new byte[] {LZ4Codec.ID, 0, 0, 4, 1, 0x10, 'a'});
+		//原始长度与解压后的长度不一致
+		assertMalformed(compressor, new byte[] {LZ4Codec.ID, 0, 0, 0, 2, 0x10, 'a'});
+		//压缩数据损坏
+		byte[] data = new byte[1000];
+		Arrays.fill(data, (byte) 'q');
+		byte[] frame = new Compressor(new ZLibCodec()).encode(data);
+		frame[frame.length / 2] ^= 0x5a;
+		frame[frame.length - 1] ^= 0x5a;
+		assertMalformed(compressor, frame);
+	}
+	
+	private static void assertMalformed(Compressor compressor, byte[] frame)
+	{
+		try
+		{
+			compressor.decode(frame);
+			fail();
+		}
+		catch(DataFormatException exception)
+		{
+		}
+	}
+}
@@ -0,0 +1,183 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+
+/**
+ * DictionaryCodec 的测试.
+ * @author wizardc
+ */
+public class DictionaryCodecTest
+{
+	private static final String MESSAGE = "{\"type\":\"move\",\"player\":12345,\"x\":10.5,\"y\":-3.25,\"room\":\"lobby\"}";
+	
+	@Test
+	public void roundTripsThroughCompressor() throws Exception
+	{
+		DictionaryCodec codec = new DictionaryCodec();
+		codec.addDictionary(train(1, 1));
+		Compressor compressor = new Compressor(codec);
+		compressor.setThreshold(0);
+		compressor.setMaxRatio(1);
+		byte[] data = CompressionDictionaryTest.bytes(MESSAGE);
+		byte[] frame = compressor.encode(data);
+		assertEquals(DictionaryCodec.ID, frame[0]);
+		assertArrayEquals(data, compressor.decode(frame));
+		//短消息使用字典后比不使用字典压缩得更小
+		assertTrue(frame.length < new DeflateCodec().compress(data, 0, data.length).length);
+		//只注册了编解码器的 Compressor 也可以解码
+		Compressor decoder = new Compressor(new LZ4Codec());
+		decoder.registerCodec(codec);
+		assertArrayEquals(data, decoder.decode(frame));
+	}
+	
+	@Test
+	public void encodesWithHighestVersionOfId() throws Exception
+	{
+		DictionaryCodec codec = new DictionaryCodec();
+		CompressionDictionary first = train(1, 2);
+		codec.addDictionary(first);
+		codec.addDictionary(train(1, 1));
+		assertSame(first, codec.getCurrentDictionary());
+		//其它编号的字典不会改变编码使用的字典
+		CompressionDictionary other = train(2, 5);
+		codec.addDictionary(other);
+		assertSame(first, codec.getCurrentDictionary());
+		CompressionDictionary newer = train(1, 3);
+		codec.addDictionary(newer);
+		assertSame(newer, codec.getCurrentDictionary());
+		codec.useDictionary(2);
+		assertSame(other, codec.getCurrentDictionary());
+		codec.useDictionary(1);
+		assertSame(newer, codec.getCurrentDictionary());
+		try
+		{
+			codec.useDictionary(3);
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+		}
+		assertTrue(codec.removeDictionary(1, 3));
+		assertNull(codec.getCurrentDictionary());
+		try
+		{
+			codec.compress(new byte[1], 0, 1);
+			fail();
+		}
+		catch(IllegalStateException exception)
+		{
+		}
+	}
+	
+	@Test
+	public void decodesOlderVersionAfterUpdate() throws Exception
+	{
+		DictionaryCodec codec = new DictionaryCodec();
+		codec.addDictionary(train(7, 1));
+		byte[] data = CompressionDictionaryTest.bytes(MESSAGE);
+		byte[] old = codec.compress(data, 0, data.length);
+		assertArrayEquals(new byte[] {0, 7, 0, 1}, Arrays.copyOf(old, 4));
+		codec.addDictionary(new CompressionDictionary(7, 2, CompressionDictionaryTest.bytes("unrelated dictionary content")));
+		byte[] current = codec.compress(data, 0, data.length);
+		assertArrayEquals(new byte[] {0, 7, 0, 2}, Arrays.copyOf(current, 4));
+		assertArrayEquals(data, codec.decompress(old, 0, old.length, data.length));
+		assertArrayEquals(data, codec.decompress(current, 0, current.length, data.length));
+	}
+	
+	@Test
+	public void rejectsUnknownDictionary() throws Exception
+	{
+		DictionaryCodec codec = new DictionaryCodec();
+		codec.addDictionary(train(1, 1));
+		byte[] data = CompressionDictionaryTest.bytes(MESSAGE);
+		byte[] compressed = codec.compress(data, 0, data.length);
+		compressed[3] = 9;
+		assertDataFormatException(codec, compressed, compressed.length, data.length);
+		compressed[3] = 1;
+		compressed[1] = 2;
+		assertDataFormatException(codec, compressed, compressed.length, data.length);
+		compressed[1] = 1;
+		assertArrayEquals(data, codec.decompress(compressed, 0, compressed.length, data.length));
+		codec.removeDictionary(1, 1);
+		assertDataFormatException(codec, compressed, compressed.length, data.length);
+	}
+	
+	@Test
+	public void rejectsTruncatedHeader() throws Exception
+	{
+		DictionaryCodec codec = new DictionaryCodec();
+		codec.addDictionary(train(1, 1));
+		assertDataFormatException(codec, new byte[] {0, 1, 0}, 3, 0);
+		assertDataFormatException(codec, new byte[0], 0, 0);
+	}
+	
+	@Test
+	public void rejectsWrongOriginalLength() throws Exception
+	{
+		DictionaryCodec codec = new DictionaryCodec();
+		codec.addDictionary(train(1, 1));
+		byte[] data = CompressionDictionaryTest.bytes(MESSAGE);
+		byte[] compressed = codec.compress(data, 0, data.length);
+		//输出空间不足
+		assertDataFormatException(codec, compressed, compressed.length, data.length - 1);
+		//解压后的数据较短
+		assertDataFormatException(codec, compressed, compressed.length, data.length + 1);
+		//压缩数据被截断
+		assertDataFormatException(codec, compressed, compressed.length - 2, data.length);
+	}
+	
+	@Test
+	public void rejectsInvalidLevel() throws Exception
+	{
+		try
+		{
+			new DictionaryCodec(10);
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+		}
+	}
+	
+	private static CompressionDictionary train(int id, int version) throws Exception
+	{
+		ArrayList<byte[]> samples = new ArrayList<byte[]>();
+		for(int i = 0; i < 20; i++)
+		{
+			samples.add(CompressionDictionaryTest.bytes("{\"type\":\"move\",\"player\":" + (10000 + i * 37) + ",\"x\":" + i + ".5,\"y\":-" + i + ".25,\"room\":\"lobby\"}"));
+		}
+		return CompressionDictionary.train(id, version, samples, CompressionDictionary.DEFAULT_SIZE);
+	}
+	
+	private static void assertDataFormatException(DictionaryCodec codec, byte[] data, int length, int originalLength)
+	{
+		try
+		{
+			codec.decompress(data, 0, length, originalLength);
+			fail();
+		}
+		catch(DataFormatException exception)
+		{
+		}
+	}
+}
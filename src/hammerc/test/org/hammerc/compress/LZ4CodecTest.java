@@ -0,0 +1,167 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+
+/**
+ * LZ4Codec 的测试.
+ * @author wizardc
+ */
+public class LZ4CodecTest
+{
+	private LZ4Codec _codec = new LZ4Codec();
+	
+	@Test
+	public void roundTripsEmptyData() throws Exception
+	{
+		byte[] compressed = _codec.compress(new byte[0], 0, 0);
+		assertArrayEquals(new byte[] {0}, compressed);
+		assertEquals(0, _codec.decompress(compressed, 0, compressed.length, 0).length);
+	}
+	
+	@Test
+	public void roundTripsTinyData() throws Exception
+	{
+		for(int length = 1; length <= 16; length++)
+		{
+			byte[] data = new byte[length];
+			Arrays.fill(data, (byte) 'a');
+			assertRoundTrip(data);
+		}
+	}
+	
+	@Test
+	public void roundTripsIncompressibleData() throws Exception
+	{
+		byte[] data = new byte[100000];
+		new Random(1).nextBytes(data);
+		byte[] compressed = assertRoundTrip(data);
+		assertTrue(compressed.length <= LZ4Codec.compressBound(data.length));
+	}
+	
+	@Test
+	public void roundTripsOverlappingMatches() throws Exception
+	{
+		//距离小于匹配长度的匹配需要逐字节复制
+		byte[] data = new byte[10000];
+		Arrays.fill(data, (byte) 7);
+		byte[] compressed = assertRoundTrip(data);
+		assertTrue(compressed.length < 100);
+		byte[] pattern = new byte[10000];
+		for(int i = 0; i < pattern.length; i++)
+		{
+			pattern[i] = (byte) "abc".charAt(i % 3);
+		}
+		assertRoundTrip(pattern);
+	}
+	
+	@Test
+	public void roundTripsLongLiteralsAndMatches() throws Exception
+	{
+		Random random = new Random(2);
+		byte[] block = new byte[300];
+		random.nextBytes(block);
+		byte[] data = new byte[block.length * 20];
+		for(int i = 0; i < 20; i++)
+		{
+			System.arraycopy(block, 0, data, i * block.length, block.length);
+		}
+		assertRoundTrip(data);
+	}
+	
+	@Test
+	public void compressesPartOfArray() throws Exception
+	{
+		byte[] data = "xxxxhello hello hello hello hello hello!yyyy".getBytes("UTF-8");
+		byte[] compressed = _codec.compress(data, 4, data.length - 8);
+		byte[] decompressed = _codec.decompress(compressed, 0, compressed.length, data.length - 8);
+		assertArrayEquals(Arrays.copyOfRange(data, 4, data.length - 4), decompressed);
+	}
+	
+	@Test
+	public void rejectsTruncatedBlocks() throws Exception
+	{
+		byte[] data = new byte[1000];
+		for(int i = 0; i < data.length; i++)
+		{
+			data[i] = (byte) (i % 10);
+		}
+		byte[] compressed = _codec.compress(data, 0, data.length);
+		for(int length = 0; length < compressed.length; length++)
+		{
+			assertMalformed(compressed, length, data.length);
+		}
+	}
+	
+	@Test
+	public void rejectsCorruptBlocks() throws Exception
+	{
+		//匹配距离为 0
+		assertMalformed(new byte[] {0x10, 'a', 0, 0}, 4, 5);
+		//匹配距离超出已经解压的数据
+		assertMalformed(new byte[] {0x10, 'a', 2, 0}, 4, 5);
+		//字面量超出解压后的长度
+		assertMalformed(new byte[] {0x20, 'a', 'b'}, 3, 1);
+		//匹配超出解压后的长度
+		assertMalformed(new byte[] {0x1f, 'a', 1, 0, 10}, 5, 10);
+		//解压后的长度不足
+		assertMalformed(new byte[] {0x20, 'a', 'b'}, 3, 3);
+	}
+	
+	@Test
+	public void rejectsOverflowingLengths() throws Exception
+	{
+		//足够多的 255 会使长度超出 int 的范围, 之后的字节结束长度并跟随一个字节的字面量
+		int count = Integer.MAX_VALUE / 255 + 2;
+		byte[] literal = new byte[count + 3];
+		Arrays.fill(literal, (byte) 255);
+		literal[0] = (byte) 0xf0;
+		literal[count + 1] = 0;
+		literal[count + 2] = 'a';
+		assertMalformed(literal, literal.length, 16);
+		byte[] match = new byte[count + 5];
+		Arrays.fill(match, (byte) 255);
+		match[0] = 0x1f;
+		match[1] = 'a';
+		match[2] = 1;
+		match[3] = 0;
+		match[count + 4] = 0;
+		assertMalformed(match, match.length, 16);
+	}
+	
+	private byte[] assertRoundTrip(byte[] data) throws DataFormatException
+	{
+		byte[] compressed = _codec.compress(data, 0, data.length);
+		assertArrayEquals(data, _codec.decompress(compressed, 0, compressed.length, data.length));
+		return compressed;
+	}
+	
+	private void assertMalformed(byte[] data, int length, int originalLength)
+	{
+		try
+		{
+			_codec.decompress(data, 0, length, originalLength);
+			fail();
+		}
+		catch(DataFormatException exception)
+		{
+		}
+	}
+}
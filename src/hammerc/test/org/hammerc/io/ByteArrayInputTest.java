@@ -0,0 +1,81 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+/**
+ * ByteArrayInput 无符号读取方法的测试, 两种字节序的结果都与 new BigInteger(1, bytes) 比较.
+ * @author wizardc
+ */
+public class ByteArrayInputTest
+{
+	//0, 有符号的最大值, 2^64-1 及有符号的最小值等边界数据
+	private static final long[] LONGS = {0, 1, 0xff, Long.MAX_VALUE, -1L, Long.MIN_VALUE, Long.MIN_VALUE + 1, 0x0102030405060708L};
+	
+	private static final ByteOrder[] ORDERS = {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN};
+	
+	@Test
+	public void readsUnsignedLongs()
+	{
+		for(ByteOrder order : ORDERS)
+		{
+			ByteBuffer byteBuffer = ByteBuffer.allocate(LONGS.length * 8).order(order);
+			for(long value : LONGS)
+			{
+				byteBuffer.putLong(value);
+			}
+			ByteArrayInput input = new ByteArrayInput(byteBuffer.array());
+			input.endian(order);
+			for(long value : LONGS)
+			{
+				BigInteger expected = new BigInteger(1, ByteBuffer.allocate(8).putLong(value).array());
+				int position = input.position();
+				assertEquals(order + " " + Long.toHexString(value), expected, input.readUnsignedLong());
+				input.position(position);
+				assertEquals(value, input.readUnsignedLongValue());
+			}
+			assertEquals(0, input.bytesAvailable());
+		}
+	}
+	
+	@Test
+	public void readsUnsignedIntsAndShorts()
+	{
+		long[] ints = {0, 1, 0x7fffffffL, 0x80000000L, 0xffffffffL};
+		int[] shorts = {0, 1, 0x7fff, 0x8000, 0xffff};
+		int[] bytes = {0, 1, 0x7f, 0x80, 0xff};
+		for(ByteOrder order : ORDERS)
+		{
+			ByteBuffer byteBuffer = ByteBuffer.allocate(ints.length * 7).order(order);
+			for(int i = 0; i < ints.length; i++)
+			{
+				byteBuffer.putInt((int) ints[i]);
+				byteBuffer.putShort((short) shorts[i]);
+				byteBuffer.put((byte) bytes[i]);
+			}
+			ByteArrayInput input = new ByteArrayInput(byteBuffer.array());
+			input.endian(order);
+			for(int i = 0; i < ints.length; i++)
+			{
+				assertEquals(new BigInteger(1, ByteBuffer.allocate(4).putInt((int) ints[i]).array()).longValue(), input.readUnsignedInt());
+				assertEquals(new BigInteger(1, ByteBuffer.allocate(2).putShort((short) shorts[i]).array()).intValue(), input.readUnsignedShort());
+				assertEquals(new BigInteger(1, new byte[] {(byte) bytes[i]}).intValue(), input.readUnsignedByte());
+			}
+			assertEquals(0, input.bytesAvailable());
+		}
+	}
+}
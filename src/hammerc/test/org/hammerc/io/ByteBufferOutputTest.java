@@ -0,0 +1,216 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.hammerc.utils.UTF8Util;
+import org.junit.Test;
+
+/**
+ * ByteBufferOutput 的测试.
+ * @author wizardc
+ */
+public class ByteBufferOutputTest
+{
+	@Test
+	public void growsByDoublingAndKeepsData()
+	{
+		ByteBufferOutput output = new ByteBufferOutput(4);
+		output.writeInt(0x01020304);
+		assertEquals(4, output.capacity());
+		//容量恰好等于数据长度时不进行复制
+		assertSame(output.array(), output.bytes());
+		output.writeByte((byte) 5);
+		assertEquals(8, output.capacity());
+		byte[] bytes = new byte[9];
+		Arrays.fill(bytes, (byte) 6);
+		output.writeBytes(bytes);
+		assertEquals(16, output.capacity());
+		assertEquals(14, output.length());
+		//两倍容量仍然不足时按需要的长度分配
+		output.writeBytes(new byte[100]);
+		assertEquals(114, output.capacity());
+		assertEquals(114, output.length());
+		assertSame(output.array(), output.bytes());
+		byte[] data = output.bytes();
+		assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6, 6, 6, 6, 6, 6, 6, 6, 6}, Arrays.copyOf(data, 14));
+		output.clear();
+		assertEquals(0, output.length());
+		assertEquals(114, output.capacity());
+		assertEquals(0, output.bytes().length);
+	}
+	
+	@Test
+	public void rewritesAfterPositionChange()
+	{
+		ByteBufferOutput output = new ByteBufferOutput(4);
+		output.writeInt(0);
+		output.writeInt(0x05060708);
+		output.position(0);
+		output.writeShort((short) 0x0102);
+		assertEquals(2, output.position());
+		assertEquals(8, output.length());
+		assertArrayEquals(new byte[] {1, 2, 0, 0, 5, 6, 7, 8}, output.bytes());
+		//回写时扩容需要保留指针之后的数据
+		output.position(6);
+		output.writeLong(0x1112131415161718L);
+		assertEquals(14, output.position());
+		assertEquals(14, output.length());
+		assertArrayEquals(new byte[] {1, 2, 0, 0, 5, 6, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17, 0x18}, output.bytes());
+		output.position(14);
+		output.writeByte((byte) 9);
+		assertEquals(15, output.length());
+		try
+		{
+			output.position(16);
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+		}
+		try
+		{
+			output.position(-1);
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+		}
+		assertEquals(15, output.position());
+	}
+	
+	@Test
+	public void copiesDirectBuffer()
+	{
+		ByteBufferOutput output = new ByteBufferOutput(4, true);
+		output.writeInt(0x01020304);
+		output.writeShort((short) 0x0506);
+		assertEquals(8, output.capacity());
+		assertTrue(output.byteBuffer().isDirect());
+		assertEquals(6, output.byteBuffer().remaining());
+		assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6}, output.bytes());
+		try
+		{
+			output.array();
+			fail();
+		}
+		catch(UnsupportedOperationException exception)
+		{
+		}
+		output.writeShort((short) 0x0708);
+		//容量与长度相同时也需要复制
+		byte[] bytes = output.bytes();
+		assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, bytes);
+		bytes[0] = 9;
+		assertEquals(1, output.bytes()[0]);
+	}
+	
+	@Test
+	public void writesLittleEndian()
+	{
+		boolean[] directs = {false, true};
+		for(boolean direct : directs)
+		{
+			ByteBufferOutput output = new ByteBufferOutput(2, direct);
+			output.endian(ByteOrder.LITTLE_ENDIAN);
+			output.writeShort((short) 0x0102);
+			output.writeInt(0x03040506);
+			output.writeLong(0x0708090a0b0c0d0eL);
+			output.writeDouble(1.5);
+			//扩容后保持字节序
+			assertEquals(ByteOrder.LITTLE_ENDIAN, output.endian());
+			assertEquals(ByteOrder.LITTLE_ENDIAN, output.byteBuffer().order());
+			ByteBuffer expected = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+			expected.putShort((short) 0x0102).putInt(0x03040506).putLong(0x0708090a0b0c0d0eL).putDouble(1.5);
+			assertArrayEquals(expected.array(), output.bytes());
+			assertEquals(0x02, output.bytes()[0]);
+		}
+	}
+	
+	@Test
+	public void writesUTFOnBothPaths()
+	{
+		String[] strings = {"", "hello", "é€", "中文😀", "a\uD800b"};
+		for(String value : strings)
+		{
+			byte[] expected = utf(value);
+			//堆内存且容量足够时直接编码后回填长度
+			ByteBufferOutput fast = new ByteBufferOutput(64);
+			fast.writeUTF(value);
+			assertEquals(64, fast.capacity());
+			assertArrayEquals(value, expected, fast.bytes());
+			//容量不足或直接内存时先计算编码后的长度
+			ByteBufferOutput small = new ByteBufferOutput(1);
+			small.writeUTF(value);
+			assertArrayEquals(value, expected, small.bytes());
+			ByteBufferOutput direct = new ByteBufferOutput(64, true);
+			direct.writeUTF(value);
+			assertArrayEquals(value, expected, direct.bytes());
+		}
+		ByteBufferOutput output = new ByteBufferOutput(4);
+		output.endian(ByteOrder.LITTLE_ENDIAN);
+		output.writeUTF("é€");
+		assertArrayEquals(new byte[] {5, 0, (byte) 0xc3, (byte) 0xa9, (byte) 0xe2, (byte) 0x82, (byte) 0xac}, output.bytes());
+	}
+	
+	@Test
+	public void limitsUTFLength()
+	{
+		char[] chars = new char[0xffff / 3];
+		Arrays.fill(chars, '€');
+		String longest = new String(chars);
+		//字符数量在直接编码的范围内且编码后恰好为最大长度
+		ByteBufferOutput output = new ByteBufferOutput(0x10000);
+		output.writeUTF(longest);
+		assertEquals(0x10001, output.length());
+		assertArrayEquals(utf(longest), output.bytes());
+		//字符数量超出直接编码的范围时按编码后的长度检查
+		char[] ascii = new char[0xffff];
+		Arrays.fill(ascii, 'a');
+		output = new ByteBufferOutput(0x20000);
+		output.writeUTF(new String(ascii));
+		assertArrayEquals(utf(new String(ascii)), output.bytes());
+		String[] tooLong = {longest + "€", new String(ascii) + "a"};
+		for(String value : tooLong)
+		{
+			output = new ByteBufferOutput(0x20000);
+			output.writeByte((byte) 1);
+			try
+			{
+				output.writeUTF(value);
+				fail();
+			}
+			catch(IllegalArgumentException exception)
+			{
+			}
+			assertEquals(1, output.length());
+			assertEquals(1, output.position());
+		}
+	}
+	
+	//带 2 字节长度前缀的 UTF-8 编码
+	private static byte[] utf(String value)
+	{
+		byte[] bytes = value.getBytes(UTF8Util.UTF_8);
+		ByteBuffer byteBuffer = ByteBuffer.allocate(2 + bytes.length);
+		byteBuffer.putShort((short) bytes.length);
+		byteBuffer.put(bytes);
+		return byteBuffer.array();
+	}
+}
@@ -0,0 +1,147 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.hammerc.io.ByteArrayInput;
+import org.junit.Test;
+
+/**
+ * StructProcessor 生成的视图类的测试, 直接读取预期字节.
+ * @author wizardc
+ */
+public class AbstractStructViewTest
+{
+	@Test
+	public void readsFixedLengthFields() throws Exception
+	{
+		TestStructView view = new TestStructView(ByteBuffer.wrap(StructSerializersTest.GOLDEN));
+		assertTrue(view.getFlag());
+		assertEquals(-2, view.getB());
+		assertEquals(200, view.getUb());
+		assertEquals(-300, view.getS());
+		assertEquals(65535, view.getUs());
+		assertEquals(0x01020304, view.getI());
+		assertEquals(0xfffffffeL, view.getUi());
+		assertEquals(0x0102030405060708L, view.getL());
+		assertEquals(TestStruct.create().ul, view.getUl());
+		assertEquals(1.5f, view.getF(), 0);
+		assertEquals(-2.0, view.getD(), 0);
+		assertEquals("hé", view.getText());
+		assertEquals(3, view.getTextBuffer().remaining());
+		assertEquals(ByteBuffer.wrap(new byte[] {1, 2}), view.getData());
+		assertEquals(2, view.getNumbersLength());
+		assertEquals(1, view.getNumbers(0));
+		assertEquals(-1, view.getNumbers(1));
+		assertEquals(7, view.getItem().getId());
+		assertEquals("a", view.getItem().getName());
+		assertEquals(2, view.getItemsLength());
+		assertEquals(2, view.getItems(1).getId());
+		assertEquals("yz", view.getItems(1).getName());
+		assertEquals(1, view.getItems(0).getId());
+		assertEquals("q", view.getNames(1));
+		assertEquals("p", view.getNames(0));
+		assertEquals(StructSerializersTest.GOLDEN.length, view.size());
+	}
+	
+	@Test
+	public void readsVariableLengthFields() throws Exception
+	{
+		VarTestStructView view = new VarTestStructView(ByteBuffer.wrap(StructSerializersTest.VAR_GOLDEN));
+		//先读取位于变长字段之后的字段
+		assertEquals(5, view.getPlain());
+		assertEquals(-1, view.getVi());
+		assertEquals(300, view.getUvi());
+		assertEquals(Long.MIN_VALUE, view.getVl());
+		assertEquals(127, view.getUvl());
+		assertEquals("ab", view.getText());
+		assertEquals(0, view.getData().remaining());
+		assertEquals(2, view.getItemsLength());
+		assertEquals(-65, view.getItems(1).getId());
+		assertEquals("yz", view.getItems(1).getName());
+		assertEquals(63, view.getItems(0).getId());
+		assertEquals("x", view.getItems(0).getName());
+		assertEquals(StructSerializersTest.VAR_GOLDEN.length, view.size());
+	}
+	
+	@Test
+	public void resumesFromLastArrayElement() throws Exception
+	{
+		byte[] data = StructSerializersTest.GOLDEN.clone();
+		TestStructView view = new TestStructView(ByteBuffer.wrap(data));
+		assertEquals("p", view.getNames(0));
+		assertEquals("q", view.getNames(1));
+		//第一个元素的长度已经损坏, 从上次访问的元素开始时不会再读取
+		data[data.length - 6] = (byte) 0xff;
+		data[data.length - 5] = (byte) 0xff;
+		assertEquals("q", view.getNames(1));
+		assertEquals(1, view.getNumbers(0));
+	}
+	
+	@Test
+	public void clearsArrayCursorOnWrap() throws Exception
+	{
+		byte[] golden = StructSerializersTest.GOLDEN;
+		TestStructView view = new TestStructView(ByteBuffer.wrap(golden));
+		assertEquals("q", view.getNames(1));
+		//最后两个元素改为 "" 及 "qr", 总长度不变
+		byte[] data = golden.clone();
+		System.arraycopy(StructSerializersTest.hex("000000027172"), 0, data, data.length - 6, 6);
+		view.wrap(ByteBuffer.wrap(data));
+		assertEquals("qr", view.getNames(1));
+		assertEquals("", view.getNames(0));
+	}
+	
+	@Test
+	public void readsAtOffsetWithOtherByteOrder() throws Exception
+	{
+		byte[] golden = StructSerializersTest.VAR_GOLDEN;
+		byte[] data = new byte[golden.length + 3];
+		System.arraycopy(golden, 0, data, 3, golden.length);
+		ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+		VarTestStructView view = new VarTestStructView();
+		view.wrap(buffer, 3);
+		assertEquals(5, view.getPlain());
+		assertEquals(ByteOrder.LITTLE_ENDIAN, buffer.order());
+		assertEquals(0, buffer.position());
+		assertEquals(ByteBuffer.wrap(golden), view.slice());
+	}
+	
+	@Test
+	public void wrapsInputAndMovesPosition() throws Exception
+	{
+		byte[] golden = StructSerializersTest.GOLDEN;
+		byte[] data = new byte[golden.length * 2];
+		System.arraycopy(golden, 0, data, 0, golden.length);
+		System.arraycopy(golden, 0, data, golden.length, golden.length);
+		ByteArrayInput input = new ByteArrayInput(data);
+		TestStructView view = new TestStructView();
+		view.wrap(input);
+		assertEquals(golden.length, input.position());
+		view.wrap(input);
+		assertEquals(golden.length, view.offset());
+		assertEquals(data.length, input.position());
+		StructSerializersTest.assertStructEquals(TestStruct.create(), view.toStruct());
+	}
+	
+	@Test
+	public void convertsToStruct() throws Exception
+	{
+		VarTestStructView view = new VarTestStructView(ByteBuffer.wrap(StructSerializersTest.VAR_GOLDEN));
+		StructSerializersTest.assertVarStructEquals(VarTestStruct.create(), view.toStruct());
+		assertArrayEquals(StructSerializersTest.VAR_GOLDEN, StructSerializers.encode(view.toStruct()));
+	}
+}
@@ -0,0 +1,222 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.hammerc.io.ByteArrayInput;
+import org.hammerc.io.ByteArrayOutput;
+import org.junit.Test;
+
+/**
+ * StructProcessor 生成的序列化类及 StructSerializers 的测试, 编码结果与预期字节及 BytesWriter 手写的编码逐字节比较.
+ * @author wizardc
+ */
+public class StructSerializersTest
+{
+	static final byte[] GOLDEN = hex(
+		"01" + "fe" + "c8" + "fed4" + "ffff" + "01020304" + "fffffffe" + "0102030405060708" + "ffffffffffffffff" +
+		"3fc00000" + "c000000000000000" + "000368c3a9" + "000000020102" + "0002" + "00000001" + "ffffffff" +
+		"00000007" + "000161" + "0002" + "00000001" + "000178" + "00000002" + "0002797a" + "0002" + "000170" + "000171");
+	
+	static final byte[] VAR_GOLDEN = hex(
+		"01" + "ac02" + "ffffffffffffffffff01" + "7f" + "026162" + "00" + "02" + "7e" + "0178" + "8101" + "02797a" + "00000005");
+	
+	@Test
+	public void encodesGoldenBytes() throws Exception
+	{
+		assertArrayEquals(GOLDEN, StructSerializers.encode(TestStruct.create()));
+		assertEquals(GOLDEN.length, TestStructSerializer.INSTANCE.encodedSize(TestStruct.create()));
+		assertEquals(GOLDEN.length, TestStruct.create().encodedSize());
+	}
+	
+	@Test
+	public void encodesVarGoldenBytes() throws Exception
+	{
+		assertArrayEquals(VAR_GOLDEN, StructSerializers.encode(VarTestStruct.create()));
+		assertEquals(VAR_GOLDEN.length, VarTestStruct.create().encodedSize());
+	}
+	
+	@Test
+	public void matchesBytesWriter() throws Exception
+	{
+		assertArrayEquals(GOLDEN, writeExternal(TestStruct.create()));
+		assertArrayEquals(VAR_GOLDEN, writeExternal(VarTestStruct.create()));
+		//按字段顺序手写的编码
+		VarTestStruct value = VarTestStruct.create();
+		ByteArrayOutput output = new ByteArrayOutput();
+		output.endian(AbstractStruct.STRUCT_ENDIAN);
+		BytesWriter.writeVarInt(output, value.vi);
+		BytesWriter.writeUVarInt(output, value.uvi);
+		BytesWriter.writeVarLong(output, value.vl);
+		BytesWriter.writeUVarLong(output, value.uvl);
+		BytesWriter.writeVarString(output, value.text);
+		BytesWriter.writeVarBytes(output, value.data);
+		BytesWriter.writeUVarInt(output, value.items.length);
+		for(VarTestItem item : value.items)
+		{
+			BytesWriter.writeVarInt(output, item.id);
+			BytesWriter.writeVarString(output, item.name);
+		}
+		BytesWriter.writeInt(output, value.plain);
+		assertArrayEquals(VAR_GOLDEN, output.bytes());
+	}
+	
+	@Test
+	public void decodesGoldenBytes() throws Exception
+	{
+		assertStructEquals(TestStruct.create(), StructSerializers.decode(GOLDEN, TestStruct.class));
+		TestStruct value = new TestStruct();
+		value.readExternal(new ByteArrayInput(GOLDEN));
+		assertStructEquals(TestStruct.create(), value);
+	}
+	
+	@Test
+	public void decodesVarGoldenBytes() throws Exception
+	{
+		assertVarStructEquals(VarTestStruct.create(), StructSerializers.decode(VAR_GOLDEN, VarTestStruct.class));
+		VarTestStruct value = new VarTestStruct();
+		value.readExternal(new ByteArrayInput(VAR_GOLDEN));
+		assertVarStructEquals(VarTestStruct.create(), value);
+		//手写的解码
+		ByteArrayInput input = new ByteArrayInput(VAR_GOLDEN);
+		input.endian(AbstractStruct.STRUCT_ENDIAN);
+		assertEquals(-1, BytesReader.readVarInt(input));
+		assertEquals(300, BytesReader.readUVarInt(input));
+		assertEquals(Long.MIN_VALUE, BytesReader.readVarLong(input));
+		assertEquals(127, BytesReader.readUVarLong(input));
+		assertEquals("ab", BytesReader.readVarString(input));
+		assertEquals(0, BytesReader.readVarBytes(input).length);
+		assertEquals(2, BytesReader.readUVarInt(input));
+		assertEquals(63, BytesReader.readVarInt(input));
+		assertEquals("x", BytesReader.readVarString(input));
+		assertEquals(-65, BytesReader.readVarInt(input));
+		assertEquals("yz", BytesReader.readVarString(input));
+		assertEquals(5, BytesReader.readInt(input));
+	}
+	
+	@Test
+	public void encodesAllWithLengthPrefixes() throws Exception
+	{
+		ArrayList<VarTestStruct> values = new ArrayList<VarTestStruct>();
+		values.add(VarTestStruct.create());
+		values.add(VarTestStruct.create());
+		byte[] data = StructSerializers.encodeAll(values);
+		assertEquals(2 * (4 + VAR_GOLDEN.length), data.length);
+		assertEquals(VAR_GOLDEN.length, data[3]);
+		assertArrayEquals(VAR_GOLDEN, Arrays.copyOfRange(data, 4, 4 + VAR_GOLDEN.length));
+		ArrayList<VarTestStruct> decoded = StructSerializers.decodeAll(data, VarTestStruct.class);
+		assertEquals(2, decoded.size());
+		assertVarStructEquals(VarTestStruct.create(), decoded.get(0));
+		assertVarStructEquals(VarTestStruct.create(), decoded.get(1));
+	}
+	
+	@Test
+	public void rejectsTooLongArraysOnBothPaths() throws Exception
+	{
+		TestStruct value = TestStruct.create();
+		value.numbers = new int[0x10000];
+		try
+		{
+			StructSerializers.encode(value);
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+		}
+		try
+		{
+			writeExternal(value);
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+		}
+		value.numbers = new int[0xffff];
+		assertArrayEquals(StructSerializers.encode(value), writeExternal(value));
+	}
+	
+	@Test
+	public void findsGeneratedSerializers() throws Exception
+	{
+		assertEquals(TestStructSerializer.INSTANCE, StructSerializers.find(TestStruct.class));
+		assertEquals(VarTestItemSerializer.INSTANCE, StructSerializers.find(VarTestItem.class));
+	}
+	
+	static byte[] hex(String text)
+	{
+		byte[] bytes = new byte[text.length() / 2];
+		for(int i = 0; i < bytes.length; i++)
+		{
+			bytes[i] = (byte) Integer.parseInt(text.substring(i * 2, i * 2 + 2), 16);
+		}
+		return bytes;
+	}
+	
+	private static byte[] writeExternal(AbstractStruct value) throws Exception
+	{
+		ByteArrayOutput output = new ByteArrayOutput();
+		value.writeExternal(output);
+		return output.bytes();
+	}
+	
+	static void assertStructEquals(TestStruct expected, TestStruct actual)
+	{
+		assertEquals(expected.flag, actual.flag);
+		assertEquals(expected.b, actual.b);
+		assertEquals(expected.ub, actual.ub);
+		assertEquals(expected.s, actual.s);
+		assertEquals(expected.us, actual.us);
+		assertEquals(expected.i, actual.i);
+		assertEquals(expected.ui, actual.ui);
+		assertEquals(expected.l, actual.l);
+		assertEquals(expected.ul, actual.ul);
+		assertEquals(expected.f, actual.f, 0);
+		assertEquals(expected.d, actual.d, 0);
+		assertEquals(expected.text, actual.text);
+		assertArrayEquals(expected.data, actual.data);
+		assertArrayEquals(expected.numbers, actual.numbers);
+		assertItemEquals(expected.item, actual.item);
+		assertEquals(expected.items.length, actual.items.length);
+		for(int i = 0; i < expected.items.length; i++)
+		{
+			assertItemEquals(expected.items[i], actual.items[i]);
+		}
+		assertArrayEquals(expected.names, actual.names);
+	}
+	
+	static void assertVarStructEquals(VarTestStruct expected, VarTestStruct actual)
+	{
+		assertEquals(expected.vi, actual.vi);
+		assertEquals(expected.uvi, actual.uvi);
+		assertEquals(expected.vl, actual.vl);
+		assertEquals(expected.uvl, actual.uvl);
+		assertEquals(expected.text, actual.text);
+		assertArrayEquals(expected.data, actual.data);
+		assertEquals(expected.items.length, actual.items.length);
+		for(int i = 0; i < expected.items.length; i++)
+		{
+			assertEquals(expected.items[i].id, actual.items[i].id);
+			assertEquals(expected.items[i].name, actual.items[i].name);
+		}
+		assertEquals(expected.plain, actual.plain);
+	}
+	
+	private static void assertItemEquals(TestItem expected, TestItem actual)
+	{
+		assertEquals(expected.id, actual.id);
+		assertEquals(expected.name, actual.name);
+	}
+}
@@ -0,0 +1,31 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+/**
+ * 测试用的嵌套自定义数据.
+ * @author wizardc
+ */
+@Struct(view = true)
+public class TestItem extends AbstractSerializedStruct
+{
+	public int id;
+	public String name;
+	
+	public TestItem()
+	{
+	}
+	
+	public TestItem(int id, String name)
+	{
+		this.id = id;
+		this.name = name;
+	}
+}
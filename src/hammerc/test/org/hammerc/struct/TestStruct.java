@@ -0,0 +1,68 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+import java.math.BigInteger;
+
+/**
+ * 测试用的自定义数据, 包含所有定长编码的字段类型.
+ * @author wizardc
+ */
+@Struct(view = true)
+public class TestStruct extends AbstractSerializedStruct
+{
+	public boolean flag;
+	public byte b;
+	@StructField(type = FieldType.UBYTE)
+	public short ub;
+	public short s;
+	@StructField(type = FieldType.USHORT)
+	public int us;
+	public int i;
+	@StructField(type = FieldType.UINT)
+	public long ui;
+	public long l;
+	public BigInteger ul;
+	public float f;
+	public double d;
+	public String text;
+	public byte[] data;
+	public int[] numbers;
+	public TestItem item;
+	public TestItem[] items;
+	public String[] names;
+	
+	/**
+	 * 创建测试数据, 编码结果与测试中的预期字节相同.
+	 * @return 测试数据.
+	 */
+	public static TestStruct create()
+	{
+		TestStruct struct = new TestStruct();
+		struct.flag = true;
+		struct.b = -2;
+		struct.ub = 200;
+		struct.s = -300;
+		struct.us = 65535;
+		struct.i = 0x01020304;
+		struct.ui = 0xfffffffeL;
+		struct.l = 0x0102030405060708L;
+		struct.ul = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+		struct.f = 1.5f;
+		struct.d = -2.0;
+		struct.text = "hé";
+		struct.data = new byte[] {1, 2};
+		struct.numbers = new int[] {1, -1};
+		struct.item = new TestItem(7, "a");
+		struct.items = new TestItem[] {new TestItem(1, "x"), new TestItem(2, "yz")};
+		struct.names = new String[] {"p", "q"};
+		return struct;
+	}
+}
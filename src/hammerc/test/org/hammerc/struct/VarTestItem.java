@@ -0,0 +1,32 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+/**
+ * 测试用的使用变长编码的嵌套自定义数据.
+ * @author wizardc
+ */
+@Struct(view = true, varLength = true)
+public class VarTestItem extends AbstractSerializedStruct
+{
+	@StructField(type = FieldType.VARINT)
+	public int id;
+	public String name;
+	
+	public VarTestItem()
+	{
+	}
+	
+	public VarTestItem(int id, String name)
+	{
+		this.id = id;
+		this.name = name;
+	}
+}
@@ -0,0 +1,49 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.struct;
+
+/**
+ * 测试用的自定义数据, 包含所有变长编码的字段类型, 最后的定长字段位于变长字段之后.
+ * @author wizardc
+ */
+@Struct(view = true, varLength = true)
+public class VarTestStruct extends AbstractSerializedStruct
+{
+	@StructField(type = FieldType.VARINT)
+	public int vi;
+	@StructField(type = FieldType.UVARINT)
+	public int uvi;
+	@StructField(type = FieldType.VARLONG)
+	public long vl;
+	@StructField(type = FieldType.UVARLONG)
+	public long uvl;
+	public String text;
+	public byte[] data;
+	public VarTestItem[] items;
+	public int plain;
+	
+	/**
+	 * 创建测试数据, 编码结果与测试中的预期字节相同.
+	 * @return 测试数据.
+	 */
+	public static VarTestStruct create()
+	{
+		VarTestStruct struct = new VarTestStruct();
+		struct.vi = -1;
+		struct.uvi = 300;
+		struct.vl = Long.MIN_VALUE;
+		struct.uvl = 127;
+		struct.text = "ab";
+		struct.data = new byte[0];
+		struct.items = new VarTestItem[] {new VarTestItem(63, "x"), new VarTestItem(-65, "yz")};
+		struct.plain = 5;
+		return struct;
+	}
+}
@@ -0,0 +1,105 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.hammerc.io.ByteArrayInput;
+import org.hammerc.io.ByteArrayOutput;
+import org.junit.Test;
+
+/**
+ * UTF8StringCache 的测试.
+ * @author wizardc
+ */
+public class UTF8StringCacheTest
+{
+	@Test
+	public void returnsCachedInstanceOnHit() throws Exception
+	{
+		UTF8StringCache cache = new UTF8StringCache();
+		byte[] data = bytes("xxkey中文yy");
+		String value = cache.get(data, 2, 9);
+		assertEquals("key中文", value);
+		assertSame(value, cache.get(bytes("key中文"), 0, 9));
+		assertSame(value, cache.get(ByteBuffer.wrap(data), 2, 9));
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data);
+		assertSame(value, cache.get(direct, 2, 9));
+		assertEquals(data.length, direct.position());
+		cache.clear();
+		assertNotSame(value, cache.get(data, 2, 9));
+	}
+	
+	@Test
+	public void replacesSlotOnCollision() throws Exception
+	{
+		UTF8StringCache cache = new UTF8StringCache(1, 32);
+		String first = cache.get(bytes("first"), 0, 5);
+		String second = cache.get(bytes("second"), 0, 6);
+		assertEquals("second", second);
+		String again = cache.get(bytes("first"), 0, 5);
+		assertEquals("first", again);
+		assertNotSame(first, again);
+		//哈希值相同但内容不同的数据不会返回错误的字符串
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		cache = new UTF8StringCache();
+		assertEquals("Aa", cache.get(bytes("Aa"), 0, 2));
+		assertEquals("BB", cache.get(bytes("BB"), 0, 2));
+		ByteBuffer direct = ByteBuffer.allocateDirect(2);
+		direct.put(bytes("Aa"));
+		assertEquals("Aa", cache.get(direct, 0, 2));
+	}
+	
+	@Test
+	public void skipsStringsLongerThanMaxLength() throws Exception
+	{
+		UTF8StringCache cache = new UTF8StringCache(16, 4);
+		assertEquals(4, cache.maxLength());
+		byte[] data = bytes("abcde");
+		String value = cache.get(data, 0, 5);
+		assertEquals("abcde", value);
+		assertNotSame(value, cache.get(data, 0, 5));
+		assertSame(cache.get(data, 0, 4), cache.get(data, 0, 4));
+		try
+		{
+			new UTF8StringCache(0, 4);
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+		}
+	}
+	
+	@Test
+	public void readsUTFThroughCache() throws Exception
+	{
+		ByteArrayOutput output = new ByteArrayOutput();
+		output.writeUTF("name");
+		output.writeUTF("name");
+		output.writeUTF("a string longer than the cache limit");
+		ByteArrayInput input = new ByteArrayInput(output.bytes());
+		UTF8StringCache cache = new UTF8StringCache(64, 8);
+		input.stringCache(cache);
+		String first = input.readUTF();
+		assertSame(first, input.readUTF());
+		assertEquals("a string longer than the cache limit", input.readUTF());
+	}
+	
+	private static byte[] bytes(String text)
+	{
+		return text.getBytes(UTF8Util.UTF_8);
+	}
+}
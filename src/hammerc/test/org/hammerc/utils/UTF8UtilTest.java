@@ -0,0 +1,138 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.hammerc.io.ByteArrayInput;
+import org.hammerc.io.ByteArrayOutput;
+import org.hammerc.io.ByteBufferOutput;
+import org.junit.Test;
+
+/**
+ * UTF8Util 的测试, 编码结果与 String.getBytes 逐字节比较.
+ * @author wizardc
+ */
+public class UTF8UtilTest
+{
+	//ASCII, 2 字节, 3 字节, 代理对, 不成对的高位及低位代理字符
+	private static final String[] STRINGS = {"", "hello", "é", "ü©ß", "中文字符", "😀", "a😀b", "\uD800", "a\uD800b", "\uDC00", "a\uDC00b", "\uDC00\uD800", "mixé中😀\uD800end"};
+	
+	@Test
+	public void encodesLikeStringGetBytes() throws Exception
+	{
+		for(String value : STRINGS)
+		{
+			byte[] expected = value.getBytes(UTF8Util.UTF_8);
+			assertEquals(value, expected.length, UTF8Util.encodedLength(value));
+			byte[] bytes = new byte[expected.length + 4];
+			assertEquals(value, expected.length + 3, UTF8Util.encode(value, bytes, 3));
+			assertArrayEquals(value, expected, Arrays.copyOfRange(bytes, 3, 3 + expected.length));
+		}
+	}
+	
+	@Test
+	public void encodesIntoHeapDirectAndSlicedBuffers() throws Exception
+	{
+		for(String value : STRINGS)
+		{
+			byte[] expected = value.getBytes(UTF8Util.UTF_8);
+			ByteBuffer[] buffers = {ByteBuffer.allocate(expected.length + 2), ByteBuffer.allocateDirect(expected.length + 2), slice(expected.length + 2)};
+			for(ByteBuffer buffer : buffers)
+			{
+				buffer.position(2);
+				UTF8Util.encode(value, buffer, expected.length);
+				assertEquals(expected.length + 2, buffer.position());
+				byte[] bytes = new byte[expected.length];
+				buffer.position(2);
+				buffer.get(bytes);
+				assertArrayEquals(value, expected, bytes);
+			}
+		}
+	}
+	
+	@Test
+	public void decodesHeapAndDirectBuffers() throws Exception
+	{
+		for(String value : STRINGS)
+		{
+			byte[] bytes = value.getBytes(UTF8Util.UTF_8);
+			String expected = new String(bytes, UTF8Util.UTF_8);
+			ByteBuffer[] buffers = {ByteBuffer.allocate(bytes.length + 1), ByteBuffer.allocateDirect(bytes.length + 1), slice(bytes.length + 1)};
+			for(ByteBuffer buffer : buffers)
+			{
+				buffer.position(1);
+				buffer.put(bytes);
+				assertEquals(expected, UTF8Util.decode(buffer, 1, bytes.length));
+				buffer.position(1);
+				assertEquals(expected, UTF8Util.decode(buffer, bytes.length));
+				assertEquals(bytes.length + 1, buffer.position());
+			}
+		}
+	}
+	
+	@Test
+	public void writesUTFWithBackFilledLength() throws Exception
+	{
+		String value = "mixé中😀\uD800end";
+		byte[] encoded = value.getBytes(UTF8Util.UTF_8);
+		for(int i = 0; i < 2; i++)
+		{
+			ByteOrder order = i == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+			byte[] expected = new byte[encoded.length + 3];
+			ByteBuffer.wrap(expected).order(order).putShort((short) encoded.length).put(encoded).put((byte) 7);
+			ByteArrayOutput arrayOutput = new ByteArrayOutput();
+			arrayOutput.endian(order);
+			arrayOutput.writeUTF(value);
+			arrayOutput.writeByte((byte) 7);
+			assertArrayEquals(expected, arrayOutput.bytes());
+			//堆内存容量足够时直接编码后回填长度, 直接内存先计算长度
+			ByteBufferOutput[] outputs = {new ByteBufferOutput(256, false), new ByteBufferOutput(256, true), new ByteBufferOutput(4, false)};
+			for(ByteBufferOutput output : outputs)
+			{
+				output.endian(order);
+				output.writeUTF(value);
+				output.writeByte((byte) 7);
+				assertArrayEquals(expected, output.bytes());
+			}
+			ByteArrayInput input = new ByteArrayInput(expected);
+			input.endian(order);
+			assertEquals(new String(encoded, UTF8Util.UTF_8), input.readUTF());
+		}
+	}
+	
+	@Test
+	public void writesUTFBytesWithoutLength() throws Exception
+	{
+		for(String value : STRINGS)
+		{
+			byte[] expected = value.getBytes(UTF8Util.UTF_8);
+			ByteArrayOutput arrayOutput = new ByteArrayOutput();
+			arrayOutput.writeUTFBytes(value);
+			arrayOutput.writeByte((byte) 0);
+			assertArrayEquals(value, Arrays.copyOf(expected, expected.length + 1), arrayOutput.bytes());
+			ByteBufferOutput output = new ByteBufferOutput(1, true);
+			output.writeUTFBytes(value);
+			assertArrayEquals(value, expected, output.bytes());
+		}
+	}
+	
+	private static ByteBuffer slice(int capacity)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(capacity + 5);
+		buffer.position(5);
+		return buffer.slice();
+	}
+}
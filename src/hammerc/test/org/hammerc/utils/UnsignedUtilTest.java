@@ -0,0 +1,76 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * UnsignedUtil 的测试, 结果与 new BigInteger(1, bytes) 比较.
+ * @author wizardc
+ */
+public class UnsignedUtilTest
+{
+	//0, 有符号的最大值, 2^64-1 及有符号的最小值等边界数据
+	private static final long[] LONGS = {0, 1, 0xff, Long.MAX_VALUE, -1L, Long.MIN_VALUE, Long.MIN_VALUE + 1, -2L, 0x8000000000000001L};
+	
+	@Test
+	public void convertsLongsToUnsignedBigInteger()
+	{
+		for(long value : LONGS)
+		{
+			BigInteger expected = new BigInteger(1, bigEndian(value));
+			assertEquals(Long.toHexString(value), expected, UnsignedUtil.toUnsignedBigInteger(value));
+			assertEquals(expected, new BigInteger(Long.toUnsignedString(value)));
+			assertEquals(value, expected.longValue());
+		}
+		assertEquals(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE), UnsignedUtil.toUnsignedBigInteger(-1L));
+		assertEquals(BigInteger.ONE.shiftLeft(63), UnsignedUtil.toUnsignedBigInteger(Long.MIN_VALUE));
+	}
+	
+	@Test
+	public void convertsBytesBothWays()
+	{
+		for(long value : LONGS)
+		{
+			byte[] bytes = bigEndian(value);
+			BigInteger expected = new BigInteger(1, bytes);
+			assertEquals(expected, UnsignedUtil.readUnsignedLong(bytes));
+			assertArrayEquals(bytes, UnsignedUtil.writeUnsignedLong(expected));
+		}
+		long[] ints = {0, 0x7fffffffL, 0x80000000L, 0xffffffffL};
+		for(long value : ints)
+		{
+			byte[] bytes = UnsignedUtil.writeUnsignedInt(value);
+			assertEquals(value, new BigInteger(1, bytes).longValue());
+			assertEquals(value, UnsignedUtil.readUnsignedInt(bytes));
+		}
+		int[] shorts = {0, 0x7fff, 0x8000, 0xffff};
+		for(int value : shorts)
+		{
+			byte[] bytes = UnsignedUtil.writeUnsignedShort(value);
+			assertEquals(value, new BigInteger(1, bytes).intValue());
+			assertEquals(value, UnsignedUtil.readUnsignedShort(bytes));
+		}
+		assertEquals(0xff, UnsignedUtil.readUnsignedByte(UnsignedUtil.writeUnsignedByte((short) 0xff)));
+		assertEquals(0x80, UnsignedUtil.readUnsignedByte((byte) 0x80));
+	}
+	
+	//大端字节序的 8 字节数据
+	private static byte[] bigEndian(long value)
+	{
+		return ByteBuffer.allocate(8).putLong(value).array();
+	}
+}
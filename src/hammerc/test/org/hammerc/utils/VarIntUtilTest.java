@@ -0,0 +1,121 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.hammerc.io.ByteArrayInput;
+import org.hammerc.io.ByteArrayOutput;
+import org.hammerc.struct.BytesReader;
+import org.hammerc.struct.BytesWriter;
+import org.hammerc.struct.StructReader;
+import org.hammerc.struct.StructWriter;
+import org.junit.Test;
+
+/**
+ * VarIntUtil 的测试, 变长编码与 BytesWriter, BytesReader, StructWriter 及 StructReader 逐字节比较.
+ * @author wizardc
+ */
+public class VarIntUtilTest
+{
+	private static final int[] INTS = {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, Integer.MIN_VALUE, -1};
+	private static final String[] INT_BYTES = {"00", "01", "7f", "8001", "ac02", "ff7f", "808001", "ffffffff07", "8080808008", "ffffffff0f"};
+	private static final long[] LONGS = {0, 127, 128, Long.MAX_VALUE, Long.MIN_VALUE, -1};
+	private static final String[] LONG_BYTES = {"00", "7f", "8001", "ffffffffffffffff7f", "80808080808080808001", "ffffffffffffffffff01"};
+	
+	@Test
+	public void encodesUnsignedVarInt() throws Exception
+	{
+		for(int i = 0; i < INTS.length; i++)
+		{
+			byte[] expected = hex(INT_BYTES[i]);
+			assertArrayEquals(expected, VarIntUtil.encodeUnsignedVarInt(INTS[i]));
+			assertEquals(expected.length, VarIntUtil.sizeOfUnsignedVarInt(INTS[i]));
+			ByteArrayOutput output = new ByteArrayOutput();
+			BytesWriter.writeUVarInt(output, INTS[i]);
+			assertArrayEquals(expected, output.bytes());
+			StructWriter writer = new StructWriter(expected.length);
+			writer.writeUnsignedVarInt(INTS[i]);
+			assertArrayEquals(expected, writer.bytes());
+			assertEquals(INTS[i], BytesReader.readUVarInt(new ByteArrayInput(expected)));
+			assertEquals(INTS[i], new StructReader(expected).readUnsignedVarInt());
+		}
+	}
+	
+	@Test
+	public void encodesUnsignedVarLong() throws Exception
+	{
+		for(int i = 0; i < LONGS.length; i++)
+		{
+			byte[] expected = hex(LONG_BYTES[i]);
+			assertArrayEquals(expected, VarIntUtil.encodeUnsignedVarLong(LONGS[i]));
+			assertEquals(expected.length, VarIntUtil.sizeOfUnsignedVarLong(LONGS[i]));
+			ByteArrayOutput output = new ByteArrayOutput();
+			BytesWriter.writeUVarLong(output, LONGS[i]);
+			assertArrayEquals(expected, output.bytes());
+			StructWriter writer = new StructWriter(expected.length);
+			writer.writeUnsignedVarLong(LONGS[i]);
+			assertArrayEquals(expected, writer.bytes());
+			assertEquals(LONGS[i], BytesReader.readUVarLong(new ByteArrayInput(expected)));
+			assertEquals(LONGS[i], new StructReader(expected).readUnsignedVarLong());
+		}
+	}
+	
+	@Test
+	public void encodesZigZag() throws Exception
+	{
+		assertEquals(0, VarIntUtil.encodeZigZag(0));
+		assertEquals(1, VarIntUtil.encodeZigZag(-1));
+		assertEquals(2, VarIntUtil.encodeZigZag(1));
+		assertEquals(-1, VarIntUtil.encodeZigZag(Integer.MIN_VALUE));
+		assertEquals(-1L, VarIntUtil.encodeZigZag(Long.MIN_VALUE));
+		for(int value : INTS)
+		{
+			assertEquals(value, VarIntUtil.decodeZigZag(VarIntUtil.encodeZigZag(value)));
+			ByteArrayOutput output = new ByteArrayOutput();
+			BytesWriter.writeVarInt(output, value);
+			byte[] bytes = output.bytes();
+			assertArrayEquals(VarIntUtil.encodeUnsignedVarInt(VarIntUtil.encodeZigZag(value)), bytes);
+			assertEquals(value, BytesReader.readVarInt(new ByteArrayInput(bytes)));
+			assertEquals(value, new StructReader(bytes).readVarInt());
+		}
+		for(long value : LONGS)
+		{
+			assertEquals(value, VarIntUtil.decodeZigZag(VarIntUtil.encodeZigZag(value)));
+			ByteArrayOutput output = new ByteArrayOutput();
+			BytesWriter.writeVarLong(output, value);
+			byte[] bytes = output.bytes();
+			assertArrayEquals(VarIntUtil.encodeUnsignedVarLong(VarIntUtil.encodeZigZag(value)), bytes);
+			assertEquals(value, BytesReader.readVarLong(new ByteArrayInput(bytes)));
+			assertEquals(value, new StructReader(bytes).readVarLong());
+		}
+	}
+	
+	@Test
+	public void writesIntoArray() throws Exception
+	{
+		byte[] bytes = new byte[1 + VarIntUtil.MAX_VAR_INT_SIZE + VarIntUtil.MAX_VAR_LONG_SIZE];
+		int end = VarIntUtil.writeUnsignedVarInt(bytes, 1, 300);
+		end = VarIntUtil.writeUnsignedVarLong(bytes, end, -1L);
+		assertEquals(13, end);
+		assertArrayEquals(hex("00ac02ffffffffffffffffff01000000"), bytes);
+	}
+	
+	private static byte[] hex(String text)
+	{
+		byte[] bytes = new byte[text.length() / 2];
+		for(int i = 0; i < bytes.length; i++)
+		{
+			bytes[i] = (byte) Integer.parseInt(text.substring(i * 2, i * 2 + 2), 16);
+		}
+		return bytes;
+	}
+}
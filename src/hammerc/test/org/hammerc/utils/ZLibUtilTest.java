@@ -0,0 +1,340 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+/**
+ * ZLibUtil 的测试.
+ * @author wizardc
+ */
+public class ZLibUtilTest
+{
+	private static final byte[] DICTIONARY = bytes("{\"type\":\"chat\",\"channel\":\"world\",\"text\":\"");
+	private static final byte[] MESSAGE = bytes("{\"type\":\"chat\",\"channel\":\"world\",\"text\":\"hello\"}");
+	
+	@Test
+	public void roundTripsByteArrays() throws Exception
+	{
+		byte[] data = sample(100000);
+		byte[] compressed = ZLibUtil.compress(data);
+		assertArrayEquals(data, ZLibUtil.decompress(compressed));
+		byte[] framed = new byte[compressed.length + 6];
+		System.arraycopy(compressed, 0, framed, 3, compressed.length);
+		assertArrayEquals(data, ZLibUtil.decompress(framed, 3, compressed.length));
+		assertArrayEquals(new byte[0], ZLibUtil.decompress(ZLibUtil.compress(new byte[0])));
+	}
+	
+	@Test
+	public void roundTripsHeapDirectAndSlicedBuffers() throws Exception
+	{
+		byte[] data = sample(100000);
+		ByteBuffer[] sources = {ByteBuffer.wrap(data), direct(data), slice(data)};
+		for(ByteBuffer src : sources)
+		{
+			for(int kind = 0; kind < 3; kind++)
+			{
+				ByteBuffer dst = allocate(kind, ZLibUtil.compressBound(data.length));
+				src.rewind();
+				int size = ZLibUtil.compress(src, dst, Deflater.DEFAULT_COMPRESSION);
+				assertEquals(src.limit(), src.position());
+				assertEquals(size, dst.position());
+				dst.flip();
+				byte[] compressed = new byte[size];
+				dst.duplicate().get(compressed);
+				assertArrayEquals(data, ZLibUtil.decompress(compressed));
+				for(int outKind = 0; outKind < 3; outKind++)
+				{
+					ByteBuffer out = allocate(outKind, data.length);
+					dst.rewind();
+					assertEquals(data.length, ZLibUtil.decompress(dst, out));
+					assertEquals(size, dst.position());
+					assertEquals(data.length, out.position());
+					out.flip();
+					byte[] result = new byte[data.length];
+					out.get(result);
+					assertArrayEquals(data, result);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void stopsAtEndOfCompressedSegment() throws Exception
+	{
+		byte[] first = bytes("first message, first message");
+		byte[] second = bytes("second message");
+		byte[] a = ZLibUtil.compress(first);
+		byte[] b = ZLibUtil.compress(second);
+		ByteBuffer src = ByteBuffer.allocateDirect(a.length + b.length);
+		src.put(a).put(b).flip();
+		ByteBuffer dst = ByteBuffer.allocate(64);
+		assertEquals(first.length, ZLibUtil.decompress(src, dst));
+		assertEquals(a.length, src.position());
+		assertEquals(second.length, ZLibUtil.decompress(src, dst));
+		assertEquals(src.limit(), src.position());
+		assertEquals(first.length + second.length, dst.position());
+	}
+	
+	@Test
+	public void restoresPositionsOnOverflow() throws Exception
+	{
+		byte[] data = new byte[4096];
+		new Random(5).nextBytes(data);
+		for(int kind = 0; kind < 3; kind++)
+		{
+			ByteBuffer src = ByteBuffer.wrap(data);
+			src.position(10);
+			ByteBuffer dst = allocate(kind, 100);
+			dst.position(3);
+			try
+			{
+				ZLibUtil.compress(src, dst, 6);
+				fail();
+			}
+			catch(BufferOverflowException exception)
+			{
+			}
+			assertEquals(10, src.position());
+			assertEquals(3, dst.position());
+		}
+		byte[] compressed = ZLibUtil.compress(data);
+		for(int kind = 0; kind < 3; kind++)
+		{
+			ByteBuffer src = allocate(kind, compressed.length + 2);
+			src.position(2);
+			src.put(compressed).position(2);
+			ByteBuffer dst = allocate(kind, data.length + 1);
+			dst.position(2);
+			try
+			{
+				ZLibUtil.decompress(src, dst);
+				fail();
+			}
+			catch(BufferOverflowException exception)
+			{
+			}
+			assertEquals(2, src.position());
+			assertEquals(2, dst.position());
+		}
+	}
+	
+	@Test
+	public void usesPresetDictionary() throws Exception
+	{
+		for(int i = 0; i < 2; i++)
+		{
+			boolean nowrap = i == 1;
+			byte[] compressed = compress(MESSAGE, nowrap, DICTIONARY);
+			assertArrayEquals(MESSAGE, decompress(compressed, nowrap, DICTIONARY));
+			//数据几乎全部引用字典, 缺少字典或字典错误时无法解压
+			assertDataFormatException(compressed, nowrap, null);
+			assertDataFormatException(compressed, nowrap, bytes("wrong"));
+		}
+	}
+	
+	@Test
+	public void rejectsTruncatedInput() throws Exception
+	{
+		byte[] data = sample(10000);
+		byte[] compressed = ZLibUtil.compress(data);
+		byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+		try
+		{
+			ZLibUtil.decompress(truncated);
+			fail();
+		}
+		catch(DataFormatException exception)
+		{
+		}
+		ByteBuffer src = direct(truncated);
+		ByteBuffer dst = ByteBuffer.allocate(data.length);
+		try
+		{
+			ZLibUtil.decompress(src, dst);
+			fail();
+		}
+		catch(DataFormatException exception)
+		{
+		}
+		assertEquals(0, src.position());
+		assertEquals(0, dst.position());
+		try
+		{
+			ZLibUtil.decompress(new ByteArrayInputStream(truncated), new ByteArrayOutputStream());
+			fail();
+		}
+		catch(DataFormatException exception)
+		{
+		}
+	}
+	
+	@Test
+	public void roundTripsStreams() throws Exception
+	{
+		byte[] data = sample(300000);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		long size = ZLibUtil.compress(new ByteArrayInputStream(data), compressed, 9);
+		assertEquals(compressed.size(), size);
+		//流格式与数组格式相同
+		assertArrayEquals(data, ZLibUtil.decompress(compressed.toByteArray()));
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		assertEquals(data.length, ZLibUtil.decompress(new ByteArrayInputStream(compressed.toByteArray()), output));
+		assertArrayEquals(data, output.toByteArray());
+		assertArrayEquals(data, ZLibUtil.decompress(ZLibUtil.compress(data, 9)));
+	}
+	
+	@Test
+	public void reusesPooledContextsAfterFailure() throws Exception
+	{
+		byte[] data = sample(20000);
+		byte[] compressed = ZLibUtil.compress(data);
+		byte[] corrupt = compressed.clone();
+		for(int i = 10; i < 30; i++)
+		{
+			corrupt[i] = (byte) 0xff;
+		}
+		byte[] withDictionary = compress(MESSAGE, true, DICTIONARY);
+		for(int i = 0; i < 20; i++)
+		{
+			try
+			{
+				ZLibUtil.decompress(corrupt);
+				fail();
+			}
+			catch(DataFormatException exception)
+			{
+			}
+			assertArrayEquals(data, ZLibUtil.decompress(compressed));
+			try
+			{
+				ZLibUtil.compress(ByteBuffer.wrap(data), ByteBuffer.allocate(10), Deflater.DEFAULT_COMPRESSION);
+				fail();
+			}
+			catch(BufferOverflowException exception)
+			{
+			}
+			assertArrayEquals(compressed, ZLibUtil.compress(data));
+			//归还的上下文不会保留上次使用的字典
+			assertArrayEquals(MESSAGE, decompress(withDictionary, true, DICTIONARY));
+			assertDataFormatException(withDictionary, true, null);
+			assertArrayEquals(data, decompress(compress(data, true, null), true, null));
+		}
+	}
+	
+	@Test
+	public void rejectsInvalidLevel() throws Exception
+	{
+		try
+		{
+			ZLibUtil.compress(new byte[1], 10);
+			fail();
+		}
+		catch(IllegalArgumentException exception)
+		{
+		}
+	}
+	
+	private static byte[] compress(byte[] data, boolean nowrap, byte[] dictionary)
+	{
+		ByteBuffer dst = ByteBuffer.allocate(ZLibUtil.compressBound(data.length));
+		int size = ZLibUtil.compress(ByteBuffer.wrap(data), dst, Deflater.DEFAULT_COMPRESSION, nowrap, dictionary);
+		return Arrays.copyOf(dst.array(), size);
+	}
+	
+	private static byte[] decompress(byte[] data, boolean nowrap, byte[] dictionary) throws DataFormatException
+	{
+		ByteBuffer dst = ByteBuffer.allocate(data.length * 20 + 1024);
+		int size = ZLibUtil.decompress(ByteBuffer.wrap(data), dst, nowrap, dictionary);
+		return Arrays.copyOf(dst.array(), size);
+	}
+	
+	private static void assertDataFormatException(byte[] data, boolean nowrap, byte[] dictionary)
+	{
+		ByteBuffer src = ByteBuffer.wrap(data);
+		ByteBuffer dst = ByteBuffer.allocate(1024);
+		try
+		{
+			ZLibUtil.decompress(src, dst, nowrap, dictionary);
+			fail();
+		}
+		catch(DataFormatException exception)
+		{
+		}
+		assertEquals(0, src.position());
+		assertEquals(0, dst.position());
+	}
+	
+	//0 为堆内存, 1 为直接内存, 2 为底层数组有偏移的切片
+	private static ByteBuffer allocate(int kind, int capacity)
+	{
+		switch(kind)
+		{
+			case 0:
+				return ByteBuffer.allocate(capacity);
+			case 1:
+				return ByteBuffer.allocateDirect(capacity);
+			default:
+				ByteBuffer buffer = ByteBuffer.allocate(capacity + 7);
+				buffer.position(7);
+				return buffer.slice();
+		}
+	}
+	
+	private static ByteBuffer direct(byte[] data)
+	{
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data).flip();
+		return buffer;
+	}
+	
+	private static ByteBuffer slice(byte[] data)
+	{
+		byte[] array = new byte[data.length + 10];
+		System.arraycopy(data, 0, array, 5, data.length);
+		return ByteBuffer.wrap(array, 5, data.length).slice();
+	}
+	
+	private static byte[] sample(int length)
+	{
+		StringBuilder builder = new StringBuilder();
+		Random random = new Random(length);
+		while(builder.length() < length)
+		{
+			builder.append("item-").append(random.nextInt(1000)).append(';');
+		}
+		return Arrays.copyOf(bytes(builder.toString()), length);
+	}
+	
+	private static byte[] bytes(String text)
+	{
+		try
+		{
+			return text.getBytes("UTF-8");
+		}
+		catch(Exception exception)
+		{
+			throw new IllegalStateException(exception);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.scheduled;
+
+/**
+ * IDispatchableTaskManager 接口定义了可以将到期任务交给分发器运行的任务管理类.
+ * @author wizardc
+ */
+public interface IDispatchableTaskManager extends ITaskManager
+{
+	/**
+	 * 设置任务分发器.
+	 * @param dispatcher 任务分发器, 为 null 时在计时器线程上直接运行到期的任务.
+	 */
+	public void setDispatcher(ITaskDispatcher dispatcher);
+}
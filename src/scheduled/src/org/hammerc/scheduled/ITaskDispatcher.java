@@ -0,0 +1,25 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.scheduled;
+
+/**
+ * ITaskDispatcher 接口定义了计划任务的分发器, 计时器线程只负责找出到期的任务, 任务的运行交由分发器处理.
+ * @author wizardc
+ */
+public interface ITaskDispatcher
+{
+	/**
+	 * 分发一个已经到期的计划任务.
+	 * @param manager 该任务所属的任务管理对象.
+	 * @param task 要运行的计划任务.
+	 * @param scheduledTime 该任务计划运行的时间戳, 用来计算实际运行的延迟.
+	 */
+	public void dispatch(ITaskManager manager, IScheduledTask task, long scheduledTime);
+}
@@ -0,0 +1,41 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.scheduled;
+
+/**
+ * ITimeoutHandle 接口定义了添加超时任务后返回的句柄, 可以通过该句柄取消对应的超时任务.
+ * @author wizardc
+ */
+public interface ITimeoutHandle
+{
+	/**
+	 * 获取对应的超时任务.
+	 * @return 对应的超时任务.
+	 */
+	public ITimeoutTask getTask();
+	
+	/**
+	 * 取消对应的超时任务.
+	 * @return 取消成功返回 true, 如果任务已经运行或已经被取消则返回 false.
+	 */
+	public boolean cancel();
+	
+	/**
+	 * 判断对应的超时任务是否已经被取消.
+	 * @return 是否已经被取消.
+	 */
+	public boolean isCancelled();
+	
+	/**
+	 * 判断对应的超时任务是否已经到期运行.
+	 * @return 是否已经到期运行.
+	 */
+	public boolean isExpired();
+}
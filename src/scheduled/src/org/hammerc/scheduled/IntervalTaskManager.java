@@ -9,61 +9,62 @@
 
 package org.hammerc.scheduled;
 
-import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.Hashtable;
-import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * IntervalTaskManager 类用来管理所有的间隔任务.
+ * <p>添加及移除任务不会与计时器线程竞争锁, 新添加的任务会压入无锁栈, 由计时器线程在每次运行时整体取出后放入时间轮, 重复运行的任务在时间轮中原地重新放入, 不会产生新的对象.</p>
  * @author wizardc
  */
-public class IntervalTaskManager implements ITaskManager
+public class IntervalTaskManager implements IDispatchableTaskManager
 {
 	//记录是否调用了初始化方法进行了初始化
-	private boolean _initialized = false;
+	private volatile boolean _initialized = false;
 	//计时器执行间隔, 单位毫秒
-	private int _period = 50;
-	//记录上一次的时间索引
-	private long _lastIndex = 0;
+	private volatile int _period = 50;
 	//记录所有的间隔任务
-	private Hashtable<Integer, IIntervalTask> _tasks;
-	//记录每个时间索引对应的所有间隔任务
-	private Hashtable<Long, HashSet<Integer>> _runTasks;
+	private ConcurrentHashMap<Integer, Entry> _tasks;
+	//记录所有已放入的间隔任务的时间轮, 下一个需要处理的时间索引为上一次的时间索引加 1
+	private TimingWheel _wheel;
+	//等待放入时间轮的任务, 以链表形式记录的栈顶
+	private AtomicReference<Entry> _pendingEntries;
+	//等待从时间轮中移除的任务, 以链表形式记录的栈顶
+	private AtomicReference<Entry> _removedEntries;
+	//任务分发器, 为 null 时在计时器线程上直接运行任务
+	private volatile ITaskDispatcher _dispatcher;
 	
 	/**
 	 * 创建一个 IntervalTaskManager 对象.
 	 */
 	public IntervalTaskManager()
 	{
-		_tasks = new Hashtable<Integer, IIntervalTask>();
-		_runTasks = new Hashtable<Long, HashSet<Integer>>();
+		_tasks = new ConcurrentHashMap<Integer, Entry>();
+		_wheel = new TimingWheel(1);
+		_pendingEntries = new AtomicReference<Entry>();
+		_removedEntries = new AtomicReference<Entry>();
 	}
 	
 	@Override
-	public void initialize(int period)
+	public synchronized void initialize(int period)
 	{
 		if(period > 0)
 		{
 			_period = period;
 		}
-		_lastIndex = System.currentTimeMillis() / _period;
-		//如果在没有进行初始化之前就添加了间隔任务则在这里将之前添加的任务添加到运行列表中
-		synchronized(this)
-		{
-			Enumeration<Integer> keys = _tasks.keys();
-			while(keys.hasMoreElements())
-			{
-				Integer id = keys.nextElement();
-				IIntervalTask task = _tasks.get(id);
-				addToRunTasks(id, task);
-			}
-			_initialized = true;
-		}
+		_wheel.currentTick(currentTimeMillis() / _period + 1);
+		//在没有进行初始化之前添加的间隔任务会在下一次运行时放入时间轮
+		_initialized = true;
+	}
+	
+	@Override
+	public void setDispatcher(ITaskDispatcher dispatcher)
+	{
+		_dispatcher = dispatcher;
 	}
 	
 	/**
-	 * 添加一个间隔任务.
+	 * 添加一个间隔任务, 该方法线程安全且不会与计时器线程竞争锁.
 	 * @param id 指定该任务的唯一标示.
 	 * @param task 要添加的间隔任务.
 	 * @throws RuntimeException 当指定的 id 已经被使用或添加的任务的间隔时间小于计时器的执行间隔时抛出该异常.
@@ -79,123 +80,206 @@ public class IntervalTaskManager implements ITaskManager
 		{
 			throw new RuntimeException("Interval of time between tasks can not be less than the period time!");
 		}
-		synchronized(this)
+		Entry entry = new Entry(task);
+		if(_tasks.putIfAbsent(id, entry) != null)
 		{
-			//记录该任务
-			_tasks.put(id, task);
-			//初始化后添加该任务到运行列表中
-			if(_initialized)
-			{
-				addToRunTasks(id, task);
-			}
+			throw new RuntimeException("The id \"" + id + "\" already exists!");
 		}
-	}
-	
-	private void addToRunTasks(int id, IIntervalTask task)
-	{
-		//获取该任务的第一次运行时间
-		long index = task.getDelayTime() / _period;
-		if(index <= _lastIndex)
+		Entry head;
+		do
 		{
-			index = _lastIndex + 1;
+			head = _pendingEntries.get();
+			entry.nextPending = head;
 		}
-		addTasksIndex(id, index);
-	}
-	
-	private void addTasksIndex(int id, long index)
-	{
-		//将对应的任务的 id 添加到其下一次运行的时间索引中
-		HashSet<Integer> taskIds = _runTasks.get(index);
-		if(taskIds == null)
-		{
-			taskIds = new HashSet<Integer>();
-			_runTasks.put(index, taskIds);
-		}
-		taskIds.add(id);
+		while(!_pendingEntries.compareAndSet(head, entry));
 	}
 	
 	/**
-	 * 移除一个间隔任务.
+	 * 移除一个间隔任务, 该方法线程安全且不会与计时器线程竞争锁.
 	 * @param id 要被移除的间隔任务对象.
 	 */
 	public void removeIntervalTask(int id)
 	{
-		_tasks.remove(id);
+		Entry entry = _tasks.remove(id);
+		if(entry != null)
+		{
+			entry.removed = true;
+			//已经放入时间轮的任务由计时器线程在下一次运行时移除, 未及时移除的任务也会在到期时被丢弃
+			if(entry.placed)
+			{
+				Entry head;
+				do
+				{
+					head = _removedEntries.get();
+					entry.nextRemoved = head;
+				}
+				while(!_removedEntries.compareAndSet(head, entry));
+			}
+		}
 	}
 	
 	@Override
-	public void run()
+	public synchronized void run()
 	{
-		long index = _lastIndex + 1;
-		long currentIndex = System.currentTimeMillis() / _period;
-		for(; index <= currentIndex; index++)
+		if(!_initialized)
+		{
+			return;
+		}
+		long currentIndex = currentTimeMillis() / _period;
+		transferRemovedEntries();
+		transferPendingEntries();
+		while(_wheel.currentTick() <= currentIndex)
 		{
-			synchronized(this)
+			//时间轮中没有任务时直接跳到当前的时间索引
+			if(_wheel.size() == 0)
 			{
-				_lastIndex = index;
+				_wheel.currentTick(currentIndex + 1);
+				break;
 			}
-			runAllTask(index);
+			long index = _wheel.currentTick();
+			TimingWheel.Node node = _wheel.expire();
+			while(node != null)
+			{
+				Entry entry = (Entry) node;
+				node = node.next;
+				entry.next = null;
+				runIntervalTask(entry, index);
+			}
+		}
+	}
+	
+	private void transferRemovedEntries()
+	{
+		Entry entry = _removedEntries.getAndSet(null);
+		while(entry != null)
+		{
+			Entry next = entry.nextRemoved;
+			entry.nextRemoved = null;
+			_wheel.remove(entry);
+			entry = next;
 		}
 	}
 	
-	private void runAllTask(long index)
+	private void transferPendingEntries()
 	{
-		//取出指定时间索引上的所有任务
-		HashSet<Integer> taskIds = _runTasks.get(index);
-		if(taskIds != null)
+		//栈中的顺序与添加顺序相反, 先反转以保证同一时间索引上的任务按添加顺序运行
+		Entry entry = null;
+		Entry head = _pendingEntries.getAndSet(null);
+		while(head != null)
 		{
-			Iterator<Integer> task = taskIds.iterator();
-			while(task.hasNext())
+			Entry next = head.nextPending;
+			head.nextPending = entry;
+			entry = head;
+			head = next;
+		}
+		long lastIndex = _wheel.currentTick() - 1;
+		while(entry != null)
+		{
+			Entry next = entry.nextPending;
+			entry.nextPending = null;
+			if(!entry.removed)
 			{
-				runIntervalTask(task.next(), index);
+				//获取该任务的第一次运行时间
+				long index = entry.task.getDelayTime() / _period;
+				if(index <= lastIndex)
+				{
+					index = lastIndex + 1;
+				}
+				entry.deadline = index;
+				_wheel.add(entry);
+				entry.placed = true;
 			}
-			//移除处理后的所有任务
-			taskIds.clear();
-			_runTasks.remove(index);
+			entry = next;
 		}
 	}
 	
-	private void runIntervalTask(int id, long index)
+	private void runIntervalTask(Entry entry, long index)
 	{
-		IIntervalTask task = _tasks.get(id);
+		if(entry.removed)
+		{
+			return;
+		}
+		IIntervalTask task = entry.task;
 		//记录该任务下一次是否还要继续执行
 		boolean repeat = true;
-		if(task != null)
+		try
 		{
-			try
+			if(task.getRepeatCount() == -1)
 			{
-				if(task.getRepeatCount() == -1)
+				runTask(task, index);
+			}
+			else
+			{
+				if(task.getAndIncrementRepeat() > task.getRepeatCount())
 				{
-					task.run();
+					repeat = false;
 				}
 				else
 				{
-					if(task.getAndIncrementRepeat() > task.getRepeatCount())
-					{
-						repeat = false;
-					}
-					else
-					{
-						task.run();
-					}
+					runTask(task, index);
 				}
 			}
-			catch(Exception exception)
-			{
-			}
-			//记录任务下一次运行的时间并再次加入运行列表
-			if(repeat)
-			{
-				addTasksIndex(id, index + (task.getIntervalTime() / _period));
-			}
+		}
+		catch(Exception exception)
+		{
+		}
+		//记录任务下一次运行的时间并再次放入时间轮
+		if(repeat && !entry.removed)
+		{
+			entry.deadline = index + (task.getIntervalTime() / _period);
+			_wheel.add(entry);
+		}
+	}
+	
+	private void runTask(IIntervalTask task, long index)
+	{
+		ITaskDispatcher dispatcher = _dispatcher;
+		if(dispatcher != null)
+		{
+			dispatcher.dispatch(this, task, index * _period);
+		}
+		else
+		{
+			task.run();
 		}
 	}
 	
 	@Override
-	public void clear()
+	public synchronized void clear()
 	{
 		_tasks.clear();
-		_runTasks.clear();
-		_lastIndex = System.currentTimeMillis() / _period;
+		_pendingEntries.set(null);
+		_removedEntries.set(null);
+		_wheel.detachAll();
+		_wheel.currentTick(currentTimeMillis() / _period + 1);
+	}
+	
+	/**
+	 * 获取当前时间, 计算时间索引时使用.
+	 * @return 当前时间的毫秒数.
+	 */
+	long currentTimeMillis()
+	{
+		return System.currentTimeMillis();
+	}
+	
+	/**
+	 * 时间轮中记录的间隔任务.
+	 * @author wizardc
+	 */
+	static class Entry extends TimingWheel.Node
+	{
+		final IIntervalTask task;
+		//是否已经被移除
+		volatile boolean removed = false;
+		//是否已经放入过时间轮, 未放入时间轮的任务被移除后会在转移时直接丢弃
+		volatile boolean placed = false;
+		Entry nextPending;
+		Entry nextRemoved;
+		
+		Entry(IIntervalTask task)
+		{
+			this.task = task;
+		}
 	}
 }
@@ -0,0 +1,425 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.scheduled;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TaskDispatcher 类将到期的计划任务交给线程池运行, 避免运行缓慢的任务阻塞计时器线程.
+ * <p>默认情况下同一个任务管理对象的任务可能会并发运行, 可以通过 setOrdered 方法要求指定任务管理对象的任务按分发顺序依次运行.</p>
+ * <p>线程池拒绝执行任务时会在计时器线程上直接运行该任务, 保证任务不会丢失.</p>
+ * @author wizardc
+ */
+public class TaskDispatcher implements ITaskDispatcher
+{
+	//运行任务的线程池
+	private ExecutorService _executor;
+	//要求按顺序运行任务的任务管理对象
+	private ConcurrentHashMap<ITaskManager, SerialExecutor> _serialExecutors;
+	//已分发的任务数量
+	private AtomicLong _dispatchedCount;
+	//已开始运行的任务数量
+	private AtomicLong _startedCount;
+	//已运行完毕的任务数量
+	private AtomicLong _completedCount;
+	//运行时抛出异常的任务数量
+	private AtomicLong _failedCount;
+	//被线程池拒绝的任务数量
+	private AtomicLong _rejectedCount;
+	//所有任务实际运行延迟的总和, 单位毫秒
+	private AtomicLong _totalLag;
+	//最大的运行延迟, 单位毫秒
+	private AtomicLong _maxLag;
+	//最近一次的运行延迟, 单位毫秒
+	private volatile long _lastLag;
+	
+	/**
+	 * 使用指定的线程池创建一个 TaskDispatcher 对象.
+	 * @param executor 运行任务的线程池.
+	 */
+	public TaskDispatcher(ExecutorService executor)
+	{
+		_executor = executor;
+		_serialExecutors = new ConcurrentHashMap<ITaskManager, SerialExecutor>();
+		_dispatchedCount = new AtomicLong();
+		_startedCount = new AtomicLong();
+		_completedCount = new AtomicLong();
+		_failedCount = new AtomicLong();
+		_rejectedCount = new AtomicLong();
+		_totalLag = new AtomicLong();
+		_maxLag = new AtomicLong();
+	}
+	
+	/**
+	 * 创建一个使用固定大小线程池的 TaskDispatcher 对象.
+	 * @param threads 线程数量, 小于 1 时使用处理器数量.
+	 * @return TaskDispatcher 对象.
+	 */
+	public static TaskDispatcher newFixedThreadPool(int threads)
+	{
+		if(threads < 1)
+		{
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		return new TaskDispatcher(Executors.newFixedThreadPool(threads));
+	}
+	
+	/**
+	 * 创建一个使用 ForkJoinPool 的 TaskDispatcher 对象.
+	 * @param parallelism 并行数量, 小于 1 时使用处理器数量.
+	 * @return TaskDispatcher 对象.
+	 */
+	public static TaskDispatcher newForkJoinPool(int parallelism)
+	{
+		if(parallelism < 1)
+		{
+			parallelism = Runtime.getRuntime().availableProcessors();
+		}
+		return new TaskDispatcher(new ForkJoinPool(parallelism));
+	}
+	
+	/**
+	 * 创建一个为每个任务使用一个虚拟线程的 TaskDispatcher 对象, 当前运行环境不支持虚拟线程时使用处理器数量大小的固定线程池.
+	 * @return TaskDispatcher 对象.
+	 */
+	public static TaskDispatcher newVirtualThreadExecutor()
+	{
+		try
+		{
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return new TaskDispatcher((ExecutorService) method.invoke(null));
+		}
+		catch(Exception exception)
+		{
+			return newFixedThreadPool(0);
+		}
+	}
+	
+	/**
+	 * 设置指定任务管理对象的任务是否需要按分发顺序依次运行.
+	 * @param manager 任务管理对象.
+	 * @param ordered 是否需要按顺序运行.
+	 */
+	public void setOrdered(ITaskManager manager, boolean ordered)
+	{
+		if(ordered)
+		{
+			if(!_serialExecutors.containsKey(manager))
+			{
+				_serialExecutors.putIfAbsent(manager, new SerialExecutor(_executor, _rejectedCount));
+			}
+		}
+		else
+		{
+			_serialExecutors.remove(manager);
+		}
+	}
+	
+	@Override
+	public void dispatch(ITaskManager manager, IScheduledTask task, long scheduledTime)
+	{
+		_dispatchedCount.incrementAndGet();
+		TaskRunner runner = new TaskRunner(task, scheduledTime);
+		SerialExecutor serialExecutor = _serialExecutors.get(manager);
+		try
+		{
+			if(serialExecutor != null)
+			{
+				serialExecutor.execute(runner);
+			}
+			else
+			{
+				_executor.execute(runner);
+			}
+		}
+		catch(RejectedExecutionException exception)
+		{
+			_rejectedCount.incrementAndGet();
+			runner.run();
+		}
+	}
+	
+	/**
+	 * 获取已分发的任务数量.
+	 * @return 已分发的任务数量.
+	 */
+	public long getDispatchedCount()
+	{
+		return _dispatchedCount.get();
+	}
+	
+	/**
+	 * 获取已运行完毕的任务数量, 包括运行时抛出异常的任务.
+	 * @return 已运行完毕的任务数量.
+	 */
+	public long getCompletedCount()
+	{
+		return _completedCount.get();
+	}
+	
+	/**
+	 * 获取运行时抛出异常的任务数量.
+	 * @return 运行时抛出异常的任务数量.
+	 */
+	public long getFailedCount()
+	{
+		return _failedCount.get();
+	}
+	
+	/**
+	 * 获取被线程池拒绝后在计时器线程上运行的任务数量.
+	 * @return 被线程池拒绝的任务数量.
+	 */
+	public long getRejectedCount()
+	{
+		return _rejectedCount.get();
+	}
+	
+	/**
+	 * 获取等待运行或正在运行的任务数量.
+	 * @return 等待运行或正在运行的任务数量.
+	 */
+	public long getPendingCount()
+	{
+		return _dispatchedCount.get() - _completedCount.get();
+	}
+	
+	/**
+	 * 获取最近一次任务开始运行时落后于计划时间的毫秒数.
+	 * @return 最近一次的运行延迟, 单位毫秒.
+	 */
+	public long getLastLag()
+	{
+		return _lastLag;
+	}
+	
+	/**
+	 * 获取任务开始运行时落后于计划时间的最大毫秒数.
+	 * @return 最大的运行延迟, 单位毫秒.
+	 */
+	public long getMaxLag()
+	{
+		return _maxLag.get();
+	}
+	
+	/**
+	 * 获取任务开始运行时落后于计划时间的平均毫秒数.
+	 * @return 平均的运行延迟, 单位毫秒.
+	 */
+	public double getAverageLag()
+	{
+		long started = _startedCount.get();
+		return started == 0 ? 0 : (double) _totalLag.get() / started;
+	}
+	
+	/**
+	 * 重置所有的统计数据.
+	 */
+	public void resetMetrics()
+	{
+		_dispatchedCount.set(0);
+		_startedCount.set(0);
+		_completedCount.set(0);
+		_failedCount.set(0);
+		_rejectedCount.set(0);
+		_totalLag.set(0);
+		_maxLag.set(0);
+		_lastLag = 0;
+	}
+	
+	/**
+	 * 关闭线程池, 已分发的任务会继续运行.
+	 * @param timeout 等待已分发任务运行完毕的最长时间, 单位毫秒.
+	 * @return 所有任务是否在指定时间内运行完毕.
+	 * @throws InterruptedException 如果在等待中被中断时抛出该异常.
+	 */
+	public boolean shutdown(long timeout) throws InterruptedException
+	{
+		_executor.shutdown();
+		return _executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+	}
+	
+	private void recordLag(long lag)
+	{
+		if(lag < 0)
+		{
+			lag = 0;
+		}
+		_lastLag = lag;
+		_startedCount.incrementAndGet();
+		_totalLag.addAndGet(lag);
+		long max = _maxLag.get();
+		while(lag > max && !_maxLag.compareAndSet(max, lag))
+		{
+			max = _maxLag.get();
+		}
+	}
+	
+	/**
+	 * 在线程池中运行计划任务并记录统计数据.
+	 * @author wizardc
+	 */
+	class TaskRunner implements Runnable
+	{
+		private IScheduledTask _task;
+		private long _scheduledTime;
+		
+		TaskRunner(IScheduledTask task, long scheduledTime)
+		{
+			_task = task;
+			_scheduledTime = scheduledTime;
+		}
+		
+		@Override
+		public void run()
+		{
+			recordLag(System.currentTimeMillis() - _scheduledTime);
+			try
+			{
+				_task.run();
+			}
+			catch(Exception exception)
+			{
+				_failedCount.incrementAndGet();
+			}
+			finally
+			{
+				_completedCount.incrementAndGet();
+			}
+		}
+	}
+	
+	/**
+	 * 将任务按提交顺序依次交给线程池运行, 同一时间只会有一个任务在运行.
+	 * <p>线程池拒绝执行任务时在当前线程上循环运行队列中剩余的任务, 每个任务仍会先尝试交给线程池, 被拒绝时计入拒绝数量.</p>
+	 * @author wizardc
+	 */
+	static class SerialExecutor implements Executor
+	{
+		private Executor _executor;
+		private AtomicLong _rejectedCount;
+		private ArrayDeque<Runnable> _tasks;
+		private Runnable _active;
+		//是否正在当前线程上运行被拒绝的任务, 此时由运行循环继续处理队列
+		private boolean _draining;
+		
+		SerialExecutor(Executor executor, AtomicLong rejectedCount)
+		{
+			_executor = executor;
+			_rejectedCount = rejectedCount;
+			_tasks = new ArrayDeque<Runnable>();
+		}
+		
+		@Override
+		public void execute(final Runnable runnable)
+		{
+			Runnable task;
+			synchronized(this)
+			{
+				_tasks.offer(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						try
+						{
+							runnable.run();
+						}
+						finally
+						{
+							scheduleNext();
+						}
+					}
+				});
+				if(_active != null)
+				{
+					return;
+				}
+				task = submitNext();
+			}
+			drain(task);
+		}
+		
+		private void scheduleNext()
+		{
+			Runnable task;
+			synchronized(this)
+			{
+				//正在当前线程上运行被拒绝的任务时由运行循环取出下一个任务, 保留 _active 使其它线程只会将任务放入队列
+				if(_draining)
+				{
+					return;
+				}
+				task = submitNext();
+			}
+			drain(task);
+		}
+		
+		//线程池拒绝执行时在当前线程上循环运行, 运行任务时不持有锁, 任务结束时调用的 scheduleNext 不会再次递归
+		private void drain(Runnable task)
+		{
+			while(task != null)
+			{
+				boolean completed = false;
+				try
+				{
+					task.run();
+					completed = true;
+				}
+				finally
+				{
+					synchronized(this)
+					{
+						_draining = false;
+						if(completed)
+						{
+							task = submitNext();
+						}
+						else
+						{
+							//任务抛出异常时结束循环, 剩余的任务由之后的 execute 调用继续处理
+							_active = null;
+						}
+					}
+				}
+			}
+		}
+		
+		//取出下一个任务交给线程池, 被拒绝时返回该任务由调用者在当前线程上运行
+		private Runnable submitNext()
+		{
+			_active = _tasks.poll();
+			if(_active == null)
+			{
+				return null;
+			}
+			try
+			{
+				_executor.execute(_active);
+				return null;
+			}
+			catch(RejectedExecutionException exception)
+			{
+				_rejectedCount.incrementAndGet();
+				_draining = true;
+				return _active;
+			}
+		}
+	}
+}
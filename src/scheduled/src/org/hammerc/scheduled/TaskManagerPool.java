@@ -23,6 +23,8 @@ public class TaskManagerPool
 	private int _period = 50;
 	//用于记录计划任务的对象池
 	private Hashtable<String, ITaskManager> _taskManagerPool;
+	//任务分发器, 为 null 时在计时器线程上直接运行任务
+	private ITaskDispatcher _dispatcher;
 	
 	/**
 	 * 创建一个 TaskManagerPool 对象.
@@ -50,6 +52,29 @@ public class TaskManagerPool
 		}
 	}
 	
+	/**
+	 * 设置任务分发器, 会应用到所有已添加及之后添加的实现了 IDispatchableTaskManager 接口的任务管理对象.
+	 * @param dispatcher 任务分发器, 为 null 时在计时器线程上直接运行到期的任务.
+	 */
+	public synchronized void setDispatcher(ITaskDispatcher dispatcher)
+	{
+		_dispatcher = dispatcher;
+		Collection<ITaskManager> values = _taskManagerPool.values();
+		Iterator<ITaskManager> value = values.iterator();
+		while(value.hasNext())
+		{
+			applyDispatcher(value.next());
+		}
+	}
+	
+	private void applyDispatcher(ITaskManager taskManager)
+	{
+		if(taskManager instanceof IDispatchableTaskManager)
+		{
+			((IDispatchableTaskManager) taskManager).setDispatcher(_dispatcher);
+		}
+	}
+	
 	/**
 	 * 添加一个任务管理对象.
 	 * @param name 该任务管理对象的名称.
@@ -57,13 +82,14 @@ public class TaskManagerPool
 	 * @return 添加的任务管理对象.
 	 * @throws RuntimeException 当指定的名称已经被使用时抛出该异常.
 	 */
-	public ITaskManager addTaskManager(String name, ITaskManager taskManager) throws RuntimeException
+	public synchronized ITaskManager addTaskManager(String name, ITaskManager taskManager) throws RuntimeException
 	{
 		if(_taskManagerPool.containsKey(name))
 		{
 			throw new RuntimeException("The name \"" + name + "\" already exists!");
 		}
 		taskManager.initialize(_period);
+		applyDispatcher(taskManager);
 		return _taskManagerPool.put(name, taskManager);
 	}
 	
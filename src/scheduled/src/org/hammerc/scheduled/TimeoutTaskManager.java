@@ -17,7 +17,7 @@ import java.util.Vector;
  * TimeoutTaskManager 类用来管理所有的超时任务.
  * @author wizardc
  */
-public class TimeoutTaskManager implements ITaskManager
+public class TimeoutTaskManager implements IDispatchableTaskManager
 {
 	//计时器执行间隔, 单位毫秒
 	private int _period = 50;
@@ -25,6 +25,8 @@ public class TimeoutTaskManager implements ITaskManager
 	private long _currentIndex = 0;
 	//记录所有超时任务的哈希表
 	private Hashtable<Long, Vector<ITimeoutTask>> _tasks;
+	//任务分发器, 为 null 时在计时器线程上直接运行任务
+	private volatile ITaskDispatcher _dispatcher;
 	
 	/**
 	 * 创建一个 TimeoutTaskManager 对象.
@@ -44,6 +46,12 @@ public class TimeoutTaskManager implements ITaskManager
 		_currentIndex = System.currentTimeMillis() / _period;
 	}
 	
+	@Override
+	public void setDispatcher(ITaskDispatcher dispatcher)
+	{
+		_dispatcher = dispatcher;
+	}
+	
 	/**
 	 * 添加一个超时任务到该管理对象中.
 	 * @param task 要添加的超时任务对象.
@@ -73,7 +81,7 @@ public class TimeoutTaskManager implements ITaskManager
 		//如果超时任务的时间已经达到则立即执行该任务
 		if(isTimeout)
 		{
-			runTask(task);
+			runTask(task, task.getExecutionTime());
 		}
 	}
 	
@@ -120,13 +128,19 @@ public class TimeoutTaskManager implements ITaskManager
 			Iterator<ITimeoutTask> task = tasks.iterator();
 			while(task.hasNext())
 			{
-				runTask(task.next());
+				runTask(task.next(), index * _period);
 			}
 		}
 	}
 	
-	private void runTask(ITimeoutTask task)
+	private void runTask(ITimeoutTask task, long scheduledTime)
 	{
+		ITaskDispatcher dispatcher = _dispatcher;
+		if(dispatcher != null)
+		{
+			dispatcher.dispatch(this, task, scheduledTime);
+			return;
+		}
 		try
 		{
 			task.run();
@@ -80,6 +80,15 @@ public class TimerManager
 		return _period;
 	}
 	
+	/**
+	 * 设置任务分发器, 设置后计时器线程只负责找出到期的任务, 任务的运行交由分发器处理.
+	 * @param dispatcher 任务分发器, 为 null 时在计时器线程上直接运行到期的任务.
+	 */
+	public void setDispatcher(ITaskDispatcher dispatcher)
+	{
+		_pool.setDispatcher(dispatcher);
+	}
+	
 	/**
 	 * 添加一个任务管理对象.
 	 * @param name 该任务管理对象的名称.
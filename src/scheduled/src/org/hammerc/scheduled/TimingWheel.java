@@ -0,0 +1,333 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.scheduled;
+
+/**
+ * 分层时间轮, 按时间索引记录节点, 添加及移除节点的时间复杂度均为 O(1).
+ * <p>第一层时间轮的每个槽对应一个时间索引, 上层时间轮的槽在第一层时间轮转完一圈时向下分配. 该类不是线程安全的, 只应在计时器线程上访问.</p>
+ * @author wizardc
+ */
+class TimingWheel
+{
+	//默认的第一层时间轮的位数, 每个槽对应一个时间索引
+	private static final int DEFAULT_ROOT_BITS = 8;
+	//默认的上层时间轮的位数
+	private static final int DEFAULT_LEVEL_BITS = 6;
+	//默认的上层时间轮的层数
+	private static final int DEFAULT_LEVELS = 4;
+	
+	//第一层时间轮的位数
+	private final int _rootBits;
+	private final long _rootMask;
+	//上层时间轮的位数
+	private final int _levelBits;
+	private final long _levelMask;
+	//上层时间轮的层数
+	private final int _levels;
+	//所有时间轮能表示的最大时间索引间隔, 超过该间隔的节点会先放在最上层时间轮的最远处
+	private final long _maxDelta;
+	
+	//记录下一个需要处理的时间索引
+	private long _currentTick;
+	//记录时间轮中的节点数量
+	private int _size;
+	//所有层级的时间轮, 第一层为 2 ^ rootBits 个槽, 其余为 2 ^ levelBits 个槽
+	private Bucket[][] _wheels;
+	
+	/**
+	 * 创建一个 TimingWheel 对象.
+	 * @param currentTick 下一个需要处理的时间索引.
+	 */
+	TimingWheel(long currentTick)
+	{
+		this(currentTick, DEFAULT_ROOT_BITS, DEFAULT_LEVEL_BITS, DEFAULT_LEVELS);
+	}
+	
+	/**
+	 * 使用指定的层级结构创建一个 TimingWheel 对象.
+	 * @param currentTick 下一个需要处理的时间索引.
+	 * @param rootBits 第一层时间轮的位数.
+	 * @param levelBits 上层时间轮的位数.
+	 * @param levels 上层时间轮的层数.
+	 */
+	TimingWheel(long currentTick, int rootBits, int levelBits, int levels)
+	{
+		_currentTick = currentTick;
+		_rootBits = rootBits;
+		_rootMask = (1L << rootBits) - 1;
+		_levelBits = levelBits;
+		_levelMask = (1L << levelBits) - 1;
+		_levels = levels;
+		_maxDelta = 1L << (rootBits + levelBits * levels);
+		_wheels = new Bucket[levels + 1][];
+		for(int level = 0; level <= levels; level++)
+		{
+			int size = 1 << (level == 0 ? rootBits : levelBits);
+			_wheels[level] = new Bucket[size];
+			for(int i = 0; i < size; i++)
+			{
+				_wheels[level][i] = new Bucket();
+			}
+		}
+	}
+	
+	/**
+	 * 获取所有时间轮能表示的最大时间索引间隔.
+	 * @return 最大时间索引间隔.
+	 */
+	long maxDelta()
+	{
+		return _maxDelta;
+	}
+	
+	/**
+	 * 获取下一个需要处理的时间索引.
+	 * @return 下一个需要处理的时间索引.
+	 */
+	long currentTick()
+	{
+		return _currentTick;
+	}
+	
+	/**
+	 * 设置下一个需要处理的时间索引, 只能在时间轮为空时调用.
+	 * @param currentTick 下一个需要处理的时间索引.
+	 */
+	void currentTick(long currentTick)
+	{
+		_currentTick = currentTick;
+	}
+	
+	/**
+	 * 获取时间轮中的节点数量.
+	 * @return 时间轮中的节点数量.
+	 */
+	int size()
+	{
+		return _size;
+	}
+	
+	/**
+	 * 按节点的 deadline 将节点放入时间轮, 已经到期的节点放到下一个需要处理的时间索引上.
+	 * @param node 要放入的节点.
+	 */
+	void add(Node node)
+	{
+		long tick = node.deadline;
+		long delta = tick - _currentTick;
+		Bucket bucket;
+		if(delta < 0)
+		{
+			bucket = _wheels[0][(int) (_currentTick & _rootMask)];
+		}
+		else if(delta <= _rootMask)
+		{
+			bucket = _wheels[0][(int) (tick & _rootMask)];
+		}
+		else
+		{
+			if(delta >= _maxDelta)
+			{
+				delta = _maxDelta - 1;
+				tick = _currentTick + delta;
+			}
+			int level = 1;
+			int shift = _rootBits;
+			while(delta >= 1L << (shift + _levelBits))
+			{
+				level++;
+				shift += _levelBits;
+			}
+			bucket = _wheels[level][(int) ((tick >>> shift) & _levelMask)];
+		}
+		bucket.add(node);
+		_size++;
+	}
+	
+	/**
+	 * 从时间轮中移除节点, 节点不在时间轮中时不进行任何操作.
+	 * @param node 要移除的节点.
+	 */
+	void remove(Node node)
+	{
+		if(node.bucket != null)
+		{
+			node.bucket.remove(node);
+			_size--;
+		}
+	}
+	
+	/**
+	 * 处理下一个时间索引并将其前移一位, 返回所有在该时间索引上到期的节点.
+	 * <p>返回的节点以 next 连接成链表且已经不在时间轮中, 调用者需要先读取 next 再重新放入节点.</p>
+	 * @return 到期节点链表的头部, 没有到期的节点时返回 null.
+	 */
+	Node expire()
+	{
+		long tick = _currentTick;
+		int index = (int) (tick & _rootMask);
+		//第一层时间轮转完一圈时将上层时间轮对应槽中的节点向下分配
+		if(index == 0)
+		{
+			for(int level = 1; level <= _levels; level++)
+			{
+				int shift = _rootBits + (level - 1) * _levelBits;
+				int levelIndex = (int) ((tick >>> shift) & _levelMask);
+				Node node = _wheels[level][levelIndex].detach();
+				while(node != null)
+				{
+					Node next = node.next;
+					_size--;
+					add(node);
+					node = next;
+				}
+				if(levelIndex != 0)
+				{
+					break;
+				}
+			}
+		}
+		Node head = null;
+		Node tail = null;
+		Node node = _wheels[0][index].detach();
+		while(node != null)
+		{
+			Node next = node.next;
+			_size--;
+			if(node.deadline > tick)
+			{
+				//被限制在最远处的节点还未到期, 重新放入
+				add(node);
+			}
+			else
+			{
+				node.next = null;
+				if(tail == null)
+				{
+					head = node;
+				}
+				else
+				{
+					tail.next = node;
+				}
+				tail = node;
+			}
+			node = next;
+		}
+		_currentTick = tick + 1;
+		return head;
+	}
+	
+	/**
+	 * 取出时间轮中的所有节点.
+	 * @return 所有节点以 next 连接成的链表的头部.
+	 */
+	Node detachAll()
+	{
+		Node head = null;
+		for(Bucket[] wheel : _wheels)
+		{
+			for(Bucket bucket : wheel)
+			{
+				Node node = bucket.detach();
+				while(node != null)
+				{
+					Node next = node.next;
+					node.next = head;
+					head = node;
+					node = next;
+				}
+			}
+		}
+		_size = 0;
+		return head;
+	}
+	
+	/**
+	 * 时间轮中的节点.
+	 * @author wizardc
+	 */
+	static class Node
+	{
+		/**
+		 * 到期的时间索引.
+		 */
+		long deadline;
+		Node prev;
+		Node next;
+		Bucket bucket;
+	}
+	
+	/**
+	 * 时间轮的槽, 使用双向链表记录其中的节点.
+	 * @author wizardc
+	 */
+	static class Bucket
+	{
+		Node head;
+		Node tail;
+		
+		void add(Node node)
+		{
+			node.bucket = this;
+			node.prev = tail;
+			node.next = null;
+			if(tail == null)
+			{
+				head = node;
+			}
+			else
+			{
+				tail.next = node;
+			}
+			tail = node;
+		}
+		
+		void remove(Node node)
+		{
+			if(node.prev == null)
+			{
+				head = node.next;
+			}
+			else
+			{
+				node.prev.next = node.next;
+			}
+			if(node.next == null)
+			{
+				tail = node.prev;
+			}
+			else
+			{
+				node.next.prev = node.prev;
+			}
+			node.prev = null;
+			node.next = null;
+			node.bucket = null;
+		}
+		
+		/**
+		 * 取出槽中的所有节点, 取出的节点只保留 next 引用.
+		 * @return 链表的头部.
+		 */
+		Node detach()
+		{
+			Node node = head;
+			for(Node n = head; n != null; n = n.next)
+			{
+				n.prev = null;
+				n.bucket = null;
+			}
+			head = null;
+			tail = null;
+			return node;
+		}
+	}
+}
@@ -0,0 +1,294 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.scheduled;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * TimingWheelTaskManager 类使用分层时间轮管理所有的超时任务.
+ * <p>添加及取消任务的时间复杂度均为 O(1), 添加和取消操作只会通过一次 CAS 压入无锁栈, 由计时器线程在每次运行时整体取出后批量放入时间轮, 同一时间索引上到期的任务会被整体取出后依次运行.</p>
+ * <p>注: 与 TimeoutTaskManager 不同, 添加时已经到期的任务不会在调用线程上立即运行, 而是在下一次计时器运行时执行.</p>
+ * @author wizardc
+ */
+public class TimingWheelTaskManager implements IDispatchableTaskManager
+{
+	//计时器执行间隔, 单位毫秒
+	private int _period = 50;
+	//记录所有已放入的超时任务的时间轮
+	private TimingWheel _wheel;
+	//等待放入时间轮的任务, 以链表形式记录的栈顶
+	private AtomicReference<Entry> _pendingEntries;
+	//等待从时间轮中移除的已取消任务, 以链表形式记录的栈顶
+	private AtomicReference<Entry> _cancelledEntries;
+	//任务分发器, 为 null 时在计时器线程上直接运行任务
+	private volatile ITaskDispatcher _dispatcher;
+	
+	/**
+	 * 创建一个 TimingWheelTaskManager 对象.
+	 */
+	public TimingWheelTaskManager()
+	{
+		this(new TimingWheel(0));
+	}
+	
+	/**
+	 * 使用指定的时间轮创建一个 TimingWheelTaskManager 对象.
+	 * @param wheel 记录超时任务的时间轮.
+	 */
+	TimingWheelTaskManager(TimingWheel wheel)
+	{
+		_wheel = wheel;
+		_pendingEntries = new AtomicReference<Entry>();
+		_cancelledEntries = new AtomicReference<Entry>();
+	}
+	
+	@Override
+	public synchronized void initialize(int period)
+	{
+		if(period > 0)
+		{
+			_period = period;
+		}
+		_wheel.currentTick(currentTimeMillis() / _period);
+	}
+	
+	@Override
+	public void setDispatcher(ITaskDispatcher dispatcher)
+	{
+		_dispatcher = dispatcher;
+	}
+	
+	/**
+	 * 添加一个超时任务到该管理对象中, 该方法线程安全且不会与计时器线程竞争锁.
+	 * @param task 要添加的超时任务对象.
+	 * @return 可以用来取消该任务的句柄.
+	 */
+	public ITimeoutHandle addTimeoutTask(ITimeoutTask task)
+	{
+		Entry entry = new Entry(this, task);
+		Entry head;
+		do
+		{
+			head = _pendingEntries.get();
+			entry.nextPending = head;
+		}
+		while(!_pendingEntries.compareAndSet(head, entry));
+		return entry;
+	}
+	
+	/**
+	 * 获取已经放入时间轮中的任务数量, 不包括上一次运行后才添加的任务.
+	 * @return 已经放入时间轮中的任务数量.
+	 */
+	public int getSize()
+	{
+		return _wheel.size();
+	}
+	
+	@Override
+	public synchronized void run()
+	{
+		long targetTick = currentTimeMillis() / _period;
+		transferCancelledEntries();
+		transferPendingEntries();
+		while(_wheel.currentTick() <= targetTick)
+		{
+			//时间轮中没有任务时直接跳到目标时间索引
+			if(_wheel.size() == 0)
+			{
+				_wheel.currentTick(targetTick + 1);
+				break;
+			}
+			long tick = _wheel.currentTick();
+			//整体取出该时间索引上的所有任务后批量运行
+			TimingWheel.Node node = _wheel.expire();
+			while(node != null)
+			{
+				Entry entry = (Entry) node;
+				node = node.next;
+				entry.next = null;
+				if(entry.expire())
+				{
+					runTask(entry.task, tick * _period);
+				}
+			}
+		}
+	}
+	
+	private void transferCancelledEntries()
+	{
+		Entry entry = _cancelledEntries.getAndSet(null);
+		while(entry != null)
+		{
+			Entry next = entry.nextCancelled;
+			entry.nextCancelled = null;
+			_wheel.remove(entry);
+			entry = next;
+		}
+	}
+	
+	private void transferPendingEntries()
+	{
+		//栈中的顺序与添加顺序相反, 先反转以保证同一时间索引上的任务按添加顺序运行
+		Entry entry = reverse(_pendingEntries.getAndSet(null));
+		while(entry != null)
+		{
+			Entry next = entry.nextPending;
+			entry.nextPending = null;
+			if(entry.state == Entry.ST_INIT)
+			{
+				//使用与 TimeoutTaskManager 相同的方式计算时间索引
+				entry.deadline = (entry.task.getExecutionTime() + _period - 1) / _period;
+				_wheel.add(entry);
+				entry.placed = true;
+			}
+			entry = next;
+		}
+	}
+	
+	private Entry reverse(Entry entry)
+	{
+		Entry result = null;
+		while(entry != null)
+		{
+			Entry next = entry.nextPending;
+			entry.nextPending = result;
+			result = entry;
+			entry = next;
+		}
+		return result;
+	}
+	
+	private void runTask(ITimeoutTask task, long scheduledTime)
+	{
+		ITaskDispatcher dispatcher = _dispatcher;
+		if(dispatcher != null)
+		{
+			dispatcher.dispatch(this, task, scheduledTime);
+			return;
+		}
+		try
+		{
+			task.run();
+		}
+		catch(Exception exception)
+		{
+		}
+	}
+	
+	@Override
+	public synchronized void clear()
+	{
+		Entry entry = _pendingEntries.getAndSet(null);
+		while(entry != null)
+		{
+			Entry next = entry.nextPending;
+			entry.nextPending = null;
+			entry.cancelQuietly();
+			entry = next;
+		}
+		_cancelledEntries.set(null);
+		TimingWheel.Node node = _wheel.detachAll();
+		while(node != null)
+		{
+			TimingWheel.Node next = node.next;
+			node.next = null;
+			((Entry) node).cancelQuietly();
+			node = next;
+		}
+		_wheel.currentTick(currentTimeMillis() / _period);
+	}
+	
+	/**
+	 * 获取当前时间, 计算时间索引时使用.
+	 * @return 当前时间的毫秒数.
+	 */
+	long currentTimeMillis()
+	{
+		return System.currentTimeMillis();
+	}
+	
+	/**
+	 * 时间轮中记录的任务, 同时作为返回给调用者的句柄.
+	 * @author wizardc
+	 */
+	static class Entry extends TimingWheel.Node implements ITimeoutHandle
+	{
+		static final int ST_INIT = 0;
+		static final int ST_CANCELLED = 1;
+		static final int ST_EXPIRED = 2;
+		
+		private static final AtomicIntegerFieldUpdater<Entry> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
+		
+		final TimingWheelTaskManager manager;
+		final ITimeoutTask task;
+		volatile int state = ST_INIT;
+		//是否已经放入过时间轮, 未放入时间轮的任务被取消后会在转移时直接丢弃
+		volatile boolean placed = false;
+		Entry nextPending;
+		Entry nextCancelled;
+		
+		Entry(TimingWheelTaskManager manager, ITimeoutTask task)
+		{
+			this.manager = manager;
+			this.task = task;
+		}
+		
+		@Override
+		public ITimeoutTask getTask()
+		{
+			return task;
+		}
+		
+		@Override
+		public boolean cancel()
+		{
+			if(!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED))
+			{
+				return false;
+			}
+			//已经放入时间轮的任务由计时器线程在下一次运行时移除, 未及时移除的任务也会在到期时被丢弃
+			if(placed)
+			{
+				Entry head;
+				do
+				{
+					head = manager._cancelledEntries.get();
+					nextCancelled = head;
+				}
+				while(!manager._cancelledEntries.compareAndSet(head, this));
+			}
+			return true;
+		}
+		
+		@Override
+		public boolean isCancelled()
+		{
+			return state == ST_CANCELLED;
+		}
+		
+		@Override
+		public boolean isExpired()
+		{
+			return state == ST_EXPIRED;
+		}
+		
+		boolean expire()
+		{
+			return STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED);
+		}
+		
+		void cancelQuietly()
+		{
+			STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED);
+		}
+	}
+}
@@ -0,0 +1,236 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.scheduled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * IntervalTaskManager 的测试, 使用可控的时间驱动 run 方法.
+ * @author wizardc
+ */
+public class IntervalTaskManagerTest
+{
+	//计时器执行间隔
+	private static final int PERIOD = 10;
+	
+	@Test
+	public void holdsTasksAddedBeforeInitialize()
+	{
+		FakeClockManager manager = new FakeClockManager();
+		manager.now = 1000;
+		RecordingTask overdue = new RecordingTask(manager, 500, 100);
+		RecordingTask future = new RecordingTask(manager, 1200, 100);
+		manager.addIntervalTask(1, overdue);
+		manager.addIntervalTask(2, future);
+		//没有初始化时运行不会处理任何任务
+		manager.run();
+		manager.now = 5000;
+		manager.run();
+		assertTrue(overdue.runTimes.isEmpty());
+		assertTrue(future.runTimes.isEmpty());
+		manager.now = 1000;
+		manager.initialize(PERIOD);
+		manager.advanceTo(1300);
+		//初始化前已经过期的任务在初始化后的第一个时间索引运行
+		assertEquals(Arrays.asList(1010L, 1110L, 1210L), overdue.runTimes);
+		assertEquals(Arrays.asList(1200L, 1300L), future.runTimes);
+	}
+	
+	@Test
+	public void removesTasksBeforePlacement()
+	{
+		FakeClockManager manager = new FakeClockManager();
+		manager.now = 1000;
+		RecordingTask task = new RecordingTask(manager, 1100, 100);
+		manager.addIntervalTask(1, task);
+		manager.removeIntervalTask(1);
+		manager.initialize(PERIOD);
+		manager.advanceTo(2000);
+		assertTrue(task.runTimes.isEmpty());
+		//移除后可以再次使用相同的 id
+		RecordingTask other = new RecordingTask(manager, 2100, 100);
+		manager.addIntervalTask(1, other);
+		manager.advanceTo(2200);
+		assertEquals(Arrays.asList(2100L, 2200L), other.runTimes);
+	}
+	
+	@Test
+	public void removesTasksAfterPlacement()
+	{
+		FakeClockManager manager = new FakeClockManager();
+		manager.initialize(PERIOD);
+		RecordingTask task = new RecordingTask(manager, 100, 100);
+		manager.addIntervalTask(1, task);
+		manager.advanceTo(300);
+		manager.removeIntervalTask(1);
+		manager.advanceTo(1000);
+		assertEquals(Arrays.asList(100L, 200L, 300L), task.runTimes);
+	}
+	
+	@Test
+	public void runsLongIntervalsAcrossLevelBoundaries()
+	{
+		FakeClockManager manager = new FakeClockManager();
+		manager.initialize(PERIOD);
+		long[] intervals = {2550, 2560, 2570, 163840, 163850};
+		List<RecordingTask> tasks = new ArrayList<RecordingTask>();
+		for(int i = 0; i < intervals.length; i++)
+		{
+			RecordingTask task = new RecordingTask(manager, intervals[i], intervals[i]);
+			manager.addIntervalTask(i, task);
+			tasks.add(task);
+		}
+		manager.advanceTo(163850 * 2);
+		for(int i = 0; i < intervals.length; i++)
+		{
+			List<Long> runTimes = tasks.get(i).runTimes;
+			assertEquals((163850 * 2) / intervals[i], runTimes.size());
+			for(int j = 0; j < runTimes.size(); j++)
+			{
+				assertEquals(intervals[i] * (j + 1), runTimes.get(j).longValue());
+			}
+		}
+	}
+	
+	@Test
+	public void stopsAfterRepeatCount()
+	{
+		FakeClockManager manager = new FakeClockManager();
+		manager.initialize(PERIOD);
+		RecordingTask task = new RecordingTask(manager, 50, 20, 2);
+		manager.addIntervalTask(1, task);
+		manager.advanceTo(500);
+		assertEquals(Arrays.asList(50L, 70L, 90L), task.runTimes);
+	}
+	
+	@Test
+	public void runsSameIndexTasksInAddOrder()
+	{
+		FakeClockManager manager = new FakeClockManager();
+		manager.initialize(PERIOD);
+		List<RecordingTask> order = new ArrayList<RecordingTask>();
+		List<RecordingTask> tasks = new ArrayList<RecordingTask>();
+		for(int i = 0; i < 5; i++)
+		{
+			RecordingTask task = new RecordingTask(manager, 100, 1000, 0);
+			task.order = order;
+			manager.addIntervalTask(i, task);
+			tasks.add(task);
+		}
+		manager.advanceTo(100);
+		assertEquals(tasks, order);
+	}
+	
+	@Test
+	public void rejectsDuplicateIdsAndShortIntervals()
+	{
+		FakeClockManager manager = new FakeClockManager();
+		manager.initialize(PERIOD);
+		manager.addIntervalTask(1, new RecordingTask(manager, 100, 100));
+		try
+		{
+			manager.addIntervalTask(1, new RecordingTask(manager, 100, 100));
+			fail();
+		}
+		catch(RuntimeException exception)
+		{
+		}
+		try
+		{
+			manager.addIntervalTask(2, new RecordingTask(manager, 100, PERIOD - 1));
+			fail();
+		}
+		catch(RuntimeException exception)
+		{
+		}
+	}
+	
+	@Test
+	public void clearDropsPendingAndPlacedTasks()
+	{
+		FakeClockManager manager = new FakeClockManager();
+		manager.initialize(PERIOD);
+		RecordingTask placed = new RecordingTask(manager, 100, 100);
+		manager.addIntervalTask(1, placed);
+		manager.advanceTo(100);
+		RecordingTask pending = new RecordingTask(manager, 200, 100);
+		manager.addIntervalTask(2, pending);
+		manager.clear();
+		manager.advanceTo(1000);
+		assertEquals(Arrays.asList(100L), placed.runTimes);
+		assertTrue(pending.runTimes.isEmpty());
+	}
+	
+	/**
+	 * 使用可控时间的 IntervalTaskManager.
+	 * @author wizardc
+	 */
+	static class FakeClockManager extends IntervalTaskManager
+	{
+		long now;
+		
+		@Override
+		long currentTimeMillis()
+		{
+			return now;
+		}
+		
+		//按计时器执行间隔逐次推进时间并运行
+		void advanceTo(long time)
+		{
+			while(now < time)
+			{
+				now += PERIOD;
+				run();
+			}
+		}
+	}
+	
+	/**
+	 * 记录每次运行时间的间隔任务.
+	 * @author wizardc
+	 */
+	static class RecordingTask extends AbstractIntervalTask
+	{
+		private FakeClockManager _manager;
+		List<RecordingTask> order;
+		List<Long> runTimes = new ArrayList<Long>();
+		
+		RecordingTask(FakeClockManager manager, long delayTime, long intervalTime)
+		{
+			super(delayTime, intervalTime);
+			_manager = manager;
+		}
+		
+		RecordingTask(FakeClockManager manager, long delayTime, long intervalTime, int repeatCount)
+		{
+			super(delayTime, intervalTime, repeatCount);
+			_manager = manager;
+		}
+		
+		@Override
+		public void run()
+		{
+			runTimes.add(_manager.now);
+			if(order != null)
+			{
+				order.add(this);
+			}
+		}
+	}
+}
@@ -0,0 +1,166 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.scheduled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * TaskDispatcher 的测试.
+ * @author wizardc
+ */
+public class TaskDispatcherTest
+{
+	//线程池关闭后仍需运行的有序任务数量
+	private static final int COUNT = 100000;
+	
+	@Test
+	public void drainsRejectedOrderedTasksWithoutRecursion() throws Exception
+	{
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		TaskDispatcher dispatcher = new TaskDispatcher(executor);
+		ITaskManager manager = new TimingWheelTaskManager();
+		dispatcher.setOrdered(manager, true);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Integer> order = new ArrayList<Integer>();
+		dispatcher.dispatch(manager, new IScheduledTask()
+		{
+			@Override
+			public void run()
+			{
+				started.countDown();
+				try
+				{
+					release.await();
+				}
+				catch(InterruptedException exception)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, 0);
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		for(int i = 0; i < COUNT; i++)
+		{
+			final int index = i;
+			dispatcher.dispatch(manager, new IScheduledTask()
+			{
+				@Override
+				public void run()
+				{
+					order.add(index);
+				}
+			}, 0);
+		}
+		executor.shutdown();
+		release.countDown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		assertEquals(COUNT, order.size());
+		for(int i = 0; i < COUNT; i++)
+		{
+			assertEquals(i, order.get(i).intValue());
+		}
+		assertEquals(COUNT + 1, dispatcher.getCompletedCount());
+		assertEquals(0, dispatcher.getFailedCount());
+		assertEquals(COUNT, dispatcher.getRejectedCount());
+	}
+	
+	@Test
+	public void runsRejectedOrderedTasksOnCallerAfterShutdown()
+	{
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		executor.shutdown();
+		TaskDispatcher dispatcher = new TaskDispatcher(executor);
+		ITaskManager manager = new TimingWheelTaskManager();
+		dispatcher.setOrdered(manager, true);
+		final List<Integer> order = new ArrayList<Integer>();
+		for(int i = 0; i < 3; i++)
+		{
+			final int index = i;
+			dispatcher.dispatch(manager, new IScheduledTask()
+			{
+				@Override
+				public void run()
+				{
+					order.add(index);
+				}
+			}, 0);
+		}
+		assertEquals(3, order.size());
+		assertEquals(0, order.get(0).intValue());
+		assertEquals(2, order.get(2).intValue());
+		assertEquals(3, dispatcher.getCompletedCount());
+		assertEquals(3, dispatcher.getRejectedCount());
+	}
+	
+	@Test
+	public void dispatchesWhileRejectedTaskRunsOnCaller() throws Exception
+	{
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		executor.shutdown();
+		final TaskDispatcher dispatcher = new TaskDispatcher(executor);
+		final ITaskManager manager = new TimingWheelTaskManager();
+		dispatcher.setOrdered(manager, true);
+		final List<Integer> order = new ArrayList<Integer>();
+		final IScheduledTask second = new IScheduledTask()
+		{
+			@Override
+			public void run()
+			{
+				order.add(1);
+			}
+		};
+		final Thread[] other = new Thread[1];
+		dispatcher.dispatch(manager, new IScheduledTask()
+		{
+			@Override
+			public void run()
+			{
+				//在当前线程上运行被拒绝的任务时不能持有锁, 否则其它线程的分发会被阻塞
+				other[0] = new Thread(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						dispatcher.dispatch(manager, second, 0);
+					}
+				});
+				other[0].start();
+				try
+				{
+					other[0].join(5000);
+				}
+				catch(InterruptedException exception)
+				{
+					Thread.currentThread().interrupt();
+				}
+				order.add(0);
+			}
+		}, 0);
+		assertFalse(other[0].isAlive());
+		//另一个线程分发的任务排队后由当前线程按顺序运行
+		assertEquals(2, order.size());
+		assertEquals(0, order.get(0).intValue());
+		assertEquals(1, order.get(1).intValue());
+		assertEquals(2, dispatcher.getCompletedCount());
+		assertEquals(2, dispatcher.getRejectedCount());
+	}
+}
@@ -0,0 +1,238 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.scheduled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * TimingWheelTaskManager 的测试, 使用可控的时间驱动 run 方法.
+ * @author wizardc
+ */
+public class TimingWheelTaskManagerTest
+{
+	//计时器执行间隔
+	private static final int PERIOD = 10;
+	
+	@Test
+	public void runsTasksAcrossLevelBoundaries()
+	{
+		FakeClockManager manager = new FakeClockManager(new TimingWheel(0));
+		manager.initialize(PERIOD);
+		long[] times = {5, 2550, 2560, 2570, 163830, 163840, 163850, 10485750, 10485760, 10485770};
+		List<RecordingTask> tasks = new ArrayList<RecordingTask>();
+		for(long time : times)
+		{
+			RecordingTask task = new RecordingTask(manager, time);
+			manager.addTimeoutTask(task);
+			tasks.add(task);
+		}
+		manager.advanceTo(10485800);
+		assertRunOnTime(tasks);
+		assertEquals(0, manager.getSize());
+	}
+	
+	@Test
+	public void runsTasksBeyondMaxDelta()
+	{
+		//最大时间索引间隔为 64 个时间索引, 即 640 毫秒
+		FakeClockManager manager = new FakeClockManager(new TimingWheel(0, 2, 2, 2));
+		manager.initialize(PERIOD);
+		List<RecordingTask> tasks = new ArrayList<RecordingTask>();
+		long[] times = {635, 640, 645, 1925, 6400, 40965};
+		for(long time : times)
+		{
+			RecordingTask task = new RecordingTask(manager, time);
+			manager.addTimeoutTask(task);
+			tasks.add(task);
+		}
+		manager.advanceTo(41000);
+		assertRunOnTime(tasks);
+		assertEquals(0, manager.getSize());
+	}
+	
+	@Test
+	public void runsOverdueTasksOnNextRun()
+	{
+		FakeClockManager manager = new FakeClockManager(new TimingWheel(0));
+		manager.now = 1000;
+		manager.initialize(PERIOD);
+		RecordingTask task = new RecordingTask(manager, 500);
+		manager.addTimeoutTask(task);
+		manager.run();
+		assertEquals(1, task.runs);
+		assertEquals(1000, task.runTime);
+	}
+	
+	@Test
+	public void runsSameTickTasksInAddOrder()
+	{
+		FakeClockManager manager = new FakeClockManager(new TimingWheel(0));
+		manager.initialize(PERIOD);
+		List<RecordingTask> order = new ArrayList<RecordingTask>();
+		List<RecordingTask> tasks = new ArrayList<RecordingTask>();
+		for(int i = 0; i < 5; i++)
+		{
+			RecordingTask task = new RecordingTask(manager, 300, order);
+			manager.addTimeoutTask(task);
+			tasks.add(task);
+		}
+		manager.advanceTo(300);
+		assertEquals(tasks, order);
+	}
+	
+	@Test
+	public void cancelBeforePlacement()
+	{
+		FakeClockManager manager = new FakeClockManager(new TimingWheel(0));
+		manager.initialize(PERIOD);
+		RecordingTask task = new RecordingTask(manager, 100);
+		ITimeoutHandle handle = manager.addTimeoutTask(task);
+		assertTrue(handle.cancel());
+		assertFalse(handle.cancel());
+		manager.run();
+		//未放入时间轮的任务被取消后直接丢弃
+		assertEquals(0, manager.getSize());
+		manager.advanceTo(1000);
+		assertEquals(0, task.runs);
+		assertTrue(handle.isCancelled());
+		assertFalse(handle.isExpired());
+	}
+	
+	@Test
+	public void cancelAfterPlacement()
+	{
+		FakeClockManager manager = new FakeClockManager(new TimingWheel(0));
+		manager.initialize(PERIOD);
+		RecordingTask task = new RecordingTask(manager, 5000);
+		ITimeoutHandle handle = manager.addTimeoutTask(task);
+		manager.run();
+		assertEquals(1, manager.getSize());
+		assertTrue(handle.cancel());
+		manager.run();
+		assertEquals(0, manager.getSize());
+		manager.advanceTo(6000);
+		assertEquals(0, task.runs);
+	}
+	
+	@Test
+	public void cancelAfterExpireFails()
+	{
+		FakeClockManager manager = new FakeClockManager(new TimingWheel(0));
+		manager.initialize(PERIOD);
+		RecordingTask task = new RecordingTask(manager, 50);
+		ITimeoutHandle handle = manager.addTimeoutTask(task);
+		manager.advanceTo(50);
+		assertEquals(1, task.runs);
+		assertTrue(handle.isExpired());
+		assertFalse(handle.cancel());
+		assertFalse(handle.isCancelled());
+	}
+	
+	@Test
+	public void clearCancelsPendingAndPlacedTasks()
+	{
+		FakeClockManager manager = new FakeClockManager(new TimingWheel(0));
+		manager.initialize(PERIOD);
+		RecordingTask placed = new RecordingTask(manager, 500);
+		ITimeoutHandle placedHandle = manager.addTimeoutTask(placed);
+		manager.run();
+		RecordingTask pending = new RecordingTask(manager, 500);
+		ITimeoutHandle pendingHandle = manager.addTimeoutTask(pending);
+		manager.clear();
+		assertTrue(placedHandle.isCancelled());
+		assertTrue(pendingHandle.isCancelled());
+		manager.advanceTo(1000);
+		assertEquals(0, placed.runs + pending.runs);
+		assertEquals(0, manager.getSize());
+	}
+	
+	//每个任务只能运行一次, 运行时的时间不早于计划时间且不晚于计划时间所在的时间索引
+	private static void assertRunOnTime(List<RecordingTask> tasks)
+	{
+		for(RecordingTask task : tasks)
+		{
+			long time = task.getExecutionTime();
+			assertEquals("runs of " + time, 1, task.runs);
+			assertEquals("run time of " + time, (time + PERIOD - 1) / PERIOD * PERIOD, task.runTime);
+		}
+	}
+	
+	/**
+	 * 使用可控时间的管理对象.
+	 * @author wizardc
+	 */
+	static class FakeClockManager extends TimingWheelTaskManager
+	{
+		long now;
+		
+		FakeClockManager(TimingWheel wheel)
+		{
+			super(wheel);
+		}
+		
+		@Override
+		long currentTimeMillis()
+		{
+			return now;
+		}
+		
+		//按计时器执行间隔逐次推进时间并运行
+		void advanceTo(long time)
+		{
+			while(now < time)
+			{
+				now += PERIOD;
+				run();
+			}
+		}
+	}
+	
+	/**
+	 * 记录运行次数及运行时间的任务.
+	 * @author wizardc
+	 */
+	static class RecordingTask extends AbstractTimeoutTask
+	{
+		private FakeClockManager _manager;
+		private List<RecordingTask> _order;
+		int runs;
+		long runTime = -1;
+		
+		RecordingTask(FakeClockManager manager, long time)
+		{
+			this(manager, time, null);
+		}
+		
+		RecordingTask(FakeClockManager manager, long time, List<RecordingTask> order)
+		{
+			super(time);
+			_manager = manager;
+			_order = order;
+		}
+		
+		@Override
+		public void run()
+		{
+			runs++;
+			runTime = _manager.now;
+			if(_order != null)
+			{
+				_order.add(this);
+			}
+		}
+	}
+}
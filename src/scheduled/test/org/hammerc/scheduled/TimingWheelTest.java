@@ -0,0 +1,147 @@
+// =================================================================================================
+//
+//	Hammerc Framework
+//	Copyright 2013 hammerc.org All Rights Reserved.
+//
+//	See LICENSE for full license information.
+//
+// =================================================================================================
+
+package org.hammerc.scheduled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * TimingWheel 的测试, 逐个时间索引取出到期节点并检查到期时间.
+ * @author wizardc
+ */
+public class TimingWheelTest
+{
+	@Test
+	public void expiresAcrossDefaultLevelBoundaries()
+	{
+		TimingWheel wheel = new TimingWheel(0);
+		long[] deadlines = {0, 1, 255, 256, 257, 16383, 16384, 16385, 1048575, 1048576, 1048577};
+		List<TimingWheel.Node> nodes = new ArrayList<TimingWheel.Node>();
+		for(long deadline : deadlines)
+		{
+			nodes.add(add(wheel, deadline));
+		}
+		assertExpireAtDeadline(wheel, nodes, 1048578);
+	}
+	
+	@Test
+	public void expiresAcrossSmallLevelBoundaries()
+	{
+		//每层 4 个槽, 共 3 层, 最大时间索引间隔为 64
+		TimingWheel wheel = new TimingWheel(5, 2, 2, 2);
+		assertEquals(64, wheel.maxDelta());
+		Random random = new Random(42);
+		List<TimingWheel.Node> nodes = new ArrayList<TimingWheel.Node>();
+		for(int i = 0; i < 500; i++)
+		{
+			nodes.add(add(wheel, 5 + random.nextInt(60)));
+		}
+		assertExpireAtDeadline(wheel, nodes, 70);
+	}
+	
+	@Test
+	public void clampsDeadlinesBeyondMaxDelta()
+	{
+		TimingWheel wheel = new TimingWheel(3, 2, 2, 2);
+		List<TimingWheel.Node> nodes = new ArrayList<TimingWheel.Node>();
+		long[] deadlines = {3 + 63, 3 + 64, 3 + 65, 3 + 200, 3 + 1000, 3 + 4096 + 7};
+		for(long deadline : deadlines)
+		{
+			nodes.add(add(wheel, deadline));
+		}
+		assertExpireAtDeadline(wheel, nodes, 3 + 4096 + 8);
+	}
+	
+	@Test
+	public void expiresOverdueNodesOnNextTick()
+	{
+		TimingWheel wheel = new TimingWheel(100, 2, 2, 2);
+		TimingWheel.Node node = add(wheel, 10);
+		assertTrue(wheel.expire() == node);
+		assertEquals(0, wheel.size());
+	}
+	
+	@Test
+	public void removedNodesNeverExpire()
+	{
+		TimingWheel wheel = new TimingWheel(0, 2, 2, 2);
+		TimingWheel.Node near = add(wheel, 2);
+		TimingWheel.Node far = add(wheel, 40);
+		TimingWheel.Node kept = add(wheel, 40);
+		wheel.remove(near);
+		wheel.remove(far);
+		//重复移除不会改变节点数量
+		wheel.remove(far);
+		assertEquals(1, wheel.size());
+		for(long tick = 0; tick < 40; tick++)
+		{
+			assertNull(wheel.expire());
+		}
+		assertTrue(wheel.expire() == kept);
+		assertEquals(0, wheel.size());
+	}
+	
+	@Test
+	public void detachAllEmptiesEveryLevel()
+	{
+		TimingWheel wheel = new TimingWheel(0, 2, 2, 2);
+		for(int i = 0; i < 100; i++)
+		{
+			add(wheel, i * 3);
+		}
+		int count = 0;
+		for(TimingWheel.Node node = wheel.detachAll(); node != null; node = node.next)
+		{
+			count++;
+		}
+		assertEquals(100, count);
+		assertEquals(0, wheel.size());
+		for(int i = 0; i < 400; i++)
+		{
+			assertNull(wheel.expire());
+		}
+	}
+	
+	private static TimingWheel.Node add(TimingWheel wheel, long deadline)
+	{
+		TimingWheel.Node node = new TimingWheel.Node();
+		node.deadline = deadline;
+		wheel.add(node);
+		return node;
+	}
+	
+	//逐个时间索引取出节点, 每个节点只能在到期的时间索引上被取出一次
+	private static void assertExpireAtDeadline(TimingWheel wheel, List<TimingWheel.Node> nodes, long endTick)
+	{
+		int expired = 0;
+		while(wheel.currentTick() < endTick)
+		{
+			long tick = wheel.currentTick();
+			TimingWheel.Node node = wheel.expire();
+			while(node != null)
+			{
+				assertEquals(node.deadline, tick);
+				assertTrue(nodes.remove(node));
+				expired++;
+				node = node.next;
+			}
+		}
+		assertTrue("Not expired: " + nodes.size(), nodes.isEmpty());
+		assertEquals(0, wheel.size());
+		assertTrue(expired > 0);
+	}
+}